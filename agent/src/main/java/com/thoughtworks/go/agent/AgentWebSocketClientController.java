@@ -167,7 +167,9 @@ public class AgentWebSocketClientController extends AgentController {
         URLService urlService = new URLService();
         TaggedStreamConsumer buildConsole;
 
-        if (getSystemEnvironment().isConsoleLogsThroughWebsocketEnabled()) {
+        if (getSystemEnvironment().isConsoleLogsThroughWebsocketEnabled() && getSystemEnvironment().isConsoleLogsThroughWebsocketBatchingEnabled()) {
+            buildConsole = new BatchingConsoleOutputWebsocketTransmitter(webSocketSessionHandler, buildSettings.getBuildId(), getSystemEnvironment());
+        } else if (getSystemEnvironment().isConsoleLogsThroughWebsocketEnabled()) {
             buildConsole = new ConsoleOutputWebsocketTransmitter(webSocketSessionHandler, buildSettings.getBuildId());
         } else {
             buildConsole = new ConsoleOutputTransmitter(
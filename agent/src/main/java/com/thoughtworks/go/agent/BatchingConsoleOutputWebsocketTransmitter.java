@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.agent;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.command.TaggedStreamConsumer;
+import com.thoughtworks.go.websocket.Action;
+import com.thoughtworks.go.websocket.ConsoleFrameTransmission;
+import com.thoughtworks.go.websocket.ConsoleTransmission;
+import com.thoughtworks.go.websocket.Message;
+import com.thoughtworks.go.websocket.MessageCallback;
+import com.thoughtworks.go.websocket.MessageEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accumulates console lines into frames bounded by size and time, and streams them to the server
+ * keeping at most <code>windowSize</code> frames waiting for an acknowledgement at any time.
+ * Producers only block when the window is full, and never while another producer is waiting to append a line.
+ * A frame which cannot get into the window in time is sent anyway, rather than failing the build.
+ */
+public class BatchingConsoleOutputWebsocketTransmitter implements TaggedStreamConsumer, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingConsoleOutputWebsocketTransmitter.class);
+
+    private final WebSocketSessionHandler webSocketSessionHandler;
+    private final String buildId;
+    private final int maxFrameBytes;
+    private final int windowSize;
+    private final long ackTimeout;
+    private final int maxAckWaits;
+    private final Semaphore window;
+    private final ScheduledExecutorService executor;
+    // frames are sent one at a time and in order, without holding the monitor which guards the frame being built
+    private final Object sendLock = new Object();
+
+    private final Queue<ConsoleFrameTransmission> framesToSend = new ArrayDeque<>();
+    private StringBuilder frame = new StringBuilder();
+    private int bytesInFrame;
+    private int linesInFrame;
+
+    public BatchingConsoleOutputWebsocketTransmitter(WebSocketSessionHandler webSocketSessionHandler, String buildId, SystemEnvironment systemEnvironment) {
+        this(webSocketSessionHandler, buildId, systemEnvironment, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    BatchingConsoleOutputWebsocketTransmitter(WebSocketSessionHandler webSocketSessionHandler, String buildId, SystemEnvironment systemEnvironment, ScheduledExecutorService executor) {
+        this.webSocketSessionHandler = webSocketSessionHandler;
+        this.buildId = buildId;
+        this.maxFrameBytes = systemEnvironment.getConsoleLogsWebsocketFrameMaxBytes();
+        this.windowSize = systemEnvironment.getConsoleLogsWebsocketWindowSize();
+        this.ackTimeout = systemEnvironment.getWebsocketAckMessageTimeout();
+        this.maxAckWaits = Math.max(1, systemEnvironment.getWebsocketSendRetryCount());
+        this.window = new Semaphore(windowSize);
+        this.executor = executor;
+        long flushInterval = systemEnvironment.getConsoleLogsWebsocketFrameFlushInterval();
+        this.executor.scheduleWithFixedDelay(this, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void consumeLine(String line) {
+        taggedConsumeLine(null, line);
+    }
+
+    @Override
+    public void taggedConsumeLine(String tag, String line) {
+        boolean frameIsFull;
+        synchronized (this) {
+            String transmittedLine = new ConsoleTransmission(tag, line, buildId).getLine();
+            frame.append(transmittedLine);
+            bytesInFrame += transmittedLine.getBytes(StandardCharsets.UTF_8).length;
+            linesInFrame++;
+            frameIsFull = bytesInFrame >= maxFrameBytes;
+            if (frameIsFull) {
+                completeFrame();
+            }
+        }
+        if (frameIsFull) {
+            sendCompletedFrames();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            LOG.warn("Could not send console output to server", e);
+        }
+    }
+
+    public void flush() {
+        synchronized (this) {
+            completeFrame();
+        }
+        sendCompletedFrames();
+    }
+
+    @Override
+    public void stop() {
+        try {
+            flush();
+            if (acquire(windowSize)) {
+                window.release(windowSize);
+            } else {
+                LOG.warn("Timed out waiting for acknowledgement of console frames for build {}", buildId);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void completeFrame() {
+        if (linesInFrame == 0) {
+            return;
+        }
+        framesToSend.add(new ConsoleFrameTransmission(buildId, linesInFrame, frame.toString()));
+        frame = new StringBuilder();
+        bytesInFrame = 0;
+        linesInFrame = 0;
+    }
+
+    private void sendCompletedFrames() {
+        synchronized (sendLock) {
+            while (true) {
+                ConsoleFrameTransmission transmission;
+                synchronized (this) {
+                    transmission = framesToSend.peek();
+                }
+                if (transmission == null) {
+                    return;
+                }
+                WindowPermit permit = new WindowPermit(awaitRoomInWindow());
+                synchronized (this) {
+                    framesToSend.remove();
+                }
+                webSocketSessionHandler.sendWithCallback(new Message(Action.consoleOutFrame, MessageEncoding.encodeData(transmission)), permit);
+            }
+        }
+    }
+
+    private boolean awaitRoomInWindow() {
+        for (int attempt = 1; attempt <= maxAckWaits; attempt++) {
+            if (acquire(1)) {
+                return true;
+            }
+            LOG.warn("Timed out waiting for acknowledgement of console frames for build {}, attempt {} of {}", buildId, attempt, maxAckWaits);
+        }
+        LOG.warn("No acknowledgement of console frames for build {}, sending the next frame anyway", buildId);
+        return false;
+    }
+
+    private boolean acquire(int permits) {
+        try {
+            return window.tryAcquire(permits, ackTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // gives back the room a frame took in the window once, whether the frame is acknowledged or never will be
+    private class WindowPermit implements MessageCallback {
+        private final AtomicBoolean held;
+
+        WindowPermit(boolean acquired) {
+            this.held = new AtomicBoolean(acquired);
+        }
+
+        @Override
+        public void call() {
+            release();
+        }
+
+        @Override
+        public void discarded() {
+            release();
+        }
+
+        private void release() {
+            if (held.compareAndSet(true, false)) {
+                window.release();
+            }
+        }
+    }
+}
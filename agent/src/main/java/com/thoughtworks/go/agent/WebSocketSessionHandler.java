@@ -94,7 +94,7 @@ public class WebSocketSessionHandler {
         return false;
     }
 
-    private void sendWithCallback(Message message, MessageCallback callback) {
+    void sendWithCallback(Message message, MessageCallback callback) {
         callbacks.put(message.getAcknowledgementId(), callback);
         send(message);
     }
@@ -120,6 +120,11 @@ public class WebSocketSessionHandler {
 
     void clearCallBacks() {
         LOG.debug("Clearing {} ignored messages", callbacks.size());
-        callbacks.clear();
+        for (String acknowledgementId : callbacks.keySet()) {
+            MessageCallback callback = callbacks.remove(acknowledgementId);
+            if (callback != null) {
+                callback.discarded();
+            }
+        }
     }
 }
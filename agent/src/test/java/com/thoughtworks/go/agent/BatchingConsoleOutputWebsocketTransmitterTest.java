@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.agent;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.websocket.Action;
+import com.thoughtworks.go.websocket.ConsoleFrameTransmission;
+import com.thoughtworks.go.websocket.Message;
+import com.thoughtworks.go.websocket.MessageCallback;
+import com.thoughtworks.go.websocket.MessageEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BatchingConsoleOutputWebsocketTransmitterTest {
+    private WebSocketSessionHandler handler;
+    private ScheduledExecutorService executor;
+    private SystemEnvironment systemEnvironment;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = mock(WebSocketSessionHandler.class);
+        executor = mock(ScheduledExecutorService.class);
+        systemEnvironment = new SystemEnvironment();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        systemEnvironment.reset(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_FRAME_MAX_BYTES);
+        systemEnvironment.reset(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE);
+        systemEnvironment.reset(SystemEnvironment.GO_WEBSOCKET_ACK_MESSAGE_TIMEOUT);
+        systemEnvironment.reset(SystemEnvironment.GO_WEBSOCKET_SEND_RETRY_COUNT);
+    }
+
+    @Test
+    public void shouldSendBufferedLinesAsSingleFrameOnFlush() throws Exception {
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+
+        transmitter.consumeLine("first");
+        transmitter.taggedConsumeLine("&1", "second");
+        verify(handler, never()).sendWithCallback(any(Message.class), any(MessageCallback.class));
+
+        transmitter.flush();
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(handler).sendWithCallback(message.capture(), any(MessageCallback.class));
+        assertThat(message.getValue().getAction(), is(Action.consoleOutFrame));
+        ConsoleFrameTransmission frame = MessageEncoding.decodeData(message.getValue().getData(), ConsoleFrameTransmission.class);
+        assertThat(frame.getBuildId(), is("42"));
+        assertThat(frame.getLineCount(), is(2));
+        assertThat(frame.getContent(), containsString(" first\n"));
+        assertThat(frame.getContent(), containsString(" second\n"));
+    }
+
+    @Test
+    public void shouldSendFrameAsSoonAsItExceedsMaxFrameSize() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_FRAME_MAX_BYTES, 10);
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+
+        transmitter.consumeLine("a line longer than ten bytes");
+        transmitter.consumeLine("another line longer than ten bytes");
+
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(handler, times(2)).sendWithCallback(messages.capture(), any(MessageCallback.class));
+        List<Message> sent = messages.getAllValues();
+        assertThat(MessageEncoding.decodeData(sent.get(0).getData(), ConsoleFrameTransmission.class).getContent(), containsString("a line longer than ten bytes"));
+        assertThat(MessageEncoding.decodeData(sent.get(1).getData(), ConsoleFrameTransmission.class).getContent(), containsString("another line longer than ten bytes"));
+    }
+
+    @Test
+    public void shouldMeasureFrameSizeInBytesRatherThanCharacters() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_FRAME_MAX_BYTES, 100);
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+        String line = "\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9";
+
+        transmitter.consumeLine(line);
+        verify(handler, never()).sendWithCallback(any(Message.class), any(MessageCallback.class));
+
+        transmitter.consumeLine(line);
+        verify(handler).sendWithCallback(any(Message.class), any(MessageCallback.class));
+    }
+
+    @Test
+    public void shouldHoldBackFramesWhileWindowIsFullAndSendThemAnywayOnceWaitingTimesOut() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE, 1);
+        systemEnvironment.set(SystemEnvironment.GO_WEBSOCKET_ACK_MESSAGE_TIMEOUT, 10L);
+        systemEnvironment.set(SystemEnvironment.GO_WEBSOCKET_SEND_RETRY_COUNT, 2);
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+
+        transmitter.consumeLine("first");
+        transmitter.flush();
+        transmitter.consumeLine("second");
+        long start = System.currentTimeMillis();
+        transmitter.flush();
+
+        assertThat(System.currentTimeMillis() - start >= 20, is(true));
+        verify(handler, times(2)).sendWithCallback(any(Message.class), any(MessageCallback.class));
+    }
+
+    @Test
+    public void shouldGetRoomInWindowBackForFramesWhichWillNeverBeAcknowledged() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE, 1);
+        systemEnvironment.set(SystemEnvironment.GO_WEBSOCKET_ACK_MESSAGE_TIMEOUT, 500L);
+        systemEnvironment.set(SystemEnvironment.GO_WEBSOCKET_SEND_RETRY_COUNT, 1);
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+        transmitter.consumeLine("first");
+        transmitter.flush();
+        ArgumentCaptor<MessageCallback> callback = ArgumentCaptor.forClass(MessageCallback.class);
+        verify(handler).sendWithCallback(any(Message.class), callback.capture());
+
+        // as on reconnecting, when the callbacks of unacknowledged messages are cleared
+        callback.getValue().discarded();
+        callback.getValue().call();
+
+        long start = System.currentTimeMillis();
+        transmitter.consumeLine("second");
+        transmitter.flush();
+        assertThat(System.currentTimeMillis() - start < 500, is(true));
+        verify(handler, times(2)).sendWithCallback(any(Message.class), any(MessageCallback.class));
+
+        start = System.currentTimeMillis();
+        transmitter.consumeLine("third");
+        transmitter.flush();
+        assertThat("room for one frame only was given back", System.currentTimeMillis() - start >= 500, is(true));
+        verify(handler, times(3)).sendWithCallback(any(Message.class), any(MessageCallback.class));
+    }
+
+    @Test
+    public void shouldNotSendEmptyFrames() throws Exception {
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+
+        transmitter.flush();
+
+        verify(handler, never()).sendWithCallback(any(Message.class), any(MessageCallback.class));
+    }
+
+    @Test
+    public void shouldFlushAndWaitForOutstandingAcknowledgementsOnStop() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE, 2);
+        doAnswer(invocation -> {
+            MessageCallback callback = invocation.getArgument(1);
+            new Thread(callback::call).start();
+            return null;
+        }).when(handler).sendWithCallback(any(Message.class), any(MessageCallback.class));
+        BatchingConsoleOutputWebsocketTransmitter transmitter = new BatchingConsoleOutputWebsocketTransmitter(handler, "42", systemEnvironment, executor);
+
+        transmitter.consumeLine("last line");
+        transmitter.stop();
+
+        verify(handler).sendWithCallback(any(Message.class), any(MessageCallback.class));
+        verify(executor).shutdown();
+    }
+}
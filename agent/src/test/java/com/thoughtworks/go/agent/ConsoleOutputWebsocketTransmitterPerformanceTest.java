@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.agent;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.command.TaggedStreamConsumer;
+import com.thoughtworks.go.websocket.Action;
+import com.thoughtworks.go.websocket.Message;
+import com.thoughtworks.go.websocket.MessageEncoding;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.LogicalConnection;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares lines per second streamed through per-line acknowledged messages against batched frames
+ * when every acknowledgement takes a simulated server round trip.
+ */
+@Ignore
+public class ConsoleOutputWebsocketTransmitterPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputWebsocketTransmitterPerformanceTest.class);
+    private static final int NUMBER_OF_LINES = 2000;
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    private ScheduledExecutorService server;
+    private WebSocketSessionHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        server = Executors.newSingleThreadScheduledExecutor();
+        handler = new WebSocketSessionHandler(new SystemEnvironment());
+        Session session = mock(Session.class);
+        when(session.getRemote()).thenReturn(new DelayedAcknowledgingEndpoint());
+        handler.setSession(session);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void batchedFramesShouldStreamMoreLinesPerSecondThanPerLineMessages() throws Exception {
+        double perLine = linesPerSecond(new ConsoleOutputWebsocketTransmitter(handler, "1"));
+        double batched = linesPerSecond(new BatchingConsoleOutputWebsocketTransmitter(handler, "1", new SystemEnvironment()));
+
+        LOGGER.info(String.format("per line messages: %.0f lines/sec, batched frames: %.0f lines/sec", perLine, batched));
+        assertThat(batched, greaterThan(perLine));
+    }
+
+    private double linesPerSecond(TaggedStreamConsumer transmitter) {
+        long start = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_LINES; i++) {
+            transmitter.taggedConsumeLine(TaggedStreamConsumer.OUT, "This is line " + i + " of a rather chatty build");
+        }
+        transmitter.stop();
+        long elapsed = System.nanoTime() - start;
+        return NUMBER_OF_LINES / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private class DelayedAcknowledgingEndpoint extends WebSocketRemoteEndpoint {
+        DelayedAcknowledgingEndpoint() {
+            super(mock(LogicalConnection.class), mock(OutgoingFrames.class));
+        }
+
+        @Override
+        public Future<Void> sendBytesByFuture(ByteBuffer data) {
+            Message message = MessageEncoding.decodeMessage(new ByteArrayInputStream(data.array()));
+            server.schedule(() -> handler.acknowledge(new Message(Action.acknowledge, MessageEncoding.encodeData(message.getAcknowledgementId()))), ROUND_TRIP_MILLIS, TimeUnit.MILLISECONDS);
+            return null;
+        }
+    }
+}
@@ -20,8 +20,12 @@ import com.thoughtworks.go.domain.Property;
 import com.thoughtworks.go.helper.TestStreamConsumer;
 import com.thoughtworks.go.util.CachedDigestUtils;
 import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.StreamingZipArtifact;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -64,6 +68,11 @@ public class UrlBasedArtifactsRepositoryTest {
         artifactsRepository = new UrlBasedArtifactsRepository(httpService, "http://baseurl/artifacts/", "http://baseurl/properties/", new ZipUtil());
     }
 
+    @After
+    public void tearDown() {
+        new SystemEnvironment().reset(SystemEnvironment.ARTIFACT_STREAMING_UPLOAD);
+    }
+
     @Test
     public void shouldBombWithErrorWhenStatusCodeReturnedIsRequestEntityTooLarge() throws IOException, InterruptedException {
         when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), any(Properties.class))).thenReturn(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
@@ -124,6 +133,26 @@ public class UrlBasedArtifactsRepositoryTest {
     }
 
 
+    @Test
+    public void shouldZipArtifactWhileUploadingItWhenStreamingUploadsAreEnabled() throws IOException {
+        new SystemEnvironment().set(SystemEnvironment.ARTIFACT_STREAMING_UPLOAD, true);
+        String data = "Some text whose checksum can be asserted";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        Properties uploadedChecksums = new Properties();
+
+        when(httpService.upload(eq("http://baseurl/artifacts/dest/path?attempt=1&buildId=build42"), eq(tempFile.length()), any(StreamingZipArtifact.class))).thenAnswer(invocation -> {
+            StreamingZipArtifact artifact = invocation.getArgument(2);
+            artifact.writeTo(new NullOutputStream());
+            uploadedChecksums.putAll(artifact.checksums());
+            return HttpServletResponse.SC_OK;
+        });
+
+        artifactsRepository.upload(console, tempFile, "dest/path", "build42");
+
+        assertThat(uploadedChecksums.getProperty("dest/path/file.txt"), is(CachedDigestUtils.md5Hex(data)));
+        verify(httpService, never()).upload(any(String.class), anyLong(), any(File.class), any(Properties.class));
+    }
+
     @Test
     public void shouldUploadArtifactChecksumAlongWithArtifact() throws IOException {
         String data = "Some text whose checksum can be asserted";
@@ -19,6 +19,7 @@ package com.thoughtworks.go.agent;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.websocket.Action;
 import com.thoughtworks.go.websocket.Message;
+import com.thoughtworks.go.websocket.MessageCallback;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
 import org.eclipse.jetty.websocket.common.LogicalConnection;
@@ -69,6 +70,19 @@ public class WebSocketSessionHandlerTest {
         assertThat(sendThread.isAlive(), is(false));
     }
 
+    @Test
+    public void shouldLetCallbacksKnowTheirMessagesWillNotBeAcknowledgedWhenClearingThem() throws Exception {
+        when(session.getRemote()).thenReturn(new FakeWebSocketEndpoint(() -> {
+        }));
+        MessageCallback callback = mock(MessageCallback.class);
+        handler.sendWithCallback(new Message(Action.reportCurrentStatus), callback);
+
+        handler.clearCallBacks();
+
+        verify(callback).discarded();
+        verify(callback, never()).call();
+    }
+
     @Test
     public void shouldReturnTrueIfNotRunning() throws Exception {
         assertThat(handler.isNotRunning(), is(true));
@@ -25,6 +25,7 @@ import com.thoughtworks.go.apiv3.dashboard.representers.DashboardFor;
 import com.thoughtworks.go.apiv3.dashboard.representers.DashboardRepresenter;
 import com.thoughtworks.go.server.dashboard.GoDashboardEnvironment;
 import com.thoughtworks.go.server.dashboard.GoDashboardPipelineGroup;
+import com.thoughtworks.go.server.dashboard.GoDashboardView;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.domain.user.DashboardFilter;
 import com.thoughtworks.go.server.domain.user.PipelineSelections;
@@ -32,7 +33,6 @@ import com.thoughtworks.go.server.service.GoDashboardService;
 import com.thoughtworks.go.server.service.PipelineSelectionsService;
 import com.thoughtworks.go.spark.Routes;
 import com.thoughtworks.go.spark.spring.SparkSpringController;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -53,7 +53,6 @@ public class DashboardControllerV3 extends ApiController implements SparkSpringC
     private static final int ACCEPTED = 202;
 
     private static final String COOKIE_NAME = "selected_pipelines";
-    private static final String SEP_CHAR = "/";
     private static final String VIEW_NAME = "viewName";
 
     private final PipelineSelectionsService pipelineSelectionsService;
@@ -96,10 +95,19 @@ public class DashboardControllerV3 extends ApiController implements SparkSpringC
         final PipelineSelections personalization = pipelineSelectionsService.load(personalizationCookie, userId);
         final DashboardFilter filter = personalization.namedFilter(getViewName(request));
 
-        List<GoDashboardPipelineGroup> pipelineGroups = goDashboardService.allPipelineGroupsForDashboard(filter, userName);
-        List<GoDashboardEnvironment> environments = goDashboardService.allEnvironmentsForDashboard(filter, userName);
-
-        String etag = calcEtag(userName, pipelineGroups, environments);
+        List<GoDashboardPipelineGroup> pipelineGroups;
+        List<GoDashboardEnvironment> environments;
+        String etag;
+        if (goDashboardService.hasDashboardViews()) {
+            GoDashboardView view = goDashboardService.dashboardViewFor(filter, userName);
+            pipelineGroups = view.pipelineGroups();
+            environments = view.environments();
+            etag = view.etag();
+        } else {
+            pipelineGroups = goDashboardService.allPipelineGroupsForDashboard(filter, userName);
+            environments = goDashboardService.allEnvironmentsForDashboard(filter, userName);
+            etag = calcEtag(userName, pipelineGroups, environments);
+        }
 
         if (fresh(request, etag)) {
             return notModified(response);
@@ -116,11 +124,9 @@ public class DashboardControllerV3 extends ApiController implements SparkSpringC
     }
 
     private String calcEtag(Username username, List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments) {
-        final String pipelineSegment = pipelineGroups.stream().
-                map(GoDashboardPipelineGroup::etag).collect(Collectors.joining(SEP_CHAR));
-        final String environmentSegment = environments.stream().
-                map(GoDashboardEnvironment::etag).collect(Collectors.joining(SEP_CHAR));
-        return DigestUtils.md5Hex(StringUtils.joinWith(SEP_CHAR, username.getUsername(), pipelineSegment, environmentSegment));
+        return GoDashboardView.etagFor(username,
+                pipelineGroups.stream().map(GoDashboardPipelineGroup::etag).collect(Collectors.toList()),
+                environments.stream().map(GoDashboardEnvironment::etag).collect(Collectors.toList()));
     }
 
     private String getViewName(Request request) {
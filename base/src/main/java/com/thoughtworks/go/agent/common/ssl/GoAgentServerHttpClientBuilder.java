@@ -52,6 +52,12 @@ public class GoAgentServerHttpClientBuilder extends GoAgentServerClientBuilder<C
                 )
                 .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE);
 
+        if (systemEnvironment.isAgentArtifactParallelFetchEnabled()) {
+            // artifacts are fetched over several connections at once, in addition to the ones the build itself uses
+            int maxConnections = Math.max(5, systemEnvironment.getAgentArtifactFetchParallelism() * 2);
+            builder.setMaxConnPerRoute(maxConnections).setMaxConnTotal(maxConnections * 2);
+        }
+
         HostnameVerifier hostnameVerifier = sslVerificationMode.verifier();
         TrustStrategy trustStrategy = sslVerificationMode.trustStrategy();
         KeyStore trustStore = agentTruststore();
@@ -196,18 +196,63 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
 
     public static GoSystemProperty<Boolean> WEBSOCKET_ENABLED = new GoBooleanSystemProperty("go.agent.websocket.enabled", false);
     public static GoSystemProperty<Boolean> CONSOLE_LOGS_THROUGH_WEBSOCKET_ENABLED = new GoBooleanSystemProperty("go.agent.console.logs.websocket.enabled", false);
+    public static GoSystemProperty<Boolean> CONSOLE_LOGS_THROUGH_WEBSOCKET_BATCHING_ENABLED = new GoBooleanSystemProperty("go.agent.console.logs.websocket.batching.enabled", false);
+    public static GoSystemProperty<Integer> CONSOLE_LOGS_WEBSOCKET_FRAME_MAX_BYTES = new GoIntSystemProperty("go.agent.console.logs.websocket.frame.max.bytes", 64 * 1024);
+    public static GoSystemProperty<Long> CONSOLE_LOGS_WEBSOCKET_FRAME_FLUSH_INTERVAL = new GoLongSystemProperty("go.agent.console.logs.websocket.frame.flush.interval", 500L);
+    public static GoSystemProperty<Integer> CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE = new GoIntSystemProperty("go.agent.console.logs.websocket.window.size", 8);
 
     public static GoSystemProperty<Boolean> AUTO_REGISTER_LOCAL_AGENT_ENABLED = new GoBooleanSystemProperty("go.auto.register.local.agent.enabled", true);
     public static GoSystemProperty<Long> GO_WEBSOCKET_ACK_MESSAGE_TIMEOUT = new GoLongSystemProperty("go.websocket.ack.message.timeout", 300 * 1000L);
     public static GoSystemProperty<Integer> GO_WEBSOCKET_SEND_RETRY_COUNT = new GoIntSystemProperty("go.websocket.send.retry.count", 5);
 
     public static GoSystemProperty<Long> GO_WEBSOCKET_MAX_IDLE_TIME = new GoLongSystemProperty("go.websocket.max.idle.time", 60 * 1000L);
+    public static GoSystemProperty<Boolean> BUILD_ASSIGNMENT_INDEXED_MATCHING_ENABLED = new GoBooleanSystemProperty("go.server.build.assignment.indexed.matching.enabled", false);
+    public static GoSystemProperty<Boolean> EVENT_DRIVEN_SCHEDULING_ENABLED = new GoBooleanSystemProperty("go.server.scheduling.event.driven.enabled", false);
+    public static GoSystemProperty<Integer> EVENT_DRIVEN_SCHEDULING_QUEUE_SIZE = new GoIntSystemProperty("go.server.scheduling.event.driven.queue.size", 1000);
+    public static GoSystemProperty<String> MATERIAL_UPDATE_POOLS = new GoStringSystemProperty("go.material.update.pools", "");
+    public static GoSystemProperty<Integer> MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL = new GoIntSystemProperty("go.material.update.pool.max.in.flight", 0);
+    public static GoSystemProperty<Long> MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL = new GoLongSystemProperty("go.material.update.adaptive.max.interval", 0L);
+    public static GoSystemProperty<String> MESSAGING_SERVICE = new GoStringSystemProperty("go.messaging.service", "activemq");
+    public static GoSystemProperty<Integer> IN_MEMORY_MESSAGING_CAPACITY = new GoIntSystemProperty("go.messaging.inmemory.capacity", 10000);
+    public static GoSystemProperty<Long> IN_MEMORY_MESSAGING_SEND_TIMEOUT = new GoLongSystemProperty("go.messaging.inmemory.send.timeout", 30 * 1000L);
+    public static GoSystemProperty<Integer> IN_MEMORY_MESSAGING_TOPIC_CAPACITY = new GoIntSystemProperty("go.messaging.inmemory.topic.capacity", 1000);
+    public static GoSystemProperty<Boolean> ELASTIC_AGENTS_STORED_IN_DATABASE = new GoBooleanSystemProperty("go.elastic.agents.stored.in.database", false);
+    public static GoSystemProperty<Boolean> CONFIG_SAVE_INCREMENTAL_PREPROCESSING = new GoBooleanSystemProperty("go.config.save.incremental.preprocessing", false);
+    public static GoSystemProperty<Boolean> CONFIG_LOOKUP_INDICES = new GoBooleanSystemProperty("go.config.lookup.indices", false);
+    public static GoSystemProperty<Boolean> ARTIFACT_STREAMING_UPLOAD = new GoBooleanSystemProperty("go.artifact.upload.streaming", false);
+    public static GoSystemProperty<Boolean> ARTIFACTS_CONTENT_ADDRESSED_STORAGE = new GoBooleanSystemProperty("go.artifacts.content.addressed.storage", false);
+    public static GoSystemProperty<Boolean> ARTIFACTS_CONTENT_ADDRESSED_STORAGE_MIGRATE = new GoBooleanSystemProperty("go.artifacts.content.addressed.storage.migrate", false);
+    public static GoSystemProperty<Boolean> ARTIFACT_FOLDER_ZIP_STREAMING = new GoBooleanSystemProperty("go.artifacts.folder.zip.streaming", false);
+    public static GoSystemProperty<Integer> ARTIFACT_FOLDER_ZIP_CACHE_THREADS = new GoIntSystemProperty("go.artifacts.folder.zip.cache.threads", 4);
+    public static GoSystemProperty<Integer> ARTIFACT_FOLDER_ZIP_CACHE_HOT_THRESHOLD = new GoIntSystemProperty("go.artifacts.folder.zip.cache.hot.threshold", 3);
+    public static GoSystemProperty<Long> ARTIFACT_FOLDER_ZIP_CACHE_MAX_SIZE = new GoLongSystemProperty("go.artifacts.folder.zip.cache.max.size.bytes", 10L * 1024 * 1024 * 1024);
+    public static GoSystemProperty<Boolean> AGENT_ARTIFACT_FETCH_PARALLEL = new GoBooleanSystemProperty("go.agent.artifact.fetch.parallel", false);
+    public static GoSystemProperty<Integer> AGENT_ARTIFACT_FETCH_PARALLELISM = new GoIntSystemProperty("go.agent.artifact.fetch.parallelism", 4);
+    public static GoSystemProperty<Long> AGENT_ARTIFACT_FETCH_MIN_SEGMENT_SIZE = new GoLongSystemProperty("go.agent.artifact.fetch.min.segment.size.bytes", 16L * 1024 * 1024);
+    public static GoSystemProperty<Boolean> CONSOLE_LOG_LINE_INDEX = new GoBooleanSystemProperty("go.console.log.line.index", false);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_LINE_INDEX_INTERVAL = new GoIntSystemProperty("go.console.log.line.index.interval", 1000);
+    public static GoSystemProperty<Boolean> CONSOLE_LOG_SHARED_TAIL = new GoBooleanSystemProperty("go.console.log.shared.tail", false);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_SHARED_TAIL_THREADS = new GoIntSystemProperty("go.console.log.shared.tail.threads", 4);
+    public static GoSystemProperty<Boolean> CONSOLE_LOG_COMPRESSION = new GoBooleanSystemProperty("go.console.log.compression", false);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_COMPRESSION_BLOCK_SIZE = new GoIntSystemProperty("go.console.log.compression.block.size.bytes", 256 * 1024);
+    public static GoSystemProperty<Boolean> ARTIFACTS_PARALLEL_PURGE = new GoBooleanSystemProperty("go.artifacts.purge.parallel", false);
+    public static GoSystemProperty<Integer> ARTIFACTS_PURGE_THREADS = new GoIntSystemProperty("go.artifacts.purge.threads", 4);
+    public static GoSystemProperty<Boolean> BACKUP_INCREMENTAL = new GoBooleanSystemProperty("go.backup.incremental", false);
+    public static GoSystemProperty<Boolean> BACKUP_PARALLEL_STEPS = new GoBooleanSystemProperty("go.backup.parallel.steps", false);
+    public static GoSystemProperty<Boolean> TEST_REPORT_STREAMING = new GoBooleanSystemProperty("go.test.report.streaming", false);
+    public static GoSystemProperty<String> CACHE_REGIONS = new GoStringSystemProperty("go.cache.regions", "");
+    public static GoSystemProperty<Integer> DASHBOARD_CACHE_MAX_STALENESS_MILLIS = new GoIntSystemProperty("go.dashboard.cache.max.staleness.millis", 0);
+    public static GoSystemProperty<Integer> DASHBOARD_MAX_CACHED_VIEWS = new GoIntSystemProperty("go.dashboard.views.max", 0);
+    public static GoSystemProperty<Integer> ACCESS_TOKEN_CACHE_SIZE = new GoIntSystemProperty("go.access.token.cache.size", 0);
+    public static GoSystemProperty<Integer> ACCESS_TOKEN_CACHE_TTL_SECONDS = new GoIntSystemProperty("go.access.token.cache.ttl.seconds", 60);
     public static GoSystemProperty<Boolean> GO_SERVER_SHALLOW_CLONE = new GoBooleanSystemProperty("go.server.shallowClone", false);
     public static GoSystemProperty<Boolean> GO_SERVER_SCHEDULED_PIPELINE_LOADER_GLOBAL_MATERIAL_LOOKUP = new GoBooleanSystemProperty("go.server.scheduledPipelineLoader.globalMaterialLookup", false);
 
     public static GoSystemProperty<Boolean> GO_API_WITH_SAFE_MODE = new GoBooleanSystemProperty("go.api.with.safe.mode", true);
     public static GoSystemProperty<Integer> MAX_PENDING_AGENTS_ALLOWED = new GoIntSystemProperty("max.pending.agents.allowed", 100);
     public static GoSystemProperty<Boolean> CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS = new GoBooleanSystemProperty("go.modifications.removeDuplicates", true);
+    public static GoSystemProperty<Integer> MODIFICATIONS_BULK_INSERT_THRESHOLD = new GoIntSystemProperty("go.modifications.bulkInsert.threshold", 200);
+    public static GoSystemProperty<Integer> MODIFICATIONS_BULK_INSERT_BATCH_SIZE = new GoIntSystemProperty("go.modifications.bulkInsert.batchSize", 1000);
     public static GoSystemProperty<String> GO_AGENT_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.agent.keystore.password", "agent5s0repa55w0rd");
     public static GoSystemProperty<String> GO_SERVER_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.server.keystore.password", "serverKeystorepa55w0rd");
     private static final GoSystemProperty<Boolean> GO_AGENT_USE_SSL_CONTEXT = new GoBooleanSystemProperty("go.agent.reuse.ssl.context", true);
@@ -797,6 +842,178 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return CONSOLE_LOGS_THROUGH_WEBSOCKET_ENABLED.getValue();
     }
 
+    public boolean isConsoleLogsThroughWebsocketBatchingEnabled() {
+        return CONSOLE_LOGS_THROUGH_WEBSOCKET_BATCHING_ENABLED.getValue();
+    }
+
+    public Integer getConsoleLogsWebsocketFrameMaxBytes() {
+        return CONSOLE_LOGS_WEBSOCKET_FRAME_MAX_BYTES.getValue();
+    }
+
+    public Long getConsoleLogsWebsocketFrameFlushInterval() {
+        return CONSOLE_LOGS_WEBSOCKET_FRAME_FLUSH_INTERVAL.getValue();
+    }
+
+    public Integer getConsoleLogsWebsocketWindowSize() {
+        return CONSOLE_LOGS_WEBSOCKET_WINDOW_SIZE.getValue();
+    }
+
+    public boolean isBuildAssignmentIndexedMatchingEnabled() {
+        return BUILD_ASSIGNMENT_INDEXED_MATCHING_ENABLED.getValue();
+    }
+
+    public boolean isEventDrivenSchedulingEnabled() {
+        return EVENT_DRIVEN_SCHEDULING_ENABLED.getValue();
+    }
+
+    public int getEventDrivenSchedulingQueueSize() {
+        return EVENT_DRIVEN_SCHEDULING_QUEUE_SIZE.getValue();
+    }
+
+    public String getMaterialUpdatePools() {
+        return MATERIAL_UPDATE_POOLS.getValue();
+    }
+
+    public int getMaterialUpdateMaxInFlightPerPool() {
+        return MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL.getValue();
+    }
+
+    public long getMaterialUpdateAdaptiveMaxInterval() {
+        return MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL.getValue();
+    }
+
+    public boolean isInMemoryMessagingEnabled() {
+        return "inmemory".equalsIgnoreCase(MESSAGING_SERVICE.getValue());
+    }
+
+    public int getInMemoryMessagingCapacity() {
+        return IN_MEMORY_MESSAGING_CAPACITY.getValue();
+    }
+
+    public long getInMemoryMessagingSendTimeout() {
+        return IN_MEMORY_MESSAGING_SEND_TIMEOUT.getValue();
+    }
+
+    public int getInMemoryMessagingTopicCapacity() {
+        return IN_MEMORY_MESSAGING_TOPIC_CAPACITY.getValue();
+    }
+
+    public boolean isElasticAgentsStoredInDatabase() {
+        return ELASTIC_AGENTS_STORED_IN_DATABASE.getValue();
+    }
+
+    public boolean isConfigSaveIncrementalPreprocessingEnabled() {
+        return CONFIG_SAVE_INCREMENTAL_PREPROCESSING.getValue();
+    }
+
+    public boolean isConfigLookupIndicesEnabled() {
+        return CONFIG_LOOKUP_INDICES.getValue();
+    }
+
+    public boolean isArtifactStreamingUploadEnabled() {
+        return ARTIFACT_STREAMING_UPLOAD.getValue();
+    }
+
+    public boolean isArtifactsContentAddressedStorageEnabled() {
+        return ARTIFACTS_CONTENT_ADDRESSED_STORAGE.getValue();
+    }
+
+    public boolean shouldMigrateArtifactsToContentAddressedStorage() {
+        return ARTIFACTS_CONTENT_ADDRESSED_STORAGE_MIGRATE.getValue();
+    }
+
+    public boolean isArtifactFolderZipStreamingEnabled() {
+        return ARTIFACT_FOLDER_ZIP_STREAMING.getValue();
+    }
+
+    public int getArtifactFolderZipCacheThreads() {
+        return ARTIFACT_FOLDER_ZIP_CACHE_THREADS.getValue();
+    }
+
+    public int getArtifactFolderZipCacheHotThreshold() {
+        return ARTIFACT_FOLDER_ZIP_CACHE_HOT_THRESHOLD.getValue();
+    }
+
+    public long getArtifactFolderZipCacheMaxSize() {
+        return ARTIFACT_FOLDER_ZIP_CACHE_MAX_SIZE.getValue();
+    }
+
+    public boolean isAgentArtifactParallelFetchEnabled() {
+        return AGENT_ARTIFACT_FETCH_PARALLEL.getValue();
+    }
+
+    public int getAgentArtifactFetchParallelism() {
+        return AGENT_ARTIFACT_FETCH_PARALLELISM.getValue();
+    }
+
+    public long getAgentArtifactFetchMinSegmentSize() {
+        return AGENT_ARTIFACT_FETCH_MIN_SEGMENT_SIZE.getValue();
+    }
+
+    public boolean isConsoleLogLineIndexEnabled() {
+        return CONSOLE_LOG_LINE_INDEX.getValue();
+    }
+
+    public int getConsoleLogLineIndexInterval() {
+        return CONSOLE_LOG_LINE_INDEX_INTERVAL.getValue();
+    }
+
+    public boolean isConsoleLogSharedTailEnabled() {
+        return CONSOLE_LOG_SHARED_TAIL.getValue();
+    }
+
+    public int getConsoleLogSharedTailThreads() {
+        return CONSOLE_LOG_SHARED_TAIL_THREADS.getValue();
+    }
+
+    public boolean isConsoleLogCompressionEnabled() {
+        return CONSOLE_LOG_COMPRESSION.getValue();
+    }
+
+    public int getConsoleLogCompressionBlockSize() {
+        return CONSOLE_LOG_COMPRESSION_BLOCK_SIZE.getValue();
+    }
+
+    public boolean isArtifactsParallelPurgeEnabled() {
+        return ARTIFACTS_PARALLEL_PURGE.getValue();
+    }
+
+    public int getArtifactsPurgeThreads() {
+        return ARTIFACTS_PURGE_THREADS.getValue();
+    }
+
+    public boolean isIncrementalBackupEnabled() {
+        return BACKUP_INCREMENTAL.getValue();
+    }
+
+    public boolean shouldRunBackupStepsInParallel() {
+        return BACKUP_PARALLEL_STEPS.getValue();
+    }
+
+    public boolean isStreamingTestReportEnabled() {
+        return TEST_REPORT_STREAMING.getValue();
+    }
+
+    public String getCacheRegions() {
+        return CACHE_REGIONS.getValue();
+    }
+
+    public int getDashboardCacheMaxStalenessMillis() {
+        return DASHBOARD_CACHE_MAX_STALENESS_MILLIS.getValue();
+    }
+
+    public int getDashboardMaxCachedViews() {
+        return DASHBOARD_MAX_CACHED_VIEWS.getValue();
+    }
+
+    public int getAccessTokenCacheSize() {
+        return ACCESS_TOKEN_CACHE_SIZE.getValue();
+    }
+
+    public int getAccessTokenCacheTtlInSeconds() {
+        return ACCESS_TOKEN_CACHE_TTL_SECONDS.getValue();
+    }
+
     public boolean isAutoRegisterLocalAgentEnabled() {
         return AUTO_REGISTER_LOCAL_AGENT_ENABLED.getValue();
     }
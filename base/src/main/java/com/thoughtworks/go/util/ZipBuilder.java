@@ -20,25 +20,41 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FilenameUtils;
+
 import org.slf4j.Logger;
 
 public class ZipBuilder {
     private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ZipBuilder.class);
+    private static final Set<String> ALREADY_COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "jar", "war", "ear", "apk", "nupkg", "whl", "gz", "tgz", "bz2", "xz", "7z", "rpm", "deb", "png", "jpg", "jpeg", "gif", "mp4"));
     private final int level;
     private ZipUtil zipUtil;
     private OutputStream destinationStream;
     private boolean excludeRootDir;
     private Map<String, File> toAdd = new HashMap<>();
+    private ZipUtil.ZipEntryDigestHandler digestHandler;
+    private boolean storeAlreadyCompressedFiles;
 
     public ZipBuilder(ZipUtil zipUtil, int level, OutputStream destinationStream, boolean excludeRootDir) {
+        this(zipUtil, level, destinationStream, excludeRootDir, null);
+    }
+
+    public ZipBuilder(ZipUtil zipUtil, int level, OutputStream destinationStream, boolean excludeRootDir, ZipUtil.ZipEntryDigestHandler digestHandler) {
         this.zipUtil = zipUtil;
         this.destinationStream = destinationStream;
         this.excludeRootDir = excludeRootDir;
         this.level = level;
+        this.digestHandler = digestHandler;
     }
 
     public ZipBuilder add(String directoryNameInsideZip, File sourceToZip) {
@@ -46,15 +62,21 @@ public class ZipBuilder {
         return this;
     }
 
+    // deflating archives and images again costs cpu and does not make them any smaller
+    public ZipBuilder storingAlreadyCompressedFiles() {
+        this.storeAlreadyCompressedFiles = true;
+        return this;
+    }
+
     public void done() throws IOException {
         ZipOutputStream zip = null;
         try {
-            zip = new ZipOutputStream(new BufferedOutputStream(destinationStream));
+            zip = storeAlreadyCompressedFiles ? new LevelPerEntryZipOutputStream(new BufferedOutputStream(destinationStream), level) : new ZipOutputStream(new BufferedOutputStream(destinationStream));
             zip.setLevel(level);
             for (Map.Entry<String, File> zipDirToSourceFileEntry : toAdd.entrySet()) {
                 File sourceFileToZip = zipDirToSourceFileEntry.getValue();
                 String destinationFolder = zipDirToSourceFileEntry.getKey();
-                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir);
+                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir, digestHandler);
             }
             zip.flush();
         } finally {
@@ -67,4 +89,21 @@ public class ZipBuilder {
             }
         }
     }
+
+    private static class LevelPerEntryZipOutputStream extends ZipOutputStream {
+        private final int level;
+
+        LevelPerEntryZipOutputStream(OutputStream out, int level) {
+            super(out);
+            this.level = level;
+        }
+
+        @Override
+        public void putNextEntry(ZipEntry entry) throws IOException {
+            closeEntry();
+            boolean alreadyCompressed = ALREADY_COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(entry.getName()).toLowerCase());
+            setLevel(alreadyCompressed ? Deflater.NO_COMPRESSION : level);
+            super.putNextEntry(entry);
+        }
+    }
 }
@@ -16,10 +16,15 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -60,41 +65,56 @@ public class ZipUtil {
         zipContents(file, output, level, false);
     }
 
+    // computes the md5 of every file while it is being zipped, so that the files need not be read a second time
+    public void zip(File file, OutputStream output, int level, ZipEntryDigestHandler digestHandler) throws IOException {
+        new ZipBuilder(this, level, output, false, digestHandler).add("", file).done();
+    }
+
+    public void zipWithoutRecompressing(File file, OutputStream output, int level) throws IOException {
+        new ZipBuilder(this, level, output, false).storingAlreadyCompressedFiles().add("", file).done();
+    }
+
     private void zipContents(File file, OutputStream output, int level, boolean excludeRootDir) throws IOException {
         new ZipBuilder(this, level, output, excludeRootDir).add("", file).done();
     }
 
-    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZipEntryDigestHandler digestHandler) throws IOException {
         ZipPath newPath = path.with(source);
         if (source.isFile()) {
-            addToZip(newPath, source, zip, false);
+            addToZip(newPath, source, zip, false, digestHandler);
         } else {
-            addDirectory(path, source, zip, excludeRootDir);
+            addDirectory(path, source, zip, excludeRootDir, digestHandler);
         }
     }
 
-    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZipEntryDigestHandler digestHandler) throws IOException {
         if (excludeRootDir) {
-            addDirContents(path, source, zip);
+            addDirContents(path, source, zip, digestHandler);
             return;
         }
         ZipPath newPath = path.with(source);
         zip.putNextEntry(newPath.asZipEntryDirectory());
-        addDirContents(newPath, source, zip);
+        addDirContents(newPath, source, zip, digestHandler);
     }
 
-    private void addDirContents(ZipPath path, File source, ZipOutputStream zip) throws IOException {
+    private void addDirContents(ZipPath path, File source, ZipOutputStream zip, ZipEntryDigestHandler digestHandler) throws IOException {
         for (File file : source.listFiles()) {
-            addToZip(path, file, zip, false);
+            addToZip(path, file, zip, false, digestHandler);
         }
     }
 
     void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+        addToZip(path, srcFile, zip, excludeRootDir, null);
+    }
+
+    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir, ZipEntryDigestHandler digestHandler) throws IOException {
         if (srcFile.isDirectory()) {
-            addFolderToZip(path, srcFile, zip, excludeRootDir);
+            addFolderToZip(path, srcFile, zip, excludeRootDir, digestHandler);
         } else {
             byte[] buff = new byte[4096];
-            try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile))) {
+            InputStream fileStream = new FileInputStream(srcFile);
+            DigestInputStream digestStream = digestHandler == null ? null : new DigestInputStream(fileStream, DigestUtils.getMd5Digest());
+            try (BufferedInputStream inputStream = new BufferedInputStream(digestStream == null ? fileStream : digestStream)) {
                 ZipEntry zipEntry = path.with(srcFile).asZipEntry();
                 zipEntry.setTime(srcFile.lastModified());
                 zip.putNextEntry(zipEntry);
@@ -102,6 +122,9 @@ public class ZipUtil {
                 while ((len = inputStream.read(buff)) > 0) {
                     zip.write(buff, 0, len);
                 }
+                if (digestStream != null) {
+                    digestHandler.handleDigest(zipEntry.getName(), Hex.encodeHexString(digestStream.getMessageDigest().digest()));
+                }
             }
         }
     }
@@ -113,11 +136,15 @@ public class ZipUtil {
     }
 
     public void unzip(ZipInputStream zipInputStream, File destDir) throws IOException {
+        unzip(zipInputStream, destDir, null);
+    }
+
+    public void unzip(ZipInputStream zipInputStream, File destDir, UnzippedFileDigestHandler digestHandler) throws IOException {
         try(ZipInputStream zis = zipInputStream) {
             destDir.mkdirs();
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
-                extractTo(zipEntry, zis, destDir);
+                extractTo(zipEntry, zis, destDir, digestHandler);
                 zipEntry = zis.getNextEntry();
             }
         }
@@ -127,7 +154,7 @@ public class ZipUtil {
         unzip(new ZipInputStream(new BufferedInputStream(new FileInputStream(zip))), destDir);
     }
 
-    private void extractTo(ZipEntry entry, InputStream entryInputStream, File toDir) throws IOException {
+    private void extractTo(ZipEntry entry, InputStream entryInputStream, File toDir, UnzippedFileDigestHandler digestHandler) throws IOException {
         bombIfZipEntryPathContainsDirectoryTraversalCharacters(entry.getName());
         String entryName = nonRootedEntryName(entry);
 
@@ -138,7 +165,13 @@ public class ZipUtil {
         }
         try {
             outputFile.getParentFile().mkdirs();
-            try (FileOutputStream os = new FileOutputStream(outputFile)) {
+            if (digestHandler != null) {
+                // the existing file may be a hard link shared with other files, so write a new one instead of truncating it
+                Files.deleteIfExists(outputFile.toPath());
+            }
+            OutputStream fileStream = new FileOutputStream(outputFile);
+            DigestOutputStream digestStream = digestHandler == null ? null : new DigestOutputStream(fileStream, DigestUtils.getSha256Digest());
+            try (OutputStream os = digestStream == null ? fileStream : digestStream) {
                 IOUtils.copyLarge(entryInputStream, os);
                 if (zipEntryHandler != null) {
                     FileInputStream stream = null;
@@ -156,6 +189,9 @@ public class ZipUtil {
                     }
                 }
             }
+            if (digestStream != null) {
+                digestHandler.handleDigest(outputFile, Hex.encodeHexString(digestStream.getMessageDigest().digest()));
+            }
         } catch (IOException e) {
             LOGGER.error("Failed to unzip file [{}] to directory [{}]", entryName, toDir.getAbsolutePath(), e);
             throw e;
@@ -189,4 +225,12 @@ public class ZipUtil {
         void handleEntry(ZipEntry entry, InputStream stream) throws IOException;
     }
 
+    public interface ZipEntryDigestHandler {
+        void handleDigest(String entryName, String md5);
+    }
+
+    public interface UnzippedFileDigestHandler {
+        void handleDigest(File file, String sha256) throws IOException;
+    }
+
 }
@@ -16,8 +16,10 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,10 +29,15 @@ import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -99,6 +106,41 @@ public class ZipUtilTest {
         assertThat(fileContent(actual2)).isEqualTo(fileContent(file2));
     }
 
+    @Test
+    void shouldComputeMd5OfEveryFileWhileZippingIntoAStream() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Map<String, String> md5s = new HashMap<>();
+
+        zipUtil.zip(srcDir, output, Deflater.BEST_SPEED, md5s::put);
+
+        assertThat(md5s).hasSize(2)
+                .containsEntry(srcDir.getName() + "/_file1", DigestUtils.md5Hex("_file1"))
+                .containsEntry(srcDir.getName() + "/_child1/_file2", DigestUtils.md5Hex("_file2"));
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(output.toByteArray())), destDir);
+        assertThat(fileContent(new File(destDir, srcDir.getName() + "/_child1/_file2"))).isEqualTo("_file2");
+    }
+
+    @Test
+    void shouldStoreAlreadyCompressedFilesWithoutDeflatingThemAgain() throws IOException {
+        String repetitiveContent = StringUtils.repeat("compress me ", 1000);
+        FileUtils.writeStringToFile(new File(srcDir, "library.jar"), repetitiveContent, UTF_8);
+        FileUtils.writeStringToFile(new File(srcDir, "report.txt"), repetitiveContent, UTF_8);
+        File zip = temporaryFolder.newFile();
+
+        try (FileOutputStream output = new FileOutputStream(zip)) {
+            zipUtil.zipWithoutRecompressing(srcDir, output, Deflater.BEST_SPEED);
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            ZipEntry jar = zipFile.getEntry(srcDir.getName() + "/library.jar");
+            ZipEntry report = zipFile.getEntry(srcDir.getName() + "/report.txt");
+            assertThat(jar.getCompressedSize()).isGreaterThanOrEqualTo(jar.getSize());
+            assertThat(report.getCompressedSize()).isLessThan(report.getSize() / 10);
+        }
+        zipUtil.unzip(zip, destDir);
+        assertThat(fileContent(new File(destDir, srcDir.getName() + "/library.jar"))).isEqualTo(repetitiveContent);
+    }
+
     @Test
     void shouldZipFileContentsAndUnzipIt() throws IOException {
         zipFile = zipUtil.zip(srcDir, temporaryFolder.newFile(), Deflater.NO_COMPRESSION);
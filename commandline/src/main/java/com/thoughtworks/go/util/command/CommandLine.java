@@ -411,6 +411,24 @@ public class CommandLine {
         return result;
     }
 
+    /**
+     * Hands every line of standard output to <code>stdOutConsumer</code> as the process produces it, rather than
+     * holding all of it in memory. Only standard error is kept in the returned result.
+     */
+    public ConsoleResult runOrBomb(StreamConsumer stdOutConsumer, String processTag, String... input) {
+        addInput(input);
+        InMemoryConsumer errors = new InMemoryConsumer();
+        ProcessWrapper process = execute(new ProcessOutputStreamConsumer<>(stdOutConsumer, errors), new EnvironmentVariableContext(), processTag);
+        int returnValue = process.waitForExit();
+
+        ConsoleResult result = new ConsoleResult(returnValue, new ArrayList<>(), errors.asList(), arguments, secrets);
+
+        if (result.failed()) {
+            throw new CommandLineException(this, result);
+        }
+        return result;
+    }
+
     private ProcessWrapper startProcess(EnvironmentVariableContext environmentVariableContext, ConsoleOutputStreamConsumer consumer, String processTag) throws IOException {
         ProcessWrapper process = createProcess(environmentVariableContext, consumer, processTag, ERROR_STREAM_PREFIX_FOR_SCRIPTS);
         process.closeOutputStream();
@@ -16,11 +16,14 @@
 
 package com.thoughtworks.go.domain;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 public class ArtifactMd5Checksums implements Serializable {
 
@@ -87,4 +90,16 @@ public class ArtifactMd5Checksums implements Serializable {
     public String md5For(String artifactPath) {
         return checksumProperties.getProperty(artifactPath);
     }
+
+    // the md5 of every file under a folder, keyed by the path of the file relative to the folder
+    public Map<String, String> md5sUnder(String folderPath) {
+        String prefix = StringUtils.removeEnd(folderPath, "/") + "/";
+        Map<String, String> md5s = new TreeMap<>();
+        for (String artifactPath : checksumProperties.stringPropertyNames()) {
+            if (artifactPath.startsWith(prefix) && artifactPath.length() > prefix.length()) {
+                md5s.put(artifactPath.substring(prefix.length()), checksumProperties.getProperty(artifactPath));
+            }
+        }
+        return md5s;
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.domain;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @understands a console log kept as a series of independently gzipped blocks of whole lines, which together are
+ * a valid gzip file, along with a hidden index of the line each block starts with so that reading can begin at the
+ * block holding any line
+ */
+public class CompressedConsoleLog {
+    public static final String EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File indexFile;
+
+    public CompressedConsoleLog(File file) {
+        this.file = file;
+        this.indexFile = new File(file.getParentFile(), "." + file.getName() + ".index");
+    }
+
+    public static File compressedFileFor(File consoleLog) {
+        return new File(consoleLog.getParentFile(), consoleLog.getName() + EXTENSION);
+    }
+
+    public static boolean isCompressed(File consoleLog) {
+        return consoleLog.getName().endsWith(EXTENSION);
+    }
+
+    public static CompressedConsoleLog compress(File consoleLog, int blockSize) throws IOException {
+        CompressedConsoleLog compressed = new CompressedConsoleLog(compressedFileFor(consoleLog));
+        // hidden, so that it is not listed among the artifacts while being written
+        File temporary = new File(compressed.file.getParentFile(), "." + compressed.file.getName() + ".tmp");
+        Index index = new Index();
+        try (InputStream in = new FileInputStream(consoleLog);
+             CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE))) {
+            index.appendBlocks(in, out, 0, blockSize);
+            if (index.blocks.isEmpty() && out.getByteCount() == 0) {
+                // an empty gzip member, so that even an empty log is a valid gzip file
+                writeBlock(out, new ByteArrayOutputStream());
+            }
+        }
+        index.save(compressed.indexFile);
+        Files.move(temporary.toPath(), compressed.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return compressed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Adds what is read from the stream as more blocks at the end of the log. Not thread safe, callers serialize
+     * appends to the same log
+     */
+    public void append(InputStream in, int blockSize) throws IOException {
+        Index index = Index.load(indexFile);
+        long length = file.length();
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE))) {
+            index.appendBlocks(in, out, length, blockSize);
+        }
+        index.save(indexFile);
+    }
+
+    public long uncompressedLength() throws IOException {
+        return Index.load(indexFile).uncompressedLength;
+    }
+
+    public ConsoleLogIndex.Position positionOf(long line) {
+        try {
+            return Index.load(indexFile).positionOf(Math.max(0, line));
+        } catch (IOException e) {
+            return new ConsoleLogIndex.Position(0, Math.max(0, line));
+        }
+    }
+
+    /**
+     * @return the decompressed log from the block starting at the offset
+     */
+    public InputStream openAt(long offset) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+            return new GZIPInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), BUFFER_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void delete() {
+        file.delete();
+        indexFile.delete();
+    }
+
+    private static void writeBlock(OutputStream out, ByteArrayOutputStream block) throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new CloseShieldOutputStream(out), BUFFER_SIZE)) {
+            block.writeTo(gzip);
+        }
+        block.reset();
+    }
+
+    // lines terminated so far, the way BufferedReader counts them, and the first line of every block starting a line
+    private static class Index {
+        private long uncompressedLength;
+        private long lineCount;
+        private boolean endsMidLine;
+        private boolean lastWasCarriageReturn;
+        private final List<long[]> blocks = new ArrayList<>();
+
+        static Index load(File indexFile) throws IOException {
+            Index index = new Index();
+            if (!indexFile.exists()) {
+                return index;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                index.uncompressedLength = in.readLong();
+                index.lineCount = in.readLong();
+                index.endsMidLine = in.readBoolean();
+                index.lastWasCarriageReturn = in.readBoolean();
+                int numberOfBlocks = in.readInt();
+                for (int i = 0; i < numberOfBlocks; i++) {
+                    index.blocks.add(new long[]{in.readLong(), in.readLong()});
+                }
+            }
+            return index;
+        }
+
+        void save(File indexFile) throws IOException {
+            File temporary = new File(indexFile.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                out.writeLong(uncompressedLength);
+                out.writeLong(lineCount);
+                out.writeBoolean(endsMidLine);
+                out.writeBoolean(lastWasCarriageReturn);
+                out.writeInt(blocks.size());
+                for (long[] block : blocks) {
+                    out.writeLong(block[0]);
+                    out.writeLong(block[1]);
+                }
+            }
+            Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void appendBlocks(InputStream in, CountingOutputStream out, long offset, int blockSize) throws IOException {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + BUFFER_SIZE);
+            // appended content may carry on with the last line, or be the '\n' of a "\r\n"
+            boolean blockStartsLine = !endsMidLine && !lastWasCarriageReturn;
+            long blockFirstLine = lineCount;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                uncompressedLength += read;
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (lastWasCarriageReturn && b == '\n') {
+                        lastWasCarriageReturn = false;
+                    } else {
+                        lastWasCarriageReturn = b == '\r';
+                        if (b == '\r' || b == '\n') {
+                            lineCount++;
+                        }
+                    }
+                    endsMidLine = b != '\r' && b != '\n';
+                    if (b == '\n' && block.size() + i + 1 - from >= blockSize) {
+                        block.write(buffer, from, i + 1 - from);
+                        from = i + 1;
+                        addBlock(out, offset, block, blockStartsLine, blockFirstLine);
+                        blockStartsLine = true;
+                        blockFirstLine = lineCount;
+                    }
+                }
+                block.write(buffer, from, read - from);
+            }
+            if (block.size() > 0) {
+                addBlock(out, offset, block, blockStartsLine, blockFirstLine);
+            }
+            out.flush();
+        }
+
+        private void addBlock(CountingOutputStream out, long offset, ByteArrayOutputStream block, boolean startsLine, long firstLine) throws IOException {
+            if (startsLine) {
+                blocks.add(new long[]{offset + out.getByteCount(), firstLine});
+            }
+            writeBlock(out, block);
+        }
+
+        ConsoleLogIndex.Position positionOf(long line) {
+            int low = 0;
+            int high = blocks.size() - 1;
+            long[] found = null;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blocks.get(middle)[1] <= line) {
+                    found = blocks.get(middle);
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found == null ? new ConsoleLogIndex.Position(0, line) : new ConsoleLogIndex.Position(found[0], line - found[1]);
+        }
+    }
+}
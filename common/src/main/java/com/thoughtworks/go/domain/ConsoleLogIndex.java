@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * @understands a sparse index of byte offsets at which every n-th line of a console log starts, kept in a hidden
+ * file next to the log and brought up to date as the log grows, so that streaming can begin at any line without
+ * decoding all the lines before it
+ */
+public class ConsoleLogIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(ConsoleLogIndex.class);
+    // interval, bytes of the log indexed so far, lines terminated so far, whether the last byte indexed was a '\r'
+    private static final int HEADER_SIZE = 4 * Long.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File consoleLog;
+    private final File indexFile;
+    private final int interval;
+
+    public ConsoleLogIndex(File consoleLog, int interval) {
+        this.consoleLog = consoleLog;
+        this.indexFile = indexFileFor(consoleLog);
+        this.interval = Math.max(1, interval);
+    }
+
+    public static File indexFileFor(File consoleLog) {
+        return new File(consoleLog.getParentFile(), "." + consoleLog.getName() + ".index");
+    }
+
+    /**
+     * Offsets are only meaningful for charsets which encode line terminators as the single bytes '\r' and '\n'
+     */
+    public static boolean canIndex(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+    }
+
+    /**
+     * Indexes whatever has been appended to the log since the last update, starting over if the log has shrunk
+     */
+    public void update() throws IOException {
+        if (!consoleLog.exists()) {
+            return;
+        }
+        try (FileChannel log = FileChannel.open(consoleLog.toPath(), READ);
+             FileChannel index = FileChannel.open(indexFile.toPath(), CREATE, READ, WRITE)) {
+            Header header = Header.read(index);
+            if (header == null || log.size() < header.indexedLength) {
+                header = new Header(interval, 0, 0, false);
+                index.truncate(0);
+                header.write(index);
+            }
+            long entries = Math.min((index.size() - HEADER_SIZE) / Long.BYTES, header.lineCount / header.interval);
+            index.truncate(HEADER_SIZE + entries * Long.BYTES);
+
+            ByteBuffer newEntries = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = header.indexedLength;
+            while (log.read(buffer, position) > 0) {
+                buffer.flip();
+                for (int i = 0; i < buffer.limit(); i++, position++) {
+                    byte b = buffer.get(i);
+                    if (header.lastWasCarriageReturn) {
+                        header.lastWasCarriageReturn = false;
+                        boolean lineFeedOfSameTerminator = b == '\n';
+                        // the line after a '\r' starts after the '\n' which may follow it
+                        if (entries < header.lineCount / header.interval) {
+                            entries++;
+                            newEntries = append(index, newEntries, lineFeedOfSameTerminator ? position + 1 : position);
+                        }
+                        if (lineFeedOfSameTerminator) {
+                            continue;
+                        }
+                    }
+                    if (b == '\r') {
+                        header.lineCount++;
+                        header.lastWasCarriageReturn = true;
+                    } else if (b == '\n') {
+                        header.lineCount++;
+                        if (header.lineCount % header.interval == 0) {
+                            entries++;
+                            newEntries = append(index, newEntries, position + 1);
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+            flush(index, newEntries);
+            header.indexedLength = position;
+            header.write(index);
+        }
+    }
+
+    /**
+     * @return where to start reading to get to the line, falling back to the beginning of the log when the index
+     * has nothing to go by
+     */
+    public Position positionOf(long line) {
+        if (line <= 0 || !indexFile.exists()) {
+            return new Position(0, Math.max(0, line));
+        }
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), READ)) {
+            Header header = Header.read(index);
+            if (header == null || consoleLog.length() < header.indexedLength) {
+                return new Position(0, line);
+            }
+            long entries = Math.min((index.size() - HEADER_SIZE) / Long.BYTES, header.lineCount / header.interval);
+            long entry = Math.min(line / header.interval, entries);
+            if (entry == 0) {
+                return new Position(0, line);
+            }
+            ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+            index.read(offset, HEADER_SIZE + (entry - 1) * Long.BYTES);
+            offset.flip();
+            return new Position(offset.getLong(), line - entry * header.interval);
+        } catch (IOException e) {
+            LOG.warn("Could not read console log index [{}], reading the log from its beginning", indexFile, e);
+            return new Position(0, line);
+        }
+    }
+
+    public void moveTo(File consoleLog) throws IOException {
+        if (indexFile.exists()) {
+            Files.move(indexFile.toPath(), indexFileFor(consoleLog).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private ByteBuffer append(FileChannel index, ByteBuffer entries, long offset) throws IOException {
+        if (!entries.hasRemaining()) {
+            flush(index, entries);
+        }
+        return entries.putLong(offset);
+    }
+
+    private void flush(FileChannel index, ByteBuffer entries) throws IOException {
+        entries.flip();
+        long end = index.size();
+        while (entries.hasRemaining()) {
+            end += index.write(entries, end);
+        }
+        entries.clear();
+    }
+
+    public static class Position {
+        private final long offset;
+        private final long linesToSkip;
+
+        Position(long offset, long linesToSkip) {
+            this.offset = offset;
+            this.linesToSkip = linesToSkip;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLinesToSkip() {
+            return linesToSkip;
+        }
+    }
+
+    private static class Header {
+        private final int interval;
+        private long indexedLength;
+        private long lineCount;
+        private boolean lastWasCarriageReturn;
+
+        Header(int interval, long indexedLength, long lineCount, boolean lastWasCarriageReturn) {
+            this.interval = interval;
+            this.indexedLength = indexedLength;
+            this.lineCount = lineCount;
+            this.lastWasCarriageReturn = lastWasCarriageReturn;
+        }
+
+        static Header read(FileChannel index) throws IOException {
+            if (index.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining()) {
+                if (index.read(buffer, buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            buffer.flip();
+            long interval = buffer.getLong();
+            if (interval <= 0 || interval > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new Header((int) interval, buffer.getLong(), buffer.getLong(), buffer.getLong() != 0);
+        }
+
+        void write(FileChannel index) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            buffer.putLong(interval).putLong(indexedLength).putLong(lineCount).putLong(lastWasCarriageReturn ? 1 : 0);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                index.write(buffer, buffer.position());
+            }
+        }
+    }
+}
@@ -18,9 +18,17 @@ package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -31,6 +39,7 @@ import java.util.stream.Stream;
  */
 public class ConsoleStreamer implements ConsoleConsumer {
     private Path path;
+    private ConsoleLogIndex index;
     private Stream stream;
     private Iterator iterator;
 
@@ -42,6 +51,15 @@ public class ConsoleStreamer implements ConsoleConsumer {
         this.start = (start < 0L) ? 0L : start;
     }
 
+    /**
+     * Starts reading at the byte offset the index has for the nearest line at or before the starting line, instead
+     * of reading past every line before it
+     */
+    public ConsoleStreamer(Path path, long start, ConsoleLogIndex index) {
+        this(path, start);
+        this.index = index;
+    }
+
     /**
      * Applies a lambda (or equivalent {@link Consumer}) to each line and increments the totalLinesConsumed() until
      * EOF. Multiple invocations to this method will continue from where it left off if new content was appended after
@@ -54,7 +72,7 @@ public class ConsoleStreamer implements ConsoleConsumer {
     public long stream(Consumer<String> action) throws IOException {
         long linesStreamed = 0L;
 
-        if (null == stream) stream = Files.lines(path, new SystemEnvironment().consoleLogCharsetAsCharset()).skip(start);
+        if (null == stream) stream = lines(new SystemEnvironment().consoleLogCharsetAsCharset());
         if (null == iterator) iterator = stream.iterator();
 
         while (iterator.hasNext()) {
@@ -66,6 +84,37 @@ public class ConsoleStreamer implements ConsoleConsumer {
         return linesStreamed;
     }
 
+    private Stream<String> lines(Charset charset) throws IOException {
+        if (CompressedConsoleLog.isCompressed(path.toFile())) {
+            CompressedConsoleLog compressedLog = new CompressedConsoleLog(path.toFile());
+            ConsoleLogIndex.Position position = compressedLog.positionOf(start);
+            return lines(new InputStreamReader(compressedLog.openAt(position.getOffset()), charset.newDecoder()), position.getLinesToSkip());
+        }
+        if (null == index) {
+            return Files.lines(path, charset).skip(start);
+        }
+        ConsoleLogIndex.Position position = index.positionOf(start);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(position.getOffset());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return lines(Channels.newReader(channel, charset.newDecoder(), -1), position.getLinesToSkip());
+    }
+
+    private Stream<String> lines(Reader source, long linesToSkip) {
+        BufferedReader reader = new BufferedReader(source);
+        return reader.lines().skip(linesToSkip).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @Override
     public void close() {
         if (null != stream) {
@@ -16,17 +16,24 @@
 
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelDownloader;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -34,7 +41,7 @@ import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.MapBuilder.map;
 import static java.lang.String.format;
 
-public class DirHandler implements FetchHandler {
+public class DirHandler implements ParallelFetchHandler {
     private final String srcFile;
     private final File destOnAgent;
     private static final Logger LOG = LoggerFactory.getLogger(DirHandler.class);
@@ -63,6 +70,87 @@ public class DirHandler implements FetchHandler {
         LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Took: {}ms", srcFile, destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
     }
 
+    /**
+     * Fetches only the files of the folder which are missing from, or differ from those already in, the destination,
+     * going by the md5 checksums the server has for the folder. A folder not on the agent yet, or one where most of
+     * the files changed, is fetched as a single zip instead of a request per file.
+     */
+    @Override
+    public int fetch(HttpService httpService, ParallelDownloader downloader, String url) throws IOException {
+        String folderName = new File(srcFile).getName();
+        Map<String, String> md5s = artifactMd5Checksums == null || folderName.isEmpty() ? Collections.emptyMap() : artifactMd5Checksums.md5sUnder(checksumPathOfFolder());
+        File folder = new File(destOnAgent, folderName);
+        if (md5s.isEmpty() || !url.endsWith(".zip") || !folder.isDirectory()) {
+            return httpService.download(url, this);
+        }
+
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> md5 : md5s.entrySet()) {
+            File file = new File(folder, md5.getKey());
+            if (!file.isFile() || !md5.getValue().equals(md5Of(file))) {
+                changed.put(md5.getKey(), md5.getValue());
+            }
+        }
+        if (changed.size() * 2 > md5s.size()) {
+            LOG.info("[Agent Fetch Artifact] {} of the {} files in '{}' changed, fetching the whole folder", changed.size(), md5s.size(), srcFile);
+            return httpService.download(url, this);
+        }
+        LOG.info("[Agent Fetch Artifact] Fetching {} of the {} files in '{}' to '{}'", changed.size(), md5s.size(), srcFile, destOnAgent.getAbsolutePath());
+
+        String folderUrl = StringUtils.removeEnd(url, ".zip");
+        Map<String, Future<Integer>> downloads = new LinkedHashMap<>();
+        try {
+            for (String path : changed.keySet()) {
+                downloads.put(path, downloader.submit(folderUrl + "/" + encodePath(path), new File(folder, path)));
+            }
+            for (Map.Entry<String, Future<Integer>> download : downloads.entrySet()) {
+                int statusCode = statusOf(download.getValue());
+                if (statusCode != HttpServletResponse.SC_OK) {
+                    LOG.warn("[Agent Fetch Artifact] Got {} fetching '{}' from '{}', fetching the whole folder instead", statusCode, download.getKey(), srcFile);
+                    return httpService.download(url, this);
+                }
+                new ChecksumValidator(artifactMd5Checksums).validate(checksumPathOfFolder() + "/" + download.getKey(), md5Of(new File(folder, download.getKey())), checksumValidationPublisher);
+            }
+            return HttpServletResponse.SC_OK;
+        } finally {
+            for (Future<Integer> download : downloads.values()) {
+                download.cancel(true);
+            }
+        }
+    }
+
+    private String checksumPathOfFolder() {
+        return FilenameUtils.separatorsToUnix(new File(srcFile).getPath());
+    }
+
+    private String encodePath(String path) throws UnsupportedEncodingException {
+        StringBuilder encoded = new StringBuilder();
+        for (String segment : path.split("/")) {
+            if (encoded.length() > 0) {
+                encoded.append('/');
+            }
+            encoded.append(URLEncoder.encode(segment, "UTF-8").replace("+", "%20"));
+        }
+        return encoded.toString();
+    }
+
+    private int statusOf(Future<Integer> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + srcFile);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private String md5Of(File file) throws IOException {
+        try (InputStream stream = new FileInputStream(file)) {
+            return md5Hex(stream);
+        }
+    }
+
     private String getSrcFilePath(ZipEntry entry) {
         String parent = new File(srcFile).getParent();
         return FilenameUtils.separatorsToUnix(new File(parent, entry.getName()).getPath());
@@ -18,6 +18,8 @@ package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.Clock;
 import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelDownloader;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.work.GoPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +31,7 @@ public class DownloadAction {
     private final HttpService httpService;
     private final GoPublisher goPublisher;
     private final Clock clock;
+    private final SystemEnvironment systemEnvironment = new SystemEnvironment();
     private static final int DOWNLOAD_SLEEP_MILLIS = 5000;
     private static final Logger LOG = LoggerFactory.getLogger(DownloadAction.class);
 
@@ -71,14 +74,21 @@ public class DownloadAction {
     }
 
     private int download(HttpService httpService, String url, FetchHandler handler) throws Exception {
-        int returnCode = httpService.download(url, handler);
+        int returnCode = fetch(httpService, url, handler);
         while (returnCode == HttpServletResponse.SC_ACCEPTED) {
             clock.sleepForMillis(DOWNLOAD_SLEEP_MILLIS);
-            returnCode = httpService.download(url, handler);
+            returnCode = fetch(httpService, url, handler);
         }
         return returnCode;
     }
 
+    private int fetch(HttpService httpService, String url, FetchHandler handler) throws Exception {
+        if (handler instanceof ParallelFetchHandler && systemEnvironment.isAgentArtifactParallelFetchEnabled()) {
+            return ((ParallelFetchHandler) handler).fetch(httpService, new ParallelDownloader(httpService, systemEnvironment), url);
+        }
+        return httpService.download(url, handler);
+    }
+
     private double backout(int retryCount) {
         return (retryCount * 10.0) + (10 * Math.random());
     }
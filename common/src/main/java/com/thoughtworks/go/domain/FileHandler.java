@@ -17,6 +17,8 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelDownloader;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FileUtils;
@@ -33,7 +35,7 @@ import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.MapBuilder.map;
 import static java.lang.String.format;
 
-public class FileHandler implements FetchHandler {
+public class FileHandler implements ParallelFetchHandler {
 
     private final File artifact;
     private final String srcFile;
@@ -69,6 +71,21 @@ public class FileHandler implements FetchHandler {
         } finally {
             IOUtils.closeQuietly(fileOutputStream);
         }
+        validateChecksum();
+    }
+
+    @Override
+    public int fetch(HttpService httpService, ParallelDownloader downloader, String url) throws IOException {
+        LOG.info("[Artifact File Download] [{}] Download of artifact {} started", new Date(), artifact.getName());
+        int statusCode = downloader.download(url, artifact);
+        LOG.info("[Artifact File Download] [{}] Download of artifact {} ended with {}", new Date(), artifact.getName(), statusCode);
+        if (statusCode == HttpServletResponse.SC_OK) {
+            validateChecksum();
+        }
+        return statusCode;
+    }
+
+    private void validateChecksum() throws IOException {
         FileInputStream inputStream = null;
         try {
             inputStream = new FileInputStream(artifact);
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.domain;
+
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelDownloader;
+
+import java.io.IOException;
+
+/**
+ * @understands fetching an artifact through as many requests as it sees fit, rather than handling a single response
+ */
+public interface ParallelFetchHandler extends FetchHandler {
+    int fetch(HttpService httpService, ParallelDownloader downloader, String url) throws IOException;
+}
@@ -196,6 +196,26 @@ public class AgentInstances implements Iterable<AgentInstance> {
         }
     }
 
+    /**
+     * Like {@link #sync(Agents)}, for a single agent. A null agent config means the agent is gone.
+     */
+    public void syncAgent(String uuid, AgentConfig agentConfig) {
+        if (agentConfig != null) {
+            if (agentInstances.containsKey(uuid)) {
+                agentInstances.get(uuid).syncConfig(agentConfig);
+            } else {
+                agentInstances.put(uuid, AgentInstance.createFromConfig(agentConfig, new SystemEnvironment(), agentStatusChangeListener));
+            }
+            return;
+        }
+        synchronized (agentInstances) {
+            AgentInstance instance = agentInstances.get(uuid);
+            if (instance != null && instance.getStatus() != AgentStatus.Pending) {
+                agentInstances.remove(uuid);
+            }
+        }
+    }
+
     public boolean hasAgent(String uuid) {
         return !(findAgentAndRefreshStatus(uuid) instanceof NullAgentInstance);
     }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import com.thoughtworks.go.util.command.TaggedStreamConsumer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.function.IntFunction;
+import java.util.zip.Deflater;
+
+import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+import static com.thoughtworks.go.util.GoConstants.PUBLISH_MAX_RETRIES;
+import static com.thoughtworks.go.util.command.TaggedStreamConsumer.PUBLISH;
+import static com.thoughtworks.go.util.command.TaggedStreamConsumer.PUBLISH_ERR;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.removeStart;
+
+/**
+ * @understands uploading an artifact to the server as a zip with the checksums of its files, retrying failed attempts
+ */
+public class ArtifactUploader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactUploader.class);
+    private final HttpService httpService;
+    private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
+
+    public ArtifactUploader(HttpService httpService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
+        this.httpService = httpService;
+        this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    /**
+     * @param uploadUrl the url to upload to, given the number of the attempt
+     */
+    public void upload(TaggedStreamConsumer console, File source, String destPath, IntFunction<String> uploadUrl) {
+        if (!source.exists()) {
+            String message = "Failed to find " + source.getAbsolutePath();
+            taggedConsumeLineWithPrefix(console, PUBLISH_ERR, message);
+            throw bomb(message);
+        }
+
+        int publishingAttempts = 0;
+        Throwable lastException = null;
+        while (publishingAttempts < PUBLISH_MAX_RETRIES) {
+            File tmpDir = null;
+            try {
+                publishingAttempts++;
+
+                boolean streaming = systemEnvironment.isArtifactStreamingUploadEnabled();
+                File dataToUpload = null;
+                if (!streaming) {
+                    tmpDir = FileUtil.createTempFolder();
+                    dataToUpload = new File(tmpDir, source.getName() + ".zip");
+                    zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
+                }
+
+                long size;
+                if (source.isDirectory()) {
+                    size = FileUtils.sizeOfDirectory(source);
+                } else {
+                    size = source.length();
+                }
+
+                taggedConsumeLineWithPrefix(console, PUBLISH,
+                        format("Uploading artifacts from %s to %s", source.getAbsolutePath(), getDestPath(destPath)));
+
+                String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
+                String url = uploadUrl.apply(publishingAttempts);
+
+                int statusCode = streaming
+                        ? httpService.upload(url, size, new StreamingZipArtifact(source, zipUtil, entryName -> getEffectiveFileName(normalizedDestPath, entryName)))
+                        : httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+
+                if (statusCode == HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE) {
+                    String message = format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
+                            source.getAbsolutePath(), size);
+                    taggedConsumeLineWithPrefix(console, PUBLISH_ERR, message);
+                    LOGGER.error("[Artifact Upload] Artifact upload was denied by the server. This usually happens when server runs out of disk space.");
+                    publishingAttempts = PUBLISH_MAX_RETRIES;
+                    throw bomb(message + ".  HTTP return code is " + statusCode);
+                }
+                if (statusCode < HttpServletResponse.SC_OK || statusCode >= HttpServletResponse.SC_MULTIPLE_CHOICES) {
+                    throw bomb("Failed to upload " + source.getAbsolutePath() + ".  HTTP return code is " + statusCode);
+                }
+                return;
+            } catch (Throwable e) {
+                String message = "Failed to upload " + source.getAbsolutePath();
+                LOGGER.error(message, e);
+                taggedConsumeLineWithPrefix(console, PUBLISH_ERR, message);
+                lastException = e;
+            } finally {
+                FileUtils.deleteQuietly(tmpDir);
+            }
+        }
+        if (lastException != null) {
+            throw new RuntimeException(lastException);
+        }
+    }
+
+    private void taggedConsumeLineWithPrefix(TaggedStreamConsumer console, String tag, String message) {
+        console.taggedConsumeLine(tag, format("[%s] %s", GoConstants.PRODUCT_NAME, message));
+    }
+
+    private String getDestPath(String file) {
+        if (StringUtils.isEmpty(file)) {
+            return "[defaultRoot]";
+        } else {
+            return file;
+        }
+    }
+
+    private Properties artifactChecksums(File source, String destPath) throws IOException {
+        if (source.isDirectory()) {
+            return computeChecksumForContentsOfDirectory(source, destPath);
+        }
+
+        Properties properties;
+        try (FileInputStream inputStream = new FileInputStream(source)) {
+            properties = computeChecksumForFile(source.getName(), md5Hex(inputStream), destPath);
+        }
+        return properties;
+    }
+
+    private Properties computeChecksumForContentsOfDirectory(File directory, String destPath) throws IOException {
+        Collection<File> fileStructure = FileUtils.listFiles(directory, null, true);
+        Properties checksumProperties = new Properties();
+        for (File file : fileStructure) {
+            String filePath = removeStart(file.getAbsolutePath(), directory.getParentFile().getAbsolutePath());
+            try (FileInputStream inputStream = new FileInputStream(file)) {
+                checksumProperties.setProperty(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), md5Hex(inputStream));
+            }
+        }
+        return checksumProperties;
+    }
+
+    private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
+        String effectiveFileName = getEffectiveFileName(destPath, sourceName);
+        Properties properties = new Properties();
+        properties.setProperty(effectiveFileName, md5);
+        return properties;
+    }
+
+    private String getEffectiveFileName(String computedDestPath, String filePath) {
+        File artifactDest = computedDestPath.isEmpty() ? new File(filePath) : new File(computedDestPath, filePath);
+        return removeLeadingSlash(artifactDest);
+    }
+
+    private String removeLeadingSlash(File artifactDest) {
+        return removeStart(FilenameUtils.separatorsToUnix(artifactDest.getPath()), "/");
+    }
+}
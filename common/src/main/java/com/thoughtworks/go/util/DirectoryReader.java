@@ -20,11 +20,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.util.Arrays;
 
+import com.thoughtworks.go.domain.CompressedConsoleLog;
 import com.thoughtworks.go.domain.DirectoryEntries;
 import com.thoughtworks.go.domain.FileDirectoryEntry;
 import com.thoughtworks.go.domain.FolderDirectoryEntry;
 import com.thoughtworks.go.domain.JobIdentifier;
 
+import static com.thoughtworks.go.util.ArtifactLogUtil.CONSOLE_LOG_FILE_NAME;
+import static com.thoughtworks.go.util.ArtifactLogUtil.CRUISE_OUTPUT_FOLDER;
+
 public class DirectoryReader {
     private URLService urlService;
     private final JobIdentifier jobIdentifier;
@@ -63,6 +67,13 @@ public class DirectoryReader {
         Arrays.sort(files, new FileComparator());
         for (File file : files) {
             String name = file.getName();
+            if (isCompressedConsoleLog(rootFolder, file)) {
+                // listed under its original name, which is also the url it is still served at
+                if (new File(rootFolder, CONSOLE_LOG_FILE_NAME).exists()) {
+                    continue;
+                }
+                name = CONSOLE_LOG_FILE_NAME;
+            }
             String url = getUrl(relativePath, name);
             entries.add(file.isDirectory() ?
                     new FolderDirectoryEntry(name, url, listEntries(file, getCurrentPath(relativePath) + name)) :
@@ -72,6 +83,10 @@ public class DirectoryReader {
         return entries;
     }
 
+    private boolean isCompressedConsoleLog(File folder, File file) {
+        return CRUISE_OUTPUT_FOLDER.equals(folder.getName()) && (CONSOLE_LOG_FILE_NAME + CompressedConsoleLog.EXTENSION).equals(file.getName());
+    }
+
     private String getUrl(String currentPath, String name) {
         return urlService.getRestfulArtifactUrl(jobIdentifier, getCurrentPath(currentPath) + name);
     }
@@ -20,13 +20,17 @@ import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClientBuilder;
 import com.thoughtworks.go.domain.FetchHandler;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.message.BasicNameValuePair;
@@ -89,6 +93,29 @@ public class HttpService {
         return filePost;
     }
 
+    public int upload(String url, long size, StreamingZipArtifact artifact) throws IOException {
+        String absolutePath = artifact.getSource().getAbsolutePath();
+        if (!artifact.getSource().exists()) {
+            String message = "Failed to find file [" + absolutePath + "]";
+            LOGGER.error(message);
+            throw new FileNotFoundException(message);
+        }
+        LOGGER.info("Zipping and uploading [{}] to url [{}]", absolutePath, url);
+
+        HttpPost filePost = httpClientFactory.createPost(url);
+        setSizeHeader(filePost, size);
+        filePost.setHeader("Confirm", "true");
+        filePost.setEntity(httpClientFactory.createMultipartRequestEntity(artifact));
+        try (CloseableHttpResponse response = execute(filePost)) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while uploading [{}]", absolutePath, e);
+            throw e;
+        } finally {
+            filePost.releaseConnection();
+        }
+    }
+
     public int download(String url, FetchHandler handler) throws IOException {
         HttpGet toGet = null;
         InputStream is = null;
@@ -118,6 +145,30 @@ public class HttpService {
         }
     }
 
+    // range is an http byte range such as "bytes=0-1023", or null to ask for the whole content
+    public int downloadRange(String url, String range, PartialContentHandler handler) throws IOException {
+        HttpGet toGet = httpClientFactory.createGet(url);
+        if (range != null) {
+            toGet.setHeader("Range", range);
+        }
+        try (CloseableHttpResponse response = execute(toGet)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if ((statusCode == HttpServletResponse.SC_OK || statusCode == HttpServletResponse.SC_PARTIAL_CONTENT) && response.getEntity() != null) {
+                Header contentRange = response.getFirstHeader("Content-Range");
+                Header etag = response.getFirstHeader("ETag");
+                try (InputStream is = response.getEntity().getContent()) {
+                    handler.handle(statusCode, contentRange == null ? null : contentRange.getValue(), etag == null ? null : etag.getValue(), is);
+                }
+            }
+            return statusCode;
+        } catch (IOException e) {
+            LOGGER.error("Error while downloading [{}] of [{}]", range, url, e);
+            throw e;
+        } finally {
+            toGet.releaseConnection();
+        }
+    }
+
     public void postProperty(String url, String value) throws IOException {
         LOGGER.info("Posting property to the URL {}Property Value ={}", url, value);
         HttpPost post = httpClientFactory.createPost(url);
@@ -175,5 +226,53 @@ public class HttpService {
             }
             return entityBuilder.build();
         }
+
+        // parts are written in order, so the checksums are complete by the time their part is written
+        public HttpEntity createMultipartRequestEntity(StreamingZipArtifact artifact) {
+            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+            entityBuilder.addPart(GoConstants.ZIP_MULTIPART_FILENAME, new StreamingBody(artifact.getName(), artifact::writeTo));
+            entityBuilder.addPart(GoConstants.CHECKSUM_MULTIPART_FILENAME, new StreamingBody("checksum_file", output -> artifact.checksums().store(output, "")));
+            return entityBuilder.build();
+        }
+    }
+
+    // a multipart body of unknown length, sent chunked as it is being written
+    static class StreamingBody extends AbstractContentBody {
+        private final String filename;
+        private final BodyWriter writer;
+
+        StreamingBody(String filename, BodyWriter writer) {
+            super(ContentType.DEFAULT_BINARY);
+            this.filename = filename;
+            this.writer = writer;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            writer.writeTo(output);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+
+    public interface PartialContentHandler {
+        void handle(int statusCode, String contentRange, String etag, InputStream stream) throws IOException;
+    }
+
+    interface BodyWriter {
+        void writeTo(OutputStream output) throws IOException;
     }
 }
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * @understands downloading a file as several byte ranges fetched side by side into a partial file, and picking up
+ * from where an earlier, interrupted attempt left off as long as the file on the server has not changed since
+ */
+public class ParallelDownloader {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelDownloader.class);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SAVE_PROGRESS_EVERY = 8 * 1024 * 1024;
+    private static ExecutorService sharedExecutor;
+
+    private final HttpService httpService;
+    private final ExecutorService executor;
+    private final int maxSegments;
+    private final long minSegmentSize;
+
+    public ParallelDownloader(HttpService httpService, SystemEnvironment systemEnvironment) {
+        this(httpService, sharedExecutor(systemEnvironment.getAgentArtifactFetchParallelism()), systemEnvironment.getAgentArtifactFetchParallelism(), systemEnvironment.getAgentArtifactFetchMinSegmentSize());
+    }
+
+    ParallelDownloader(HttpService httpService, ExecutorService executor, int maxSegments, long minSegmentSize) {
+        this.httpService = httpService;
+        this.executor = executor;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.minSegmentSize = Math.max(1, minSegmentSize);
+    }
+
+    /**
+     * Downloads a file, fetching its segments side by side on the shared executor. Downloads made from a thread of
+     * that executor go through {@link #submit} instead.
+     */
+    public int download(String url, File dest) throws IOException {
+        return download(url, dest, true);
+    }
+
+    /**
+     * Downloads a file on the shared executor, fetching its segments one after another, so that downloading many files
+     * at once never takes more connections than the executor has threads, nor waits on the executor from within it.
+     */
+    public Future<Integer> submit(String url, File dest) {
+        return executor.submit(() -> download(url, dest, false));
+    }
+
+    private int download(String url, File dest, boolean sideBySide) throws IOException {
+        try {
+            return attempt(url, dest, sideBySide);
+        } catch (ContentChangedException e) {
+            LOG.info("[Artifact Download] [{}] changed on the server since its download into [{}] started, downloading it again", url, dest);
+            FileUtils.deleteQuietly(partFileOf(dest));
+            FileUtils.deleteQuietly(progressFileOf(dest));
+            return attempt(url, dest, sideBySide);
+        }
+    }
+
+    private int attempt(String url, File dest, boolean sideBySide) throws IOException {
+        File partFile = partFileOf(dest);
+        File progressFile = progressFileOf(dest);
+        dest.getAbsoluteFile().getParentFile().mkdirs();
+
+        Progress progress = Progress.load(progressFile, url);
+        if (progress == null || !partFile.exists()) {
+            // the first segment is also what finds out the length of the file, so a small file takes a single request
+            AtomicReference<Progress> started = new AtomicReference<>();
+            int statusCode = httpService.downloadRange(url, format("bytes=0-%d", minSegmentSize - 1), (code, contentRange, etag, stream) -> {
+                if (code == HttpServletResponse.SC_PARTIAL_CONTENT) {
+                    long totalLength = totalLength(contentRange);
+                    long received = copyWhole(stream, partFile);
+                    started.set(Progress.split(url, etag, totalLength, received, numberOfSegments(totalLength - received)));
+                } else {
+                    copyWhole(stream, partFile);
+                }
+            });
+            if (statusCode == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                // an empty file has no first byte to ask for
+                statusCode = httpService.downloadRange(url, null, (code, contentRange, etag, stream) -> copyWhole(stream, partFile));
+            }
+            if (statusCode == HttpServletResponse.SC_OK) {
+                moveInto(partFile, dest);
+                return statusCode;
+            }
+            if (statusCode != HttpServletResponse.SC_PARTIAL_CONTENT || started.get() == null) {
+                return statusCode;
+            }
+            progress = started.get();
+        } else {
+            LOG.info("[Artifact Download] Resuming download of [{}] into [{}]", url, dest);
+        }
+
+        int statusCode = downloadSegments(url, partFile, progressFile, progress, sideBySide);
+        if (progress.isComplete()) {
+            FileUtils.deleteQuietly(progressFile);
+            moveInto(partFile, dest);
+            return HttpServletResponse.SC_OK;
+        }
+        progress.save(progressFile);
+        return statusCode;
+    }
+
+    private int downloadSegments(String url, File partFile, File progressFile, Progress progress, boolean sideBySide) throws IOException {
+        List<Segment> pending = progress.pendingSegments();
+        try (FileChannel channel = FileChannel.open(partFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (!sideBySide) {
+                for (Segment segment : pending) {
+                    int statusCode = downloadSegment(url, channel, segment, progress, progressFile);
+                    if (statusCode != HttpServletResponse.SC_PARTIAL_CONTENT) {
+                        return statusCode;
+                    }
+                }
+                return HttpServletResponse.SC_PARTIAL_CONTENT;
+            }
+            return downloadSegmentsSideBySide(url, channel, pending, progress, progressFile);
+        } catch (IOException e) {
+            progress.save(progressFile);
+            throw e;
+        }
+    }
+
+    private int downloadSegmentsSideBySide(String url, FileChannel channel, List<Segment> pending, Progress progress, File progressFile) throws IOException {
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (Segment segment : pending) {
+                results.add(executor.submit(() -> downloadSegment(url, channel, segment, progress, progressFile)));
+            }
+            int statusCode = HttpServletResponse.SC_PARTIAL_CONTENT;
+            IOException failure = null;
+            for (Future<Integer> result : results) {
+                try {
+                    int segmentStatusCode = result.get();
+                    if (segmentStatusCode != HttpServletResponse.SC_PARTIAL_CONTENT) {
+                        statusCode = segmentStatusCode;
+                    }
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return statusCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(format("Interrupted while downloading [%s]", url));
+        } finally {
+            for (Future<Integer> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    private int downloadSegment(String url, FileChannel channel, Segment segment, Progress progress, File progressFile) throws IOException {
+        String range = format("bytes=%d-%d", segment.next.get(), segment.last);
+        int statusCode = httpService.downloadRange(url, range, (code, contentRange, etag, stream) -> {
+            if (code != HttpServletResponse.SC_PARTIAL_CONTENT) {
+                throw new IOException(format("The server did not honour the range [%s] of [%s]", range, url));
+            }
+            if (totalLength(contentRange) != progress.totalLength || (progress.etag != null && !progress.etag.equals(etag))) {
+                throw new ContentChangedException();
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long unsaved = 0;
+            int read;
+            while (segment.remaining() > 0 && (read = stream.read(buffer, 0, (int) Math.min(buffer.length, segment.remaining()))) != -1) {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                long position = segment.next.get();
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                segment.next.set(position);
+                unsaved += read;
+                if (unsaved >= SAVE_PROGRESS_EVERY) {
+                    progress.save(progressFile);
+                    unsaved = 0;
+                }
+            }
+        });
+        if (statusCode == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+            // the file got shorter than when the download started
+            throw new ContentChangedException();
+        }
+        return statusCode;
+    }
+
+    private int numberOfSegments(long totalLength) {
+        return (int) Math.max(1, Math.min(maxSegments, totalLength / minSegmentSize));
+    }
+
+    private static synchronized ExecutorService sharedExecutor(int threads) {
+        if (sharedExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            sharedExecutor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+                Thread thread = new Thread(runnable, "artifact-fetcher-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedExecutor;
+    }
+
+    private static long totalLength(String contentRange) throws IOException {
+        Matcher matcher = contentRange == null ? null : CONTENT_RANGE.matcher(contentRange);
+        if (matcher == null || !matcher.matches()) {
+            throw new IOException(format("Unexpected Content-Range [%s]", contentRange));
+        }
+        return Long.parseLong(matcher.group(3));
+    }
+
+    private static long copyWhole(InputStream stream, File partFile) throws IOException {
+        try (OutputStream out = FileUtils.openOutputStream(partFile)) {
+            return IOUtils.copyLarge(stream, out);
+        }
+    }
+
+    private static void moveInto(File partFile, File dest) throws IOException {
+        Files.move(partFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static File partFileOf(File dest) {
+        return new File(dest.getPath() + ".part");
+    }
+
+    private static File progressFileOf(File dest) {
+        return new File(dest.getPath() + ".part.progress");
+    }
+
+    private static class ContentChangedException extends IOException {
+    }
+
+    private static class Segment {
+        private final long first;
+        private final long last;
+        private final AtomicLong next;
+
+        Segment(long first, long last, long next) {
+            this.first = first;
+            this.last = last;
+            this.next = new AtomicLong(next);
+        }
+
+        long remaining() {
+            return last - next.get() + 1;
+        }
+    }
+
+    private static class Progress {
+        private final String url;
+        private final String etag;
+        private final long totalLength;
+        private final List<Segment> segments;
+
+        private Progress(String url, String etag, long totalLength, List<Segment> segments) {
+            this.url = url;
+            this.etag = etag;
+            this.totalLength = totalLength;
+            this.segments = segments;
+        }
+
+        // the first received bytes are already in, the rest of the file is split into the given number of segments
+        static Progress split(String url, String etag, long totalLength, long received, int numberOfSegments) {
+            List<Segment> segments = new ArrayList<>();
+            segments.add(new Segment(0, received - 1, received));
+            long remaining = totalLength - received;
+            long segmentLength = remaining / numberOfSegments;
+            for (int i = 0; remaining > 0 && i < numberOfSegments; i++) {
+                long first = received + i * segmentLength;
+                long last = i == numberOfSegments - 1 ? totalLength - 1 : first + segmentLength - 1;
+                segments.add(new Segment(first, last, first));
+            }
+            return new Progress(url, etag, totalLength, segments);
+        }
+
+        static Progress load(File progressFile, String url) {
+            if (!progressFile.exists()) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(progressFile)) {
+                properties.load(in);
+                if (!url.equals(properties.getProperty("url"))) {
+                    return null;
+                }
+                List<Segment> segments = new ArrayList<>();
+                int numberOfSegments = Integer.parseInt(properties.getProperty("segments"));
+                for (int i = 0; i < numberOfSegments; i++) {
+                    String[] segment = properties.getProperty("segment." + i).split(",");
+                    segments.add(new Segment(Long.parseLong(segment[0]), Long.parseLong(segment[1]), Long.parseLong(segment[2])));
+                }
+                return new Progress(url, properties.getProperty("etag"), Long.parseLong(properties.getProperty("length")), segments);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("[Artifact Download] Ignoring unreadable download progress [{}]", progressFile, e);
+                return null;
+            }
+        }
+
+        List<Segment> pendingSegments() {
+            List<Segment> pending = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.remaining() > 0) {
+                    pending.add(segment);
+                }
+            }
+            return pending;
+        }
+
+        boolean isComplete() {
+            return pendingSegments().isEmpty();
+        }
+
+        synchronized void save(File progressFile) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("url", url);
+            if (etag != null) {
+                properties.setProperty("etag", etag);
+            }
+            properties.setProperty("length", Long.toString(totalLength));
+            properties.setProperty("segments", Integer.toString(segments.size()));
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                properties.setProperty("segment." + i, format("%d,%d,%d", segment.first, segment.last, segment.next.get()));
+            }
+            File temporary = new File(progressFile.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temporary)) {
+                properties.store(out, null);
+            }
+            Files.move(temporary.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.util;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * @understands zipping an artifact straight into an upload, computing the md5 of every zipped file on the way
+ * instead of reading the files again for their checksums
+ */
+public class StreamingZipArtifact {
+    private final File source;
+    private final ZipUtil zipUtil;
+    private final Function<String, String> checksumNameOfZipEntry;
+    private final Properties checksums = new Properties();
+
+    public StreamingZipArtifact(File source, ZipUtil zipUtil, Function<String, String> checksumNameOfZipEntry) {
+        this.source = source;
+        this.zipUtil = zipUtil;
+        this.checksumNameOfZipEntry = checksumNameOfZipEntry;
+    }
+
+    public String getName() {
+        return source.getName() + ".zip";
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        checksums.clear();
+        zipUtil.zip(source, new CloseShieldOutputStream(output), Deflater.BEST_SPEED,
+                (entryName, md5) -> checksums.setProperty(checksumNameOfZipEntry.apply(entryName), md5));
+    }
+
+    // only complete once the zip has been written
+    public Properties checksums() {
+        return checksums;
+    }
+}
@@ -21,5 +21,5 @@ public enum Action {
     cancelBuild,
     ping,
     reregister,
-    reportCurrentStatus, reportCompleted, reportCompleting, acknowledge, build, consoleOut, setCookie
+    reportCurrentStatus, reportCompleted, reportCompleting, acknowledge, build, consoleOut, consoleOutFrame, setCookie
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.websocket;
+
+import com.google.gson.annotations.Expose;
+import com.thoughtworks.go.domain.JobIdentifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A batch of already formatted console lines, sent as a single websocket message.
+ */
+public class ConsoleFrameTransmission implements Serializable, Transmission {
+    @Expose
+    private String buildId;
+    @Expose
+    private int lineCount;
+    @Expose
+    private String content;
+
+    public ConsoleFrameTransmission(String buildId, int lineCount, String content) {
+        this.buildId = buildId;
+        this.lineCount = lineCount;
+        this.content = content;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public InputStream getContentAsStream() {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public JobIdentifier getJobIdentifier() {
+        return null;
+    }
+
+    @Override
+    public String getBuildId() {
+        return buildId;
+    }
+}
@@ -18,4 +18,11 @@ package com.thoughtworks.go.websocket;
 
 public interface MessageCallback {
     void call();
+
+    /**
+     * Called instead of {@link #call()} when the message will never be acknowledged, e.g. because the session it was
+     * sent on has been replaced
+     */
+    default void discarded() {
+    }
 }
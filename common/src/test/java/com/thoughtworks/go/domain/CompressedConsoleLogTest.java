@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnableRuleMigrationSupport
+class CompressedConsoleLogTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File consoleLog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        consoleLog = new File(temporaryFolder.newFolder("cruise-output"), "console.log");
+    }
+
+    @Test
+    void shouldCompressIntoAValidGzipFileNextToTheLog() throws IOException {
+        String content = manyLines(500);
+        Files.write(consoleLog.toPath(), content.getBytes(UTF_8));
+
+        CompressedConsoleLog compressed = CompressedConsoleLog.compress(consoleLog, 256);
+
+        assertThat(compressed.getFile()).isEqualTo(new File(consoleLog.getParentFile(), "console.log.gz"));
+        assertThat(compressed.getFile().length()).isLessThan(consoleLog.length());
+        assertThat(compressed.uncompressedLength()).isEqualTo(consoleLog.length());
+        assertThat(decompressed(compressed)).isEqualTo(content);
+    }
+
+    @Test
+    void shouldStartReadingAtTheBlockHoldingTheLine() throws IOException {
+        Files.write(consoleLog.toPath(), manyLines(500).getBytes(UTF_8));
+        CompressedConsoleLog compressed = CompressedConsoleLog.compress(consoleLog, 256);
+
+        for (long line = 0; line <= 502; line += 7) {
+            assertThat(streamFrom(compressed, line)).as("lines from %d", line).isEqualTo(expectedFrom(line));
+        }
+        assertThat(compressed.positionOf(400).getOffset()).isGreaterThan(0);
+        assertThat(compressed.positionOf(400).getLinesToSkip()).isLessThan(400);
+    }
+
+    @Test
+    void shouldAppendMoreBlocksIncludingOnesCarryingOnTheLastLine() throws IOException {
+        Files.write(consoleLog.toPath(), "first\nsecond\nunfinished".getBytes(UTF_8));
+        CompressedConsoleLog compressed = CompressedConsoleLog.compress(consoleLog, 8);
+
+        compressed.append(new ByteArrayInputStream(" line\r".getBytes(UTF_8)), 8);
+        compressed.append(new ByteArrayInputStream("\nthird\nfourth\n".getBytes(UTF_8)), 8);
+        Files.write(consoleLog.toPath(), " line\r\nthird\nfourth\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+
+        assertThat(decompressed(compressed)).isEqualTo("first\nsecond\nunfinished line\r\nthird\nfourth\n");
+        for (long line = 0; line <= 5; line++) {
+            assertThat(streamFrom(compressed, line)).as("lines from %d", line).isEqualTo(expectedFrom(line));
+        }
+    }
+
+    @Test
+    void shouldCompressEmptyLogIntoAValidGzipFile() throws IOException {
+        Files.write(consoleLog.toPath(), new byte[0]);
+
+        assertThat(decompressed(CompressedConsoleLog.compress(consoleLog, 256))).isEmpty();
+    }
+
+    @Test
+    void shouldBeReadByConsoleStreamer() throws Exception {
+        Files.write(consoleLog.toPath(), manyLines(100).getBytes(UTF_8));
+        CompressedConsoleLog compressed = CompressedConsoleLog.compress(consoleLog, 128);
+
+        List<String> lines = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(compressed.getFile().toPath(), 95L)) {
+            streamer.stream(lines::add);
+        }
+
+        assertThat(lines).isEqualTo(expectedFrom(95));
+    }
+
+    private String manyLines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            lines.append("[go] line ").append(i).append(i % 10 == 0 ? "\r\n" : "\n");
+        }
+        return lines.append("last line without a newline").toString();
+    }
+
+    private String decompressed(CompressedConsoleLog compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(compressed.getFile()))) {
+            return IOUtils.toString(in, UTF_8);
+        }
+    }
+
+    private List<String> streamFrom(CompressedConsoleLog compressed, long line) throws IOException {
+        ConsoleLogIndex.Position position = compressed.positionOf(line);
+        try (InputStream in = compressed.openAt(position.getOffset())) {
+            return IOUtils.readLines(in, UTF_8).stream().skip(position.getLinesToSkip()).collect(Collectors.toList());
+        }
+    }
+
+    private List<String> expectedFrom(long line) throws IOException {
+        try (Stream<String> lines = Files.lines(consoleLog.toPath(), UTF_8)) {
+            return lines.skip(line).collect(Collectors.toList());
+        }
+    }
+}
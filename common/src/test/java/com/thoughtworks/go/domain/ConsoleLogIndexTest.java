@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.domain;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnableRuleMigrationSupport
+class ConsoleLogIndexTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File consoleLog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        consoleLog = new File(temporaryFolder.newFolder("cruise-output"), "console.log");
+    }
+
+    @Test
+    void shouldKeepIndexInAHiddenFileNextToTheLog() {
+        assertThat(ConsoleLogIndex.indexFileFor(consoleLog)).isEqualTo(new File(consoleLog.getParentFile(), ".console.log.index"));
+    }
+
+    @Test
+    void shouldOnlyIndexCharsetsWithSingleByteLineTerminators() {
+        assertThat(ConsoleLogIndex.canIndex(StandardCharsets.UTF_8)).isTrue();
+        assertThat(ConsoleLogIndex.canIndex(StandardCharsets.ISO_8859_1)).isTrue();
+        assertThat(ConsoleLogIndex.canIndex(StandardCharsets.UTF_16)).isFalse();
+    }
+
+    @Test
+    void shouldStreamTheSameLinesFromAnyStartingLineAsReadingFromTheBeginning() throws IOException {
+        ConsoleLogIndex index = new ConsoleLogIndex(consoleLog, 3);
+        // terminators of all kinds, including a "\r\n" split across two appends and an unterminated last line
+        append(index, "zero\none\r\ntwo\rthree\n\nfive \u00fcn\u00efc\u00f6d\u00e9\r");
+        append(index, "\nsix\n");
+        append(index, "seven\r\reight\nnine\nten\r\neleven\ntwelve");
+
+        for (long start = 0; start <= 15; start++) {
+            assertThat(streamFrom(start, index)).as("lines from %d", start).isEqualTo(expectedFrom(start));
+        }
+    }
+
+    @Test
+    void shouldPointAtTheLineNearestToButNotAfterTheStartingLine() throws IOException {
+        ConsoleLogIndex index = new ConsoleLogIndex(consoleLog, 2);
+        append(index, "a\nb\nc\nd\ne\n");
+
+        ConsoleLogIndex.Position position = index.positionOf(3);
+
+        assertThat(position.getOffset()).isEqualTo(4);
+        assertThat(position.getLinesToSkip()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReadFromTheBeginningWhenThereIsNoIndex() throws IOException {
+        Files.write(consoleLog.toPath(), "a\nb\nc\n".getBytes(StandardCharsets.UTF_8));
+
+        ConsoleLogIndex.Position position = new ConsoleLogIndex(consoleLog, 1).positionOf(2);
+
+        assertThat(position.getOffset()).isEqualTo(0);
+        assertThat(position.getLinesToSkip()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStartOverWhenTheLogHasShrunk() throws IOException {
+        ConsoleLogIndex index = new ConsoleLogIndex(consoleLog, 1);
+        append(index, "a rather long first line\nsecond\n");
+        Files.write(consoleLog.toPath(), "x\ny\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(index.positionOf(1).getOffset()).isEqualTo(0);
+
+        index.update();
+
+        assertThat(index.positionOf(1).getOffset()).isEqualTo(2);
+        assertThat(streamFrom(1, index)).containsExactly("y");
+    }
+
+    @Test
+    void shouldMoveIndexAlongWithTheLog() throws IOException {
+        ConsoleLogIndex index = new ConsoleLogIndex(consoleLog, 1);
+        append(index, "a\nb\n");
+        File movedLog = new File(temporaryFolder.newFolder("moved"), "console.log");
+        Files.move(consoleLog.toPath(), movedLog.toPath());
+
+        index.moveTo(movedLog);
+
+        assertThat(ConsoleLogIndex.indexFileFor(consoleLog)).doesNotExist();
+        assertThat(new ConsoleLogIndex(movedLog, 1).positionOf(1).getOffset()).isEqualTo(2);
+    }
+
+    private void append(ConsoleLogIndex index, String text) throws IOException {
+        Files.write(consoleLog.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        index.update();
+    }
+
+    private List<String> streamFrom(long start, ConsoleLogIndex index) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(consoleLog.toPath(), start, index)) {
+            streamer.stream(lines::add);
+        }
+        return lines;
+    }
+
+    private List<String> expectedFrom(long start) throws IOException {
+        try (Stream<String> lines = Files.lines(consoleLog.toPath(), StandardCharsets.UTF_8)) {
+            return lines.skip(start).collect(Collectors.toList());
+        }
+    }
+}
@@ -16,6 +16,9 @@
 
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelDownloader;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
@@ -24,9 +27,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Properties;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.not;
@@ -34,6 +39,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.*;
 
 public class DirHandlerTest {
@@ -177,6 +186,59 @@ public class DirHandlerTest {
         assertArtifactWasSaved("fetch_dest");
     }
 
+    @Test
+    public void shouldFetchOnlyFilesOfTheFolderWhichAreMissingOrDifferent() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("fetch_dest/first", DigestUtils.md5Hex("First File"));
+        properties.setProperty("fetch_dest/under_dir/second", DigestUtils.md5Hex("Second File"));
+        dirHandler.useArtifactMd5Checksums(new ArtifactMd5Checksums(properties));
+        FileUtils.writeStringToFile(new File(agentDest, "fetch_dest/first"), "First File", UTF_8);
+
+        HttpService httpService = mock(HttpService.class);
+        String folderUrl = "https://server/go/remoting/files/pipeline/1/stage/1/job/fetch_dest";
+        when(httpService.downloadRange(eq(folderUrl + "/under_dir/second"), nullable(String.class), any())).thenAnswer(invocation -> {
+            HttpService.PartialContentHandler handler = invocation.getArgument(2);
+            handler.handle(200, null, null, new ByteArrayInputStream("Second File".getBytes(UTF_8)));
+            return 200;
+        });
+
+        assertThat(dirHandler.fetch(httpService, new ParallelDownloader(httpService, new SystemEnvironment()), folderUrl + ".zip"), is(200));
+        dirHandler.handleResult(200, goPublisher);
+
+        verify(httpService, never()).downloadRange(eq(folderUrl + "/first"), nullable(String.class), any());
+        verify(httpService, never()).download(anyString(), any(FetchHandler.class));
+        assertThat(goPublisher.getMessage(), not(containsString("[WARN]")));
+        assertArtifactWasSaved("under_dir");
+    }
+
+    @Test
+    public void shouldFetchWholeFolderWhenThereAreNoChecksumsForIt() throws IOException {
+        HttpService httpService = mock(HttpService.class);
+        String url = "https://server/go/remoting/files/pipeline/1/stage/1/job/fetch_dest.zip";
+        when(httpService.download(url, dirHandler)).thenReturn(200);
+
+        assertThat(dirHandler.fetch(httpService, new ParallelDownloader(httpService, new SystemEnvironment()), url), is(200));
+
+        verify(httpService).download(url, dirHandler);
+        verify(httpService, never()).downloadRange(anyString(), nullable(String.class), any());
+    }
+
+    @Test
+    public void shouldFetchWholeFolderWhenItIsNotOnTheAgentYet() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("fetch_dest/first", DigestUtils.md5Hex("First File"));
+        properties.setProperty("fetch_dest/under_dir/second", DigestUtils.md5Hex("Second File"));
+        dirHandler.useArtifactMd5Checksums(new ArtifactMd5Checksums(properties));
+        HttpService httpService = mock(HttpService.class);
+        String url = "https://server/go/remoting/files/pipeline/1/stage/1/job/fetch_dest.zip";
+        when(httpService.download(url, dirHandler)).thenReturn(200);
+
+        assertThat(dirHandler.fetch(httpService, new ParallelDownloader(httpService, new SystemEnvironment()), url), is(200));
+
+        verify(httpService).download(url, dirHandler);
+        verify(httpService, never()).downloadRange(anyString(), nullable(String.class), any());
+    }
+
     private File createZip(String subDirectoryName) throws IOException {
         File first = new File(artifactDest, "first");
         FileUtils.writeStringToFile(first, "First File", UTF_8);
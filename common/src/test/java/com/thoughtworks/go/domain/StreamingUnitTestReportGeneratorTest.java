@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.work.DefaultGoPublisher;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+
+import static com.thoughtworks.go.domain.TestReportGenerator.TEST_RESULTS_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingUnitTestReportGeneratorTest extends UnitTestReportGeneratorTest {
+    @Override
+    protected UnitTestReportGenerator createGenerator(DefaultGoPublisher publisher, File testFolder) {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isStreamingTestReportEnabled()).thenReturn(true);
+        return new UnitTestReportGenerator(publisher, testFolder, systemEnvironment);
+    }
+
+    @Test
+    public void shouldWriteTheSameReportAsUnitTestsXsl() throws Exception {
+        String[][] fixtures = {
+                {"TestResult.xml"},
+                {"NunitTestResultWithByteOrderMark.xml"},
+                {"empty.xml"},
+                {"InvalidTestResult.xml"},
+                {"xml_samples/Coverage.xml"},
+                {"SerializableProjectConfigUtilTest.xml"},
+                {"UnitTestReportGeneratorTest.xml", "SerializableProjectConfigUtilTest.xml"},
+                {"TestReport-Integration.xml", "TestReport-Unit.xml"},
+                {"xml_samples/TestResult.xml", "xml_samples/Coverage.xml"}
+        };
+        for (String[] fixture : fixtures) {
+            File testResults = temporaryFolder.newFolder();
+            for (String name : fixture) {
+                FileUtils.copyInputStreamToFile(new ClassPathResource("data/" + name).getInputStream(), new File(testResults, new File(name).getName()));
+            }
+
+            File transformedReport = temporaryFolder.newFolder();
+            super.createGenerator(mock(DefaultGoPublisher.class), transformedReport).generate(new File[]{testResults}, "testoutput");
+            File streamedReport = temporaryFolder.newFolder();
+            createGenerator(mock(DefaultGoPublisher.class), streamedReport).generate(new File[]{testResults}, "testoutput");
+
+            String transformed = FileUtils.readFileToString(new File(transformedReport, TEST_RESULTS_FILE), UTF_8);
+            String streamed = FileUtils.readFileToString(new File(streamedReport, TEST_RESULTS_FILE), UTF_8);
+
+            assertThat(String.join(", ", fixture), withoutIndentation(streamed), is(withoutIndentation(transformed)));
+        }
+    }
+
+    // the two lay the same html out differently
+    private String withoutIndentation(String html) {
+        return html.replaceAll(">\\s+", ">").replaceAll("\\s+<", "<").trim();
+    }
+}
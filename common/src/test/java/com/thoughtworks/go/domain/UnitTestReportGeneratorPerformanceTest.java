@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.work.DefaultGoPublisher;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares merging and transforming large JUnit results with unittests.xsl against reading them in a single
+ * streaming pass.
+ */
+@Ignore
+public class UnitTestReportGeneratorPerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(UnitTestReportGeneratorPerformanceTest.class.getName());
+    private static final int NUMBER_OF_FILES = 20;
+    private static final int TESTS_PER_FILE = 2000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File testResults;
+
+    @Before
+    public void setUp() throws Exception {
+        temporaryFolder.create();
+        testResults = temporaryFolder.newFolder("test-results");
+        for (int i = 0; i < NUMBER_OF_FILES; i++) {
+            writeJUnitResults(new File(testResults, "TEST-Suite" + i + ".xml"), i);
+        }
+    }
+
+    @Test
+    public void streamingShouldSummariseLargeTestResultsFasterThanTransformingThem() throws Exception {
+        DefaultGoPublisher transformingPublisher = mock(DefaultGoPublisher.class);
+        long transforming = timeToGenerate(new UnitTestReportGenerator(transformingPublisher, temporaryFolder.newFolder()));
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isStreamingTestReportEnabled()).thenReturn(true);
+        DefaultGoPublisher streamingPublisher = mock(DefaultGoPublisher.class);
+        long streaming = timeToGenerate(new UnitTestReportGenerator(streamingPublisher, temporaryFolder.newFolder(), systemEnvironment));
+
+        LOGGER.info("{} tests in {} files: transformed in {}ms, streamed in {}ms", NUMBER_OF_FILES * TESTS_PER_FILE, NUMBER_OF_FILES, transforming, streaming);
+        assertThat(propertiesSetOn(streamingPublisher), is(propertiesSetOn(transformingPublisher)));
+        assertThat(streaming, lessThan(transforming));
+    }
+
+    private long timeToGenerate(UnitTestReportGenerator generator) {
+        long start = System.nanoTime();
+        generator.generate(new File[]{testResults}, "testoutput");
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private List<Property> propertiesSetOn(DefaultGoPublisher publisher) {
+        ArgumentCaptor<Property> properties = ArgumentCaptor.forClass(Property.class);
+        verify(publisher, times(4)).setProperty(properties.capture());
+        return properties.getAllValues();
+    }
+
+    private void writeJUnitResults(File file, int suite) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, UTF_8.name())) {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.println(String.format("<testsuite name=\"com.example.Suite%d\" tests=\"%d\">", suite, TESTS_PER_FILE));
+            for (int i = 0; i < TESTS_PER_FILE; i++) {
+                out.print(String.format("  <testcase classname=\"com.example.Suite%d\" name=\"test%d\" time=\"0.%03d\">", suite, i, i % 1000));
+                if (i % 50 == 0) {
+                    out.print("<failure message=\"expected &lt;1&gt; but was &lt;2&gt;\" type=\"java.lang.AssertionError\">java.lang.AssertionError: expected &lt;1&gt; but was &lt;2&gt;\n\tat com.example.Suite.test(Suite.java:42)</failure>");
+                } else if (i % 75 == 0) {
+                    out.print("<error message=\"boom\" type=\"java.lang.RuntimeException\">java.lang.RuntimeException: boom\n\tat com.example.Suite.test(Suite.java:42)</error>");
+                }
+                out.println("</testcase>");
+            }
+            out.println("  <system-out><![CDATA[" + "a rather chatty test suite\n" + "]]></system-out>");
+            out.println("</testsuite>");
+        }
+    }
+}
@@ -51,7 +51,11 @@ public class UnitTestReportGeneratorTest {
         temporaryFolder.create();
         testFolder = temporaryFolder.newFolder();
         publisher = mock(DefaultGoPublisher.class);
-        generator = new UnitTestReportGenerator(publisher, testFolder);
+        generator = createGenerator(publisher, testFolder);
+    }
+
+    protected UnitTestReportGenerator createGenerator(DefaultGoPublisher publisher, File testFolder) {
+        return new UnitTestReportGenerator(publisher, testFolder);
     }
 
     @After
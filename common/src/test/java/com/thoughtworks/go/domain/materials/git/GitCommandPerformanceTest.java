@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain.materials.git;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.mercurial.StringRevision;
+import com.thoughtworks.go.util.command.InMemoryStreamConsumer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.util.command.ProcessOutputStreamConsumer.inMemoryConsumer;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares listing the modifications of a synthetic 5,000 commit repository in a single <code>git log</code>
+ * against the previous approach of one <code>git diff-tree</code> process per commit.
+ */
+@Ignore
+public class GitCommandPerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(GitCommandPerformanceTest.class.getName());
+    private static final int NUMBER_OF_COMMITS = 5000;
+    private static final int DIFF_TREE_SAMPLE = 500;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File workingDir;
+    private String firstRevision;
+
+    @Before
+    public void setUp() throws Exception {
+        File remote = temporaryFolder.newFolder("remote");
+        git(remote, null, "init");
+        File fastImport = temporaryFolder.newFile("commits.fi");
+        FileUtils.writeStringToFile(fastImport, fastImportStream(), StandardCharsets.UTF_8);
+        git(remote, fastImport, "fast-import", "--quiet");
+        firstRevision = git(remote, null, "rev-list", "--max-parents=0", "master").trim();
+
+        workingDir = new File(temporaryFolder.getRoot(), "working-dir");
+        InMemoryStreamConsumer output = inMemoryConsumer();
+        new GitCommand(null, workingDir, "master", false, new HashMap<>(), null).cloneWithNoCheckout(output, remote.getAbsolutePath());
+    }
+
+    @Test
+    public void shouldListModificationsWithTheirFilesFasterThanOneDiffTreePerCommit() throws Exception {
+        GitCommand git = new GitCommand(null, workingDir, "master", false, new HashMap<>(), null);
+
+        long start = System.nanoTime();
+        List<Modification> modifications = git.modificationsSince(new StringRevision(firstRevision));
+        long singlePassMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (Modification modification : modifications.subList(0, DIFF_TREE_SAMPLE)) {
+            git(workingDir, null, "diff-tree", "--name-status", "--root", "-r", modification.getRevision());
+        }
+        long diffTreeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) * modifications.size() / DIFF_TREE_SAMPLE;
+
+        LOGGER.info("{} modifications: single git log {}ms, one git diff-tree per commit ~{}ms (extrapolated from {})",
+                modifications.size(), singlePassMillis, diffTreeMillis, DIFF_TREE_SAMPLE);
+        assertThat(modifications.size(), is(NUMBER_OF_COMMITS - 1));
+        assertThat(modifications.get(0).getModifiedFiles().size(), is(1));
+        assertThat(singlePassMillis, lessThan(diffTreeMillis));
+    }
+
+    private String fastImportStream() {
+        StringBuilder stream = new StringBuilder();
+        for (int i = 1; i <= NUMBER_OF_COMMITS; i++) {
+            String message = "Commit number " + i;
+            String content = "content " + i + "\n";
+            stream.append("commit refs/heads/master\n")
+                    .append("mark :").append(i).append("\n")
+                    .append("committer Developer <developer@example.com> ").append(1500000000L + i).append(" +0000\n")
+                    .append("data ").append(message.length()).append("\n").append(message).append("\n");
+            if (i > 1) {
+                stream.append("from :").append(i - 1).append("\n");
+            }
+            stream.append("M 644 inline src/file-").append(i % 100).append(".txt\n")
+                    .append("data ").append(content.length()).append("\n").append(content).append("\n");
+        }
+        return stream.toString();
+    }
+
+    private String git(File workingDir, File input, String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workingDir).redirectErrorStream(true);
+        if (input != null) {
+            builder.redirectInput(input);
+        }
+        Process process = builder.start();
+        String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " failed: " + output);
+        }
+        return output;
+    }
+}
@@ -16,11 +16,16 @@
 
 package com.thoughtworks.go.domain.materials.git;
 
+import com.thoughtworks.go.domain.materials.ModifiedAction;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
 import com.thoughtworks.go.util.DateUtils;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
+
 public class GitModificationParserTest {
 
     GitModificationParser parser = new GitModificationParser();
@@ -103,4 +108,57 @@ public class GitModificationParserTest {
                 parser.getModifications().get(1).getComment(),
                 is("My Comment 2"));
     }
+
+    @Test
+    public void shouldAddFilesListedByNameStatusToTheirCommit() {
+        simulateOneComment();
+        parser.processLine("");
+        parser.processLine("    My Comment 1");
+        parser.processLine("");
+        parser.processLine("M\tbuild.xml");
+        parser.processLine("A\tsrc/new file.txt");
+        parser.processLine("");
+        simulateOneComment();
+        parser.processLine("");
+        parser.processLine("    My Comment 2");
+        parser.processLine("");
+        parser.processLine("D\tREADME");
+
+        List<ModifiedFile> first = parser.getModifications().get(0).getModifiedFiles();
+        assertThat(first.size(), is(2));
+        assertThat(first.get(0).getFileName(), is("build.xml"));
+        assertThat(first.get(0).getAction(), is(ModifiedAction.modified));
+        assertThat(first.get(1).getFileName(), is("src/new file.txt"));
+        assertThat(first.get(1).getAction(), is(ModifiedAction.added));
+        List<ModifiedFile> second = parser.getModifications().get(1).getModifiedFiles();
+        assertThat(second.size(), is(1));
+        assertThat(second.get(0).getAction(), is(ModifiedAction.deleted));
+    }
+
+    @Test
+    public void shouldNotTreatIndentedCommentsAsModifiedFiles() {
+        simulateOneComment();
+        parser.processLine("");
+        parser.processLine("    M\tlooks like a file");
+
+        assertThat(parser.getModifications().get(0).getModifiedFiles().size(), is(0));
+        assertThat(parser.getModifications().get(0).getComment(), is("M\tlooks like a file"));
+    }
+
+    @Test
+    public void shouldReportLinesAfterTheHeaderThatCannotBeParsed() {
+        parser.processLine("commit 4e55d27dc7aad26dadb02a33db0518cb5ec54888");
+        parser.processLine("Merge: 4e55d27 d5b4d9c");
+        parser.processLine("Author: Cruise Developer <cruise@cruise-sf3.(none)>");
+        parser.processLine("Date:   2009-08-11 13:08:51 -0700");
+        parser.processLine("");
+        parser.processLine("    My Comment");
+        parser.processLine("");
+        parser.processLine("Notes:");
+        parser.processLine("M\tbuild.xml");
+        parser.processLine("not a name-status line");
+
+        assertThat(parser.getModifications().get(0).getModifiedFiles().size(), is(1));
+        assertThat(parser.getUnparseableLines(), is(Collections.singletonList("not a name-status line")));
+    }
 }
@@ -176,6 +176,33 @@ public class AgentInstancesTest {
         assertThat(agentInstances.findAgentAndRefreshStatus("uuid2").getStatus(), is(AgentStatus.Disabled));
     }
 
+    @Test
+    public void shouldSyncASingleAgentWithoutTouchingTheOthers() {
+        AgentInstances agentInstances = new AgentInstances(systemEnvironment, agentStatusChangeListener, AgentInstanceMother.building(), idle);
+        AgentConfig agentConfig = new AgentConfig("uuid2", "CCeDev01", "10.18.5.1");
+        agentConfig.setDisabled(true);
+
+        agentInstances.syncAgent("uuid2", agentConfig);
+        agentInstances.syncAgent("new-uuid", new AgentConfig("new-uuid", "new-host", "10.18.5.2"));
+
+        assertThat(agentInstances.size(), is(3));
+        assertThat(agentInstances.findAgentAndRefreshStatus("uuid2").getStatus(), is(AgentStatus.Disabled));
+        assertThat(agentInstances.hasAgent("new-uuid"), is(true));
+    }
+
+    @Test
+    public void shouldRemoveASingleAgentWhichIsGoneButKeepItWhilePending() {
+        AgentInstances agentInstances = new AgentInstances(systemEnvironment, agentStatusChangeListener, AgentInstanceMother.building(), idle);
+        agentInstances.add(pending);
+
+        agentInstances.syncAgent("uuid2", null);
+        agentInstances.syncAgent("uuid4", null);
+
+        assertThat(agentInstances.size(), is(2));
+        assertThat(agentInstances.findAgent("uuid2"), instanceOf(NullAgentInstance.class));
+        assertThat(agentInstances.findAgentAndRefreshStatus("uuid4").getStatus(), is(AgentStatus.Pending));
+    }
+
     @Test
     public void shouldNotRemovePendingAgentDuringSync() throws Exception {
         AgentInstances agentInstances = new AgentInstances(systemEnvironment, agentStatusChangeListener, AgentInstanceMother.building());
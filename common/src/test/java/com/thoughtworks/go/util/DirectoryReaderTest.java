@@ -147,4 +147,25 @@ public class DirectoryReaderTest {
         assertThat(entries.get(0).getUrl(), is(expectedUrl));
     }
 
+    @Test
+    public void shouldListCompressedConsoleLogUnderItsOriginalName() throws Exception {
+        File cruiseOutput = TestFileUtil.createTestFolder(testFolder, "cruise-output");
+        TestFileUtil.createTestFile(cruiseOutput, "console.log.gz");
+        List<DirectoryEntry> entries = new DirectoryReader(jobIdentifier).listEntries(testFolder, "");
+        List<DirectoryEntry> cruiseOutputEntries = ((FolderDirectoryEntry) entries.get(0)).getSubDirectory();
+        assertThat(cruiseOutputEntries.size(), is(1));
+        assertThat(cruiseOutputEntries.get(0).getFileName(), is("console.log"));
+        assertThat(cruiseOutputEntries.get(0).getUrl(), is("/files/pipelineName/LATEST/stageName/LATEST/buildName/cruise-output/console.log"));
+    }
+
+    @Test
+    public void shouldListConsoleLogOnceWhileItIsBeingCompressed() throws Exception {
+        File cruiseOutput = TestFileUtil.createTestFolder(testFolder, "cruise-output");
+        TestFileUtil.createTestFile(cruiseOutput, "console.log");
+        TestFileUtil.createTestFile(cruiseOutput, "console.log.gz");
+        List<DirectoryEntry> entries = new DirectoryReader(jobIdentifier).listEntries(cruiseOutput, "cruise-output");
+        assertThat(entries.size(), is(1));
+        assertThat(entries.get(0).getFileName(), is("console.log"));
+    }
+
 }
@@ -18,7 +18,10 @@ package com.thoughtworks.go.util;
 
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.domain.FetchHandler;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -32,13 +35,18 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
 
 import static com.thoughtworks.go.util.HttpService.GO_ARTIFACT_PAYLOAD_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
@@ -86,6 +94,21 @@ public class HttpServiceTest {
         verify(httpClient).execute(mockPostMethod);
     }
 
+    @Test
+    public void shouldZipArtifactIntoTheUploadAlongWithMD5OfEveryFile() throws IOException {
+        File directory = temporaryFolder.newFolder("dir");
+        FileUtils.writeStringToFile(new File(directory, "file.txt"), "content", UTF_8);
+        StreamingZipArtifact artifact = new StreamingZipArtifact(directory, new ZipUtil(), entryName -> "dest/" + entryName);
+
+        HttpEntity entity = new HttpService.HttpClientFactory(null).createMultipartRequestEntity(artifact);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+
+        assertTrue(entity.isChunked());
+        assertThat(body.toString(UTF_8.name()), containsString("filename=\"dir.zip\""));
+        assertThat(body.toString(UTF_8.name()), containsString("dest/dir/file.txt=" + DigestUtils.md5Hex("content")));
+    }
+
     @Test
     public void shouldDownloadArtifact() throws IOException {
         String url = "http://blah";
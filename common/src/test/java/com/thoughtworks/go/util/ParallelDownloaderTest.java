@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EnableRuleMigrationSupport
+class ParallelDownloaderTest {
+    private static final String URL = "https://server/go/remoting/files/pipeline/1/stage/1/job/app.jar";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpService httpService;
+    private byte[] content;
+    private File dest;
+    private List<String> requestedRanges;
+    private AtomicReference<String> etag;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        httpService = mock(HttpService.class);
+        content = new byte[10000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        dest = new File(temporaryFolder.newFolder(), "app.jar");
+        requestedRanges = new CopyOnWriteArrayList<>();
+        etag = new AtomicReference<>("\"v1\"");
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldDownloadFileAsSeveralRanges() throws IOException {
+        serveRanges(new AtomicBoolean(false));
+
+        int statusCode = new ParallelDownloader(httpService, executor, 4, 1000).download(URL, dest);
+
+        assertThat(statusCode).isEqualTo(200);
+        assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+        assertThat(requestedRanges).containsExactlyInAnyOrder("bytes=0-999", "bytes=1000-3249", "bytes=3250-5499", "bytes=5500-7749", "bytes=7750-9999");
+        assertThat(new File(dest.getPath() + ".part.progress")).doesNotExist();
+    }
+
+    @Test
+    void shouldDownloadFileNoLargerThanASegmentInASingleRequest() throws IOException {
+        serveRanges(new AtomicBoolean(false));
+
+        assertThat(new ParallelDownloader(httpService, executor, 4, 20000).download(URL, dest)).isEqualTo(200);
+
+        assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+        assertThat(requestedRanges).containsExactly("bytes=0-19999");
+    }
+
+    @Test
+    void shouldDownloadFilesSubmittedTogetherWithoutWaitingOnTheExecutorFromWithinIt() throws Exception {
+        serveRanges(new AtomicBoolean(false));
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            ParallelDownloader downloader = new ParallelDownloader(httpService, singleThread, 4, 1000);
+            File otherDest = new File(dest.getParentFile(), "other.jar");
+
+            assertThat(downloader.submit(URL, dest).get()).isEqualTo(200);
+            assertThat(downloader.submit(URL, otherDest).get()).isEqualTo(200);
+
+            assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+            assertThat(FileUtils.readFileToByteArray(otherDest)).isEqualTo(content);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldResumeOnlyTheUnfinishedPartOfAnInterruptedDownload() throws IOException {
+        AtomicBoolean failSecondHalf = new AtomicBoolean(true);
+        serveRanges(failSecondHalf);
+        ParallelDownloader downloader = new ParallelDownloader(httpService, executor, 2, 1000);
+
+        assertThatThrownBy(() -> downloader.download(URL, dest)).isInstanceOf(IOException.class);
+        assertThat(dest).doesNotExist();
+
+        failSecondHalf.set(false);
+        requestedRanges.clear();
+        assertThat(downloader.download(URL, dest)).isEqualTo(200);
+
+        assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+        assertThat(requestedRanges).containsExactly("bytes=7500-9999");
+    }
+
+    @Test
+    void shouldStartOverWhenTheFileChangedOnTheServerSinceTheInterruptedDownload() throws IOException {
+        AtomicBoolean failSecondHalf = new AtomicBoolean(true);
+        serveRanges(failSecondHalf);
+        ParallelDownloader downloader = new ParallelDownloader(httpService, executor, 2, 1000);
+        assertThatThrownBy(() -> downloader.download(URL, dest)).isInstanceOf(IOException.class);
+
+        failSecondHalf.set(false);
+        etag.set("\"v2\"");
+        requestedRanges.clear();
+        assertThat(downloader.download(URL, dest)).isEqualTo(200);
+
+        assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+        assertThat(requestedRanges).startsWith("bytes=7500-9999", "bytes=0-999");
+        assertThat(requestedRanges).contains("bytes=1000-5499", "bytes=5500-9999");
+    }
+
+    @Test
+    void shouldKeepWholeContentWhenServerDoesNotServeRanges() throws IOException {
+        when(httpService.downloadRange(anyString(), nullable(String.class), any())).thenAnswer(invocation -> {
+            HttpService.PartialContentHandler handler = invocation.getArgument(2);
+            handler.handle(200, null, null, new ByteArrayInputStream(content));
+            return 200;
+        });
+
+        assertThat(new ParallelDownloader(httpService, executor, 4, 1000).download(URL, dest)).isEqualTo(200);
+
+        assertThat(FileUtils.readFileToByteArray(dest)).isEqualTo(content);
+    }
+
+    @Test
+    void shouldReturnStatusCodeOfUnsuccessfulResponse() throws IOException {
+        when(httpService.downloadRange(anyString(), nullable(String.class), any())).thenReturn(304);
+
+        assertThat(new ParallelDownloader(httpService, executor, 4, 1000).download(URL, dest)).isEqualTo(304);
+        assertThat(dest).doesNotExist();
+    }
+
+    // serves the byte ranges asked for, breaking off half way through the last quarter of the file when told to
+    private void serveRanges(AtomicBoolean failSecondHalf) throws IOException {
+        when(httpService.downloadRange(anyString(), nullable(String.class), any())).thenAnswer(invocation -> {
+            String range = invocation.getArgument(1);
+            HttpService.PartialContentHandler handler = invocation.getArgument(2);
+            requestedRanges.add(range);
+            Matcher matcher = RANGE.matcher(range);
+            assertThat(matcher.matches()).isTrue();
+            int first = Integer.parseInt(matcher.group(1));
+            int last = Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+            if (failSecondHalf.get() && first >= 5000) {
+                handler.handle(206, String.format("bytes %d-%d/%d", first, last, content.length), etag.get(), new ByteArrayInputStream(Arrays.copyOfRange(content, first, 7500)));
+                throw new IOException("connection reset");
+            }
+            handler.handle(206, String.format("bytes %d-%d/%d", first, last, content.length), etag.get(), new ByteArrayInputStream(Arrays.copyOfRange(content, first, last + 1)));
+            return 206;
+        });
+    }
+}
@@ -111,6 +111,9 @@ public class BasicCruiseConfig implements CruiseConfig {
     @IgnoreTraversal
     private transient AllTemplatesWithAssociatedPipelines allTemplatesWithAssociatedPipelines;
 
+    @IgnoreTraversal
+    private transient volatile PipelineConfigIndices indices;
+
     public BasicCruiseConfig() {
         strategy = new BasicStrategy();
     }
@@ -163,6 +166,12 @@ public class BasicCruiseConfig implements CruiseConfig {
         allPipelineConfigs = null;
         pipelineNameToConfigMap = null;
         allTemplatesWithAssociatedPipelines = null;
+        indices = null;
+    }
+
+    @Override
+    public void buildLookupIndices() {
+        indices = new PipelineConfigIndices(groups, getUniqueMaterialConfigs(false), getAllUniquePostCommitSchedulableMaterialsWithoutIndices());
     }
 
     private void createMergedConfig(BasicCruiseConfig main, List<PartialConfig> partList, boolean forEdit) {
@@ -628,6 +637,13 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public JobConfig findJob(String pipelineName, String stageName, String jobName) {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            JobConfig jobConfig = indices.job(pipelineName, stageName, jobName);
+            if (jobConfig != null) {
+                return jobConfig;
+            }
+        }
         return pipelineConfigByName(new CaseInsensitiveString(pipelineName))
                 .findBy(new CaseInsensitiveString(stageName))
                 .jobConfigByConfigName(new CaseInsensitiveString(jobName));
@@ -661,6 +677,10 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public PipelineConfig getPipelineConfigByName(CaseInsensitiveString pipelineName) {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            return indices.pipeline(pipelineName);
+        }
         return pipelinesFromAllGroups().findBy(pipelineName);
     }
 
@@ -776,6 +796,14 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public Set<MaterialConfig> getAllUniquePostCommitSchedulableMaterials() {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            return indices.postCommitSchedulableMaterials();
+        }
+        return getAllUniquePostCommitSchedulableMaterialsWithoutIndices();
+    }
+
+    private Set<MaterialConfig> getAllUniquePostCommitSchedulableMaterialsWithoutIndices() {
         Set<MaterialConfig> materialConfigs = new HashSet<>();
         Set<String> uniqueMaterials = new HashSet<>();
         for (PipelineConfigs pipelineConfigs : this.groups) {
@@ -808,6 +836,7 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public void setConfigRepos(ConfigReposConfig repos) {
         configRepos = repos;
+        indices = null;
     }
 
     @Override
@@ -854,6 +883,7 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public void setGroup(PipelineGroups pipelineGroups) {
         groups = pipelineGroups;
+        indices = null;
     }
 
     @Override
@@ -877,16 +907,19 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public void addPipeline(String groupName, PipelineConfig pipelineConfig) {
         groups.addPipeline(groupName, pipelineConfig);
+        indices = null;
     }
 
     @Override
     public void deletePipeline(PipelineConfig pipelineConfig) {
         groups.deletePipeline(pipelineConfig);
+        indices = null;
     }
 
     @Override
     public void deletePipelineGroup(String groupName) {
         groups.deleteGroup(groupName);
+        indices = null;
     }
 
     @Override
@@ -902,6 +935,7 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public void addPipelineWithoutValidation(String groupName, PipelineConfig pipelineConfig) {
         groups.addPipelineWithoutValidation(sanitizedGroupName(groupName), pipelineConfig);
+        indices = null;
     }
 
     @Override
@@ -912,6 +946,7 @@ public class BasicCruiseConfig implements CruiseConfig {
             groups.add(configs);
         }
         groups.update(groupName, pipelineName, pipeline);
+        indices = null;
     }
 
     @Override
@@ -1014,6 +1049,7 @@ public class BasicCruiseConfig implements CruiseConfig {
         PipelineConfigs old = groups.findGroup(groupName);
         int index = groups.indexOf(old);
         groups.set(index, pipelineConfigs);
+        indices = null;
     }
 
     @Override
@@ -1307,12 +1343,23 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public PipelineConfigs findGroupOfPipeline(PipelineConfig pipelineConfig) {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            PipelineConfigs group = indices.groupOf(pipelineConfig.name());
+            if (group != null) {
+                return group;
+            }
+        }
         String groupName = getGroups().findGroupNameByPipeline(pipelineConfig.name());
         return findGroup(groupName);
     }
 
     @Override
     public PipelineConfig findPipelineUsingThisPipelineAsADependency(String pipelineName) {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            return indices.firstDownstreamOf(new CaseInsensitiveString(pipelineName));
+        }
         List<PipelineConfig> configs = getAllPipelineConfigs();
         for (PipelineConfig config : configs) {
             DependencyMaterialConfig materialConfig = config.materialConfigs().findDependencyMaterial(new CaseInsensitiveString(pipelineName));
@@ -1415,6 +1462,10 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public MaterialConfig materialConfigFor(String fingerprint) {
+        PipelineConfigIndices indices = this.indices;
+        if (indices != null) {
+            return indices.materialConfig(fingerprint);
+        }
         for (MaterialConfig materialConfig : getUniqueMaterialConfigs(false)) {
             if (materialConfig.getFingerprint().equals(fingerprint)) {
                 return materialConfig;
@@ -1611,4 +1662,70 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     public class PipelineNameToConfigMap extends ConcurrentHashMap<CaseInsensitiveString, PipelineConfig> {
     }
+
+    /**
+     * @understands pipelines, jobs, groups and materials of a config keyed the way they are looked up, so that
+     * lookups do not walk every group and pipeline
+     */
+    public static class PipelineConfigIndices {
+        private final Map<CaseInsensitiveString, PipelineConfig> pipelines = new HashMap<>();
+        private final Map<CaseInsensitiveString, PipelineConfigs> groups = new HashMap<>();
+        private final Map<String, JobConfig> jobs = new HashMap<>();
+        private final Map<CaseInsensitiveString, PipelineConfig> firstDownstream = new HashMap<>();
+        private final Map<String, MaterialConfig> materials = new HashMap<>();
+        private final Set<MaterialConfig> postCommitSchedulableMaterials;
+
+        PipelineConfigIndices(PipelineGroups pipelineGroups, Set<MaterialConfig> uniqueMaterials, Set<MaterialConfig> postCommitSchedulableMaterials) {
+            for (PipelineConfigs group : pipelineGroups) {
+                for (PipelineConfig pipeline : group) {
+                    if (pipelines.putIfAbsent(pipeline.name(), pipeline) != null) {
+                        continue;
+                    }
+                    groups.put(pipeline.name(), group);
+                    for (StageConfig stage : pipeline) {
+                        for (JobConfig job : stage.getJobs()) {
+                            jobs.putIfAbsent(jobKey(String.valueOf(pipeline.name()), String.valueOf(stage.name()), String.valueOf(job.name())), job);
+                        }
+                    }
+                    for (MaterialConfig material : pipeline.materialConfigs()) {
+                        if (material instanceof DependencyMaterialConfig) {
+                            firstDownstream.putIfAbsent(((DependencyMaterialConfig) material).getPipelineName(), pipeline);
+                        }
+                    }
+                }
+            }
+            for (MaterialConfig material : uniqueMaterials) {
+                materials.putIfAbsent(material.getFingerprint(), material);
+            }
+            this.postCommitSchedulableMaterials = Collections.unmodifiableSet(postCommitSchedulableMaterials);
+        }
+
+        PipelineConfig pipeline(CaseInsensitiveString pipelineName) {
+            return pipelines.get(pipelineName);
+        }
+
+        PipelineConfigs groupOf(CaseInsensitiveString pipelineName) {
+            return groups.get(pipelineName);
+        }
+
+        JobConfig job(String pipelineName, String stageName, String jobName) {
+            return jobs.get(jobKey(pipelineName, stageName, jobName));
+        }
+
+        PipelineConfig firstDownstreamOf(CaseInsensitiveString pipelineName) {
+            return firstDownstream.get(pipelineName);
+        }
+
+        MaterialConfig materialConfig(String fingerprint) {
+            return materials.get(fingerprint);
+        }
+
+        Set<MaterialConfig> postCommitSchedulableMaterials() {
+            return postCommitSchedulableMaterials;
+        }
+
+        private static String jobKey(String pipelineName, String stageName, String jobName) {
+            return (pipelineName + "/" + stageName + "/" + jobName).toLowerCase();
+        }
+    }
 }
@@ -275,6 +275,13 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     CruiseConfig cloneForValidation();
 
+    /**
+     * Indexes pipelines, jobs, groups and materials, so that looking them up does not walk every pipeline. Only meant
+     * for a config which is not changed in place any more, like the current config. Changing pipelines, groups or config
+     * repos through this config drops the indices, and copies of this config are made without them.
+     */
+    void buildLookupIndices();
+
     boolean canViewAndEditTemplates(CaseInsensitiveString username);
 
     boolean isAuthorizedToEditTemplate(CaseInsensitiveString templateName, CaseInsensitiveString username);
@@ -70,6 +70,19 @@ public class PluginRoleUsersStore {
         }
     }
 
+    public Set<PluginRoleConfig> rolesFor(String username) {
+        final RoleUser roleUser = new RoleUser(username);
+        Set<PluginRoleConfig> pluginRoles = new HashSet<>();
+        synchronized (roleToUsersMappings) {
+            for (Map.Entry<PluginRoleConfig, RoleUser> mapping : roleToUsersMappings.entries()) {
+                if (mapping.getValue().equals(roleUser)) {
+                    pluginRoles.add(mapping.getKey());
+                }
+            }
+        }
+        return pluginRoles;
+    }
+
     protected Set<PluginRoleConfig> pluginRoles() {
         return new HashSet<>(roleToUsersMappings.keySet());
     }
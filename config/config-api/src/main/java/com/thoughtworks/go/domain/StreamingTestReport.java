@@ -0,0 +1,559 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @understands the summary and HTML report which unittests.xsl makes of JUnit and NUnit results, worked out while
+ * reading each result file once as a stream; only the names and details of failing tests are kept, spooled to disk,
+ * until the report is written
+ */
+class StreamingTestReport implements Closeable {
+    private static final XMLInputFactory XML_INPUT_FACTORY = xmlInputFactory();
+    private static final Pattern XPATH_NUMBER = Pattern.compile("\\s*-?(\\d+(\\.\\d*)?|\\.\\d+)\\s*");
+
+    private final Spool errorRows = new Spool();
+    private final Spool failureRows = new Spool();
+    private final Spool notRunRows = new Spool();
+    private final Spool junitErrorDetails = new Spool();
+    private final Spool junitFailureDetails = new Spool();
+    private final Spool nunitFailureDetails = new Spool();
+    private final Spool nunitNotRunDetails = new Spool();
+    private final Spool[] spools = {errorRows, failureRows, notRunRows, junitErrorDetails, junitFailureDetails, nunitFailureDetails, nunitNotRunDetails};
+
+    private Counts counts = new Counts();
+
+    StreamingTestReport() throws IOException {
+        for (Spool spool : spools) {
+            spool.open();
+        }
+    }
+
+    /**
+     * @return false when the file is not a JUnit or NUnit result file, or cannot be parsed - in which case nothing
+     * of it makes it into the report
+     */
+    boolean add(File testFile) throws IOException {
+        Counts countsBefore = counts.copy();
+        long[] spoolsBefore = new long[spools.length];
+        for (int i = 0; i < spools.length; i++) {
+            spoolsBefore[i] = spools[i].size();
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(testFile))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                if (new ResultFileReader(reader).read()) {
+                    return true;
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            // fall through and leave out whatever was read before the file turned out to be broken
+        }
+        counts = countsBefore;
+        for (int i = 0; i < spools.length; i++) {
+            spools[i].truncate(spoolsBefore[i]);
+        }
+        return false;
+    }
+
+    String totalCount() {
+        return String.valueOf(counts.nunitCases + counts.junitCases - counts.nunitNotRun);
+    }
+
+    String failedCount() {
+        return String.valueOf(failures());
+    }
+
+    String ignoredCount() {
+        return String.valueOf(counts.nunitNotRun);
+    }
+
+    String totalDuration() {
+        double time = counts.nunitTime + counts.junitTime;
+        if (Double.isNaN(time)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(time)) {
+            return time > 0 ? "Infinity" : "-Infinity";
+        }
+        DecimalFormat format = new DecimalFormat("##.000", DecimalFormatSymbols.getInstance(Locale.US));
+        format.setRoundingMode(RoundingMode.HALF_EVEN);
+        return format.format(time);
+    }
+
+    void writeHtml(OutputStream out) throws IOException {
+        Writer html = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        long runCount = counts.nunitCases + counts.junitCases - counts.nunitNotRun;
+        html.write("<table class=\"section-table\" cellpadding=\"2\" cellspacing=\"0\" border=\"0\" width=\"98%\">\n");
+        html.write("<div class=\"tests\">\n<p>Tests run:\n");
+        html.write("<span class=\"tests_total_count\">" + totalCount() + "</span>\n, Failures:\n");
+        html.write("<span class=\"tests_failed_count\">" + failedCount() + "</span>\n, Not run:\n");
+        html.write("<span class=\"tests_ignored_count\">" + ignoredCount() + "</span>\n, Time:\n");
+        html.write("<span class=\"tests_total_duration\">" + totalDuration() + "</span>\nseconds.\n</p>\n</div>\n");
+
+        if (runCount == 0) {
+            html.write("<tr>\n<td colspan=\"2\" class=\"section-data\">No Tests Run</td>\n</tr>\n");
+            html.write("<tr>\n<td colspan=\"2\" class=\"section-error\">This project doesn't have any tests</td>\n</tr>\n");
+        } else if (failures() == 0) {
+            html.write("<tr>\n<td colspan=\"2\" class=\"section-data\">All Tests Passed</td>\n</tr>\n");
+        }
+
+        writeRows(html, errorRows, "Error", 0);
+        writeRows(html, failureRows, "Failure", counts.junitErrors);
+        writeRows(html, notRunRows, "Warning", failures());
+        html.write("<tr>\n<td colspan=\"2\"></td>\n</tr>\n");
+
+        if (failures() > 0) {
+            html.write("<tr>\n<td class=\"sectionheader\" colspan=\"2\">\nUnit Test Failure and Error Details (" + failures() + ")\n</td>\n</tr>\n");
+            junitErrorDetails.writeTo(html);
+            junitFailureDetails.writeTo(html);
+            nunitFailureDetails.writeTo(html);
+            html.write("<tr>\n<td colspan=\"2\"></td>\n</tr>\n");
+        }
+        if (counts.nunitNotRun > 0) {
+            html.write("<tr>\n<td class=\"sectionheader\" colspan=\"2\">\nWarning Details (" + counts.nunitNotRun + ")\n</td>\n</tr>\n");
+            nunitNotRunDetails.writeTo(html);
+            html.write("<tr>\n<td colspan=\"2\"></td>\n</tr>\n");
+        }
+        html.write("</table>\n");
+        html.flush();
+    }
+
+    @Override
+    public void close() {
+        for (Spool spool : spools) {
+            spool.delete();
+        }
+    }
+
+    private long failures() {
+        return counts.nunitFailures + counts.junitFailures + counts.junitErrors;
+    }
+
+    private void writeRows(Writer html, Spool rows, String type, long positionOffset) throws IOException {
+        long[] position = {positionOffset};
+        rows.forEach(testName -> {
+            position[0]++;
+            html.write(position[0] % 2 == 0 ? "<tr class=\"section-oddrow\">\n" : "<tr>\n");
+            html.write("<td class=\"section-data\">" + type + "</td>\n<td class=\"section-data\">" + escape(testName) + "</td>\n</tr>\n");
+        });
+    }
+
+    private static double number(String value) {
+        return value != null && XPATH_NUMBER.matcher(value).matches() ? Double.parseDouble(value.trim()) : Double.NaN;
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String row(String label, String value) {
+        return "<tr>\n<td class=\"section-data\">" + label + "</td>\n<td class=\"section-data\">" + escape(value) + "</td>\n</tr>\n";
+    }
+
+    private static String detailRow(String text) {
+        return "<tr>\n<td></td>\n<td class=\"section-error\">\n<pre>" + escape(text) + "</pre>\n</td>\n</tr>\n";
+    }
+
+    private static String blankRow() {
+        return "<tr>\n<td colspan=\"2\"></td>\n</tr>\n";
+    }
+
+    private static XMLInputFactory xmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static class Counts {
+        private long junitCases;
+        private long junitFailures;
+        private long junitErrors;
+        private double junitTime;
+        private long nunitCases;
+        private long nunitFailures;
+        private long nunitNotRun;
+        private double nunitTime;
+
+        Counts copy() {
+            Counts copy = new Counts();
+            copy.junitCases = junitCases;
+            copy.junitFailures = junitFailures;
+            copy.junitErrors = junitErrors;
+            copy.junitTime = junitTime;
+            copy.nunitCases = nunitCases;
+            copy.nunitFailures = nunitFailures;
+            copy.nunitNotRun = nunitNotRun;
+            copy.nunitTime = nunitTime;
+            return copy;
+        }
+    }
+
+    // the string value of an element, collected until the element ends
+    private static class Capture {
+        private final int depth;
+        private final StringBuilder text = new StringBuilder();
+
+        Capture(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    private static class JUnitTestCase {
+        private final String name;
+        private final int depth;
+        private boolean hasError;
+        private boolean hasFailure;
+        private String errorMessage;
+        private Capture error;
+        private String failureMessage;
+        private Capture failure;
+
+        JUnitTestCase(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+
+        String details() {
+            StringBuilder details = new StringBuilder(row("Test:", name));
+            if (error != null) {
+                details.append(row("Type:", "Error")).append(row("Message:", errorMessage)).append(detailRow(error.text.toString()));
+            }
+            if (failure != null) {
+                details.append(row("Type:", "Failure")).append(row("Message:", failureMessage)).append(detailRow(failure.text.toString()));
+            }
+            return details.append(blankRow()).toString();
+        }
+    }
+
+    private static class NUnitTestCase {
+        private final String name;
+        private final int depth;
+        private boolean hasFailure;
+        private boolean hasReason;
+        private int failureDepth;
+        private Capture failureMessage;
+        private Capture stackTrace;
+        private int reasonDepth;
+        private Capture reasonMessage;
+
+        NUnitTestCase(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+
+        String details() {
+            StringBuilder details = new StringBuilder();
+            if (failureDepth != 0) {
+                details.append(row("Test:", name)).append(row("Type:", "Failure")).append(row("Message:", text(failureMessage))).append(detailRow(text(stackTrace)));
+            }
+            if (reasonDepth != 0) {
+                details.append(row("Test:", name)).append(row("Type:", "Warning")).append(row("Message:", text(reasonMessage)));
+            }
+            return details.append(blankRow()).toString();
+        }
+
+        private String text(Capture capture) {
+            return capture == null ? "" : capture.text.toString();
+        }
+    }
+
+    private class ResultFileReader {
+        private final XMLStreamReader reader;
+        private final Deque<String> elements = new ArrayDeque<>();
+        // one entry per open test-results element, whether its first test-suite has been seen
+        private final Deque<boolean[]> testResults = new ArrayDeque<>();
+        private final List<Capture> captures = new ArrayList<>();
+        private boolean recognised;
+        private JUnitTestCase junitTestCase;
+        private NUnitTestCase nunitTestCase;
+
+        ResultFileReader(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        boolean read() throws XMLStreamException, IOException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement(reader.getLocalName());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        for (Capture capture : captures) {
+                            capture.text.append(reader.getText());
+                        }
+                        break;
+                    default:
+                }
+            }
+            return recognised;
+        }
+
+        private void startElement(String name) throws IOException {
+            String parent = elements.peek();
+            elements.push(name);
+            int depth = elements.size();
+
+            if ("test-results".equals(name)) {
+                recognised = true;
+                testResults.push(new boolean[]{false});
+            } else if ("testsuite".equals(name)) {
+                recognised = true;
+            }
+
+            if ("test-suite".equals(name) && "test-results".equals(parent) && !testResults.peek()[0]) {
+                testResults.peek()[0] = true;
+                String time = reader.getAttributeValue(null, "time");
+                if (time != null) {
+                    counts.nunitTime += number(time);
+                }
+            }
+
+            if (junitTestCase == null && "testcase".equals(name) && "testsuite".equals(parent)) {
+                junitTestCase = new JUnitTestCase(attribute("name"), depth);
+                counts.junitCases++;
+                String time = reader.getAttributeValue(null, "time");
+                if (time != null) {
+                    counts.junitTime += number(time);
+                }
+            } else if (junitTestCase != null) {
+                startWithinJUnitTestCase(name, depth);
+            }
+
+            if (nunitTestCase == null && "test-case".equals(name) && isNUnitTestCase()) {
+                nunitTestCase = new NUnitTestCase(attribute("name"), depth);
+                counts.nunitCases++;
+            } else if (nunitTestCase != null) {
+                startWithinNUnitTestCase(name, depth);
+            }
+        }
+
+        private void startWithinJUnitTestCase(String name, int depth) throws IOException {
+            boolean isChild = depth == junitTestCase.depth + 1;
+            if ("error".equals(name)) {
+                junitTestCase.hasError = true;
+                if (isChild) {
+                    counts.junitErrors++;
+                    errorRows.write(junitTestCase.name);
+                    if (junitTestCase.error == null) {
+                        junitTestCase.errorMessage = attribute("message");
+                        junitTestCase.error = capture(depth);
+                    }
+                }
+            } else if ("failure".equals(name)) {
+                junitTestCase.hasFailure = true;
+                if (isChild) {
+                    counts.junitFailures++;
+                    failureRows.write(junitTestCase.name);
+                    if (junitTestCase.failure == null) {
+                        junitTestCase.failureMessage = attribute("message");
+                        junitTestCase.failure = capture(depth);
+                    }
+                }
+            }
+        }
+
+        private void startWithinNUnitTestCase(String name, int depth) throws IOException {
+            boolean isChild = depth == nunitTestCase.depth + 1;
+            if ("failure".equals(name)) {
+                nunitTestCase.hasFailure = true;
+                if (isChild) {
+                    counts.nunitFailures++;
+                    failureRows.write(nunitTestCase.name);
+                    if (nunitTestCase.failureDepth == 0) {
+                        nunitTestCase.failureDepth = depth;
+                    }
+                }
+            } else if ("reason".equals(name)) {
+                nunitTestCase.hasReason = true;
+                if (isChild) {
+                    counts.nunitNotRun++;
+                    notRunRows.write(nunitTestCase.name);
+                    if (nunitTestCase.reasonDepth == 0) {
+                        nunitTestCase.reasonDepth = depth;
+                    }
+                }
+            } else if ("message".equals(name) && within(nunitTestCase.failureDepth) && nunitTestCase.failureMessage == null) {
+                nunitTestCase.failureMessage = capture(depth);
+            } else if ("stack-trace".equals(name) && within(nunitTestCase.failureDepth) && nunitTestCase.stackTrace == null) {
+                nunitTestCase.stackTrace = capture(depth);
+            }
+            if ("message".equals(name) && within(nunitTestCase.reasonDepth) && nunitTestCase.reasonMessage == null) {
+                nunitTestCase.reasonMessage = capture(depth);
+            }
+        }
+
+        private void endElement() throws IOException {
+            int depth = elements.size();
+            captures.removeIf(capture -> capture.depth == depth);
+
+            if (junitTestCase != null && depth == junitTestCase.depth) {
+                if (junitTestCase.hasError) {
+                    junitErrorDetails.write(junitTestCase.details());
+                }
+                if (junitTestCase.hasFailure) {
+                    junitFailureDetails.write(junitTestCase.details());
+                }
+                junitTestCase = null;
+            }
+            if (nunitTestCase != null) {
+                if (depth == nunitTestCase.depth) {
+                    if (nunitTestCase.hasFailure) {
+                        nunitFailureDetails.write(nunitTestCase.details());
+                    }
+                    if (nunitTestCase.hasReason) {
+                        nunitNotRunDetails.write(nunitTestCase.details());
+                    }
+                    nunitTestCase = null;
+                } else if (depth == nunitTestCase.failureDepth) {
+                    nunitTestCase.failureDepth = -nunitTestCase.failureDepth;
+                } else if (depth == nunitTestCase.reasonDepth) {
+                    nunitTestCase.reasonDepth = -nunitTestCase.reasonDepth;
+                }
+            }
+            if ("test-results".equals(elements.pop())) {
+                testResults.pop();
+            }
+        }
+
+        // test-case elements under test-suite/results, anywhere within test-results
+        private boolean isNUnitTestCase() {
+            if (testResults.isEmpty()) {
+                return false;
+            }
+            String[] path = elements.toArray(new String[0]);
+            return path.length >= 3 && "results".equals(path[1]) && "test-suite".equals(path[2]);
+        }
+
+        // whether the first failure (or reason) element of the test case is still open
+        private boolean within(int elementDepth) {
+            return elementDepth > 0;
+        }
+
+        private Capture capture(int depth) {
+            Capture capture = new Capture(depth);
+            captures.add(capture);
+            return capture;
+        }
+
+        private String attribute(String name) {
+            String value = reader.getAttributeValue(null, name);
+            return value == null ? "" : value;
+        }
+    }
+
+    // length prefixed UTF-8 strings in a temporary file, which can be cut back to an earlier size
+    private static class Spool {
+        private File file;
+        private FileOutputStream fileOut;
+        private DataOutputStream out;
+        private long size;
+
+        void open() throws IOException {
+            file = File.createTempFile("test-report", ".spool");
+            fileOut = new FileOutputStream(file);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+
+        long size() {
+            return size;
+        }
+
+        void write(String entry) throws IOException {
+            byte[] bytes = entry.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            size += 4 + bytes.length;
+        }
+
+        void truncate(long toSize) throws IOException {
+            out.flush();
+            fileOut.getChannel().truncate(toSize);
+            size = toSize;
+        }
+
+        void forEach(EntryHandler handler) throws IOException {
+            out.flush();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                long read = 0;
+                while (read < size) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    read += 4 + bytes.length;
+                    handler.handle(new String(bytes, UTF_8));
+                }
+            }
+        }
+
+        void writeTo(Writer html) throws IOException {
+            forEach(html::write);
+        }
+
+        void delete() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            file.delete();
+        }
+    }
+
+    private interface EntryHandler {
+        void handle(String entry) throws IOException;
+    }
+}
@@ -17,6 +17,7 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestFileUtil;
 import com.thoughtworks.go.util.XpathUtils;
 import com.thoughtworks.go.work.GoPublisher;
@@ -33,10 +34,13 @@ import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.*;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 public class UnitTestReportGenerator implements TestReportGenerator {
     private final File folderToUpload;
     private GoPublisher publisher;
+    private final SystemEnvironment systemEnvironment;
     private static Templates templates;
 
     private static final Logger LOG = LoggerFactory.getLogger(UnitTestReportGenerator.class);
@@ -50,11 +54,19 @@ public class UnitTestReportGenerator implements TestReportGenerator {
     }
 
     public UnitTestReportGenerator(GoPublisher publisher, File folderToUpload) {
+        this(publisher, folderToUpload, new SystemEnvironment());
+    }
+
+    public UnitTestReportGenerator(GoPublisher publisher, File folderToUpload, SystemEnvironment systemEnvironment) {
         this.publisher = publisher;
         this.folderToUpload = folderToUpload;
+        this.systemEnvironment = systemEnvironment;
     }
 
     public Properties generate(File[] allTestFiles, String uploadDestPath) {
+        if (systemEnvironment.isStreamingTestReportEnabled()) {
+            return generateByStreaming(allTestFiles, uploadDestPath);
+        }
         FileOutputStream transformedHtml = null;
         File mergedResults = new File(folderToUpload.getAbsolutePath() + FileUtil.fileseparator() + TEST_RESULTS_FILE);
         File mergedResource = null;
@@ -88,6 +100,32 @@ public class UnitTestReportGenerator implements TestReportGenerator {
         return new Properties();
     }
 
+    // one pass over each test file, instead of merging them all and transforming the merged file with unittests.xsl
+    private Properties generateByStreaming(File[] allTestFiles, String uploadDestPath) {
+        File mergedResults = new File(folderToUpload.getAbsolutePath() + FileUtil.fileseparator() + TEST_RESULTS_FILE);
+        try (StreamingTestReport report = new StreamingTestReport()) {
+            for (File testFile : testFilesIn(allTestFiles)) {
+                if (!report.add(testFile)) {
+                    publisher.consumeLine(MessageFormat.format("Ignoring file {0} - it is not a recognised test file.", testFile.getName()));
+                }
+            }
+            try (OutputStream transformedHtml = new BufferedOutputStream(new FileOutputStream(mergedResults))) {
+                report.writeHtml(transformedHtml);
+            }
+
+            setProperty(TOTAL_TEST_COUNT, report.totalCount());
+            setProperty(FAILED_TEST_COUNT, report.failedCount());
+            setProperty(IGNORED_TEST_COUNT, report.ignoredCount());
+            setProperty(TEST_TIME, report.totalDuration());
+            publisher.upload(mergedResults, uploadDestPath);
+
+            return null;
+        } catch (Exception e) {
+            publisher.reportErrorMessage("Unable to publish test properties. Error was " + e.getMessage(), e);
+        }
+        return new Properties();
+    }
+
     private Properties extractProperties(File fileSendToServer) {
         final Properties properties = new Properties();
         addProperty(fileSendToServer, "tests_total_count", TOTAL_TEST_COUNT);
@@ -113,29 +151,39 @@ public class UnitTestReportGenerator implements TestReportGenerator {
         try {
             String xpath = "//div/p/span[@class='" + cssClass + "']";
             String output = XpathUtils.evaluate(xmlFile, xpath);
-            output = output.startsWith(".") ? "0" + output : output;
-            Property property = new Property(cruiseProperty, output);
-            publisher.setProperty(property);
+            setProperty(cruiseProperty, output);
         } catch (Exception e) {
             publisher.consumeLine("Could not publish property " + e.getMessage());
         }
     }
 
+    private void setProperty(String cruiseProperty, String value) {
+        String output = value.trim();
+        output = output.startsWith(".") ? "0" + output : output;
+        publisher.setProperty(new Property(cruiseProperty, output));
+    }
+
     public void merge(File[] testFiles, OutputStream outputStream) throws IOException {
         PrintStream out = new PrintStream(outputStream, true, "UTF-8");
         out.println("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
         out.println("<all-results>");
 
+        for (File testFile : testFilesIn(testFiles)) {
+            pumpFileContentIfValid(out, testFile);
+        }
+        out.println("</all-results>");
+    }
+
+    private List<File> testFilesIn(File[] testFiles) {
+        List<File> files = new ArrayList<>();
         for (File testFile : testFiles) {
             if (testFile.isDirectory()) {
-                for (Object file : FileUtils.listFiles(testFile, new String[]{"xml"}, true)) {
-                    pumpFileContentIfValid(out, (File) file);
-                }
+                files.addAll(FileUtils.listFiles(testFile, new String[]{"xml"}, true));
             } else {
-                pumpFileContentIfValid(out, testFile);
+                files.add(testFile);
             }
         }
-        out.println("</all-results>");
+        return files;
     }
 
     private void pumpFileContentIfValid(PrintStream out, File testFile) throws IOException {
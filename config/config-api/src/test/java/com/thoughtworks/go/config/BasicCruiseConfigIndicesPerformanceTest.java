@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.config.BasicCruiseConfigIndicesTest.configWithPipelines;
+
+@Disabled
+class BasicCruiseConfigIndicesPerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(BasicCruiseConfigIndicesPerformanceTest.class.getName());
+
+    @Test
+    void shouldLookUpConfigsOfLargeConfigsQuickly() {
+        BasicCruiseConfig config = configWithPipelines(10000);
+        int numberOfLookUps = 1000;
+
+        long withoutIndices = timeLookUps(config, numberOfLookUps);
+        config.buildLookupIndices();
+        long withIndices = timeLookUps(config, numberOfLookUps);
+
+        LOGGER.info("{} look ups on 10000 pipelines: {}ms without indices, {}ms with indices", numberOfLookUps, withoutIndices, withIndices);
+    }
+
+    private long timeLookUps(BasicCruiseConfig config, int numberOfLookUps) {
+        long start = System.nanoTime();
+        for (int i = 0; i < numberOfLookUps; i++) {
+            new BasicCruiseConfigIndicesTest.LookUps(config, "pipeline-" + (i * 7 % 9999));
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
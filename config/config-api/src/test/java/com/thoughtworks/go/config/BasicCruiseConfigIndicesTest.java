@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.helper.MaterialConfigsMother;
+import com.thoughtworks.go.helper.StageConfigMother;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BasicCruiseConfigIndicesTest {
+    @Test
+    void shouldLookUpTheSameConfigsWithAndWithoutIndices() {
+        BasicCruiseConfig config = configWithPipelines(50);
+
+        LookUps withoutIndices = new LookUps(config, "pipeline-42");
+        config.buildLookupIndices();
+        LookUps withIndices = new LookUps(config, "pipeline-42");
+
+        assertThat(withIndices.pipeline).isNotNull().isSameAs(withoutIndices.pipeline);
+        assertThat(withIndices.job).isNotNull().isSameAs(withoutIndices.job);
+        assertThat(withIndices.group).isNotNull().isSameAs(withoutIndices.group);
+        assertThat(withIndices.downstream).isNotNull().isSameAs(withoutIndices.downstream);
+        assertThat(withIndices.material).isNotNull().isEqualTo(withoutIndices.material);
+        assertThat(withIndices.hasBuildPlan).isTrue();
+        assertThat(config.getAllUniquePostCommitSchedulableMaterials()).isEqualTo(withoutIndices.postCommitSchedulableMaterials);
+        assertThat(config.getPipelineConfigByName(new CaseInsensitiveString("unknown"))).isNull();
+        assertThat(config.findPipelineUsingThisPipelineAsADependency("pipeline-49")).isNull();
+    }
+
+    @Test
+    void shouldNotLetCallersChangeTheIndexedPostCommitSchedulableMaterials() {
+        BasicCruiseConfig config = configWithPipelines(2);
+        config.buildLookupIndices();
+
+        assertThatThrownBy(() -> config.getAllUniquePostCommitSchedulableMaterials().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void shouldDropIndicesWhenPipelinesAreChangedThroughTheConfig() {
+        BasicCruiseConfig config = configWithPipelines(2);
+        config.buildLookupIndices();
+        assertThat(config.getPipelineConfigByName(new CaseInsensitiveString("pipeline-2"))).isNull();
+
+        PipelineConfig added = pipeline(2);
+        config.addPipelineWithoutValidation("group-0", added);
+        assertThat(config.getPipelineConfigByName(new CaseInsensitiveString("pipeline-2"))).isSameAs(added);
+        assertThat(config.findPipelineUsingThisPipelineAsADependency("pipeline-1")).isSameAs(added);
+
+        config.deletePipeline(added);
+        assertThat(config.getPipelineConfigByName(new CaseInsensitiveString("pipeline-2"))).isNull();
+        assertThat(config.findPipelineUsingThisPipelineAsADependency("pipeline-1")).isNull();
+    }
+
+    @Test
+    void shouldNotCarryIndicesOverToClones() {
+        BasicCruiseConfig config = configWithPipelines(2);
+        config.buildLookupIndices();
+
+        BasicCruiseConfig cloned = new GoConfigCloner().deepClone(config);
+
+        assertThat(cloned.getPipelineConfigByName(new CaseInsensitiveString("pipeline-0")))
+                .isNotSameAs(config.getPipelineConfigByName(new CaseInsensitiveString("pipeline-0")))
+                .isSameAs(cloned.getGroups().get(0).get(0));
+    }
+
+    static BasicCruiseConfig configWithPipelines(int numberOfPipelines) {
+        BasicCruiseConfig config = new BasicCruiseConfig();
+        for (int i = 0; i < numberOfPipelines; i++) {
+            config.addPipelineWithoutValidation("group-" + (i / 100), pipeline(i));
+        }
+        return config;
+    }
+
+    private static PipelineConfig pipeline(int index) {
+        GitMaterialConfig git = MaterialConfigsMother.gitMaterialConfig("https://example.com/repo-" + index + ".git");
+        git.setAutoUpdate(index % 2 == 0);
+        MaterialConfigs materialConfigs = new MaterialConfigs(git);
+        if (index > 0) {
+            materialConfigs.add(MaterialConfigsMother.dependencyMaterialConfig("pipeline-" + (index - 1), "stage"));
+        }
+        return new PipelineConfig(new CaseInsensitiveString("pipeline-" + index), materialConfigs, StageConfigMother.custom("stage", "job"));
+    }
+
+    static class LookUps {
+        private final PipelineConfig pipeline;
+        private final JobConfig job;
+        private final PipelineConfigs group;
+        private final PipelineConfig downstream;
+        private final Object material;
+        private final boolean hasBuildPlan;
+        private final Object postCommitSchedulableMaterials;
+
+        LookUps(BasicCruiseConfig config, String pipelineName) {
+            pipeline = config.getPipelineConfigByName(new CaseInsensitiveString(pipelineName));
+            job = config.findJob(pipelineName, "stage", "job");
+            group = config.findGroupOfPipeline(pipeline);
+            downstream = config.findPipelineUsingThisPipelineAsADependency(pipelineName);
+            material = config.materialConfigFor(pipeline.materialConfigs().first().getFingerprint());
+            hasBuildPlan = config.hasBuildPlan(pipeline.name(), new CaseInsensitiveString("stage"), "job", true);
+            postCommitSchedulableMaterials = config.getAllUniquePostCommitSchedulableMaterials();
+        }
+    }
+}
@@ -61,6 +61,21 @@ public class PluginRoleUsersStoreTest {
         assertThat(pluginRoleUsersStore.pluginRoles(), hasSize(0));
     }
 
+    @Test
+    public void rolesFor_ShouldListOnlyThePluginRolesAssignedToAGivenUser() throws Exception {
+        PluginRoleConfig pluginRoleSpaceTiger = new PluginRoleConfig("spacetiger", "ldap");
+        PluginRoleConfig pluginRoleBlackBird = new PluginRoleConfig("blackbird", "ldap");
+        pluginRoleUsersStore.assignRole("wing-commander", pluginRoleSpaceTiger);
+        pluginRoleUsersStore.assignRole("bob", pluginRoleBlackBird);
+
+        assertThat(pluginRoleUsersStore.rolesFor("wing-commander"), contains(pluginRoleSpaceTiger));
+        assertThat(pluginRoleUsersStore.rolesFor("Bob"), contains(pluginRoleBlackBird));
+
+        pluginRoleUsersStore.revokeAllRolesFor("wing-commander");
+
+        assertThat(pluginRoleUsersStore.rolesFor("wing-commander"), is(empty()));
+    }
+
     @Test
     public void revokeAllRolesFor_ShouldRevokeAllRolesForAGivenUser() throws Exception {
         PluginRoleConfig pluginRoleSpaceTiger = new PluginRoleConfig("spacetiger", "ldap");
@@ -19,6 +19,7 @@ package com.thoughtworks.go.config;
 import com.rits.cloning.Cloner;
 import com.thoughtworks.go.config.BasicCruiseConfig.AllPipelineConfigs;
 import com.thoughtworks.go.config.BasicCruiseConfig.AllTemplatesWithAssociatedPipelines;
+import com.thoughtworks.go.config.BasicCruiseConfig.PipelineConfigIndices;
 import com.thoughtworks.go.config.BasicCruiseConfig.PipelineNameToConfigMap;
 
 // Cloner to handle nullification of specific classes in config objects.
@@ -34,6 +35,7 @@ public class GoConfigCloner extends Cloner {
     public GoConfigCloner() {
         nullInsteadOfClone(AllPipelineConfigs.class,
                 AllTemplatesWithAssociatedPipelines.class,
-                PipelineNameToConfigMap.class);
+                PipelineNameToConfigMap.class,
+                PipelineConfigIndices.class);
     }
 }
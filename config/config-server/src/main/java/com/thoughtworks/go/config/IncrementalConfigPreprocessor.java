@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
+import com.thoughtworks.go.config.preprocessor.ConfigParamPreprocessor;
+import com.thoughtworks.go.config.remote.PartialConfig;
+
+import java.util.List;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * @understands building the preprocessed config for a pipeline scoped entity update from the last preprocessed config,
+ * so that only the pipelines touched by the update are cloned and preprocessed again
+ */
+public class IncrementalConfigPreprocessor {
+    private final GoConfigCloner cloner = new GoConfigCloner();
+    private final TemplateExpansionPreprocessor templateExpansionPreprocessor = new TemplateExpansionPreprocessor();
+    private final ConfigParamPreprocessor configParamPreprocessor = new ConfigParamPreprocessor();
+
+    public boolean canPreprocess(EntityConfigUpdateCommand command, CruiseConfig lastPreprocessedConfig, List<PartialConfig> partials) {
+        return command instanceof PipelineScopedConfigUpdateCommand
+                && lastPreprocessedConfig != null
+                && partials.isEmpty()
+                && lastPreprocessedConfig.getPartials().isEmpty();
+    }
+
+    // Pipelines which are not touched by the update are shared with the last preprocessed config, they are never modified once preprocessed.
+    // Pipelines depending on the touched ones are validated by the command itself (see PipelineConfigTreeValidator#validateDependencies).
+    public CruiseConfig preprocess(EntityConfigUpdateCommand command, CruiseConfig lastPreprocessedConfig, CruiseConfig modifiedConfig) {
+        Object[] untouchedPipelines = lastPreprocessedConfig.getAllPipelineConfigs().toArray();
+        CruiseConfig preprocessedConfig = cloner.deepCloneDontCloneInstances(lastPreprocessedConfig, untouchedPipelines);
+        try {
+            command.update(preprocessedConfig);
+        } catch (Exception e) {
+            bomb(e);
+        }
+
+        for (CaseInsensitiveString pipelineName : ((PipelineScopedConfigUpdateCommand) command).pipelinesToPreprocess()) {
+            PipelineConfig pipelineConfig = cloner.deepClone(modifiedConfig.getPipelineConfigByName(pipelineName));
+            String group = preprocessedConfig.findGroupOfPipeline(pipelineConfig).getGroup();
+            preprocessedConfig.update(group, pipelineName.toString(), pipelineConfig);
+            templateExpansionPreprocessor.process(preprocessedConfig, pipelineConfig);
+            configParamPreprocessor.process(pipelineConfig);
+        }
+        return preprocessedConfig;
+    }
+}
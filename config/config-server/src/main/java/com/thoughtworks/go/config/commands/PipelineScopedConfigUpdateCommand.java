@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.config.commands;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+
+import java.util.Set;
+
+/**
+ * @understands an entity update which only adds, replaces or removes pipelines, and which of them
+ * have to be preprocessed again once the update is applied
+ */
+public interface PipelineScopedConfigUpdateCommand {
+    Set<CaseInsensitiveString> pipelinesToPreprocess();
+}
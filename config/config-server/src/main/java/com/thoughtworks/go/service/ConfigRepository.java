@@ -36,6 +36,7 @@ import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.BundleWriter;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +47,7 @@ import org.springframework.util.Assert;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -129,6 +131,24 @@ public class ConfigRepository {
         }
     }
 
+    /**
+     * Writes master, along with its whole history, as a git bundle which can be cloned from on its own.
+     *
+     * @return the commit master pointed to
+     */
+    public String writeBundle(OutputStream out) throws IOException {
+        return doLocked(() -> {
+            Ref master = gitRepo.exactRef("refs/heads/master");
+            if (master == null) {
+                throw new IOException("Config repository does not have a master branch to bundle");
+            }
+            BundleWriter bundle = new BundleWriter(gitRepo);
+            bundle.include(master);
+            bundle.writeBundle(NullProgressMonitor.INSTANCE, out);
+            return master.getObjectId().name();
+        });
+    }
+
     public <T, E extends Exception> T doLocked(ThrowingFn<T, E> runnable) throws E {
         synchronized (this) {
             return runnable.call();
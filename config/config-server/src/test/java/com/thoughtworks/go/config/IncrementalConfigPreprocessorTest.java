@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
+import com.thoughtworks.go.config.remote.PartialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.helper.PipelineTemplateConfigMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalConfigPreprocessorTest {
+    private GoConfigCloner cloner;
+    private IncrementalConfigPreprocessor preprocessor;
+
+    @BeforeEach
+    void setUp() {
+        cloner = new GoConfigCloner();
+        preprocessor = new IncrementalConfigPreprocessor();
+    }
+
+    @Test
+    void shouldPreprocessOnlyThePipelineTouchedByTheUpdate() {
+        BasicCruiseConfig configForEdit = GoConfigMother.configWithPipelines("p1", "p2");
+        configForEdit.addTemplate(PipelineTemplateConfigMother.createTemplate("template"));
+        CruiseConfig lastPreprocessedConfig = preprocessed(configForEdit);
+
+        PipelineConfig updated = PipelineConfigMother.pipelineConfigWithTemplate("p1", "template");
+        updated.addParam(new ParamConfig("version", "1.2"));
+        updated.setLabelTemplate("#{version}-${COUNT}");
+        UpdatePipeline command = new UpdatePipeline(updated);
+        CruiseConfig modifiedConfig = modified(configForEdit, command);
+
+        CruiseConfig preprocessedConfig = preprocessor.preprocess(command, lastPreprocessedConfig, modifiedConfig);
+
+        PipelineConfig p1 = preprocessedConfig.getPipelineConfigByName(new CaseInsensitiveString("p1"));
+        assertThat(p1.hasTemplateApplied()).isTrue();
+        assertThat(p1.getLabelTemplate()).isEqualTo("1.2-${COUNT}");
+        assertThat(p1).isNotSameAs(modifiedConfig.getPipelineConfigByName(new CaseInsensitiveString("p1")));
+        assertThat(modifiedConfig.getPipelineConfigByName(new CaseInsensitiveString("p1")).hasTemplateApplied()).isFalse();
+        assertThat(preprocessedConfig.getPipelineConfigByName(new CaseInsensitiveString("p2")))
+                .isSameAs(lastPreprocessedConfig.getPipelineConfigByName(new CaseInsensitiveString("p2")));
+        assertThat(preprocessedConfig.getAllPipelineConfigs()).isEqualTo(preprocessed(modifiedConfig).getAllPipelineConfigs());
+    }
+
+    @Test
+    void shouldNotChangeTheLastPreprocessedConfig() {
+        BasicCruiseConfig configForEdit = GoConfigMother.configWithPipelines("p1", "p2");
+        CruiseConfig lastPreprocessedConfig = preprocessed(configForEdit);
+        UpdatePipeline command = new UpdatePipeline(PipelineConfigMother.createPipelineConfig("p1", "another-stage", "job"));
+
+        preprocessor.preprocess(command, lastPreprocessedConfig, modified(configForEdit, command));
+
+        assertThat(lastPreprocessedConfig.getPipelineConfigByName(new CaseInsensitiveString("p1")).getFirstStageConfig().name())
+                .isEqualTo(new CaseInsensitiveString("stage"));
+    }
+
+    @Test
+    void shouldOnlyPreprocessPipelineScopedUpdatesWithoutPartials() {
+        CruiseConfig lastPreprocessedConfig = preprocessed(GoConfigMother.configWithPipelines("p1"));
+        UpdatePipeline pipelineScoped = new UpdatePipeline(PipelineConfigMother.pipelineConfig("p1"));
+
+        assertThat(preprocessor.canPreprocess(pipelineScoped, lastPreprocessedConfig, emptyList())).isTrue();
+        assertThat(preprocessor.canPreprocess(pipelineScoped, lastPreprocessedConfig, singletonList(new PartialConfig()))).isFalse();
+        assertThat(preprocessor.canPreprocess(pipelineScoped, null, emptyList())).isFalse();
+        assertThat(preprocessor.canPreprocess(new UpdateEverything(), lastPreprocessedConfig, emptyList())).isFalse();
+    }
+
+    @Test
+    void shouldPreprocessLargeConfigsTheSameWayAsPreprocessingEverything() {
+        for (int numberOfPipelines : new int[]{100, 1000}) {
+            String[] names = new String[numberOfPipelines];
+            for (int i = 0; i < numberOfPipelines; i++) {
+                names[i] = "pipeline-" + i;
+            }
+            BasicCruiseConfig configForEdit = GoConfigMother.configWithPipelines(names);
+            CruiseConfig lastPreprocessedConfig = preprocessed(configForEdit);
+            UpdatePipeline command = new UpdatePipeline(PipelineConfigMother.createPipelineConfig("pipeline-0", "another-stage", "job"));
+            CruiseConfig modifiedConfig = modified(configForEdit, command);
+
+            CruiseConfig everything = preprocessed(modifiedConfig);
+            CruiseConfig incremental = preprocessor.preprocess(command, lastPreprocessedConfig, modifiedConfig);
+
+            assertThat(incremental.getAllPipelineConfigs()).isEqualTo(everything.getAllPipelineConfigs());
+        }
+    }
+
+    private CruiseConfig preprocessed(CruiseConfig configForEdit) {
+        CruiseConfig preprocessed = cloner.deepClone(configForEdit);
+        MagicalGoConfigXmlLoader.preprocess(preprocessed);
+        return preprocessed;
+    }
+
+    private CruiseConfig modified(CruiseConfig configForEdit, EntityConfigUpdateCommand command) {
+        CruiseConfig modified = cloner.deepClone(configForEdit);
+        try {
+            command.update(modified);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return modified;
+    }
+
+    private static class UpdatePipeline extends UpdateEverything implements PipelineScopedConfigUpdateCommand {
+        private final PipelineConfig pipelineConfig;
+
+        UpdatePipeline(PipelineConfig pipelineConfig) {
+            this.pipelineConfig = pipelineConfig;
+        }
+
+        @Override
+        public void update(CruiseConfig preprocessedConfig) {
+            preprocessedConfig.update(preprocessedConfig.findGroupOfPipeline(pipelineConfig).getGroup(), pipelineConfig.name().toString(), pipelineConfig);
+        }
+
+        @Override
+        public Set<CaseInsensitiveString> pipelinesToPreprocess() {
+            return singleton(pipelineConfig.name());
+        }
+    }
+
+    private static class UpdateEverything implements EntityConfigUpdateCommand<PipelineConfig> {
+        @Override
+        public void update(CruiseConfig preprocessedConfig) {
+        }
+
+        @Override
+        public boolean isValid(CruiseConfig preprocessedConfig) {
+            return true;
+        }
+
+        @Override
+        public void clearErrors() {
+        }
+
+        @Override
+        public PipelineConfig getPreprocessedEntityConfig() {
+            return null;
+        }
+
+        @Override
+        public boolean canContinue(CruiseConfig cruiseConfig) {
+            return true;
+        }
+    }
+}
@@ -33,11 +33,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.is;
@@ -136,6 +140,19 @@ public class ConfigRepositoryTest {
         assertThat(size, is(1));
     }
 
+    @Test
+    public void shouldBundleMasterWithItsWholeHistory() throws Exception {
+        configRepo.checkin(new GoConfigRevision("v1", "md5-v1", "user-name", "100.3.9", new TimeProvider()));
+        configRepo.checkin(new GoConfigRevision("v2", "md5-v2", "user-name", "100.3.9", new TimeProvider()));
+        ByteArrayOutputStream bundle = new ByteArrayOutputStream();
+
+        String head = configRepo.writeBundle(bundle);
+
+        assertThat(head, is(configRepo.getCurrentRevCommit().getName()));
+        // no prerequisite commits, so the bundle does not depend on any earlier one
+        assertThat(bundleHeader(bundle), contains("# v2 git bundle", head + " refs/heads/master"));
+    }
+
     @Test
     public void shouldShowDiffBetweenTwoConsecutiveGitRevisions() throws Exception {
         configRepo.checkin(goConfigRevision(ConfigFileFixture.configWithPipeline(ConfigFileFixture.SIMPLE_PIPELINE, 33), "md5-1"));
@@ -400,6 +417,17 @@ public class ConfigRepositoryTest {
         assertThat(configRepo.commitCountOnMaster(), is(2L));
     }
 
+    private List<String> bundleHeader(ByteArrayOutputStream bundle) {
+        List<String> header = new ArrayList<>();
+        for (String line : new String(bundle.toByteArray(), UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                break;
+            }
+            header.add(line);
+        }
+        return header;
+    }
+
     private GoConfigRevision goConfigRevision(String fileContent, String md5) {
         return new GoConfigRevision(fileContent, md5, "user-1", "13.2", new TimeProvider());
     }
@@ -32,7 +32,6 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static com.thoughtworks.go.domain.materials.ModifiedAction.parseGitAction;
 import static com.thoughtworks.go.util.DateUtils.formatRFC822;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static com.thoughtworks.go.util.command.ProcessOutputStreamConsumer.inMemoryConsumer;
@@ -42,7 +41,6 @@ public class GitCommand extends SCMCommand {
 
     private static final Pattern GIT_SUBMODULE_STATUS_PATTERN = Pattern.compile("^.[0-9a-fA-F]{40} (.+?)( \\(.+\\))?$");
     private static final Pattern GIT_SUBMODULE_URL_PATTERN = Pattern.compile("^submodule\\.(.+)\\.url (.+)$");
-    private static final Pattern GIT_DIFF_TREE_PATTERN = Pattern.compile("^(.)\\s+(.+)$");
     private static final String GIT_CLEAN_KEEP_IGNORED_FILES_FLAG = "toggle.agent.git.clean.keep.ignored.files";
 
     private final File workingDir;
@@ -118,42 +116,17 @@ public class GitCommand extends SCMCommand {
             throw new RuntimeException(String.format("Working directory: %s\n%s", workingDir, outputStreamConsumer.getStdError()), e);
         }
 
-        CommandLine gitCmd = git(environment).withArg("log").withArgs(args).withWorkingDir(workingDir);
-        ConsoleResult result = runOrBomb(gitCmd);
-
+        // --name-status lists the files of each commit in the same pass, instead of a git diff-tree per commit
+        CommandLine gitCmd = git(environment).withArg("log").withArgs("--name-status", "--no-renames", "--root").withArgs(args).withWorkingDir(workingDir);
         GitModificationParser parser = new GitModificationParser();
-        List<Modification> mods = parser.parse(result.output());
-        for (Modification mod : mods) {
-            addModifiedFiles(mod);
-        }
-        return mods;
-    }
-
-    private void addModifiedFiles(Modification mod) {
-        ConsoleResult consoleResult = diffTree(mod.getRevision());
-        List<String> result = consoleResult.output();
-
-        for (String resultLine : result) {
-            // First line is the node
-            if (resultLine.equals(mod.getRevision())) {
-                continue;
-            }
-
-            Matcher m = matchResultLine(resultLine);
-            if (!m.find()) {
-                bomb("Unable to parse git-diff-tree output line: " + consoleResult.replaceSecretInfo(resultLine) + "\n"
-                        + "From output:\n"
-                        + consoleResult.outputForDisplayAsString());
-            }
-            mod.createModifiedFile(m.group(2), null, parseGitAction(m.group(1).charAt(0)));
+        ConsoleResult result = runOrBomb(gitCmd, parser);
+        List<String> unparseableLines = parser.getUnparseableLines();
+        if (!unparseableLines.isEmpty()) {
+            bomb("Unable to parse git log --name-status output line: " + result.replaceSecretInfo(unparseableLines.get(0)));
         }
+        return parser.getModifications();
     }
 
-    private Matcher matchResultLine(String resultLine) {
-        return GIT_DIFF_TREE_PATTERN.matcher(resultLine);
-    }
-
-
     public void resetWorkingDir(ConsoleOutputStreamConsumer outputStreamConsumer, Revision revision) {
         outputStreamConsumer.stdOutput(String.format("[GIT] Reset working directory %s", workingDir));
         cleanAllUnversionedFiles(outputStreamConsumer);
@@ -368,11 +341,6 @@ public class GitCommand extends SCMCommand {
         return submoduleFolders(result.output());
     }
 
-    public ConsoleResult diffTree(String node) {
-        CommandLine gitCmd = git(environment).withArgs("diff-tree", "--name-status", "--root", "-r", node).withWorkingDir(workingDir);
-        return runOrBomb(gitCmd);
-    }
-
     public void submoduleAdd(String repoUrl, String submoduleNameToPutInGitSubmodules, String folder) {
         String[] addSubmoduleWithSameNameArgs = new String[]{"submodule", "add", repoUrl, folder};
         String[] changeSubmoduleNameInGitModules = new String[]{"config", "--file", ".gitmodules", "--rename-section", "submodule." + folder, "submodule." + submoduleNameToPutInGitSubmodules};
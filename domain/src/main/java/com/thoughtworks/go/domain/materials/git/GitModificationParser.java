@@ -18,15 +18,25 @@ package com.thoughtworks.go.domain.materials.git;
 
 import com.thoughtworks.go.domain.materials.Modification;
 import com.thoughtworks.go.util.DateUtils;
+import com.thoughtworks.go.util.command.StreamConsumer;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class GitModificationParser {
+import static com.thoughtworks.go.domain.materials.ModifiedAction.parseGitAction;
+
+/**
+ * @understands <code>git log --pretty=medium</code> output, optionally with <code>--name-status</code>
+ * lines for the files each commit touched, one line at a time
+ */
+public class GitModificationParser implements StreamConsumer {
     private LinkedList<Modification> modifications = new LinkedList<>();
+    private List<String> unparseableLines = new ArrayList<>();
+    private boolean inHeader;
     private static final String SPACES = "\\s+";
     private static final String COMMENT_INDENT = "\\s{4}";
     private static final String COMMENT_TEXT = "(.*)";
@@ -37,6 +47,8 @@ public class GitModificationParser {
     private static final Pattern AUTHOR_PATTERN = Pattern.compile("^Author:"+ SPACES + AUTHOR + "$");
     private static final Pattern DATE_PATTERN = Pattern.compile("^Date:" + SPACES + DATE + "$");
     private static final Pattern COMMENT_PATTERN = Pattern.compile("^" + COMMENT_INDENT + COMMENT_TEXT + "$");
+    private static final Pattern NOTES_PATTERN = Pattern.compile("^Notes( \\(.+\\))?:$");
+    private static final Pattern NAME_STATUS_PATTERN = Pattern.compile("^([A-Z])\\d*\t(.+)$");
 
     public List<Modification> parse(List<String> output) {
         for (String line : output) {
@@ -49,10 +61,24 @@ public class GitModificationParser {
         return modifications;
     }
 
+    /**
+     * @return lines after the header of a commit that are neither part of its comment nor a <code>--name-status</code> line
+     */
+    public List<String> getUnparseableLines() {
+        return unparseableLines;
+    }
+
+    @Override
+    public void consumeLine(String line) {
+        processLine(line);
+    }
+
     public void processLine(String line) {
         Matcher matcher = COMMIT_PATTERN.matcher(line);
         if (matcher.matches()) {
             modifications.add(new Modification("", "", null, null, matcher.group(1)));
+            inHeader = true;
+            return;
         }
         Matcher authorMatcher = AUTHOR_PATTERN.matcher(line);
         if (authorMatcher.matches()) {
@@ -61,6 +87,8 @@ public class GitModificationParser {
         Matcher dateMatcher = DATE_PATTERN.matcher(line);
         if (dateMatcher.matches()) {
             modifications.getLast().setModifiedTime(DateUtils.parseISO8601(dateMatcher.group(1)));
+            inHeader = false;
+            return;
         }
         Matcher commentMatcher = COMMENT_PATTERN.matcher(line);
         if (commentMatcher.matches()) {
@@ -68,6 +96,16 @@ public class GitModificationParser {
             String comment = Optional.ofNullable(last.getComment()).orElse("");
             if (!comment.isEmpty()) comment += "\n";
             last.setComment(comment + commentMatcher.group(1));
-       }
+            return;
+        }
+        if (NOTES_PATTERN.matcher(line).matches()) {
+            return;
+        }
+        Matcher nameStatusMatcher = NAME_STATUS_PATTERN.matcher(line);
+        if (nameStatusMatcher.matches() && !modifications.isEmpty()) {
+            modifications.getLast().createModifiedFile(nameStatusMatcher.group(2), null, parseGitAction(nameStatusMatcher.group(1).charAt(0)));
+        } else if (!inHeader && !modifications.isEmpty() && !line.trim().isEmpty()) {
+            unparseableLines.add(line);
+        }
     }
 }
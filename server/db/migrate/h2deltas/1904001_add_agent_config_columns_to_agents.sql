@@ -0,0 +1,36 @@
+--
+-- Copyright 2019 ThoughtWorks, Inc.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- elastic agents are stored before they are handed a cookie
+ALTER TABLE agents ALTER COLUMN cookie SET NULL;
+ALTER TABLE agents ADD COLUMN IF NOT EXISTS elasticAgentId VARCHAR(255) DEFAULT NULL;
+ALTER TABLE agents ADD COLUMN IF NOT EXISTS elasticPluginId VARCHAR(255) DEFAULT NULL;
+ALTER TABLE agents ADD COLUMN IF NOT EXISTS resources CLOB DEFAULT NULL;
+ALTER TABLE agents ADD COLUMN IF NOT EXISTS environments CLOB DEFAULT NULL;
+ALTER TABLE agents ADD COLUMN IF NOT EXISTS disabled BOOLEAN DEFAULT FALSE NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_agents_elastic_agent_id ON agents(elasticAgentId);
+
+--//@UNDO
+
+-- only elastic agents stored by this version can be without a cookie
+DELETE FROM agents WHERE cookie IS NULL AND elasticAgentId IS NOT NULL;
+DROP INDEX idx_agents_elastic_agent_id IF EXISTS;
+ALTER TABLE agents DROP COLUMN elasticAgentId;
+ALTER TABLE agents DROP COLUMN elasticPluginId;
+ALTER TABLE agents DROP COLUMN resources;
+ALTER TABLE agents DROP COLUMN environments;
+ALTER TABLE agents DROP COLUMN disabled;
+ALTER TABLE agents ALTER COLUMN cookie SET NOT NULL;
@@ -191,6 +191,9 @@ public class CachedGoConfig {
             this.lastException = null;
             this.configHolder = configHolder;
             this.currentConfig = this.configHolder.config;
+            if (systemEnvironment != null && systemEnvironment.isConfigLookupIndicesEnabled()) {
+                this.currentConfig.buildLookupIndices();
+            }
             this.currentConfigForEdit = this.configHolder.configForEdit;
             this.mergedCurrentConfigForEdit = configHolder.mergedConfigForEdit;
             serverHealthService.update(ServerHealthState.success(HealthStateType.invalidConfig()));
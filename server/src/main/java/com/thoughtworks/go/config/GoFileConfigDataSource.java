@@ -71,6 +71,7 @@ public class GoFileConfigDataSource {
     private SystemEnvironment systemEnvironment;
     private GoConfigMigration upgrader;
     private GoConfigCloner cloner = new GoConfigCloner();
+    private IncrementalConfigPreprocessor incrementalConfigPreprocessor = new IncrementalConfigPreprocessor();
     private ServerHealthService serverHealthService;
     private ConfigElementImplementationRegistry configElementImplementationRegistry;
     private GoConfigFileReader goConfigFileReader;
@@ -240,10 +241,10 @@ public class GoFileConfigDataSource {
         List<PartialConfig> lastValidPartials = cachedGoPartials.lastValidPartials();
         List<PartialConfig> lastKnownPartials = cachedGoPartials.lastKnownPartials();
         if (lastKnownPartials.isEmpty() || areKnownPartialsSameAsValidPartials(lastKnownPartials, lastValidPartials)) {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, configHolder.config);
         }
         try {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, configHolder.config);
         } catch (GoConfigInvalidException e) {
             StringBuilder errorMessageBuilder = new StringBuilder();
             try {
@@ -272,10 +273,15 @@ public class GoFileConfigDataSource {
 
     }
 
-    private EntityConfigSaveResult trySavingEntity(EntityConfigUpdateCommand updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
+    private EntityConfigSaveResult trySavingEntity(EntityConfigUpdateCommand updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials, CruiseConfig lastPreprocessedConfig) {
         modifiedConfig.setPartials(partials);
-        CruiseConfig preprocessedConfig = cloner.deepClone(modifiedConfig);
-        MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
+        CruiseConfig preprocessedConfig;
+        if (systemEnvironment.isConfigSaveIncrementalPreprocessingEnabled() && incrementalConfigPreprocessor.canPreprocess(updatingCommand, lastPreprocessedConfig, partials)) {
+            preprocessedConfig = incrementalConfigPreprocessor.preprocess(updatingCommand, lastPreprocessedConfig, modifiedConfig);
+        } else {
+            preprocessedConfig = cloner.deepClone(modifiedConfig);
+            MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
+        }
         updatingCommand.encrypt(preprocessedConfig);
         if (updatingCommand.isValid(preprocessedConfig)) {
             try {
@@ -17,17 +17,23 @@
 package com.thoughtworks.go.config.update;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.EnvironmentConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.result.LocalizedOperationResult;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 
-public class DeletePipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig> {
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+
+public class DeletePipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig>, PipelineScopedConfigUpdateCommand {
     private final GoConfigService goConfigService;
     private PipelineConfig pipelineConfig;
     private final Username currentUser;
@@ -48,6 +54,11 @@ public class DeletePipelineConfigCommand implements EntityConfigUpdateCommand<Pi
         cruiseConfig.deletePipeline(pipelineConfig);
     }
 
+    @Override
+    public Set<CaseInsensitiveString> pipelinesToPreprocess() {
+        return emptySet();
+    }
+
     @Override
     public boolean isValid(CruiseConfig preprocessedConfig) {
         for (PipelineConfig pipeline : preprocessedConfig.getAllPipelineConfigs()) {
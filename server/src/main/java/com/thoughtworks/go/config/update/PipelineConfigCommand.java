@@ -18,10 +18,15 @@ package com.thoughtworks.go.config.update;
 
 import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
 import com.thoughtworks.go.server.service.ExternalArtifactsService;
 import com.thoughtworks.go.server.service.GoConfigService;
 
-public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig> {
+import java.util.Set;
+
+import static java.util.Collections.singleton;
+
+public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig>, PipelineScopedConfigUpdateCommand {
 
     protected PipelineConfig pipelineConfig;
     protected GoConfigService goConfigService;
@@ -44,6 +49,11 @@ public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand
         return preprocessedPipelineConfig;
     }
 
+    @Override
+    public Set<CaseInsensitiveString> pipelinesToPreprocess() {
+        return singleton(pipelineConfig.name());
+    }
+
     @Override
     public void encrypt(CruiseConfig preprocessedConfig) {
         preprocessedPipelineConfig = preprocessedConfig.getPipelineConfigByName(pipelineConfig.name());
@@ -34,11 +34,11 @@ public class CcTrayCache {
      * to preserve insertion order.
      */
     private LinkedHashMap<String, ProjectStatus> cache;
-    private volatile List<ProjectStatus> orderedEntries;
+    private volatile CcTraySnapshot snapshot;
 
     public CcTrayCache() {
         this.cache = new LinkedHashMap<>();
-        this.orderedEntries = new ArrayList<>();
+        this.snapshot = new CcTraySnapshot(new ArrayList<>());
     }
 
     ProjectStatus get(String projectName) {
@@ -62,11 +62,15 @@ public class CcTrayCache {
     }
 
     public List<ProjectStatus> allEntriesInOrder() {
-        return this.orderedEntries;
+        return this.snapshot.statuses();
+    }
+
+    public CcTraySnapshot snapshot() {
+        return this.snapshot;
     }
 
     private void cacheHasChanged() {
-        this.orderedEntries = new ArrayList<>(cache.values());
+        this.snapshot = new CcTraySnapshot(new ArrayList<>(cache.values()));
     }
 
     private Map<String, ProjectStatus> createReplacementItems(List<ProjectStatus> statuses) {
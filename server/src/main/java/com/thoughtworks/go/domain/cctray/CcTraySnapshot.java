@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain.cctray;
+
+import com.thoughtworks.go.config.security.users.Users;
+import com.thoughtworks.go.domain.activity.ProjectStatus;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/* Understands the CcTray XML of every project in the cache at one point in time, pre-rendered into runs of consecutive
+ * projects which share their viewers, so that rendering it for a user only has to decide once per run whether they
+ * can see it, and has no placeholders to replace. */
+public class CcTraySnapshot {
+    private final List<ProjectStatus> statuses;
+    private final List<Fragment> fragments = new ArrayList<>();
+    private final String etag;
+
+    public CcTraySnapshot(List<ProjectStatus> statuses) {
+        this.statuses = Collections.unmodifiableList(new ArrayList<>(statuses));
+
+        StringBuilder hashCodes = new StringBuilder();
+        StringBuilder xml = new StringBuilder();
+        Users viewersOfRun = null;
+        for (ProjectStatus status : this.statuses) {
+            hashCodes.append(status.hashCode()).append('/').append(status.viewers().hashCode()).append('/');
+
+            String xmlRepresentation = status.xmlRepresentation();
+            if (StringUtils.isBlank(xmlRepresentation)) {
+                continue;
+            }
+            if (viewersOfRun != null && !viewersOfRun.equals(status.viewers())) {
+                fragments.add(new Fragment(viewersOfRun, xml.toString()));
+                xml.setLength(0);
+            }
+            viewersOfRun = status.viewers();
+            xml.append("  ").append(xmlRepresentation).append("\n");
+        }
+        if (viewersOfRun != null) {
+            fragments.add(new Fragment(viewersOfRun, xml.toString()));
+        }
+        this.etag = DigestUtils.sha256Hex(hashCodes.toString());
+    }
+
+    public List<ProjectStatus> statuses() {
+        return statuses;
+    }
+
+    /**
+     * A digest of every project status and its viewers, worked out once whenever the cache changes rather than on
+     * every request. It does not depend on the site url prefix, which callers need to add in themselves.
+     */
+    public String etag() {
+        return etag;
+    }
+
+    public void appendProjectsTo(Appendable appendable, String siteUrlPrefix, Predicate<Users> canView) throws IOException {
+        for (Fragment fragment : fragments) {
+            if (canView.test(fragment.viewers)) {
+                fragment.appendTo(appendable, siteUrlPrefix);
+            }
+        }
+    }
+
+    // the XML of a run of projects, split up around each site url prefix placeholder
+    private static class Fragment {
+        private final Users viewers;
+        private final String[] parts;
+
+        Fragment(Users viewers, String xml) {
+            this.viewers = viewers;
+            this.parts = StringUtils.splitByWholeSeparatorPreserveAllTokens(xml, ProjectStatus.SITE_URL_PREFIX);
+        }
+
+        void appendTo(Appendable appendable, String siteUrlPrefix) throws IOException {
+            appendable.append(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                appendable.append(siteUrlPrefix).append(parts[i]);
+            }
+        }
+    }
+}
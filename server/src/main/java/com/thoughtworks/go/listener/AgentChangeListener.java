@@ -16,11 +16,13 @@
 
 package com.thoughtworks.go.listener;
 
+import com.thoughtworks.go.config.AgentConfig;
 import com.thoughtworks.go.config.Agents;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.server.service.AgentService;
+import com.thoughtworks.go.server.service.ElasticAgentConfigStore;
 
-public class AgentChangeListener extends EntityConfigChangedListener<Agents> {
+public class AgentChangeListener extends EntityConfigChangedListener<Agents> implements ElasticAgentConfigStore.ChangeListener {
     private final AgentService agentService;
 
     public AgentChangeListener(AgentService agentService) {
@@ -36,4 +38,9 @@ public class AgentChangeListener extends EntityConfigChangedListener<Agents> {
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         onEntityConfigChange(newCruiseConfig.agents());
     }
+
+    @Override
+    public void onStoredAgentChange(String uuid, AgentConfig agentConfig) {
+        agentService.syncStoredAgent(uuid, agentConfig);
+    }
 }
@@ -18,10 +18,8 @@ package com.thoughtworks.go.server.cache;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 
@@ -33,9 +31,17 @@ public abstract class ArtifactCache<T> {
     protected ConcurrentSkipListSet<T> pendingCacheFiles = new ConcurrentSkipListSet<>();
     protected ConcurrentMap<T, Exception> pendingExceptions = new ConcurrentHashMap<>();
     public static final String CACHE_ARTIFACTS_FOLDER = "cache/artifacts/";
+    private final ThreadPoolExecutor cacheCreators;
 
-    public ArtifactCache(ArtifactsDirHolder artifactsDirHolder) {
+    public ArtifactCache(ArtifactsDirHolder artifactsDirHolder, int numberOfCacheCreators) {
         this.artifactsDirHolder = artifactsDirHolder;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.cacheCreators = new ThreadPoolExecutor(numberOfCacheCreators, numberOfCacheCreators, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "cache-creator-thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cacheCreators.allowCoreThreadTimeOut(true);
     }
 
     public boolean cacheCreated(T artifactLocation) throws Exception {
@@ -50,7 +56,7 @@ public abstract class ArtifactCache<T> {
         }
         if (cacheAlreadyCreated(artifactLocation)) { return true; }
 
-        startCacheCreationThread(artifactLocation);
+        scheduleCacheCreation(artifactLocation);
         return false;
     }
 
@@ -58,29 +64,26 @@ public abstract class ArtifactCache<T> {
         return pendingExceptions.containsKey(artifactLocation);
     }
 
-    private boolean cacheAlreadyCreated(T artifactLocation) {
+    protected boolean cacheAlreadyCreated(T artifactLocation) {
         return cachedFile(artifactLocation).exists();
     }
 
-    private boolean currentlyCreatingCache(T artifactLocation) {
+    protected boolean currentlyCreatingCache(T artifactLocation) {
         return pendingCacheFiles.contains(artifactLocation);
     }
 
-    protected void startCacheCreationThread(final T artifactLocation) {
+    protected void scheduleCacheCreation(final T artifactLocation) {
         boolean inserted = pendingCacheFiles.add(artifactLocation);
         if (inserted) {
-            Thread cacheCreatorThread = new Thread("cache-creator-thread-" + UUID.randomUUID().toString()) {
-                public void run() {
-                    try {
-                        createCachedFile(artifactLocation);
-                    } catch (Exception e) {
-                        pendingExceptions.putIfAbsent(artifactLocation, e);
-                    } finally {
-                        pendingCacheFiles.remove(artifactLocation);
-                    }
+            cacheCreators.execute(() -> {
+                try {
+                    createCachedFile(artifactLocation);
+                } catch (Exception e) {
+                    pendingExceptions.putIfAbsent(artifactLocation, e);
+                } finally {
+                    pendingCacheFiles.remove(artifactLocation);
                 }
-            };
-            cacheCreatorThread.start();
+            });
         }
     }
 
@@ -29,55 +29,105 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 /**
- * @understands storing and retrieving objects from an underlying LRU cache
+ * @understands storing and retrieving objects from underlying LRU caches, one region per owner of the keys
  */
 public class GoCache {
     private final ThreadLocal<Boolean> doNotServeForTransaction = new ThreadLocal<>();
 
     public static final String SUB_KEY_DELIMITER = "!_#$#_!";
+    private static final String KEY_GENERATOR_DELIMITER = ".$";
+    private static final int LOCK_STRIPES = 1024;
 
     private Ehcache ehCache;
+    private final Map<String, Ehcache> regions;
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCache.class);
     private TransactionSynchronizationManager transactionSynchronizationManager;
 
     private final Set<Class<? extends PersistentObject>> nullObjectClasses;
 
-    static class KeyList extends HashSet<String> {
+    // sub keys of a parent key, which can be added to and removed from while being iterated over
+    static class KeyList extends AbstractSet<String> implements Serializable {
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean add(String key) {
+            return keys.add(key);
+        }
+
+        @Override
+        public boolean remove(Object key) {
+            return keys.remove(key);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return keys.contains(key);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return keys.iterator();
+        }
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
     }
 
     /**
      * @deprecated only for tests
      */
     public GoCache(GoCache goCache) {
-        this(goCache.ehCache, goCache.transactionSynchronizationManager);
+        this(goCache.ehCache, goCache.regions, goCache.transactionSynchronizationManager);
     }
 
     public GoCache(Ehcache cache, TransactionSynchronizationManager transactionSynchronizationManager) {
+        this(cache, Collections.emptyMap(), transactionSynchronizationManager);
+    }
+
+    /**
+     * @param regions caches for the keys of a given owner, by the simple name of the class whose name the keys start
+     *                with - e.g. "JobInstanceSqlMapDao". Keys of any other owner go into the default cache.
+     */
+    public GoCache(Ehcache cache, Map<String, Ehcache> regions, TransactionSynchronizationManager transactionSynchronizationManager) {
         this.ehCache = cache;
+        this.regions = regions;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.nullObjectClasses = new HashSet<>();
         nullObjectClasses.add(NullUser.class);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
         registerAsCacheEvictionListener();
     }
 
     public void removeListener(CacheEventListener cacheEventListener) {
-        ehCache.getCacheEventNotificationService().unregisterListener(cacheEventListener);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().unregisterListener(cacheEventListener);
+        }
     }
 
     public void addListener(CacheEventListener listener) {
-        ehCache.getCacheEventNotificationService().registerListener(listener);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().registerListener(listener);
+        }
     }
 
     protected void registerAsCacheEvictionListener() {
-        ehCache.getCacheEventNotificationService().registerListener(new CacheEvictionListener(this));
+        CacheEvictionListener listener = new CacheEvictionListener(this);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().registerListener(listener);
+        }
     }
 
     public void stopServingForTransaction() {
@@ -102,11 +152,18 @@ public class GoCache {
             LOGGER.debug("transaction active during cache put for {} = {}", key, value, new IllegalStateException());
             return;
         }
-        ehCache.put(new Element(key, value));
+        regionFor(key).put(new Element(key, value));
     }
 
     public List<String> getKeys() {
-        return ehCache.getKeys();
+        if (regions.isEmpty()) {
+            return ehCache.getKeys();
+        }
+        List<String> keys = new ArrayList<>();
+        for (Ehcache cache : allCaches()) {
+            keys.addAll(cache.getKeys());
+        }
+        return keys;
     }
 
     /**
@@ -139,7 +196,9 @@ public class GoCache {
     }
 
     public void flush() {
-        ehCache.flush();
+        for (Ehcache cache : allCaches()) {
+            cache.flush();
+        }
     }
 
     public Object get(String key) {
@@ -150,7 +209,7 @@ public class GoCache {
     }
 
     private Object getWithoutTransactionCheck(String key) {
-        Element element = ehCache.get(key);
+        Element element = regionFor(key).get(key);
         if (element == null) {
             return null;
         }
@@ -164,18 +223,21 @@ public class GoCache {
     }
 
     public void clear() {
-        ehCache.removeAll();
+        for (Ehcache cache : allCaches()) {
+            cache.removeAll();
+        }
     }
 
     public boolean remove(String key) {
-        synchronized (key.intern()) {
+        synchronized (lockFor(key)) {
+            Ehcache region = regionFor(key);
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList) {
                 for (String subKey : (KeyList) value) {
-                    ehCache.remove(compositeKey(key, subKey));
+                    region.remove(compositeKey(key, subKey));
                 }
             }
-            return ehCache.remove(key);
+            return region.remove(key);
         }
     }
 
@@ -185,7 +247,7 @@ public class GoCache {
 
     public void put(String key, String subKey, Object value) {
         KeyList subKeys;
-        synchronized (key.intern()) {
+        synchronized (lockFor(key)) {
             subKeys = subKeyFamily(key);
             if (subKeys == null) {
                 subKeys = new KeyList();
@@ -202,30 +264,28 @@ public class GoCache {
         }
     }
 
+    // called back while evicting from within put, so takes no locks - the sub key lists are safe to change concurrently
     public void removeAssociations(String key, Element element) {
         if (element.getObjectValue() instanceof KeyList) {
-            synchronized (key.intern()) {
-                for (String subkey : (KeyList) element.getObjectValue()) {
-                    remove(compositeKey(key, subkey));
-                }
+            Ehcache region = regionFor(key);
+            for (String subkey : (KeyList) element.getObjectValue()) {
+                region.remove(compositeKey(key, subkey));
             }
         } else if (key.contains(SUB_KEY_DELIMITER)) {
             String[] parts = StringUtils.splitByWholeSeparator(key, SUB_KEY_DELIMITER);
             String parentKey = parts[0];
             String childKey = parts[1];
-            synchronized (parentKey.intern()) {
-                Element parent = ehCache.get(parentKey);
-                if (parent == null) {
-                    return;
-                }
-                KeyList subKeys = (KeyList) parent.getObjectValue();
-                subKeys.remove(childKey);
+            Element parent = regionFor(parentKey).get(parentKey);
+            if (parent == null) {
+                return;
             }
+            KeyList subKeys = (KeyList) parent.getObjectValue();
+            subKeys.remove(childKey);
         }
     }
 
     public boolean isKeyInCache(Object key) {
-        return ehCache.isKeyInCache(key);
+        return key instanceof String ? regionFor((String) key).isKeyInCache(key) : ehCache.isKeyInCache(key);
     }
 
     private KeyList subKeyFamily(String parentKey) {
@@ -241,13 +301,13 @@ public class GoCache {
     }
 
     public void remove(String key, String subKey) {
-        synchronized (key.intern()) {
+        synchronized (lockFor(key)) {
             KeyList subKeys = subKeyFamily(key);
             if(subKeys == null) {
                 return;
             }
             subKeys.remove(subKey);
-            remove(compositeKey(key, subKey));
+            regionFor(key).remove(compositeKey(key, subKey));
         }
     }
 
@@ -259,6 +319,45 @@ public class GoCache {
         return ehCache.getCacheConfiguration();
     }
 
+    public Map<String, Ehcache> regions() {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    Ehcache regionFor(String key) {
+        if (regions.isEmpty()) {
+            return ehCache;
+        }
+        Ehcache region = regions.get(ownerOf(key));
+        return region == null ? ehCache : region;
+    }
+
+    // the simple name of the class whose fully qualified name a key starts with, as in "com.thoughtworks.go.server.dao.StageSqlMapDao.$..."
+    // or "com.thoughtworks.go.server.persistence.MaterialRepository_pipelinePMRs_42", so that sub keys go with their parent key
+    static String ownerOf(String key) {
+        int end = key.length();
+        for (String delimiter : new String[]{KEY_GENERATOR_DELIMITER, "_", SUB_KEY_DELIMITER}) {
+            int index = key.indexOf(delimiter);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+        return key.substring(key.lastIndexOf('.', end - 1) + 1, end);
+    }
+
+    // striped, rather than on the interned key, so that dynamic keys do not pile up in the string pool
+    private Object lockFor(String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private List<Ehcache> allCaches() {
+        List<Ehcache> caches = new ArrayList<>();
+        if (ehCache != null) {
+            caches.add(ehCache);
+        }
+        caches.addAll(regions.values());
+        return caches;
+    }
+
     private interface Predicate {
         boolean isTrue();
     }
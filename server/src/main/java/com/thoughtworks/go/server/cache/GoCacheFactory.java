@@ -17,20 +17,31 @@
 package com.thoughtworks.go.server.cache;
 
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import com.thoughtworks.go.util.SystemEnvironment;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.MemoryUnit;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 @Component
 public class GoCacheFactory {
 
+    private static final String CACHE_NAME = "goCache";
+
     private final CacheConfiguration cacheConfiguration;
+    private final Map<String, CacheConfiguration> regionConfigurations = new LinkedHashMap<>();
     private TransactionSynchronizationManager transactionSynchronizationManager;
 
     static {
@@ -39,12 +50,23 @@ public class GoCacheFactory {
 
     public GoCacheFactory(TransactionSynchronizationManager transactionSynchronizationManager,
                           @Value("${cruise.cache.elements.limit}") int maxElementsInMemory,
-                          @Value("${cruise.cache.is.eternal}") boolean eternal) {
+                          @Value("${cruise.cache.is.eternal}") boolean eternal,
+                          SystemEnvironment systemEnvironment) {
         this.transactionSynchronizationManager = transactionSynchronizationManager;
-        cacheConfiguration = new CacheConfiguration("goCache", maxElementsInMemory)
-                .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
-                .eternal(eternal)
-                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU);
+        cacheConfiguration = cacheConfiguration(CACHE_NAME, eternal).maxEntriesLocalHeap(maxElementsInMemory);
+
+        // e.g. "JobInstanceSqlMapDao:20000,MaterialRepository:64m" - a budget of entries, or of bytes when it has a unit
+        for (String region : systemEnvironment.getCacheRegions().split(",")) {
+            if (isBlank(region)) {
+                continue;
+            }
+            String[] ownerAndBudget = region.trim().split(":");
+            if (ownerAndBudget.length != 2) {
+                throw new IllegalArgumentException(String.format("Invalid cache region '%s', expected <owner>:<number of entries or size in bytes>", region));
+            }
+            String owner = ownerAndBudget[0].trim();
+            regionConfigurations.put(owner, withBudget(cacheConfiguration(CACHE_NAME + "." + owner, eternal), region, ownerAndBudget[1].trim()));
+        }
     }
 
     @Bean(name = "goCache")
@@ -52,7 +74,33 @@ public class GoCacheFactory {
         CacheManager cacheManager = CacheManager.newInstance(new Configuration().name(getClass().getName()));
         Cache cache = new Cache(cacheConfiguration);
         cacheManager.addCache(cache);
-        return new GoCache(cache, transactionSynchronizationManager);
+
+        Map<String, Ehcache> regions = new LinkedHashMap<>();
+        for (Map.Entry<String, CacheConfiguration> region : regionConfigurations.entrySet()) {
+            Cache regionCache = new Cache(region.getValue());
+            cacheManager.addCache(regionCache);
+            regions.put(region.getKey(), regionCache);
+        }
+        return new GoCache(cache, regions, transactionSynchronizationManager);
+    }
+
+    private CacheConfiguration cacheConfiguration(String name, boolean eternal) {
+        return new CacheConfiguration()
+                .name(name)
+                .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
+                .eternal(eternal)
+                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU);
+    }
+
+    private CacheConfiguration withBudget(CacheConfiguration configuration, String region, String budget) {
+        try {
+            if (Character.isDigit(budget.charAt(budget.length() - 1))) {
+                return configuration.maxEntriesLocalHeap(Long.parseLong(budget));
+            }
+            return configuration.maxBytesLocalHeap(MemoryUnit.parseSizeInBytes(budget), MemoryUnit.BYTES);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Invalid cache region '%s', expected <owner>:<number of entries or size in bytes>", region), e);
+        }
     }
 
 }
@@ -17,11 +17,20 @@
 package com.thoughtworks.go.server.cache;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Deflater;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -32,12 +41,69 @@ import static com.thoughtworks.go.util.StringUtil.removeTrailingSlash;
 
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
+    private static final int MAX_TRACKED_FOLDERS = 10000;
+
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
+    // access ordered, so that the least recently served zips are evicted first once the cache outgrows its size
+    private final LinkedHashMap<File, Long> cachedZipSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<File, Integer> requestCounts = new LinkedHashMap<File, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Integer> eldest) {
+            return size() > MAX_TRACKED_FOLDERS;
+        }
+    };
+    private long cachedZipsSize;
+    private boolean seeded;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
     @Autowired
-    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
-        super(artifactsDirHolder);
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
+        super(artifactsDirHolder, systemEnvironment.getArtifactFolderZipCacheThreads());
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean isStreamingEnabled() {
+        return systemEnvironment.isArtifactFolderZipStreamingEnabled();
+    }
+
+    /**
+     * Returns the cached zip of a folder if there is one. Otherwise the caller streams the folder as a zip, and the
+     * folder is zipped into the cache in the background once it has been asked for often enough to be worth keeping.
+     */
+    public File cachedFileIfHot(ArtifactFolder artifactFolder) {
+        File cachedZip = cachedFile(artifactFolder);
+        if (!currentlyCreatingCache(artifactFolder) && cacheAlreadyCreated(artifactFolder)) {
+            hits.incrementAndGet();
+            track(cachedZip);
+            return cachedZip;
+        }
+        misses.incrementAndGet();
+        if (isHot(cachedZip)) {
+            scheduleCacheCreation(artifactFolder);
+        }
+        return null;
+    }
+
+    public Map<String, Object> asJson() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Streaming enabled", isStreamingEnabled());
+        json.put("Hits", hitCount);
+        json.put("Misses", missCount);
+        json.put("Hit ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        synchronized (cachedZipSizes) {
+            if (isStreamingEnabled()) {
+                seedFromCacheFolder();
+            }
+            json.put("Cached zips", cachedZipSizes.size());
+            json.put("Cached zips size (bytes)", cachedZipsSize);
+        }
+        json.put("Max size (bytes)", systemEnvironment.getArtifactFolderZipCacheMaxSize());
+        return json;
     }
 
     @Override void createCachedFile(ArtifactFolder artifactFolder) throws IOException {
@@ -46,12 +112,70 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         File cachedTempZip = zipToTempFile(cachedZip);
         cachedTempZip.getParentFile().mkdirs();
         try {
-            zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
+            if (isStreamingEnabled()) {
+                zipUtil.zipWithoutRecompressing(originalFolder, new FileOutputStream(cachedTempZip), Deflater.DEFAULT_COMPRESSION);
+            } else {
+                zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
+            }
         } catch (IOException e) {
             cachedTempZip.delete();
             throw e;
         }
         FileUtils.moveFile(cachedTempZip, cachedZip);
+        if (isStreamingEnabled()) {
+            track(cachedZip);
+        }
+    }
+
+    private boolean isHot(File cachedZip) {
+        synchronized (requestCounts) {
+            int count = requestCounts.merge(cachedZip, 1, Integer::sum);
+            return count >= systemEnvironment.getArtifactFolderZipCacheHotThreshold();
+        }
+    }
+
+    private void track(File cachedZip) {
+        synchronized (cachedZipSizes) {
+            seedFromCacheFolder();
+            if (cachedZipSizes.get(cachedZip) == null) {
+                long size = cachedZip.length();
+                cachedZipSizes.put(cachedZip, size);
+                cachedZipsSize += size;
+            }
+            evictLeastRecentlyUsed(cachedZip);
+        }
+    }
+
+    // zips cached before the server was restarted count towards the max size too, the least recently written first in line
+    private void seedFromCacheFolder() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        File cacheFolder = new File(artifactsDirHolder.getArtifactsDir(), CACHE_ARTIFACTS_FOLDER);
+        if (!cacheFolder.isDirectory()) {
+            return;
+        }
+        List<File> cachedZips = new ArrayList<>(FileUtils.listFiles(cacheFolder, new String[]{"zip"}, true));
+        cachedZips.sort(Comparator.comparingLong(File::lastModified));
+        for (File cachedZip : cachedZips) {
+            long size = cachedZip.length();
+            cachedZipSizes.put(cachedZip, size);
+            cachedZipsSize += size;
+        }
+    }
+
+    private void evictLeastRecentlyUsed(File justUsed) {
+        Iterator<Map.Entry<File, Long>> eldestFirst = cachedZipSizes.entrySet().iterator();
+        while (cachedZipsSize > systemEnvironment.getArtifactFolderZipCacheMaxSize() && eldestFirst.hasNext()) {
+            Map.Entry<File, Long> eldest = eldestFirst.next();
+            if (eldest.getKey().equals(justUsed)) {
+                continue;
+            }
+            FileUtils.deleteQuietly(eldest.getKey());
+            cachedZipsSize -= eldest.getValue();
+            eldestFirst.remove();
+        }
     }
 
     private File zipToTempFile(File cachedZip) {
@@ -271,15 +271,19 @@ public class AgentRegistrationController {
                 agentConfig.setElasticPluginId(elasticPluginId);
             }
 
-            if (goConfigService.serverConfig().shouldAutoRegisterAgentWith(agentAutoRegisterKey) && !goConfigService.hasAgent(uuid)) {
+            if (goConfigService.serverConfig().shouldAutoRegisterAgentWith(agentAutoRegisterKey) && !goConfigService.hasAgent(uuid) && !agentConfigService.hasAgent(uuid)) {
                 LOG.info("[Agent Auto Registration] Auto registering agent with uuid {} ", uuid);
-                GoConfigDao.CompositeConfigCommand compositeConfigCommand = new GoConfigDao.CompositeConfigCommand(
-                        new AgentConfigService.AddAgentCommand(agentConfig),
-                        new UpdateResourceCommand(uuid, agentAutoRegisterResources),
-                        new UpdateEnvironmentsCommand(uuid, agentAutoRegisterEnvironments)
-                );
                 HttpOperationResult result = new HttpOperationResult();
-                agentConfig = agentConfigService.updateAgent(compositeConfigCommand, uuid, result, agentService.agentUsername(uuid, ipAddress, preferredHostname));
+                if (agentConfigService.isStoredOutsideConfig(agentConfig)) {
+                    agentConfig = agentConfigService.registerElasticAgent(agentConfig, agentAutoRegisterResources, agentAutoRegisterEnvironments, result);
+                } else {
+                    GoConfigDao.CompositeConfigCommand compositeConfigCommand = new GoConfigDao.CompositeConfigCommand(
+                            new AgentConfigService.AddAgentCommand(agentConfig),
+                            new UpdateResourceCommand(uuid, agentAutoRegisterResources),
+                            new UpdateEnvironmentsCommand(uuid, agentAutoRegisterEnvironments)
+                    );
+                    agentConfig = agentConfigService.updateAgent(compositeConfigCommand, uuid, result, agentService.agentUsername(uuid, ipAddress, preferredHostname));
+                }
                 if (!result.isSuccess()) {
                     List<ConfigErrors> errors = ErrorCollector.getAllErrors(agentConfig);
 
@@ -291,7 +295,7 @@ public class AgentRegistrationController {
                 }
             }
 
-            boolean registeredAlready = goConfigService.hasAgent(uuid);
+            boolean registeredAlready = goConfigService.hasAgent(uuid) || agentConfigService.hasAgent(uuid);
             long usableSpace = Long.parseLong(usablespaceAsString);
 
             AgentRuntimeInfo agentRuntimeInfo = AgentRuntimeInfo.fromServer(agentConfig, registeredAlready, location, usableSpace, operatingSystem, supportsBuildCommandProtocol);
@@ -332,7 +336,7 @@ public class AgentRegistrationController {
             return new ResponseEntity<>(message, CONFLICT);
         }
         final AgentInstance agentInstance = agentService.findAgent(uuid);
-        if ((!agentInstance.isNullAgent() && agentInstance.isPending()) || goConfigService.hasAgent(uuid)) {
+        if ((!agentInstance.isNullAgent() && agentInstance.isPending()) || goConfigService.hasAgent(uuid) || agentConfigService.hasAgent(uuid)) {
             String message = "A token has already been issued for this agent.";
             LOG.error("Rejecting request for token. Error: HttpCode=[{}] Message=[{}] Pending=[{}] UUID=[{}]",
                     CONFLICT, message, agentInstance.isPending(), uuid);
@@ -37,6 +37,7 @@ public class GoDiskSpaceMonitor {
     private ArtifactsService artifactsService;
     private StageService stageService;
     private ConfigDbStateRepository configDbStateRepository;
+    private ArtifactsPurgeProgress artifactsPurgeProgress;
     private DiskSpaceChecker[] checkers;
     private volatile boolean lowOnDisk;
     private DatabaseDiskSpaceFullChecker databaseDiskSpaceFullChecker;
@@ -49,12 +50,19 @@ public class GoDiskSpaceMonitor {
                               EmailSender emailSender,
                               ArtifactsService artifactsService,
                               StageService stageService,
-                              ConfigDbStateRepository configDbStateRepository) {
-        this(goConfigService, systemEnvironment, serverHealthService, emailSender, new SystemDiskSpaceChecker(), artifactsService, stageService, configDbStateRepository);
+                              ConfigDbStateRepository configDbStateRepository,
+                              ArtifactsPurgeProgress artifactsPurgeProgress) {
+        this(goConfigService, systemEnvironment, serverHealthService, emailSender, new SystemDiskSpaceChecker(), artifactsService, stageService, configDbStateRepository, artifactsPurgeProgress);
     }
 
     public GoDiskSpaceMonitor(GoConfigService goConfigService, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, EmailSender emailSender,
                               SystemDiskSpaceChecker systemDiskSpaceChecker, ArtifactsService artifactsService, StageService stageService, ConfigDbStateRepository configDbStateRepository) {
+        this(goConfigService, systemEnvironment, serverHealthService, emailSender, systemDiskSpaceChecker, artifactsService, stageService, configDbStateRepository, new ArtifactsPurgeProgress());
+    }
+
+    public GoDiskSpaceMonitor(GoConfigService goConfigService, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, EmailSender emailSender,
+                              SystemDiskSpaceChecker systemDiskSpaceChecker, ArtifactsService artifactsService, StageService stageService, ConfigDbStateRepository configDbStateRepository,
+                              ArtifactsPurgeProgress artifactsPurgeProgress) {
         this.goConfigService = goConfigService;
         this.systemEnvironment = systemEnvironment;
         this.serverHealthService = serverHealthService;
@@ -63,6 +71,7 @@ public class GoDiskSpaceMonitor {
         this.artifactsService = artifactsService;
         this.stageService = stageService;
         this.configDbStateRepository = configDbStateRepository;
+        this.artifactsPurgeProgress = artifactsPurgeProgress;
     }
 
     public void initialize() {
@@ -74,7 +83,7 @@ public class GoDiskSpaceMonitor {
                 new ArtifactsDiskSpaceWarningChecker(systemEnvironment, emailSender, goConfigService, systemDiskSpaceChecker, serverHealthService),
                 databaseDiskSpaceFullChecker,
                 new DatabaseDiskSpaceWarningChecker(emailSender, systemEnvironment, goConfigService, systemDiskSpaceChecker, serverHealthService),
-                new ArtifactsDiskCleaner(systemEnvironment, goConfigService, systemDiskSpaceChecker, artifactsService, stageService, configDbStateRepository)};
+                new ArtifactsDiskCleaner(systemEnvironment, goConfigService, systemDiskSpaceChecker, artifactsService, stageService, configDbStateRepository, artifactsPurgeProgress)};
     }
 
     //Note: This method is called from a Spring timer task
@@ -53,6 +53,8 @@ public abstract class AbstractDashboardGroup implements DashboardGroup {
 
     public abstract String etag();
 
+    abstract int permissionsHash();
+
     @Override
     public Collection<GoDashboardPipeline> allPipelines() {
         return pipelines.values();
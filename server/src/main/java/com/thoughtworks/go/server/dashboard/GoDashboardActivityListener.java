@@ -65,7 +65,8 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                                        GoDashboardConfigChangeHandler configChangeHandler,
                                        GoDashboardPipelinePauseStatusChangeHandler pauseStatusChangeHandler,
                                        GoDashboardPipelineLockStatusChangeHandler lockStatusChangeHandler,
-                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler) {
+                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler,
+                                       GoDashboardCache dashboardCache) {
         this.goConfigService = goConfigService;
         this.stageService = stageService;
         this.pipelinePauseService = pipelinePauseService;
@@ -77,7 +78,7 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
         this.lockStatusChangeHandler = lockStatusChangeHandler;
         this.templateConfigChangeHandler = templateConfigChangeHandler;
 
-        this.processor = new MultiplexingQueueProcessor("Dashboard");
+        this.processor = new MultiplexingQueueProcessor("Dashboard", dashboardCache::publishPendingChanges);
     }
 
     @Override
@@ -96,6 +97,18 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
         processor.start();
     }
 
+    public int pendingChanges() {
+        return processor.pendingCount();
+    }
+
+    public long lagInMillis() {
+        return processor.lagInMillis();
+    }
+
+    public long processedChanges() {
+        return processor.processedCount();
+    }
+
     @Override
     public void onConfigChange(final CruiseConfig newConfig) {
         processor.add(new Action() {
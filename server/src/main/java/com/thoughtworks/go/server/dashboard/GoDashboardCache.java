@@ -17,13 +17,18 @@
 package com.thoughtworks.go.server.dashboard;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /* Understands how to cache dashboard statuses, for every pipeline. */
 @Component
@@ -38,9 +43,33 @@ public class GoDashboardCache {
     private LinkedHashMap<CaseInsensitiveString, GoDashboardPipeline> cache;
     private volatile GoDashboardPipelines dashboardPipelines;
 
-    @Autowired
+    /**
+     * When non-zero, changes are not copied into a new snapshot one at a time. They are published together once the
+     * dashboard queue has been drained ({@link #publishPendingChanges()}), or once the oldest unpublished change is this
+     * old, whichever comes first.
+     */
+    private final long maxStalenessMillis;
+    private final Clock clock;
+    private long pendingSince = -1;
+    // changed on the dashboard queue thread, read by statistics() from any other
+    private final AtomicLong pendingChanges = new AtomicLong();
+    private final AtomicLong publishedSnapshots = new AtomicLong();
+    private final AtomicLong coalescedChanges = new AtomicLong();
+    private volatile long lastPublishedAt;
+
     public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter) {
+        this(timeStampBasedCounter, new SystemEnvironment());
+    }
+
+    @Autowired
+    public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter, SystemEnvironment systemEnvironment) {
+        this(timeStampBasedCounter, systemEnvironment.getDashboardCacheMaxStalenessMillis(), new SystemTimeClock());
+    }
+
+    GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter, long maxStalenessMillis, Clock clock) {
         this.timeStampBasedCounter = timeStampBasedCounter;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.clock = clock;
         cache = new LinkedHashMap<>();
         dashboardPipelines = new GoDashboardPipelines(new HashMap<>(), timeStampBasedCounter);
     }
@@ -64,8 +93,45 @@ public class GoDashboardCache {
         return dashboardPipelines;
     }
 
+    public void publishPendingChanges() {
+        if (pendingChanges.get() > 0) {
+            publish();
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Pipelines", dashboardPipelines.getPipelines().size());
+        json.put("Maximum staleness (ms)", maxStalenessMillis);
+        json.put("Published snapshots", publishedSnapshots.get());
+        json.put("Coalesced changes", coalescedChanges.get());
+        json.put("Unpublished changes", pendingChanges.get());
+        json.put("Last published at", lastPublishedAt == 0 ? null : new Date(lastPublishedAt));
+        return json;
+    }
+
     private void cacheHasChanged() {
+        if (maxStalenessMillis <= 0) {
+            publish();
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        if (pendingChanges.getAndIncrement() == 0) {
+            pendingSince = now;
+        }
+        if (now - pendingSince >= maxStalenessMillis) {
+            publish();
+        }
+    }
+
+    private void publish() {
         dashboardPipelines = new GoDashboardPipelines(new HashMap<>(cache), timeStampBasedCounter);
+        long published = pendingChanges.getAndSet(0);
+        if (published > 1) {
+            coalescedChanges.addAndGet(published - 1);
+        }
+        publishedSnapshots.incrementAndGet();
+        lastPublishedAt = clock.currentTimeMillis();
     }
 
     private Map<CaseInsensitiveString, GoDashboardPipeline> createMapFor(List<GoDashboardPipeline> pipelines) {
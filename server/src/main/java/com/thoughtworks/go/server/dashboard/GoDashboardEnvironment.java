@@ -34,6 +34,11 @@ public class GoDashboardEnvironment extends AbstractDashboardGroup {
 
     @Override
     public String etag() {
-        return digest(Integer.toString(allowedUsers.hashCode()));
+        return digest(Integer.toString(permissionsHash()));
+    }
+
+    @Override
+    int permissionsHash() {
+        return allowedUsers.hashCode();
     }
 }
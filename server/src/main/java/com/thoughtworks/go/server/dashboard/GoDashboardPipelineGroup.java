@@ -34,7 +34,12 @@ public class GoDashboardPipelineGroup extends AbstractDashboardGroup {
 
     @Override
     public String etag() {
-        return digest(Integer.toString(permissions.hashCode()));
+        return digest(Integer.toString(permissionsHash()));
+    }
+
+    @Override
+    int permissionsHash() {
+        return permissions.hashCode();
     }
 
     public boolean canBeViewedBy(Username userName) {
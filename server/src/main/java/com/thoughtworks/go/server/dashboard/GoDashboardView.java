@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.server.domain.Username;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Understands the dashboard as a user sees it through one of their filters, along with its etag, for as long as
+ * neither the dashboard cache nor the config it was built from change. */
+public class GoDashboardView {
+    private static final String SEP_CHAR = "/";
+
+    private final List<GoDashboardPipelineGroup> pipelineGroups;
+    private final List<GoDashboardEnvironment> environments;
+    private final GoDashboardPipelines builtFrom;
+    private final String configMd5;
+    private final Map<String, GroupEtag> groupEtags = new HashMap<>();
+    private int reusedGroupEtags;
+    private final String etag;
+
+    /**
+     * @param previous the view this one replaces, if any, whose group etags are reused for groups holding the very
+     *                 same pipeline entries - so only groups with a changed pipeline are digested again
+     */
+    public GoDashboardView(Username username, List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments,
+                           GoDashboardPipelines builtFrom, String configMd5, GoDashboardView previous) {
+        this.pipelineGroups = pipelineGroups;
+        this.environments = environments;
+        this.builtFrom = builtFrom;
+        this.configMd5 = configMd5;
+        this.etag = etagFor(username, etagsOf("group", pipelineGroups, previous), etagsOf("environment", environments, previous));
+    }
+
+    public static String etagFor(Username username, List<String> pipelineGroupEtags, List<String> environmentEtags) {
+        return DigestUtils.md5Hex(StringUtils.joinWith(SEP_CHAR, username.getUsername(),
+                String.join(SEP_CHAR, pipelineGroupEtags), String.join(SEP_CHAR, environmentEtags)));
+    }
+
+    public List<GoDashboardPipelineGroup> pipelineGroups() {
+        return pipelineGroups;
+    }
+
+    public List<GoDashboardEnvironment> environments() {
+        return environments;
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    /**
+     * @return how many of the group and environment etags were taken over from the view this one replaced
+     */
+    public int reusedGroupEtags() {
+        return reusedGroupEtags;
+    }
+
+    public int groupEtags() {
+        return groupEtags.size();
+    }
+
+    public boolean isUpToDateWith(GoDashboardPipelines pipelines, String configMd5) {
+        return builtFrom == pipelines && StringUtils.equals(this.configMd5, configMd5);
+    }
+
+    private List<String> etagsOf(String kind, List<? extends AbstractDashboardGroup> groups, GoDashboardView previous) {
+        List<String> etags = new ArrayList<>();
+        for (AbstractDashboardGroup group : groups) {
+            String key = kind + SEP_CHAR + group.name();
+            GroupEtag groupEtag = previous == null ? null : previous.groupEtags.get(key);
+            if (groupEtag == null || !groupEtag.isFor(group)) {
+                groupEtag = new GroupEtag(group);
+            } else {
+                reusedGroupEtags++;
+            }
+            groupEtags.put(key, groupEtag);
+            etags.add(groupEtag.etag);
+        }
+        return etags;
+    }
+
+    private static class GroupEtag {
+        private final int permissionsHash;
+        private final List<GoDashboardPipeline> pipelines;
+        private final String etag;
+
+        GroupEtag(AbstractDashboardGroup group) {
+            this.permissionsHash = group.permissionsHash();
+            this.pipelines = new ArrayList<>(group.allPipelines());
+            this.etag = group.etag();
+        }
+
+        boolean isFor(AbstractDashboardGroup group) {
+            if (permissionsHash != group.permissionsHash() || pipelines.size() != group.allPipelines().size()) {
+                return false;
+            }
+            int i = 0;
+            for (GoDashboardPipeline pipeline : group.allPipelines()) {
+                if (pipeline != pipelines.get(i++)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
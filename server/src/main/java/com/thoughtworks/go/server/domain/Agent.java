@@ -17,13 +17,26 @@
 package com.thoughtworks.go.server.domain;
 
 import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.ResourceConfigs;
 import com.thoughtworks.go.domain.PersistentObject;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 public class Agent extends PersistentObject {
     private String uuid;
     private String cookie;
     private String hostname;
     private String ipaddress;
+    private String elasticAgentId;
+    private String elasticPluginId;
+    private String resources;
+    private String environments;
+    private boolean disabled;
 
     public void setUuid(String uuid) {
         this.uuid = uuid;
@@ -82,4 +95,41 @@ public class Agent extends PersistentObject {
         this.ipaddress = ipaddress;
     }
 
+    public boolean hasConfig() {
+        return elasticAgentId != null;
+    }
+
+    public void storeConfig(AgentConfig config, Collection<String> environments) {
+        this.hostname = config.getHostname();
+        this.ipaddress = config.getIpAddress();
+        this.elasticAgentId = config.getElasticAgentId();
+        this.elasticPluginId = config.getElasticPluginId();
+        this.resources = String.join(",", config.getResourceConfigs().resourceNames());
+        this.environments = String.join(",", new TreeSet<>(environments));
+        this.disabled = config.isDisabled();
+    }
+
+    public void clearConfig() {
+        this.elasticAgentId = null;
+        this.elasticPluginId = null;
+        this.resources = null;
+        this.environments = null;
+        this.disabled = false;
+    }
+
+    public AgentConfig toAgentConfig() {
+        AgentConfig config = new AgentConfig(uuid, hostname, ipaddress, new ResourceConfigs(resources == null ? "" : resources));
+        config.setElasticAgentId(elasticAgentId);
+        config.setElasticPluginId(elasticPluginId);
+        config.setDisabled(disabled);
+        return config;
+    }
+
+    public Set<String> getEnvironments() {
+        Set<String> names = new TreeSet<>();
+        if (!isBlank(environments)) {
+            Arrays.stream(environments.split(",")).map(String::trim).filter(name -> !name.isEmpty()).forEach(names::add);
+        }
+        return names;
+    }
 }
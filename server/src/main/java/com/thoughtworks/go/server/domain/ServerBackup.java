@@ -19,6 +19,10 @@ package com.thoughtworks.go.server.domain;
 import com.thoughtworks.go.domain.PersistentObject;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
  * @understands A single backup of the server
@@ -29,6 +33,8 @@ public class ServerBackup extends PersistentObject{
     private String username;
     private BackupStatus status;
     private String message;
+    // "<step>=<millis>" separated by ';', in the order the steps finished
+    private String stepTimings;
 
     private ServerBackup() {
     }
@@ -138,4 +144,21 @@ public class ServerBackup extends PersistentObject{
     public Boolean hasFailed() {
         return BackupStatus.ERROR.equals(status);
     }
+
+    public synchronized void recordStepTiming(String step, long timeTakenInMillis) {
+        String timing = step + "=" + timeTakenInMillis;
+        stepTimings = isBlank(stepTimings) ? timing : stepTimings + ";" + timing;
+    }
+
+    public synchronized Map<String, Long> getStepTimings() {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        if (isBlank(stepTimings)) {
+            return timings;
+        }
+        for (String timing : stepTimings.split(";")) {
+            int separator = timing.lastIndexOf('=');
+            timings.put(timing.substring(0, separator), Long.parseLong(timing.substring(separator + 1)));
+        }
+        return timings;
+    }
 }
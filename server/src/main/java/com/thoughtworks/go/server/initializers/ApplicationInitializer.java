@@ -31,6 +31,7 @@ import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
+import com.thoughtworks.go.server.scheduling.EventDrivenScheduler;
 import com.thoughtworks.go.server.service.*;
 import com.thoughtworks.go.server.service.datasharing.DataSharingSettingsService;
 import com.thoughtworks.go.server.service.datasharing.DataSharingUsageStatisticsReportingService;
@@ -63,6 +64,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private ConsoleActivityMonitor consoleActivityMonitor;
     @Autowired private BuildAssignmentService buildAssignmentService;
     @Autowired private PipelineScheduler pipelineScheduler;
+    @Autowired private EventDrivenScheduler eventDrivenScheduler;
     @Autowired private TimerScheduler timerScheduler;
     @Autowired private BackupScheduler backupScheduler;
     @Autowired private ArtifactsDirHolder artifactsDirHolder;
@@ -127,6 +129,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             materialUpdateService.initialize();
             pipelineLabelCorrector.correctPipelineLabelCountEntries();
             pipelineScheduler.initialize();
+            eventDrivenScheduler.initialize();
             invalidateAuthenticationOnSecurityConfigChangeFilter.initialize();
 
             pipelineTimeline.updateTimelineOnInit();
@@ -39,6 +39,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionStatus;
 
 import java.io.File;
+import java.util.Objects;
 
 /**
  * @understands how to update materials on the database from the real SCMs
@@ -72,9 +73,13 @@ public class MaterialDatabaseUpdater {
         this.materialExpansionService = materialExpansionService;
     }
 
-    public void updateMaterial(final Material material) throws Exception {
+    /**
+     * @return true if the update saved modifications for the material that were not there before
+     */
+    public boolean updateMaterial(final Material material) throws Exception {
         String materialMutex = mutexForMaterial(material);
         HealthStateScope scope = HealthStateScope.forMaterial(material);
+        boolean newModificationsSaved = true;
         try {
             MaterialInstance materialInstance = materialRepository.findMaterialInstance(material);
             if (materialInstance == null) {
@@ -95,6 +100,7 @@ public class MaterialDatabaseUpdater {
                 LOGGER.debug("[Material Update] Existing material repository, fetching new revisions from {} in flyweight {}", material, materialInstance.getFlyweightName());
 
                 synchronized (materialMutex) {
+                    MaterialRevisions latestBeforeUpdate = materialRepository.findLatestModification(material);
                     transactionTemplate.executeWithExceptionHandling(new TransactionCallback() {
                         @Override
                         public Object doInTransaction(TransactionStatus status) {
@@ -102,9 +108,11 @@ public class MaterialDatabaseUpdater {
                             return null;
                         }
                     });
+                    newModificationsSaved = !Objects.equals(latestBeforeUpdate, materialRepository.findLatestModification(material));
                 }
             }
             healthService.removeByScope(scope);
+            return newModificationsSaved;
         } catch (Exception e) {
             String message = "Modification check failed for material: " + material.getLongDescription();
             String errorDescription = e.getMessage() == null ? "Unknown error" : e.getMessage();
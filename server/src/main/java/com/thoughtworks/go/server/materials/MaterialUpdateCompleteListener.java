@@ -21,4 +21,8 @@ import com.thoughtworks.go.domain.materials.Material;
 
 public interface MaterialUpdateCompleteListener {
     void onMaterialUpdate(Material material);
+
+    default void onMaterialUpdate(Material material, boolean newModificationsSaved) {
+        onMaterialUpdate(material);
+    }
 }
@@ -61,9 +61,9 @@ public class MaterialUpdateListener implements GoMessageListener<MaterialUpdateM
             maintenanceModeService.mduStartedForMaterial(material);
             mduPerformanceLogger.pickedUpMaterialForMDU(message.trackingId(), material);
             bombIf(diskSpaceMonitor.isLowOnDisk(), "GoCD server is too low on disk to continue with material update");
-            updater.updateMaterial(material);
+            boolean newModificationsSaved = updater.updateMaterial(material);
             mduPerformanceLogger.postingMessageAboutMDUCompletion(message.trackingId(), material);
-            channel.post(new MaterialUpdateSuccessfulMessage(material, message.trackingId())); //This should happen only if the transaction is committed.
+            channel.post(new MaterialUpdateSuccessfulMessage(material, message.trackingId(), newModificationsSaved)); //This should happen only if the transaction is committed.
         } catch (Exception e) {
             channel.post(new MaterialUpdateFailedMessage(material, message.trackingId(), e));
             mduPerformanceLogger.postingMessageAboutMDUFailure(message.trackingId(), material);
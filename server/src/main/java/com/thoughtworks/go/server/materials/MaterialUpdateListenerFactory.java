@@ -29,6 +29,8 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 @Component
 public class MaterialUpdateListenerFactory {
     private MaterialUpdateCompletedTopic topic;
@@ -48,6 +50,7 @@ public class MaterialUpdateListenerFactory {
     private final PluggableSCMMaterialUpdater pluggableSCMMaterialUpdater;
     private final MaterialExpansionService materialExpansionService;
     private final MDUPerformanceLogger mduPerformanceLogger;
+    private final MaterialUpdatePools materialUpdatePools;
 
     @Autowired
     public MaterialUpdateListenerFactory(MaterialUpdateCompletedTopic topic,
@@ -66,7 +69,8 @@ public class MaterialUpdateListenerFactory {
                                          MDUPerformanceLogger mduPerformanceLogger,
                                          DependencyMaterialUpdateQueue dependencyMaterialQueue,
                                          MaintenanceModeService maintenanceModeService,
-                                         ConfigMaterialPostUpdateQueue configMaterialPostUpdateQueue) {
+                                         ConfigMaterialPostUpdateQueue configMaterialPostUpdateQueue,
+                                         MaterialUpdatePools materialUpdatePools) {
         this.topic = topic;
         this.queue = queue;
         this.configQueue = configQueue;
@@ -84,6 +88,7 @@ public class MaterialUpdateListenerFactory {
         this.dependencyMaterialQueue = dependencyMaterialQueue;
         this.maintenanceModeService = maintenanceModeService;
         this.configMaterialPostUpdateQueue = configMaterialPostUpdateQueue;
+        this.materialUpdatePools = materialUpdatePools;
     }
 
     public void init() {
@@ -102,6 +107,12 @@ public class MaterialUpdateListenerFactory {
         for (int i = 0; i < numberOfDependencyMaterialCheckListeners; i++) {
             createWorker(this.dependencyMaterialQueue, this.topic);
         }
+
+        for (Map.Entry<String, GoMessageQueue<MaterialUpdateMessage>> pool : materialUpdatePools.queues().entrySet()) {
+            for (int i = 0; i < materialUpdatePools.numberOfWorkers(pool.getKey()); i++) {
+                createWorker(pool.getValue(), this.topic);
+            }
+        }
     }
 
     private void createWorker(GoMessageQueue<MaterialUpdateMessage> queue, GoMessageChannel<MaterialUpdateCompletedMessage> topic) {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * @understands which material types are updated by a dedicated pool of workers, listening on a queue of their own,
+ * and how many materials each pool may have in flight at once
+ */
+@Component
+public class MaterialUpdatePools {
+    public static final String DEFAULT_POOL = "default";
+    private static final String QUEUE_NAME_PREFIX = "material-update-required-";
+
+    private final Map<String, GoMessageQueue<MaterialUpdateMessage>> queues = new LinkedHashMap<>();
+    private final Map<String, Integer> numberOfWorkers = new LinkedHashMap<>();
+    private final int maxInFlightPerPool;
+
+    @Autowired
+    public MaterialUpdatePools(MessagingService messaging, SystemEnvironment systemEnvironment) {
+        // e.g. "SvnMaterial:2,P4Material:2" - types which are not listed share the default material update queue
+        for (String pool : systemEnvironment.getMaterialUpdatePools().split(",")) {
+            if (isBlank(pool)) {
+                continue;
+            }
+            String[] typeAndWorkers = pool.trim().split(":");
+            String type = typeAndWorkers[0].trim();
+            int workers = typeAndWorkers.length > 1 ? parseWorkers(pool, typeAndWorkers[1]) : 1;
+            queues.put(type, new GoMessageQueue<>(messaging, QUEUE_NAME_PREFIX + type.toLowerCase()));
+            numberOfWorkers.put(type, workers);
+        }
+        this.maxInFlightPerPool = systemEnvironment.getMaterialUpdateMaxInFlightPerPool();
+    }
+
+    public String poolFor(Material material) {
+        return queues.containsKey(material.getType()) ? material.getType() : DEFAULT_POOL;
+    }
+
+    public GoMessageQueue<MaterialUpdateMessage> queueFor(Material material) {
+        return queues.get(material.getType());
+    }
+
+    public Map<String, GoMessageQueue<MaterialUpdateMessage>> queues() {
+        return Collections.unmodifiableMap(queues);
+    }
+
+    public int numberOfWorkers(String pool) {
+        return numberOfWorkers.getOrDefault(pool, 0);
+    }
+
+    public boolean isFull(int inFlight) {
+        return maxInFlightPerPool > 0 && inFlight >= maxInFlightPerPool;
+    }
+
+    private int parseWorkers(String pool, String workers) {
+        try {
+            return Integer.parseInt(workers.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid material update pool '%s', expected <material type>:<number of workers>", pool), e);
+        }
+    }
+}
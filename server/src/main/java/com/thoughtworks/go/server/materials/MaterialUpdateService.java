@@ -61,6 +61,8 @@ import static com.thoughtworks.go.serverhealth.ServerHealthState.warning;
 @Service
 public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCompletedMessage>, ConfigChangedListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(MaterialUpdateService.class);
+    private static final String CONFIG_POOL = "config";
+    private static final String DEPENDENCY_POOL = "dependency";
 
     private final MaterialUpdateQueue updateQueue;
     private final ConfigMaterialUpdateQueue configUpdateQueue;
@@ -70,6 +72,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     private final GoConfigWatchList watchList;
     private final GoConfigService goConfigService;
     private final SystemEnvironment systemEnvironment;
+    private final MaterialUpdatePools materialUpdatePools;
     private ServerHealthService serverHealthService;
 
     private ConcurrentMap<Material, Date> inProgress = new ConcurrentHashMap<>();
@@ -88,7 +91,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
                                  ServerHealthService serverHealthService, PostCommitHookMaterialTypeResolver postCommitHookMaterialType,
                                  MDUPerformanceLogger mduPerformanceLogger, MaterialConfigConverter materialConfigConverter,
                                  DependencyMaterialUpdateQueue dependencyMaterialUpdateQueue, MaintenanceModeService maintenanceModeService,
-                                 SecretParamResolver secretParamResolver) {
+                                 SecretParamResolver secretParamResolver, MaterialUpdatePools materialUpdatePools) {
         this.watchList = watchList;
         this.goConfigService = goConfigService;
         this.systemEnvironment = systemEnvironment;
@@ -101,6 +104,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         this.dependencyMaterialUpdateQueue = dependencyMaterialUpdateQueue;
         this.maintenanceModeService = maintenanceModeService;
         this.secretParamResolver = secretParamResolver;
+        this.materialUpdatePools = materialUpdatePools;
         completed.addListener(this);
     }
 
@@ -115,14 +119,39 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
             return;
         }
 
+        Map<String, Integer> inFlight = inFlightByPool();
+        Map<String, Integer> deferred = new HashMap<>();
         for (MaterialSource materialSource : materialSources) {
             Set<Material> materialsForUpdate = materialSource.materialsForUpdate();
             LOGGER.debug("[Material Update] [On Timer] materials IN-PROGRESS: {}, ALL-MATERIALS: {}", inProgress, materialsForUpdate);
 
             for (Material material : materialsForUpdate) {
-                updateMaterial(material);
+                String pool = poolFor(material);
+                boolean alreadyInProgress = inProgress.containsKey(material);
+                if (!alreadyInProgress && isThrottled(pool) && materialUpdatePools.isFull(inFlight.getOrDefault(pool, 0))) {
+                    LOGGER.debug("[Material Update] Deferring update of material {} to the next cycle, pool {} is full", material, pool);
+                    deferred.merge(pool, 1, Integer::sum);
+                    continue;
+                }
+                if (updateMaterial(material) && !alreadyInProgress) {
+                    inFlight.merge(pool, 1, Integer::sum);
+                }
             }
         }
+        mduPerformanceLogger.queueDepths(inFlight, deferred);
+    }
+
+    // config repo and dependency materials have queues of their own, only the material update pools are capped
+    private boolean isThrottled(String pool) {
+        return !CONFIG_POOL.equals(pool) && !DEPENDENCY_POOL.equals(pool);
+    }
+
+    private Map<String, Integer> inFlightByPool() {
+        Map<String, Integer> inFlight = new HashMap<>();
+        for (Material material : inProgress.keySet()) {
+            inFlight.merge(poolFor(material), 1, Integer::sum);
+        }
+        return inFlight;
     }
 
     public void notifyMaterialsForUpdate(Username username, Object params, HttpLocalizedOperationResult result) {
@@ -231,8 +260,9 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
                 LOGGER.warn("[Material Update] Material {} was not removed from those inProgress. This might result in it's pipelines not getting scheduled. in-progress: {}", message.getMaterial(), inProgress);
             }
 
+            boolean newModificationsSaved = message instanceof MaterialUpdateSuccessfulMessage && ((MaterialUpdateSuccessfulMessage) message).hasNewModifications();
             for (MaterialUpdateCompleteListener listener : materialUpdateCompleteListeners) {
-                listener.onMaterialUpdate(message.getMaterial());
+                listener.onMaterialUpdate(message.getMaterial(), newModificationsSaved);
             }
         } finally {
             mduPerformanceLogger.completionMessageForMaterialReceived(message.trackingId(), message.getMaterial());
@@ -279,8 +309,22 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         if (isConfigMaterial(material)) {
             return configUpdateQueue;
         }
+        if (material instanceof DependencyMaterial) {
+            return dependencyMaterialUpdateQueue;
+        }
+
+        GoMessageQueue<MaterialUpdateMessage> pooledQueue = materialUpdatePools.queueFor(material);
+        return pooledQueue == null ? updateQueue : pooledQueue;
+    }
 
-        return (material instanceof DependencyMaterial) ? dependencyMaterialUpdateQueue : updateQueue;
+    private String poolFor(Material material) {
+        if (isConfigMaterial(material)) {
+            return CONFIG_POOL;
+        }
+        if (material instanceof DependencyMaterial) {
+            return DEPENDENCY_POOL;
+        }
+        return materialUpdatePools.poolFor(material);
     }
 
     ProcessManager getProcessManager() {
@@ -22,7 +22,18 @@ import com.thoughtworks.go.domain.materials.Material;
  * @understands when a material has been updated successfully
  */
 public class MaterialUpdateSuccessfulMessage extends MaterialUpdateCompletedMessage {
+    private final boolean newModificationsSaved;
+
     public MaterialUpdateSuccessfulMessage(Material material, long trackingId) {
+        this(material, trackingId, true);
+    }
+
+    public MaterialUpdateSuccessfulMessage(Material material, long trackingId, boolean newModificationsSaved) {
         super(material, trackingId);
+        this.newModificationsSaved = newModificationsSaved;
+    }
+
+    public boolean hasNewModifications() {
+        return newModificationsSaved;
     }
 }
@@ -34,14 +34,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- * Provides a list of unique SCMMaterials to be updated which will be consumed by MaterialUpdateService
+ * Provides a list of unique SCMMaterials to be updated which will be consumed by MaterialUpdateService,
+ * least recently updated first. When adaptive polling is enabled, materials which keep showing no new
+ * revisions are polled less often, up to the configured maximum interval.
  */
 
 @Component
@@ -53,6 +53,8 @@ public class SCMMaterialSource extends EntityConfigChangedListener<ConfigRepoCon
     private final MaterialConfigConverter materialConfigConverter;
     private final MaterialUpdateService materialUpdateService;
     private final long materialUpdateInterval;
+    private final long maxMaterialUpdateInterval;
+    private ConcurrentMap<Material, Long> pollingIntervals = new ConcurrentHashMap<>();
     private Set<Material> schedulableMaterials;
 
     @Autowired
@@ -62,6 +64,7 @@ public class SCMMaterialSource extends EntityConfigChangedListener<ConfigRepoCon
         this.materialConfigConverter = materialConfigConverter;
         this.materialUpdateService = materialUpdateService;
         this.materialUpdateInterval = systemEnvironment.getMaterialUpdateIdleInterval();
+        this.maxMaterialUpdateInterval = systemEnvironment.getMaterialUpdateAdaptiveMaxInterval();
     }
 
     public void initialize() {
@@ -84,6 +87,14 @@ public class SCMMaterialSource extends EntityConfigChangedListener<ConfigRepoCon
         }
     }
 
+    @Override
+    public void onMaterialUpdate(Material material, boolean newModificationsSaved) {
+        onMaterialUpdate(material);
+        if (!(material instanceof DependencyMaterial) && isAdaptivePollingEnabled()) {
+            updatePollingInterval(material, newModificationsSaved);
+        }
+    }
+
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         updateSchedulableMaterials(true);
     }
@@ -104,20 +115,21 @@ public class SCMMaterialSource extends EntityConfigChangedListener<ConfigRepoCon
     }
 
     private Set<Material> materialsWithUpdateIntervalElapsed() {
-        Set<Material> materialsForUpdate = new HashSet<>();
+        List<Material> materialsForUpdate = new ArrayList<>();
         for (Material material : schedulableMaterials) {
             if (hasUpdateIntervalElapsedForScmMaterial(material)) {
                 materialsForUpdate.add(material);
             }
         }
+        materialsForUpdate.sort(Comparator.comparingLong(material -> materialLastUpdateTimeMap.getOrDefault(material, 0L)));
 
-        return materialsForUpdate;
+        return new LinkedHashSet<>(materialsForUpdate);
     }
 
     boolean hasUpdateIntervalElapsedForScmMaterial(Material material) {
         Long lastMaterialUpdateTime = materialLastUpdateTimeMap.get(material);
         if (lastMaterialUpdateTime != null) {
-            boolean shouldUpdateMaterial = (DateTimeUtils.currentTimeMillis() - lastMaterialUpdateTime) >= materialUpdateInterval;
+            boolean shouldUpdateMaterial = (DateTimeUtils.currentTimeMillis() - lastMaterialUpdateTime) >= updateIntervalFor(material);
             if (LOGGER.isDebugEnabled() && !shouldUpdateMaterial) {
                 LOGGER.debug("[Material Update] Skipping update of material {} which has been last updated at {}", material, new Date(lastMaterialUpdateTime));
             }
@@ -126,13 +138,31 @@ public class SCMMaterialSource extends EntityConfigChangedListener<ConfigRepoCon
         return true;
     }
 
+    long updateIntervalFor(Material material) {
+        return pollingIntervals.getOrDefault(material, materialUpdateInterval);
+    }
+
     private void updateLastUpdateTimeForScmMaterial(Material material) {
         materialLastUpdateTimeMap.put(material, DateTimeUtils.currentTimeMillis());
     }
 
+    private boolean isAdaptivePollingEnabled() {
+        return maxMaterialUpdateInterval > materialUpdateInterval;
+    }
+
+    private void updatePollingInterval(Material material, boolean newModificationsSaved) {
+        pollingIntervals.compute(material, (key, current) -> {
+            if (current == null || newModificationsSaved) {
+                return materialUpdateInterval;
+            }
+            return Math.min(current * 2, maxMaterialUpdateInterval);
+        });
+    }
+
     private void updateSchedulableMaterials(boolean forceLoad) {
         if (forceLoad || schedulableMaterials == null) {
             schedulableMaterials = materialConfigConverter.toMaterials(goConfigService.getSchedulableSCMMaterials());
+            pollingIntervals.keySet().retainAll(schedulableMaterials);
         }
     }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.JMSException;
+
+/**
+ * @understands feeding messages taken off a channel to a listener, on a thread of its own
+ */
+public abstract class MessageListenerAdapter implements Runnable {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected final GoMessageListener listener;
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    public Thread thread;
+
+    protected MessageListenerAdapter(GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector) {
+        this.listener = listener;
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+    }
+
+    protected void start() {
+        thread = new Thread(this);
+        String threadNameSuffix = "MessageListener for " + listener.getClass().getSimpleName();
+        thread.setName(thread.getId() + "@" + threadNameSuffix);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void run() {
+        while (true) {
+            if (runImpl()) {
+                return;
+            }
+        }
+    }
+
+    public abstract void stop() throws JMSException;
+
+    /**
+     * @return the next message, or null once the channel has been closed
+     */
+    protected abstract GoMessage receive() throws Exception;
+
+    public boolean runImpl() {
+        try {
+            GoMessage message = receive();
+            if (message == null) {
+                log.debug("Message consumer was closed.");
+                return true;
+            }
+
+            daemonThreadStatsCollector.captureStats(thread.getId());
+            listener.onMessage(message);
+        } catch (Exception e) {
+            handleFailure(e);
+        } finally {
+            daemonThreadStatsCollector.clearStats(thread.getId());
+        }
+        return false;
+    }
+
+    protected void handleFailure(Exception e) {
+        log.error("Exception thrown in message handling by listener {}", listener, e);
+    }
+}
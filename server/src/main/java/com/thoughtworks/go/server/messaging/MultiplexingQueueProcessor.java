@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.text.MessageFormat.format;
 
@@ -29,21 +30,48 @@ import static java.text.MessageFormat.format;
  *
  * Since actions can be added from different threads, line up all of them on to one thread,
  * for processing, and to make sure that the upstream processes are not blocked.
+ *
+ * Whenever the queue runs dry the (optional) idle action is called on the same thread, so that work
+ * done by a burst of actions can be finished off once, rather than once per action.
  */
 public class MultiplexingQueueProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingQueueProcessor.class);
     private Thread processorThread;
     protected final BlockingQueue<Action> queue;
     private String queueName;
+    private final Runnable whenIdle;
+    private final AtomicLong processedCount = new AtomicLong();
 
     public MultiplexingQueueProcessor(String processorNameForLogging) {
+        this(processorNameForLogging, null);
+    }
+
+    public MultiplexingQueueProcessor(String processorNameForLogging, Runnable whenIdle) {
         this.queueName = processorNameForLogging;
+        this.whenIdle = whenIdle;
         queue = new LinkedBlockingQueue<>();
     }
 
     public void add(Action action) {
         LOGGER.debug("Adding action into {} queue for {}", queueName, action.description());
-        queue.add(action);
+        queue.add(new QueuedAction(action));
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    public long processedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return how long the oldest action which is yet to be processed has been waiting, in milliseconds
+     */
+    public long lagInMillis() {
+        Action oldest = queue.peek();
+        // actions put straight on to the queue, rather than added, carry no time to measure from
+        return oldest instanceof QueuedAction ? System.currentTimeMillis() - ((QueuedAction) oldest).queuedAt : 0;
     }
 
     public void start() {
@@ -55,13 +83,18 @@ public class MultiplexingQueueProcessor {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
                     Action action = queue.take();
-                    LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
+                    try {
+                        LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
 
-                    long startTime = System.currentTimeMillis();
-                    action.call();
-                    long endTime = System.currentTimeMillis();
+                        long startTime = System.currentTimeMillis();
+                        action.call();
+                        long endTime = System.currentTimeMillis();
 
-                    LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (endTime - startTime));
+                        LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (endTime - startTime));
+                    } finally {
+                        processedCount.incrementAndGet();
+                        callWhenIdle();
+                    }
                 } catch (Exception e) {
                     LOGGER.warn(format("Failed to handle action in {0} queue", queueName), e);
                 }
@@ -72,9 +105,39 @@ public class MultiplexingQueueProcessor {
         processorThread.start();
     }
 
+    private void callWhenIdle() {
+        if (whenIdle == null || !queue.isEmpty()) {
+            return;
+        }
+        try {
+            whenIdle.run();
+        } catch (Exception e) {
+            LOGGER.warn(format("Failed to finish off actions in {0} queue", queueName), e);
+        }
+    }
+
     public interface Action {
         void call();
 
         String description();
     }
+
+    private static class QueuedAction implements Action {
+        private final Action action;
+        private final long queuedAt = System.currentTimeMillis();
+
+        QueuedAction(Action action) {
+            this.action = action;
+        }
+
+        @Override
+        public void call() {
+            action.call();
+        }
+
+        @Override
+        public String description() {
+            return action.description();
+        }
+    }
 }
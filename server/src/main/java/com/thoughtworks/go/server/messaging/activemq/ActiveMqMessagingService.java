@@ -36,14 +36,11 @@ import org.apache.activemq.broker.region.Destination;
 import org.apache.activemq.broker.region.Subscription;
 import org.apache.activemq.command.ActiveMQQueue;
 import org.apache.activemq.util.BrokerSupport;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
-@Component
 public class ActiveMqMessagingService implements MessagingService {
 
     private static final String BROKER_NAME = "go-server";
@@ -55,7 +52,6 @@ public class ActiveMqMessagingService implements MessagingService {
     private final SystemEnvironment systemEnvironment;
     private ServerHealthService serverHealthService;
 
-    @Autowired
     public ActiveMqMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) throws Exception {
         this.daemonThreadStatsCollector = daemonThreadStatsCollector;
         this.systemEnvironment = systemEnvironment;
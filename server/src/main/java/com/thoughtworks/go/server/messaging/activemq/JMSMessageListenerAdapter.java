@@ -18,8 +18,8 @@ package com.thoughtworks.go.server.messaging.activemq;
 
 import com.thoughtworks.go.server.messaging.GoMessage;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageListenerAdapter;
 import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
-import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
@@ -32,66 +32,41 @@ import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.ObjectMessage;
 
-import java.io.File;
-
 import static com.thoughtworks.go.serverhealth.HealthStateScope.GLOBAL;
 
-public class JMSMessageListenerAdapter implements Runnable {
+public class JMSMessageListenerAdapter extends MessageListenerAdapter {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageListenerAdapter.class);
 
     private final MessageConsumer consumer;
-    private final GoMessageListener listener;
-    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
     private SystemEnvironment systemEnvironment;
     private ServerHealthService serverHealthService;
-    public Thread thread;
 
-    private JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
-                                      SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+    protected JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+                                        SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        super(listener, daemonThreadStatsCollector);
         this.consumer = consumer;
-        this.listener = listener;
-        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
         this.systemEnvironment = systemEnvironment;
         this.serverHealthService = serverHealthService;
-
-        thread = new Thread(this);
-        String threadNameSuffix = "MessageListener for " + listener.getClass().getSimpleName();
-        thread.setName(thread.getId() + "@" + threadNameSuffix);
-        thread.setDaemon(true);
-        thread.start();
-    }
-
-    public void run() {
-        while (true) {
-            if (runImpl()) {
-                return;
-            }
-        }
     }
 
+    @Override
     public void stop() throws JMSException {
         consumer.close();
     }
 
-    protected boolean runImpl() {
-        try {
-            Message message = consumer.receive();
-            if (message == null) {
-                LOG.debug("Message consumer was closed.");
-                return true;
-            }
+    @Override
+    protected GoMessage receive() throws JMSException {
+        Message message = consumer.receive();
+        return message == null ? null : (GoMessage) ((ObjectMessage) message).getObject();
+    }
 
-            ObjectMessage omessage = (ObjectMessage) message;
-            daemonThreadStatsCollector.captureStats(thread.getId());
-            listener.onMessage((GoMessage) omessage.getObject());
-        } catch (JMSException e) {
-            slowDownAndWarnAboutPossibleProblems(e);
-        } catch (Exception e) {
-            LOG.error("Exception thrown in message handling by listener {}", listener, e);
-        } finally {
-            daemonThreadStatsCollector.clearStats(thread.getId());
+    @Override
+    protected void handleFailure(Exception e) {
+        if (e instanceof JMSException) {
+            slowDownAndWarnAboutPossibleProblems((JMSException) e);
+        } else {
+            super.handleFailure(e);
         }
-        return false;
     }
 
     private void slowDownAndWarnAboutPossibleProblems(JMSException e) {
@@ -110,7 +85,9 @@ public class JMSMessageListenerAdapter implements Runnable {
 
     public static JMSMessageListenerAdapter startListening(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService)
             throws JMSException {
-        return new JMSMessageListenerAdapter(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        JMSMessageListenerAdapter adapter = new JMSMessageListenerAdapter(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        adapter.start();
+        return adapter;
     }
 
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.perf.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands how many messages went through a queue or topic, and how long they waited to be picked up
+ */
+class InMemoryChannelStats {
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    void sent() {
+        sent.increment();
+    }
+
+    void received(long waitedNanos) {
+        received.increment();
+        waitTime.record(TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+    }
+
+    void expired() {
+        expired.increment();
+    }
+
+    Map<String, Object> asJson(int depth, int consumers) {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Depth", depth);
+        json.put("Consumers", consumers);
+        json.put("Sent", sent.sum());
+        json.put("Received", received.sum());
+        json.put("Expired", expired.sum());
+        json.put("Wait time", waitTime.asJson());
+        return json;
+    }
+}
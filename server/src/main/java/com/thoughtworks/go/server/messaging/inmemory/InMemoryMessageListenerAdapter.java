@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+
+/**
+ * @understands feeding messages taken off an in-memory queue to a listener, until the queue is closed
+ */
+public class InMemoryMessageListenerAdapter extends MessageListenerAdapter {
+    private final InMemoryQueue queue;
+    private volatile boolean stopped;
+
+    private InMemoryMessageListenerAdapter(InMemoryQueue queue, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector) {
+        super(listener, daemonThreadStatsCollector);
+        this.queue = queue;
+    }
+
+    @Override
+    protected GoMessage receive() {
+        try {
+            return queue.receive(() -> stopped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    static InMemoryMessageListenerAdapter startListening(InMemoryQueue queue, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector) {
+        InMemoryMessageListenerAdapter adapter = new InMemoryMessageListenerAdapter(queue, listener, daemonThreadStatsCollector);
+        queue.addConsumer(adapter);
+        adapter.start();
+        return adapter;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.SystemEnvironment;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @understands passing messages between parts of the server through bounded in-memory queues. Unlike the embedded
+ * ActiveMQ broker, queue messages are handed over by reference - there is no broker, session or serialization involved.
+ * Topic subscribers other than the first get a copy of each message, so that they cannot see each other's changes.
+ */
+public class InMemoryMessagingService implements MessagingService {
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final int capacity;
+    private final long sendTimeout;
+    private final int topicCapacity;
+    private final ConcurrentMap<String, InMemoryQueue> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, InMemoryTopic> topics = new ConcurrentHashMap<>();
+
+    public InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.capacity = systemEnvironment.getInMemoryMessagingCapacity();
+        this.sendTimeout = systemEnvironment.getInMemoryMessagingSendTimeout();
+        this.topicCapacity = systemEnvironment.getInMemoryMessagingTopicCapacity();
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new InMemoryMessageSender(() -> topic(topic));
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addListener(String topic, GoMessageListener listener) {
+        return InMemoryMessageListenerAdapter.startListening(topic(topic).subscribe(), listener, daemonThreadStatsCollector);
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        // looked up on every send, so that senders keep working after the queue is removed and created again
+        return new InMemoryMessageSender(() -> queue(queueName));
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addQueueListener(String queueName, GoMessageListener listener) {
+        return InMemoryMessageListenerAdapter.startListening(queue(queueName), listener, daemonThreadStatsCollector);
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        InMemoryQueue queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Override
+    public void stop() {
+        queues.values().forEach(InMemoryQueue::close);
+        queues.clear();
+        topics.values().forEach(InMemoryTopic::close);
+        topics.clear();
+    }
+
+    public Map<String, Object> asJson() {
+        TreeMap<String, Object> json = new TreeMap<>();
+        queues.forEach((name, queue) -> json.put("Queue: " + name, queue.asJson()));
+        topics.forEach((name, topic) -> json.put("Topic: " + name, topic.asJson()));
+        return json;
+    }
+
+    private InMemoryQueue queue(String queueName) {
+        return queues.computeIfAbsent(queueName, name -> new InMemoryQueue(name, capacity, sendTimeout, new InMemoryChannelStats()));
+    }
+
+    private InMemoryTopic topic(String topicName) {
+        return topics.computeIfAbsent(topicName, name -> new InMemoryTopic(name, topicCapacity, sendTimeout));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * @understands a bounded buffer of messages handed, by reference, to whichever of its competing consumers is free first
+ */
+class InMemoryQueue implements InMemoryChannel {
+    private static final long RECEIVE_POLL_INTERVAL_MILLIS = 500;
+
+    private final String name;
+    private final BlockingQueue<Envelope> messages;
+    private final long sendTimeout;
+    private final InMemoryChannelStats stats;
+    private final Set<InMemoryMessageListenerAdapter> consumers = ConcurrentHashMap.newKeySet();
+
+    InMemoryQueue(String name, int capacity, long sendTimeout, InMemoryChannelStats stats) {
+        this.name = name;
+        this.messages = new ArrayBlockingQueue<>(capacity);
+        this.sendTimeout = sendTimeout;
+        this.stats = stats;
+    }
+
+    @Override
+    public void send(GoMessage message, long timeToLive) {
+        try {
+            if (!messages.offer(new Envelope(message, timeToLive), sendTimeout, TimeUnit.MILLISECONDS)) {
+                throw bomb(String.format("Timed out after %sms waiting for space on message queue %s, %s messages are waiting to be consumed", sendTimeout, name, messages.size()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw bomb(e);
+        }
+        stats.sent();
+    }
+
+    GoMessage receive(BooleanSupplier stopped) throws InterruptedException {
+        while (!stopped.getAsBoolean()) {
+            Envelope envelope = messages.poll(RECEIVE_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if (envelope == null) {
+                continue;
+            }
+            long now = System.nanoTime();
+            if (envelope.hasExpired(now)) {
+                stats.expired();
+                continue;
+            }
+            stats.received(now - envelope.sentAt);
+            return envelope.message;
+        }
+        return null;
+    }
+
+    void addConsumer(InMemoryMessageListenerAdapter consumer) {
+        consumers.add(consumer);
+    }
+
+    void close() {
+        for (InMemoryMessageListenerAdapter consumer : consumers) {
+            consumer.stop();
+        }
+        consumers.clear();
+        messages.clear();
+    }
+
+    int depth() {
+        return messages.size();
+    }
+
+    int numberOfConsumers() {
+        return consumers.size();
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        return stats.asJson(depth(), numberOfConsumers());
+    }
+
+    private static class Envelope {
+        private final GoMessage message;
+        private final long sentAt = System.nanoTime();
+        private final long timeToLive;
+
+        Envelope(GoMessage message, long timeToLive) {
+            this.message = message;
+            this.timeToLive = timeToLive;
+        }
+
+        // a time to live of 0 means the message never expires, as with JMS
+        boolean hasExpired(long now) {
+            return timeToLive > 0 && now - sentAt > TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        }
+    }
+}
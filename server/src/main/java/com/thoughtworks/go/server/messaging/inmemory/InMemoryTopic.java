@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands handing every message to each of its subscribers, through a queue per subscriber. Like a queue, the
+ * publisher waits for a subscriber whose queue is full and fails once the send timeout is up - a subscriber never
+ * silently misses a message.
+ */
+class InMemoryTopic implements InMemoryChannel {
+    private final String name;
+    private final int capacity;
+    private final long sendTimeout;
+    private final LongAdder sent = new LongAdder();
+    private final List<InMemoryQueue> subscribers = new CopyOnWriteArrayList<>();
+
+    InMemoryTopic(String name, int capacity, long sendTimeout) {
+        this.name = name;
+        this.capacity = capacity;
+        this.sendTimeout = sendTimeout;
+    }
+
+    InMemoryQueue subscribe() {
+        InMemoryQueue subscriber = new InMemoryQueue(name, capacity, sendTimeout, new InMemoryChannelStats());
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    @Override
+    public void send(GoMessage message, long timeToLive) {
+        boolean first = true;
+        RuntimeException failure = null;
+        for (InMemoryQueue subscriber : subscribers) {
+            GoMessage delivered = first ? message : SerializationUtils.clone(message);
+            first = false;
+            try {
+                subscriber.send(delivered, timeToLive);
+            } catch (RuntimeException e) {
+                // still hand the message to the other subscribers, the first failure is reported once they have it
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        sent.increment();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    void close() {
+        for (InMemoryQueue subscriber : subscribers) {
+            subscriber.close();
+        }
+        subscribers.clear();
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        int depth = 0;
+        List<Map<String, Object>> perSubscriber = new ArrayList<>();
+        for (InMemoryQueue subscriber : subscribers) {
+            depth += subscriber.depth();
+            perSubscriber.add(subscriber.asJson());
+        }
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Depth", depth);
+        json.put("Consumers", subscribers.size());
+        json.put("Sent", sent.sum());
+        json.put("Subscribers", perSubscriber);
+        return json;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.perf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands counting durations into fixed millisecond buckets
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_UPPER_BOUNDS = {100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS.length && millis > BUCKET_UPPER_BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        total.add(millis);
+        max.accumulate(millis);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public Map<String, Object> asJson() {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        long samples = count.sum();
+        json.put("Count", samples);
+        json.put("Mean (ms)", samples == 0 ? 0 : total.sum() / samples);
+        json.put("Max (ms)", max.get());
+
+        LinkedHashMap<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            histogram.put("<= " + BUCKET_UPPER_BOUNDS[i], buckets[i].sum());
+        }
+        histogram.put("> " + BUCKET_UPPER_BOUNDS[BUCKET_UPPER_BOUNDS.length - 1], buckets[BUCKET_UPPER_BOUNDS.length].sum());
+        json.put("Buckets (ms)", histogram);
+        return json;
+    }
+}
@@ -20,6 +20,10 @@ import com.thoughtworks.go.domain.materials.Material;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
 @Component
 public class MDUPerformanceLogger {
     private PerformanceLogger performanceLogger;
@@ -53,4 +57,12 @@ public class MDUPerformanceLogger {
         performanceLogger.log("MDU-QUEUE-REMOVE {} {} {}", trackingId, material.getFingerprint(), material.getDisplayName());
     }
 
+    public void queueDepths(Map<String, Integer> inFlight, Map<String, Integer> deferred) {
+        Set<String> pools = new TreeSet<>(inFlight.keySet());
+        pools.addAll(deferred.keySet());
+        for (String pool : pools) {
+            performanceLogger.log("MDU-QUEUE-DEPTH {} {} {}", pool, inFlight.getOrDefault(pool, 0), deferred.getOrDefault(pool, 0));
+        }
+    }
+
 }
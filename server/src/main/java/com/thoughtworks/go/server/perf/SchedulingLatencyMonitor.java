@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.perf;
+
+import com.thoughtworks.go.util.TimeProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @understands how long it takes from new modifications of a material being saved, and from a build cause being
+ * queued, until the first job of the resulting pipeline is assigned to an agent
+ */
+@Component
+public class SchedulingLatencyMonitor {
+    private final TimeProvider timeProvider;
+    private final Map<String, Long> modificationsSavedAt = new ConcurrentHashMap<>();
+    private final Map<String, Pending> buildCausesQueued = new ConcurrentHashMap<>();
+    private final LatencyHistogram modificationToAssignment = new LatencyHistogram();
+    private final LatencyHistogram buildCauseToAssignment = new LatencyHistogram();
+
+    @Autowired
+    public SchedulingLatencyMonitor(TimeProvider timeProvider) {
+        this.timeProvider = timeProvider;
+    }
+
+    public void modificationsSaved(String pipelineName) {
+        modificationsSavedAt.putIfAbsent(key(pipelineName), timeProvider.currentTimeMillis());
+    }
+
+    public void buildCauseQueued(String pipelineName) {
+        String key = key(pipelineName);
+        buildCausesQueued.put(key, new Pending(modificationsSavedAt.remove(key), timeProvider.currentTimeMillis()));
+    }
+
+    public void scheduleCheckCompleted(String pipelineName) {
+        modificationsSavedAt.remove(key(pipelineName));
+    }
+
+    public void buildCauseDropped(String pipelineName) {
+        buildCausesQueued.remove(key(pipelineName));
+    }
+
+    public void workAssigned(String pipelineName) {
+        Pending pending = buildCausesQueued.remove(key(pipelineName));
+        if (pending == null) {
+            return;
+        }
+        long now = timeProvider.currentTimeMillis();
+        if (pending.modificationsSavedAt != null) {
+            modificationToAssignment.record(now - pending.modificationsSavedAt);
+        }
+        buildCauseToAssignment.record(now - pending.buildCauseQueuedAt);
+    }
+
+    public Map<String, Object> asJson() {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Modification saved to work assigned", modificationToAssignment.asJson());
+        json.put("Build cause queued to work assigned", buildCauseToAssignment.asJson());
+        json.put("Pipelines awaiting schedule check", modificationsSavedAt.size());
+        json.put("Pipelines awaiting assignment", buildCausesQueued.size());
+        return json;
+    }
+
+    private String key(String pipelineName) {
+        return pipelineName.toLowerCase();
+    }
+
+    private static class Pending {
+        private final Long modificationsSavedAt;
+        private final long buildCauseQueuedAt;
+
+        Pending(Long modificationsSavedAt, long buildCauseQueuedAt) {
+            this.modificationsSavedAt = modificationsSavedAt;
+            this.buildCauseQueuedAt = buildCauseQueuedAt;
+        }
+    }
+}
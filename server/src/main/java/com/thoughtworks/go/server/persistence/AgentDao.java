@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.server.persistence;
 
+import com.thoughtworks.go.config.AgentConfig;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.domain.Agent;
@@ -34,9 +35,12 @@ import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * @understands persisting and retrieving agent uuid-cookie mapping
+ * @understands persisting and retrieving agent uuid-cookie mapping, and the configuration of agents kept out of the config xml
  */
 @Service
 public class AgentDao extends HibernateDaoSupport {
@@ -78,17 +82,52 @@ public class AgentDao extends HibernateDaoSupport {
 
     public void associateCookie(final AgentIdentifier agentIdentifier, final String cookie) {
         final String uuid = agentIdentifier.getUuid();
+        updateInTransaction(uuid, agent -> {
+            if (agent == null) {
+                agent = new Agent(uuid, cookie, agentIdentifier.getHostName(), agentIdentifier.getIpAddress());
+            } else {
+                agent.update(cookie, agentIdentifier.getHostName(), agentIdentifier.getIpAddress());
+            }
+            getHibernateTemplate().saveOrUpdate(agent);
+        });
+    }
+
+    public List<Agent> agentsWithConfig() {
+        return (List<Agent>) getHibernateTemplate().find("from Agent where elasticAgentId is not null");
+    }
+
+    public void saveConfig(final AgentConfig agentConfig, final Collection<String> environments) {
+        final String uuid = agentConfig.getUuid();
+        updateInTransaction(uuid, agent -> {
+            if (agent == null) {
+                agent = new Agent(uuid, null, agentConfig.getHostname(), agentConfig.getIpAddress());
+            }
+            agent.storeConfig(agentConfig, environments);
+            getHibernateTemplate().saveOrUpdate(agent);
+        });
+    }
+
+    public void removeConfig(final String uuid) {
+        updateInTransaction(uuid, agent -> {
+            if (agent == null) {
+                return;
+            }
+            if (agent.getCookie() == null) {
+                // the row was only ever created to hold the config
+                getHibernateTemplate().delete(agent);
+                return;
+            }
+            agent.clearConfig();
+            getHibernateTemplate().saveOrUpdate(agent);
+        });
+    }
+
+    private void updateInTransaction(final String uuid, final Consumer<Agent> update) {
         final String key = agentCacheKey(uuid);
         synchronized (key) {
             transactionTemplate.execute(new TransactionCallbackWithoutResult() {
                 @Override protected void doInTransactionWithoutResult(TransactionStatus status) {
-                    Agent agent = fetchAgentByUuid(uuid);
-                    if (agent == null) {
-                        agent = new Agent(uuid, cookie, agentIdentifier.getHostName(), agentIdentifier.getIpAddress());
-                    } else {
-                        agent.update(cookie, agentIdentifier.getHostName(), agentIdentifier.getIpAddress());
-                    }
-                    getHibernateTemplate().saveOrUpdate(agent);
+                    update.accept(fetchAgentByUuid(uuid));
                     synchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                         @Override public void afterCommit() {
                             cache.remove(key);
@@ -36,6 +36,7 @@ import com.thoughtworks.go.server.util.CollectionUtil;
 import com.thoughtworks.go.server.util.Pagination;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.hibernate.*;
 import org.hibernate.criterion.*;
 import org.hibernate.type.LongType;
@@ -804,8 +805,13 @@ public class MaterialRepository extends HibernateDaoSupport {
 
         try {
             checkAndRemoveDuplicates(materialInstance, newChanges, list);
-            for (Modification modification : list) {
-                getHibernateTemplate().saveOrUpdate(modification);
+            SystemEnvironment systemEnvironment = new SystemEnvironment();
+            if (list.size() >= systemEnvironment.get(SystemEnvironment.MODIFICATIONS_BULK_INSERT_THRESHOLD)) {
+                batchInsert(materialInstance, list, systemEnvironment.get(SystemEnvironment.MODIFICATIONS_BULK_INSERT_BATCH_SIZE));
+            } else {
+                for (Modification modification : list) {
+                    getHibernateTemplate().saveOrUpdate(modification);
+                }
             }
         } catch (Exception e) {
             String message = "Cannot save modification: ";
@@ -819,26 +825,37 @@ public class MaterialRepository extends HibernateDaoSupport {
         removeCachedModificationsFor(materialInstance);
     }
 
+    private void batchInsert(MaterialInstance materialInstance, List<Modification> modifications, int batchSize) {
+        long start = System.currentTimeMillis();
+        getHibernateTemplate().execute((HibernateCallback) session -> {
+            session.flush();
+            session.doWork(connection -> new ModificationBatchInserter(batchSize).insert(connection, materialInstance.getId(), modifications));
+            return null;
+        });
+        LOGGER.info("Inserted {} modifications for material [{}] in batches of {} in {}ms",
+                modifications.size(), materialInstance.getFingerprint(), batchSize, System.currentTimeMillis() - start);
+    }
+
     private void checkAndRemoveDuplicates(MaterialInstance materialInstance,
                                           List<Modification> newChanges,
                                           ArrayList<Modification> list) {
         if (!new SystemEnvironment().get(SystemEnvironment.CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS)) {
             return;
         }
-        DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
-        criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
-        criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
         ArrayList<String> revisions = new ArrayList<>();
         for (Modification modification : newChanges) {
             revisions.add(modification.getRevision());
         }
-        criteria.add(Restrictions.in("revision", revisions));
-        List<String> matchingRevisionsFromDb = (List<String>) getHibernateTemplate().findByCriteria(criteria);
+        Set<String> matchingRevisionsFromDb = new HashSet<>();
+        for (List<String> revisionsToMatch : ListUtils.partition(revisions, 1000)) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
+            criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
+            criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
+            criteria.add(Restrictions.in("revision", revisionsToMatch));
+            matchingRevisionsFromDb.addAll((List<String>) getHibernateTemplate().findByCriteria(criteria));
+        }
         if (!matchingRevisionsFromDb.isEmpty()) {
-            for (final String revision : matchingRevisionsFromDb) {
-                Modification modification = list.stream().filter(item -> item.getRevision().equals(revision)).findFirst().orElse(null);
-                list.remove(modification);
-            }
+            list.removeIf(modification -> matchingRevisionsFromDb.contains(modification.getRevision()));
         }
         if (!newChanges.isEmpty() && list.isEmpty()) {
             LOGGER.debug("All modifications already exist in db [{}]", revisions);
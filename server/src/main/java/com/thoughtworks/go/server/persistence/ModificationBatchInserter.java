@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * @understands inserting modifications and their modified files with JDBC batches, a chunk of modifications at a time
+ */
+class ModificationBatchInserter {
+    private static final String INSERT_MODIFICATION = "INSERT INTO modifications (revision, comment, emailAddress, modifiedTime, userName, pipelineLabel, pipelineId, additionalData, materialId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MODIFIED_FILE = "INSERT INTO modifiedFiles (modificationId, action, fileName, folderName) VALUES (?, ?, ?, ?)";
+    private static final String LAST_MODIFICATION_ID = "SELECT MAX(id) FROM modifications WHERE materialId = ?";
+    private static final String MODIFICATIONS_INSERTED_AFTER = "SELECT id, revision FROM modifications WHERE materialId = ? AND id > ? ORDER BY id";
+
+    private final int batchSize;
+
+    ModificationBatchInserter(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Expects the caller to hold the material's update mutex, so that ids generated for the material's
+     * modifications follow the order in which they were inserted.
+     */
+    void insert(Connection connection, long materialId, List<Modification> modifications) throws SQLException {
+        for (int from = 0; from < modifications.size(); from += batchSize) {
+            List<Modification> chunk = modifications.subList(from, Math.min(from + batchSize, modifications.size()));
+            long lastId = lastModificationId(connection, materialId);
+            insertModifications(connection, materialId, chunk);
+            assignIds(connection, materialId, lastId, chunk);
+            insertModifiedFiles(connection, chunk);
+        }
+    }
+
+    private long lastModificationId(Connection connection, long materialId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LAST_MODIFICATION_ID)) {
+            statement.setLong(1, materialId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void insertModifications(Connection connection, long materialId, List<Modification> chunk) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFICATION)) {
+            for (Modification modification : chunk) {
+                statement.setString(1, modification.getRevision());
+                statement.setString(2, modification.getComment());
+                statement.setString(3, modification.getEmailAddress());
+                statement.setTimestamp(4, modification.getModifiedTime() == null ? null : new Timestamp(modification.getModifiedTime().getTime()));
+                statement.setString(5, modification.getUserName());
+                statement.setString(6, modification.getPipelineLabel());
+                if (modification.getPipelineId() == null) {
+                    statement.setNull(7, Types.BIGINT);
+                } else {
+                    statement.setLong(7, modification.getPipelineId());
+                }
+                statement.setString(8, modification.getAdditionalData());
+                statement.setLong(9, materialId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void assignIds(Connection connection, long materialId, long lastId, List<Modification> chunk) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(MODIFICATIONS_INSERTED_AFTER)) {
+            statement.setLong(1, materialId);
+            statement.setLong(2, lastId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int index = 0;
+                while (resultSet.next()) {
+                    if (index >= chunk.size() || !chunk.get(index).getRevision().equals(resultSet.getString(2))) {
+                        throw new IllegalStateException(String.format("Modifications for material [%s] were inserted concurrently, expected revision [%s] but found [%s]",
+                                materialId, index < chunk.size() ? chunk.get(index).getRevision() : null, resultSet.getString(2)));
+                    }
+                    chunk.get(index++).setId(resultSet.getLong(1));
+                }
+                if (index != chunk.size()) {
+                    throw new IllegalStateException(String.format("Expected %d modifications to be inserted for material [%s], found %d", chunk.size(), materialId, index));
+                }
+            }
+        }
+    }
+
+    private void insertModifiedFiles(Connection connection, List<Modification> chunk) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFIED_FILE)) {
+            int pending = 0;
+            for (Modification modification : chunk) {
+                for (ModifiedFile file : modification.getModifiedFiles()) {
+                    file.setModificationId(modification.getId());
+                    statement.setLong(1, modification.getId());
+                    statement.setString(2, file.getAction().name());
+                    statement.setString(3, file.getFileName());
+                    statement.setString(4, file.getFolderName());
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+}
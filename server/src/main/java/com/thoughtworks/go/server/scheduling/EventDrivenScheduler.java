@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.scheduling;
+
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedMessage;
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedTopic;
+import com.thoughtworks.go.server.materials.MaterialUpdateSuccessfulMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.perf.SchedulingLatencyMonitor;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.server.service.PipelineScheduleQueue;
+import com.thoughtworks.go.server.service.PipelineScheduler;
+import com.thoughtworks.go.server.service.ScheduleService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * @understands handing work from a completed material update straight through to build cause production,
+ * pipeline scheduling and build assignment, instead of waiting for each of their timers to fire.
+ * The timers stay in place as a safety net for anything this path misses.
+ */
+@Component
+public class EventDrivenScheduler implements GoMessageListener<MaterialUpdateCompletedMessage> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventDrivenScheduler.class);
+
+    private final PipelineScheduler pipelineScheduler;
+    private final PipelineScheduleQueue pipelineScheduleQueue;
+    private final ScheduleService scheduleService;
+    private final BuildAssignmentService buildAssignmentService;
+    private final MaterialUpdateCompletedTopic materialUpdateCompletedTopic;
+    private final ScheduleCheckCompletedTopic scheduleCheckCompletedTopic;
+    private final SchedulingLatencyMonitor schedulingLatencyMonitor;
+    private final SystemEnvironment systemEnvironment;
+    private BlockingQueue<String> queuedBuildCauses;
+    private Thread dispatcherThread;
+
+    @Autowired
+    public EventDrivenScheduler(PipelineScheduler pipelineScheduler,
+                                PipelineScheduleQueue pipelineScheduleQueue,
+                                ScheduleService scheduleService,
+                                BuildAssignmentService buildAssignmentService,
+                                MaterialUpdateCompletedTopic materialUpdateCompletedTopic,
+                                ScheduleCheckCompletedTopic scheduleCheckCompletedTopic,
+                                SchedulingLatencyMonitor schedulingLatencyMonitor,
+                                SystemEnvironment systemEnvironment) {
+        this.pipelineScheduler = pipelineScheduler;
+        this.pipelineScheduleQueue = pipelineScheduleQueue;
+        this.scheduleService = scheduleService;
+        this.buildAssignmentService = buildAssignmentService;
+        this.materialUpdateCompletedTopic = materialUpdateCompletedTopic;
+        this.scheduleCheckCompletedTopic = scheduleCheckCompletedTopic;
+        this.schedulingLatencyMonitor = schedulingLatencyMonitor;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public void initialize() {
+        if (!systemEnvironment.isEventDrivenSchedulingEnabled()) {
+            return;
+        }
+
+        queuedBuildCauses = new ArrayBlockingQueue<>(systemEnvironment.getEventDrivenSchedulingQueueSize());
+        materialUpdateCompletedTopic.addListener(this);
+        scheduleCheckCompletedTopic.addListener(message -> schedulingLatencyMonitor.scheduleCheckCompleted(message.getPipelineName()));
+        pipelineScheduleQueue.addBuildCauseListener(pipelineName -> {
+            schedulingLatencyMonitor.buildCauseQueued(pipelineName.toString());
+            if (!queuedBuildCauses.offer(pipelineName.toString())) {
+                LOGGER.debug("Event driven scheduling queue is full, build cause for {} will be picked up with those already queued", pipelineName);
+            }
+        });
+        pipelineScheduleQueue.addBuildCauseDroppedListener(pipelineName -> schedulingLatencyMonitor.buildCauseDropped(pipelineName.toString()));
+
+        dispatcherThread = new Thread(this::dispatch, "event-driven-scheduler");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @Override
+    public void onMessage(MaterialUpdateCompletedMessage message) {
+        if (!(message instanceof MaterialUpdateSuccessfulMessage) || !((MaterialUpdateSuccessfulMessage) message).hasNewModifications()) {
+            return;
+        }
+        for (String pipelineName : pipelineScheduler.checkPipelinesUsing(message.getMaterial().getFingerprint())) {
+            schedulingLatencyMonitor.modificationsSaved(pipelineName);
+        }
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                dispatchQueuedBuildCauses();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                LOGGER.error("Error scheduling pipelines from queued build causes", e);
+            }
+        }
+    }
+
+    void dispatchQueuedBuildCauses() throws InterruptedException {
+        List<String> pipelineNames = new ArrayList<>();
+        pipelineNames.add(queuedBuildCauses.take());
+        queuedBuildCauses.drainTo(pipelineNames);
+
+        if (!systemEnvironment.isServerActive()) {
+            LOGGER.debug("Server is not in active state, leaving build causes for {} to the scheduling timers", pipelineNames);
+            return;
+        }
+        LOGGER.debug("Scheduling pipelines from queued build causes for {}", pipelineNames);
+        scheduleService.autoSchedulePipelinesFromRequestBuffer();
+        buildAssignmentService.onTimer();
+    }
+}
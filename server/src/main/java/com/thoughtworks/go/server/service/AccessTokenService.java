@@ -16,6 +16,10 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.thoughtworks.go.config.exceptions.ConflictException;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
@@ -25,6 +29,8 @@ import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
 import com.thoughtworks.go.server.exceptions.RevokedAccessTokenException;
 import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,11 +38,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 @Service
 public class AccessTokenService {
@@ -47,11 +55,36 @@ public class AccessTokenService {
     private final SecurityService securityService;
     private final ConcurrentMap<Long, Timestamp> accessTokenIdToLastUsedTimestampCache = new ConcurrentHashMap<>();
 
-    @Autowired
+    // verified, unrevoked tokens keyed by a digest of the token presented, so that API calls made with the same token
+    // need neither a database lookup nor another round of key derivation until the entry expires or is invalidated
+    private final Cache<String, AccessToken> verifiedTokenCache;
+    private final int verifiedTokenCacheSize;
+    private final int verifiedTokenCacheTtlInSeconds;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+
     public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService) {
+        this(accessTokenDao, clock, securityService, new SystemEnvironment());
+    }
+
+    @Autowired
+    public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService, SystemEnvironment systemEnvironment) {
+        this(accessTokenDao, clock, securityService, systemEnvironment, Ticker.systemTicker());
+    }
+
+    AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService, SystemEnvironment systemEnvironment, Ticker ticker) {
         this.accessTokenDao = accessTokenDao;
         this.timeProvider = clock;
         this.securityService = securityService;
+        this.verifiedTokenCacheSize = systemEnvironment.getAccessTokenCacheSize();
+        this.verifiedTokenCacheTtlInSeconds = systemEnvironment.getAccessTokenCacheTtlInSeconds();
+        this.verifiedTokenCache = verifiedTokenCacheSize <= 0 || verifiedTokenCacheTtlInSeconds <= 0 ? null : CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfterWrite(verifiedTokenCacheTtlInSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
     }
 
     public AccessToken.AccessTokenWithDisplayValue create(String description, String username, String authConfigId) {
@@ -83,6 +116,17 @@ public class AccessTokenService {
             throw new InvalidAccessTokenException();
         }
 
+        String cacheKey = null;
+        long invalidationsBeforeLookup = 0;
+        if (verifiedTokenCache != null) {
+            cacheKey = DigestUtils.sha256Hex(actualToken);
+            AccessToken cachedToken = verifiedTokenCache.getIfPresent(cacheKey);
+            if (cachedToken != null) {
+                return cachedToken;
+            }
+            invalidationsBeforeLookup = invalidations.get();
+        }
+
         String saltId = StringUtils.substring(actualToken, 0, 8);
 
         AccessToken token = accessTokenDao.findAccessTokenBySaltId(saltId);
@@ -90,7 +134,10 @@ public class AccessTokenService {
             throw new InvalidAccessTokenException();
         }
 
+        long start = System.nanoTime();
         boolean isValid = token.isValidToken(actualToken);
+        verificationNanos.add(System.nanoTime() - start);
+        verifications.increment();
 
         if (!isValid) {
             throw new InvalidAccessTokenException();
@@ -100,6 +147,14 @@ public class AccessTokenService {
             throw new RevokedAccessTokenException(token.getRevokedAt());
         }
 
+        if (verifiedTokenCache != null) {
+            verifiedTokenCache.put(cacheKey, token);
+            // a token revoked while this one was being looked up must not outlive the revocation in the cache
+            if (invalidations.get() != invalidationsBeforeLookup) {
+                verifiedTokenCache.invalidate(cacheKey);
+            }
+        }
+
         return token;
     }
 
@@ -113,10 +168,15 @@ public class AccessTokenService {
         fetchedAccessToken.revoke(username, revokeCause, timeProvider.currentTimestamp());
 
         accessTokenDao.saveOrUpdate(fetchedAccessToken);
+        invalidateCachedTokens(token -> token.getId() == fetchedAccessToken.getId());
 
         return fetchedAccessToken;
     }
 
+    public void invalidateCachedTokensOf(Collection<String> usernames) {
+        invalidateCachedTokens(token -> usernames.stream().anyMatch(username -> username.equalsIgnoreCase(token.getUsername())));
+    }
+
     public List<AccessToken> findAllTokensForUser(String username, AccessTokenFilter filter) {
         return accessTokenDao.findAllTokensForUser(username, filter);
     }
@@ -151,6 +211,33 @@ public class AccessTokenService {
         accessTokenDao.updateLastUsedTime(dataInCache);
     }
 
+    public Map<String, Object> verifiedTokenCacheStatistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Enabled", verifiedTokenCache != null);
+        json.put("Maximum size", verifiedTokenCacheSize);
+        json.put("Time to live (seconds)", verifiedTokenCacheTtlInSeconds);
+        if (verifiedTokenCache != null) {
+            CacheStats stats = verifiedTokenCache.stats();
+            json.put("Size", verifiedTokenCache.size());
+            json.put("Hits", stats.hitCount());
+            json.put("Misses", stats.missCount());
+            json.put("Hit ratio", stats.hitRate());
+            json.put("Evictions", stats.evictionCount());
+        }
+        long numberOfVerifications = verifications.sum();
+        json.put("Verifications", numberOfVerifications);
+        json.put("Average verification time (ms)", numberOfVerifications == 0 ? 0 : verificationNanos.sum() / (numberOfVerifications * 1_000_000.0));
+        return json;
+    }
+
+    private void invalidateCachedTokens(Predicate<AccessToken> predicate) {
+        if (verifiedTokenCache == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        verifiedTokenCache.asMap().values().removeIf(predicate);
+    }
+
     private Map<Long, Timestamp> cloneAndClearCache() {
         synchronized (accessTokenIdToLastUsedTimestampCache) {
             Map<Long, Timestamp> dataInCache = new HashMap<>(accessTokenIdToLastUsedTimestampCache);
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.service;
 import com.google.common.collect.Sets;
 import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.GoConfigInvalidException;
 import com.thoughtworks.go.config.update.AgentsEntityConfigUpdateCommand;
 import com.thoughtworks.go.config.update.AgentsUpdateCommand;
@@ -42,15 +43,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
 
 import static com.thoughtworks.go.i18n.LocalizedMessage.entityConfigValidationFailed;
+import static com.thoughtworks.go.i18n.LocalizedMessage.forbiddenToEdit;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static com.thoughtworks.go.util.ExceptionUtils.bombIfNull;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 
 /**
  * @understands how to convert persistant Agent configuration to useful objects and back
@@ -58,19 +59,60 @@ import static java.util.Arrays.asList;
 @Service
 public class AgentConfigService {
     private GoConfigService goConfigService;
+    private final ElasticAgentConfigStore elasticAgentConfigStore;
     private static final Logger LOGGER = LoggerFactory.getLogger(AgentConfigService.class.getName());
 
     @Autowired
-    public AgentConfigService(GoConfigService goConfigService) {
+    public AgentConfigService(GoConfigService goConfigService, ElasticAgentConfigStore elasticAgentConfigStore) {
         this.goConfigService = goConfigService;
+        this.elasticAgentConfigStore = elasticAgentConfigStore;
     }
 
     public Agents agents() {
-        return goConfigService.agents();
+        return withStoredAgents(goConfigService.agents());
+    }
+
+    public Agents withStoredAgents(Agents agentsFromConfig) {
+        if (!elasticAgentConfigStore.isEnabled()) {
+            return agentsFromConfig;
+        }
+        Agents storedAgents = elasticAgentConfigStore.agents();
+        if (storedAgents.isEmpty()) {
+            return agentsFromConfig;
+        }
+        Agents agents = new Agents(new ArrayList<>(agentsFromConfig));
+        for (AgentConfig storedAgent : storedAgents) {
+            if (!agents.hasAgent(storedAgent.getUuid())) {
+                agents.add(storedAgent);
+            }
+        }
+        return agents;
+    }
+
+    public boolean hasAgent(String uuid) {
+        return goConfigService.hasAgent(uuid) || elasticAgentConfigStore.has(uuid);
+    }
+
+    public boolean isStoredOutsideConfig(AgentConfig agentConfig) {
+        return elasticAgentConfigStore.has(agentConfig.getUuid())
+                || (elasticAgentConfigStore.shouldStore(agentConfig) && !goConfigService.hasAgent(agentConfig.getUuid()));
     }
 
     public void register(AgentChangeListener agentChangeListener) {
         goConfigService.register(agentChangeListener);
+        elasticAgentConfigStore.register(agentChangeListener);
+    }
+
+    public AgentConfig registerElasticAgent(AgentConfig agentConfig, String resources, String environments, HttpOperationResult result) {
+        agentConfig.setResourceConfigs(new ResourceConfigs(resources));
+        agentConfig.validate(null);
+        if (!agentConfig.errors().isEmpty()) {
+            result.unprocessibleEntity("Updating agent failed:", agentConfig.errors().asString(), HealthStateType.general(HealthStateScope.GLOBAL));
+            return agentConfig;
+        }
+        elasticAgentConfigStore.save(agentConfig, existingEnvironments(asList(environments.split(","))));
+        result.ok(String.format("Updated agent with uuid %s.", agentConfig.getUuid()));
+        return agentConfig;
     }
 
     public void enableAgents(Username currentUser, AgentInstance... agentInstance) {
@@ -85,6 +127,10 @@ public class AgentConfigService {
         GoConfigDao.CompositeConfigCommand command = new GoConfigDao.CompositeConfigCommand();
         ArrayList<String> uuids = new ArrayList<>();
         for (AgentInstance agentInstance : instances) {
+            if (isStoredOutsideConfig(agentInstance.agentConfig())) {
+                storeAgent(agentInstance.agentConfig(), agentConfig -> agentConfig.disable(disabled));
+                continue;
+            }
             String uuid = agentInstance.getUuid();
             uuids.add(uuid);
             if (goConfigService.hasAgent(uuid)) {
@@ -95,15 +141,25 @@ public class AgentConfigService {
                 command.addCommand(new AddAgentCommand(agentConfig));
             }
         }
+        if (uuids.isEmpty() && instances.length > 0) {
+            return;
+        }
         updateAgentWithoutValidations(command, currentUser);
     }
 
     public void deleteAgents(Username currentUser, AgentInstance... agentInstances) {
-        GoConfigDao.CompositeConfigCommand commandForDeletingAgents = commandForDeletingAgents(agentInstances);
-        ArrayList<String> uuids = new ArrayList<>();
+        List<AgentInstance> agentsInConfig = new ArrayList<>();
         for (AgentInstance agentInstance : agentInstances) {
-            uuids.add(agentInstance.getUuid());
+            if (elasticAgentConfigStore.has(agentInstance.getUuid())) {
+                elasticAgentConfigStore.remove(agentInstance.getUuid());
+            } else {
+                agentsInConfig.add(agentInstance);
+            }
+        }
+        if (agentsInConfig.isEmpty() && agentInstances.length > 0) {
+            return;
         }
+        GoConfigDao.CompositeConfigCommand commandForDeletingAgents = commandForDeletingAgents(agentsInConfig.toArray(new AgentInstance[0]));
         updateAgentWithoutValidations(commandForDeletingAgents, currentUser);
     }
 
@@ -203,6 +259,10 @@ public class AgentConfigService {
     }
 
     public void updateAgentIpByUuid(String uuid, String ipAddress, Username userName) {
+        if (elasticAgentConfigStore.has(uuid)) {
+            storeAgent(elasticAgentConfigStore.get(uuid), agentConfig -> agentConfig.setIpAddress(ipAddress));
+            return;
+        }
         updateAgents(new UpdateAgentIp(uuid, ipAddress, userName), new AgentConfigsUpdateValidator(asList(uuid)), userName);
     }
 
@@ -234,11 +294,26 @@ public class AgentConfigService {
                                           final List<String> resourcesToAdd, final List<String> resourcesToRemove,
                                           final List<String> environmentsToAdd, final List<String> environmentsToRemove,
                                           final TriState enable) {
+        List<String> storedUuids = new ArrayList<>();
+        List<String> uuidsInConfig = new ArrayList<>();
+        for (String uuid : uuids) {
+            AgentConfig agentConfig = agentInstances.findAgent(uuid).agentConfig();
+            if (!agentConfig.isNull() && isStoredOutsideConfig(agentConfig)) {
+                storedUuids.add(uuid);
+            } else {
+                uuidsInConfig.add(uuid);
+            }
+        }
         EntityConfigUpdateCommand<Agents> agentsEntityConfigUpdateCommand = new AgentsEntityConfigUpdateCommand(agentInstances,
-                username, result, uuids, environmentConfigService, environmentsToAdd, environmentsToRemove, enable,
+                username, result, uuidsInConfig, environmentConfigService, environmentsToAdd, environmentsToRemove, enable,
                 resourcesToAdd, resourcesToRemove, goConfigService);
         try {
-            goConfigService.updateConfig(agentsEntityConfigUpdateCommand, username);
+            if (storedUuids.isEmpty() || !uuidsInConfig.isEmpty()) {
+                goConfigService.updateConfig(agentsEntityConfigUpdateCommand, username);
+            }
+            if (result.isSuccessful() && !storedUuids.isEmpty()) {
+                updateStoredAgents(agentInstances, username, result, storedUuids, resourcesToAdd, resourcesToRemove, environmentsToAdd, environmentsToRemove, enable);
+            }
             if(result.isSuccessful()){
                 result.setMessage("Updated agent(s) with uuid(s): [" + StringUtils.join(uuids, ", ") + "].");
             }
@@ -253,7 +328,47 @@ public class AgentConfigService {
         }
     }
 
+    private void updateStoredAgents(AgentInstances agentInstances, Username username, LocalizedOperationResult result, List<String> uuids,
+                                    List<String> resourcesToAdd, List<String> resourcesToRemove,
+                                    List<String> environmentsToAdd, List<String> environmentsToRemove, TriState enable) {
+        if (!goConfigService.isAdministrator(username.getUsername())) {
+            result.forbidden(forbiddenToEdit(), HealthStateType.forbidden());
+            return;
+        }
+        if (!resourcesToAdd.isEmpty() || !resourcesToRemove.isEmpty()) {
+            result.badRequest("Resources on elastic agents with uuids [" + StringUtils.join(uuids, ", ") + "] can not be updated.");
+            return;
+        }
+        EnvironmentsConfig allEnvironments = goConfigService.getEnvironments();
+        for (String environment : union(environmentsToAdd, environmentsToRemove)) {
+            if (!allEnvironments.hasEnvironmentNamed(new CaseInsensitiveString(environment))) {
+                result.badRequest(EntityType.Environment.notFoundMessage(new CaseInsensitiveString(environment)));
+                return;
+            }
+        }
+        for (String uuid : uuids) {
+            AgentConfig agentConfig = elasticAgentConfigStore.has(uuid) ? elasticAgentConfigStore.get(uuid) : agentInstances.findAgent(uuid).agentConfig();
+            Set<String> environments = new HashSet<>(elasticAgentConfigStore.environmentsFor(uuid));
+            environments.addAll(existingEnvironments(environmentsToAdd));
+            environments.removeAll(existingEnvironments(environmentsToRemove));
+            storeAgent(agentConfig, environments, storedAgent -> {
+                if (enable.isTrue()) {
+                    storedAgent.enable();
+                }
+                if (enable.isFalse()) {
+                    storedAgent.disable();
+                }
+            });
+        }
+    }
+
     public AgentConfig updateAgentAttributes(final String uuid, Username username, String hostname, String resources, String environments, TriState enable, AgentInstances agentInstances, HttpOperationResult result) {
+        if (elasticAgentConfigStore.has(uuid)) {
+            return updateStoredAgentAttributes(elasticAgentConfigStore.get(uuid), hostname, resources, environments, enable, result);
+        }
+        if (elasticAgentConfigStore.isEnabled() && enable.isTrue() && isStoredOutsideConfig(agentInstances.findAgent(uuid).agentConfig())) {
+            return updateStoredAgentAttributes(agentInstances.findAgent(uuid).agentConfig(), hostname, resources, environments, enable, result);
+        }
         final GoConfigDao.CompositeConfigCommand command = new GoConfigDao.CompositeConfigCommand();
         if (!goConfigService.hasAgent(uuid) && enable.isTrue()) {
             AgentInstance agentInstance = agentInstances.findAgent(uuid);
@@ -296,8 +411,67 @@ public class AgentConfigService {
         return updateAgent(command, uuid, result, username);
     }
 
+    private AgentConfig updateStoredAgentAttributes(AgentConfig storedAgent, String hostname, String resources, String environments, TriState enable, HttpOperationResult result) {
+        AgentConfig agentConfig = storedAgent.deepClone();
+        if (hostname != null) {
+            agentConfig.setHostName(hostname);
+        }
+        if (resources != null) {
+            agentConfig.setResourceConfigs(new ResourceConfigs(resources));
+        }
+        if (enable.isTrue()) {
+            agentConfig.enable();
+        }
+        if (enable.isFalse()) {
+            agentConfig.disable();
+        }
+        agentConfig.validate(null);
+        if (!agentConfig.errors().isEmpty()) {
+            result.unprocessibleEntity("Updating agent failed:", agentConfig.errors().asString(), HealthStateType.general(HealthStateScope.GLOBAL));
+            return agentConfig;
+        }
+        Set<String> environmentNames = environments == null ? elasticAgentConfigStore.environmentsFor(agentConfig.getUuid()) : existingEnvironments(asList(environments.split(",")));
+        elasticAgentConfigStore.save(agentConfig, environmentNames);
+        result.ok(String.format("Updated agent with uuid %s.", agentConfig.getUuid()));
+        return agentConfig;
+    }
+
+    private void storeAgent(AgentConfig agentConfig, Consumer<AgentConfig> update) {
+        storeAgent(agentConfig, elasticAgentConfigStore.environmentsFor(agentConfig.getUuid()), update);
+    }
+
+    private void storeAgent(AgentConfig agentConfig, Set<String> environments, Consumer<AgentConfig> update) {
+        AgentConfig toStore = agentConfig.deepClone();
+        update.accept(toStore);
+        elasticAgentConfigStore.save(toStore, environments);
+    }
+
+    private Set<String> existingEnvironments(Collection<String> environmentNames) {
+        EnvironmentsConfig allEnvironments = goConfigService.getEnvironments();
+        Set<String> existing = new TreeSet<>();
+        for (String environmentName : environmentNames) {
+            CaseInsensitiveString name = new CaseInsensitiveString(environmentName.trim());
+            if (allEnvironments.hasEnvironmentNamed(name)) {
+                existing.add(CaseInsensitiveString.str(allEnvironments.named(name).name()));
+            } else if (!StringUtils.isBlank(environmentName)) {
+                LOGGER.warn("Agent could not be assigned to environment {} as it does not exist.", environmentName.trim());
+            }
+        }
+        return existing;
+    }
+
+    private Set<String> union(List<String> first, List<String> second) {
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
     public void saveOrUpdateAgent(AgentInstance agentInstance, Username currentUser) {
         AgentConfig agentConfig = agentInstance.agentConfig();
+        if (isStoredOutsideConfig(agentConfig)) {
+            elasticAgentConfigStore.save(agentConfig.deepClone());
+            return;
+        }
         if (goConfigService.hasAgent(agentConfig.getUuid())) {
             this.updateAgentApprovalStatus(agentConfig.getUuid(), agentConfig.isDisabled(), currentUser);
         } else {
@@ -308,8 +482,10 @@ public class AgentConfigService {
     @Deprecated
     public void approvePendingAgent(AgentInstance agentInstance) {
         agentInstance.enable();
-        if (goConfigService.hasAgent(agentInstance.getUuid())) {
+        if (hasAgent(agentInstance.getUuid())) {
             LOGGER.warn("Registered agent with the same uuid [{}] already approved.", agentInstance);
+        } else if (isStoredOutsideConfig(agentInstance.agentConfig())) {
+            elasticAgentConfigStore.save(agentInstance.agentConfig(), emptySet());
         } else {
             updateAgent(new AddAgentCommand(agentInstance.agentConfig()), agentInstance.getUuid(), new HttpOperationResult(), Username.ANONYMOUS);
         }
@@ -368,10 +544,18 @@ public class AgentConfigService {
     }
 
     public void updateAgentApprovalStatus(final String uuid, final Boolean isDenied, Username currentUser) {
+        if (elasticAgentConfigStore.has(uuid)) {
+            storeAgent(elasticAgentConfigStore.get(uuid), agentConfig -> agentConfig.setDisabled(isDenied));
+            return;
+        }
         updateAgentWithoutValidations(new UpdateAgentApprovalStatus(uuid, isDenied), currentUser);
     }
 
     public void addAgent(AgentConfig agentConfig, Username currentUser) {
+        if (isStoredOutsideConfig(agentConfig)) {
+            elasticAgentConfigStore.save(agentConfig, emptySet());
+            return;
+        }
         updateAgent(new AddAgentCommand(agentConfig), agentConfig.getUuid(), currentUser);
     }
 
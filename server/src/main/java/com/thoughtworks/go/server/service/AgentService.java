@@ -100,7 +100,11 @@ public class AgentService {
     }
 
     public void sync(Agents agents) {
-        agentInstances.sync(agents);
+        agentInstances.sync(agentConfigService.withStoredAgents(agents));
+    }
+
+    public void syncStoredAgent(String uuid, AgentConfig agentConfig) {
+        agentInstances.syncAgent(uuid, agentConfig);
     }
 
     public AgentInstances agents() {
@@ -26,7 +26,11 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ArtifactsDiskCleaner extends DiskSpaceChecker {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsDiskCleaner.class);
@@ -35,13 +39,21 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
     private final ArtifactsService artifactService;
     private final StageService stageService;
     private final ConfigDbStateRepository configDbStateRepository;
+    private final ArtifactsPurgeProgress purgeProgress;
+    private ExecutorService purgers;
 
     public ArtifactsDiskCleaner(SystemEnvironment systemEnvironment, GoConfigService goConfigService, final SystemDiskSpaceChecker diskSpaceChecker, ArtifactsService artifactService,
                                 StageService stageService, ConfigDbStateRepository configDbStateRepository) {
+        this(systemEnvironment, goConfigService, diskSpaceChecker, artifactService, stageService, configDbStateRepository, new ArtifactsPurgeProgress());
+    }
+
+    public ArtifactsDiskCleaner(SystemEnvironment systemEnvironment, GoConfigService goConfigService, final SystemDiskSpaceChecker diskSpaceChecker, ArtifactsService artifactService,
+                                StageService stageService, ConfigDbStateRepository configDbStateRepository, ArtifactsPurgeProgress purgeProgress) {
         super(null, systemEnvironment, goConfigService.artifactsDir(), goConfigService, ArtifactsDiskSpaceFullChecker.ARTIFACTS_DISK_FULL_ID, diskSpaceChecker);
         this.artifactService = artifactService;
         this.stageService = stageService;
         this.configDbStateRepository = configDbStateRepository;
+        this.purgeProgress = purgeProgress;
         cleaner = new Thread(() -> {
             try {
                 while (true) {
@@ -64,6 +76,11 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
         if (serverConfig.isArtifactPurgingAllowed()) {
             double requiredSpace = requiredSpaceInGb * GoConstants.GIGA_BYTE;
             LOGGER.info("Clearing old artifacts as the disk space is low. Current space: '{}'. Need to clear till we hit: '{}'.", availableSpace(), requiredSpace);
+            if (systemEnvironment.isArtifactsParallelPurgeEnabled()) {
+                purgeInParallel(requiredSpace);
+                artifactService.releaseUnreferencedArtifacts();
+                return;
+            }
             List<Stage> stages;
             int numberOfStagesPurged = 0;
             do {
@@ -80,10 +97,97 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
             if (availableSpace() < requiredSpace) {
                 LOGGER.warn("Ran out of stages to clear artifacts from but the disk space is still low");
             }
+            artifactService.releaseUnreferencedArtifacts();
             LOGGER.info("Finished clearing old artifacts. Deleted artifacts for '{}' stages. Current space: '{}'", numberOfStagesPurged, availableSpace());
         }
     }
 
+    private void purgeInParallel(double requiredSpace) {
+        ExecutorService purgers = purgers();
+        purgeProgress.started(bytesToFree(requiredSpace));
+        try {
+            List<Stage> stages;
+            do {
+                configDbStateRepository.flushConfigState();
+                stages = stageService.oldestStagesWithDeletableArtifacts();
+                List<Stage> selected = selectStagesToFree(bytesToFree(requiredSpace), stages, purgeThreads());
+                List<Future<?>> purges = new ArrayList<>();
+                for (Stage stage : selected) {
+                    purges.add(purgers.submit(() -> {
+                        long purgeableSize = artifactService.purgeableSizeOf(stage).orElse(0L);
+                        artifactService.purgeArtifactsForStage(stage);
+                        purgeProgress.purged(purgeableSize);
+                    }));
+                }
+                awaitAll(purges);
+            } while ((availableSpace() < requiredSpace) && !stages.isEmpty());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while clearing old artifacts");
+        } finally {
+            purgeProgress.finished();
+        }
+        if (availableSpace() < requiredSpace) {
+            LOGGER.warn("Ran out of stages to clear artifacts from but the disk space is still low");
+        }
+        LOGGER.info("Finished clearing old artifacts. Deleted artifacts for '{}' stages ('{}' bytes). Current space: '{}'", purgeProgress.getStagesPurged(), purgeProgress.getBytesFreed(), availableSpace());
+    }
+
+    /**
+     * The oldest stages, in order, which between them are expected to free the given number of bytes, going by the
+     * sizes recorded as their artifacts were uploaded rather than by walking them. Nothing is known about the size of
+     * stages uploaded before the server started, so at most {@code maxUnmeasured} of those are selected before the
+     * free disk space is checked again.
+     */
+    List<Stage> selectStagesToFree(long bytesToFree, List<Stage> oldestStages, int maxUnmeasured) {
+        List<Stage> selected = new ArrayList<>();
+        long expectedToFree = 0;
+        int unmeasured = 0;
+        for (Stage stage : oldestStages) {
+            if (expectedToFree >= bytesToFree || unmeasured >= maxUnmeasured) {
+                break;
+            }
+            selected.add(stage);
+            OptionalLong purgeableSize = artifactService.purgeableSizeOf(stage);
+            if (purgeableSize.isPresent()) {
+                expectedToFree += purgeableSize.getAsLong();
+            } else {
+                unmeasured++;
+            }
+        }
+        return selected;
+    }
+
+    private long bytesToFree(double requiredSpace) {
+        return Math.max(0, (long) requiredSpace - availableSpace());
+    }
+
+    private void awaitAll(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Error occurred while clearing old artifacts. Error: '{}'", e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private synchronized ExecutorService purgers() {
+        if (purgers == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            purgers = Executors.newFixedThreadPool(purgeThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "artifacts-purger-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return purgers;
+    }
+
+    private int purgeThreads() {
+        return Math.max(1, systemEnvironment.getArtifactsPurgeThreads());
+    }
+
     protected void createFailure(OperationResult result, long size, long availableSpace) {
         synchronized (triggerCleanup) {
             triggerCleanup.notify();
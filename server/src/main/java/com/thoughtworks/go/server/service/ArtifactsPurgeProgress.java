@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @understands how far the current (or last) artifact purge has got towards freeing the space it set out to free
+ */
+@Component
+public class ArtifactsPurgeProgress {
+    private boolean running;
+    private long targetBytes;
+    private long bytesFreed;
+    private int stagesPurged;
+    private long startedAt;
+    private long finishedAt;
+
+    public synchronized void started(long targetBytes) {
+        this.running = true;
+        this.targetBytes = targetBytes;
+        this.bytesFreed = 0;
+        this.stagesPurged = 0;
+        this.startedAt = System.currentTimeMillis();
+        this.finishedAt = 0;
+    }
+
+    public synchronized void purged(long bytes) {
+        bytesFreed += bytes;
+        stagesPurged++;
+    }
+
+    public synchronized void finished() {
+        running = false;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized long getBytesFreed() {
+        return bytesFreed;
+    }
+
+    public synchronized int getStagesPurged() {
+        return stagesPurged;
+    }
+
+    public synchronized Map<String, Object> asJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Running", running);
+        if (startedAt == 0) {
+            return json;
+        }
+        long elapsedMillis = Math.max(1, (running ? System.currentTimeMillis() : finishedAt) - startedAt);
+        json.put("Started at", new Date(startedAt));
+        if (!running) {
+            json.put("Finished at", new Date(finishedAt));
+        }
+        json.put("Target (bytes)", targetBytes);
+        json.put("Freed (bytes)", bytesFreed);
+        json.put("Progress (%)", targetBytes <= 0 ? 100.0 : Math.min(100.0, bytesFreed * 100.0 / targetBytes));
+        json.put("Stages purged", stagesPurged);
+        json.put("Bytes per second", bytesFreed * 1000 / elapsedMillis);
+        return json;
+    }
+}
@@ -35,6 +35,11 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -46,23 +51,30 @@ public class ArtifactsService implements ArtifactUrlReader {
     private final JobResolverService jobResolverService;
     private final StageDao stageDao;
     private SystemService systemService;
+    private final ContentAddressedArtifactStore contentAddressedArtifactStore;
     public static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsService.class);
     public static final String LOG_XML_NAME = "log.xml";
+    private static final int STAGE_FOLDER_DEPTH = 5;
     private ArtifactDirectoryChooser chooser;
+    // bytes uploaded since the server started which purging their stage is expected to free, by stage folder
+    private final Map<Path, AtomicLong> purgeableSizes = new ConcurrentHashMap<>();
 
     @Autowired
     public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService) {
-        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, new ArtifactDirectoryChooser());
+                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService,
+                            ContentAddressedArtifactStore contentAddressedArtifactStore) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore, new ArtifactDirectoryChooser());
     }
 
     protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, ArtifactDirectoryChooser chooser) {
+                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService,
+                               ContentAddressedArtifactStore contentAddressedArtifactStore, ArtifactDirectoryChooser chooser) {
         this.artifactsDirHolder = artifactsDirHolder;
         this.zipUtil = zipUtil;
         this.jobResolverService = jobResolverService;
         this.stageDao = stageDao;
         this.systemService = systemService;
+        this.contentAddressedArtifactStore = contentAddressedArtifactStore;
 
         //This is a Chain of Responsibility to decide which view should be shown for a particular artifact URL
         this.chooser = chooser;
@@ -72,16 +84,24 @@ public class ArtifactsService implements ArtifactUrlReader {
     public void initialize() {
         chooser.add(new PathBasedArtifactsLocator(artifactsDirHolder.getArtifactsDir()));
         chooser.add(new BuildIdArtifactLocator(artifactsDirHolder.getArtifactsDir()));
+        contentAddressedArtifactStore.initialize();
     }
 
     public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
-            if (shouldUnzip) {
-                zipUtil.unzip(new ZipInputStream(stream), dest);
+            if (shouldUnzip && contentAddressedArtifactStore.isEnabled()) {
+                recordPurgeable(dest, contentAddressedArtifactStore.unzip(zipUtil, new ZipInputStream(stream), dest));
+            } else if (shouldUnzip) {
+                CountingZipInputStream unzipped = new CountingZipInputStream(stream);
+                zipUtil.unzip(unzipped, dest);
+                recordPurgeable(dest, unzipped.count);
             } else {
+                detachFromContentAddressedStore(dest);
+                long lengthBefore = dest.length();
                 systemService.streamToFile(stream, dest);
+                recordPurgeable(dest, dest.length() - lengthBefore);
             }
             LOGGER.trace("File [{}] saved.", destPath);
             return true;
@@ -104,7 +124,10 @@ public class ArtifactsService implements ArtifactUrlReader {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Appending file [{}]", destPath);
+            detachFromContentAddressedStore(dest);
+            long lengthBefore = dest.length();
             systemService.streamToFile(stream, dest);
+            recordPurgeable(dest, dest.length() - lengthBefore);
             LOGGER.trace("File [{}] appended.", destPath);
             return true;
         } catch (IOException e) {
@@ -157,9 +180,13 @@ public class ArtifactsService implements ArtifactUrlReader {
         StageIdentifier stageIdentifier = stage.getIdentifier();
         try {
             File stageRoot = chooser.findArtifact(stageIdentifier, "");
+            forgetPurgeable(stageRoot);
             File cachedStageRoot = chooser.findCachedArtifact(stageIdentifier);
             deleteFile(cachedStageRoot);
             boolean didDelete = deleteArtifactsExceptCruiseOutputAndPluggableArtifactMetadata(stageRoot);
+            if (contentAddressedArtifactStore.isEnabled()) {
+                contentAddressedArtifactStore.release(stageRoot);
+            }
 
             if (!didDelete) {
                 LOGGER.error("Artifacts for stage '{}' at path '{}' was not deleted", stageIdentifier.entityLocator(), stageRoot.getAbsolutePath());
@@ -171,6 +198,26 @@ public class ArtifactsService implements ArtifactUrlReader {
         LOGGER.debug("Marked stage '{}' as artifacts deleted.", stageIdentifier.entityLocator());
     }
 
+    public void releaseUnreferencedArtifacts() {
+        if (contentAddressedArtifactStore.isEnabled()) {
+            contentAddressedArtifactStore.sweep();
+        }
+    }
+
+    /**
+     * The bytes purging a stage is expected to free, as recorded when its artifacts were uploaded - nothing is known
+     * about stages whose artifacts were uploaded before the server started. Neither the artifacts kept on purge nor
+     * content shared with other jobs through the content addressed store are counted.
+     */
+    public OptionalLong purgeableSizeOf(Stage stage) {
+        try {
+            AtomicLong size = purgeableSizes.get(stageFolderOf(chooser.findArtifact(stage.getIdentifier(), "")));
+            return size == null ? OptionalLong.empty() : OptionalLong.of(size.get());
+        } catch (Exception e) {
+            return OptionalLong.empty();
+        }
+    }
+
     private boolean deleteArtifactsExceptCruiseOutputAndPluggableArtifactMetadata(File stageRoot) throws IOException {
         File[] jobs = stageRoot.listFiles();
         if (jobs == null) {  // null if security restricted
@@ -194,8 +241,70 @@ public class ArtifactsService implements ArtifactUrlReader {
         return didDelete;
     }
 
+    private void detachFromContentAddressedStore(File dest) throws IOException {
+        if (contentAddressedArtifactStore.isEnabled()) {
+            contentAddressedArtifactStore.detach(dest);
+        }
+    }
+
     private boolean deleteFile(File file) {
         return FileUtils.deleteQuietly(file);
     }
 
+    private void recordPurgeable(File dest, long bytes) {
+        Path stageFolder = stageFolderOf(dest);
+        if (bytes <= 0 || stageFolder == null || isKeptOnPurge(dest)) {
+            return;
+        }
+        purgeableSizes.computeIfAbsent(stageFolder, folder -> new AtomicLong()).addAndGet(bytes);
+    }
+
+    private void forgetPurgeable(File stageRoot) {
+        Path stageFolder = stageFolderOf(stageRoot);
+        if (stageFolder != null) {
+            purgeableSizes.remove(stageFolder);
+        }
+    }
+
+    // pipelines/<pipeline>/<counter>/<stage>/<counter>, or null for files which are not artifacts of a stage
+    private Path stageFolderOf(File file) {
+        Path relative = relativeToArtifactsDir(file);
+        if (relative.getNameCount() < STAGE_FOLDER_DEPTH || !relative.getName(0).toString().equals("pipelines")) {
+            return null;
+        }
+        return relative.subpath(0, STAGE_FOLDER_DEPTH);
+    }
+
+    // <stage folder>/<job>/<folder>
+    private boolean isKeptOnPurge(File file) {
+        Path relative = relativeToArtifactsDir(file);
+        if (relative.getNameCount() <= STAGE_FOLDER_DEPTH + 1) {
+            return false;
+        }
+        String topLevelFolder = relative.getName(STAGE_FOLDER_DEPTH + 1).toString();
+        return topLevelFolder.equals(ArtifactLogUtil.CRUISE_OUTPUT_FOLDER) || topLevelFolder.equals(ArtifactLogUtil.PLUGGABLE_ARTIFACT_METADATA_FOLDER);
+    }
+
+    private Path relativeToArtifactsDir(File file) {
+        return artifactsDirHolder.getArtifactsDir().getAbsoluteFile().toPath().normalize().relativize(file.getAbsoluteFile().toPath().normalize());
+    }
+
+    // counts the bytes unzipped, rather than the bytes uploaded
+    private static class CountingZipInputStream extends ZipInputStream {
+        private long count;
+
+        CountingZipInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
 }
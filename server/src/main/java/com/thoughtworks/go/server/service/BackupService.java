@@ -29,6 +29,7 @@ import com.thoughtworks.go.server.messaging.EmailMessageDrafter;
 import com.thoughtworks.go.server.messaging.ServerBackupQueue;
 import com.thoughtworks.go.server.messaging.StartServerBackupMessage;
 import com.thoughtworks.go.server.persistence.ServerBackupRepository;
+import com.thoughtworks.go.server.service.backup.BackupManifest;
 import com.thoughtworks.go.server.service.backup.BackupStatusUpdater;
 import com.thoughtworks.go.server.service.backup.BackupUpdateListener;
 import com.thoughtworks.go.server.web.BackupStatusProvider;
@@ -36,6 +37,7 @@ import com.thoughtworks.go.service.ConfigRepository;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
 import com.thoughtworks.go.util.VoidThrowingFn;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.DirectoryWalker;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -47,7 +49,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -85,7 +96,12 @@ public class BackupService implements BackupStatusProvider {
     private volatile ServerBackup runningBackup;
     private static final String CONFIG_BACKUP_ZIP = "config-dir.zip";
 
+    private static final String CONFIG_BACKUP_DIR = "config-dir";
+    private static final String CONFIG_BACKUP_MANIFEST = "config-dir.manifest";
+
     private static final String CONFIG_REPOSITORY_BACKUP_ZIP = "config-repo.zip";
+    private static final String CONFIG_REPOSITORY_BACKUP_BUNDLE = "config-repo.bundle";
+    private static final String CONFIG_REPOSITORY_BACKUP_HEAD = "config-repo.head";
     private static final String VERSION_BACKUP_FILE = "version.txt";
 
     private static final Object BACKUP_MUTEX = new Object();
@@ -156,10 +172,7 @@ public class BackupService implements BackupStatusProvider {
                     notifyErrorToListeners(backupUpdateListeners, "Failed to perform backup. Reason: Could not create the backup directory.");
                     return backup;
                 }
-                backupVersion(destDir, backupUpdateListeners);
-                backupConfig(destDir, backupUpdateListeners);
-                backupConfigRepo(backupUpdateListeners, destDir);
-                backupDb(destDir, backupUpdateListeners);
+                runBackupSteps(backup, destDir, backupUpdateListeners);
                 boolean passed = executePostBackupScript(backup.getUsername(), initiatedBy, backup, backupUpdateListeners);
                 if (passed) {
                     sendBackupSuccessEmail(backup.getUsername(), mailSender, destDir);
@@ -184,8 +197,73 @@ public class BackupService implements BackupStatusProvider {
         return serverBackup;
     }
 
-    private void backupConfigRepo(List<BackupUpdateListener> backupUpdateListeners, File destDir) throws IOException {
+    private void runBackupSteps(ServerBackup backup, File destDir, List<BackupUpdateListener> backupUpdateListeners) throws Exception {
+        File previousBackupDir = systemEnvironment.isIncrementalBackupEnabled() ? previousBackupDir() : null;
+        Map<String, BackupStep> steps = new LinkedHashMap<>();
+        steps.put("Version", () -> backupVersion(destDir, backupUpdateListeners));
+        steps.put("Config", () -> backupConfig(destDir, backupUpdateListeners, previousBackupDir));
+        steps.put("Config repo", () -> backupConfigRepo(backupUpdateListeners, destDir, previousBackupDir));
+        steps.put("Database", () -> backupDb(destDir, backupUpdateListeners));
+
+        if (!systemEnvironment.shouldRunBackupStepsInParallel()) {
+            for (Map.Entry<String, BackupStep> step : steps.entrySet()) {
+                runTimed(backup, step.getKey(), step.getValue());
+            }
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(steps.size(), runnable -> {
+            Thread thread = new Thread(runnable, "backup-step-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> runningSteps = new ArrayList<>();
+            for (Map.Entry<String, BackupStep> step : steps.entrySet()) {
+                runningSteps.add(executor.submit(() -> {
+                    runTimed(backup, step.getKey(), step.getValue());
+                    return null;
+                }));
+            }
+            Exception failure = null;
+            for (Future<Void> runningStep : runningSteps) {
+                try {
+                    runningStep.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runTimed(ServerBackup backup, String stepName, BackupStep step) throws Exception {
+        long start = System.currentTimeMillis();
+        step.run();
+        backup.recordStepTiming(stepName, System.currentTimeMillis() - start);
+    }
+
+    private File previousBackupDir() {
+        ServerBackup previousBackup = serverBackupRepository.lastSuccessfulBackup();
+        if (previousBackup == null || !new File(previousBackup.getPath()).isDirectory()) {
+            return null;
+        }
+        return new File(previousBackup.getPath());
+    }
+
+    private void backupConfigRepo(List<BackupUpdateListener> backupUpdateListeners, File destDir, File previousBackupDir) throws Exception {
         notifyUpdateToListeners(backupUpdateListeners, "Backing up config repo");
+        if (systemEnvironment.isIncrementalBackupEnabled()) {
+            backupConfigRepoAsBundle(destDir, previousBackupDir);
+            return;
+        }
         configRepository.doLocked(new VoidThrowingFn<IOException>() {
             @Override
             public void run() throws IOException {
@@ -196,8 +274,46 @@ public class BackupService implements BackupStatusProvider {
             }
         });
     }
+
+    // every bundle holds the whole history, so that each backup can be restored from on its own; one which did not
+    // change since the previous backup is only linked to
+    private void backupConfigRepoAsBundle(File destDir, File previousBackupDir) throws Exception {
+        File previousBundle = previousBackupDir == null ? null : new File(previousBackupDir, CONFIG_REPOSITORY_BACKUP_BUNDLE);
+        File previousHead = previousBackupDir == null ? null : new File(previousBackupDir, CONFIG_REPOSITORY_BACKUP_HEAD);
+        String backedUpHead = previousHead != null && previousHead.exists() && previousBundle.exists() ? FileUtils.readFileToString(previousHead, UTF_8).trim() : null;
+        File bundle = new File(destDir, CONFIG_REPOSITORY_BACKUP_BUNDLE);
+        configRepository.doLocked(new VoidThrowingFn<Exception>() {
+            @Override
+            public void run() throws Exception {
+                String head = configRepository.getCurrentRevCommit().getName();
+                if (head.equals(backedUpHead)) {
+                    linkOrCopy(previousBundle, bundle);
+                } else {
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(bundle))) {
+                        head = configRepository.writeBundle(out);
+                    }
+                }
+                FileUtils.writeStringToFile(new File(destDir, CONFIG_REPOSITORY_BACKUP_HEAD), head, UTF_8);
+            }
+        });
+    }
+
+    /**
+     * Hard links a file of an earlier backup into this one, so that it takes no more space while either backup can
+     * be deleted without affecting the other. Copies it where hard links are not supported.
+     */
+    static void linkOrCopy(File source, File target) throws IOException {
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private void notifyUpdateToListeners(List<BackupUpdateListener> listeners, String message) {
-        listeners.forEach(backupUpdateListener -> backupUpdateListener.updateStep(message));
+        synchronized (listeners) {
+            listeners.forEach(backupUpdateListener -> backupUpdateListener.updateStep(message));
+        }
     }
 
     private void notifyErrorToListeners(List<BackupUpdateListener> listeners, String message) {
@@ -270,9 +386,13 @@ public class BackupService implements BackupStatusProvider {
         FileUtils.writeStringToFile(versionFile, CurrentGoCDVersion.getInstance().formatted(), UTF_8);
     }
 
-    private void backupConfig(File backupDir, List<BackupUpdateListener> backupUpdateListeners) throws IOException {
+    private void backupConfig(File backupDir, List<BackupUpdateListener> backupUpdateListeners, File previousBackupDir) throws IOException {
         notifyUpdateToListeners(backupUpdateListeners, "Backing up Config.");
         String configDirectory = systemEnvironment.getConfigDir();
+        if (systemEnvironment.isIncrementalBackupEnabled()) {
+            backupConfigIncrementally(configDirectory, backupDir, previousBackupDir);
+            return;
+        }
         try (ZipOutputStream configZip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(new File(backupDir, CONFIG_BACKUP_ZIP))))) {
             File cruiseConfigFile = new File(systemEnvironment.getCruiseConfigFile());
             File desCipherFile = systemEnvironment.getDESCipherFile();
@@ -331,6 +451,29 @@ public class BackupService implements BackupStatusProvider {
         File artifactsDir = artifactsDirHolder.getArtifactsDir();
         return FileUtils.byteCountToDisplaySize(artifactsDir.getUsableSpace());
     }
+
+    // a copy of the config directory in which the files which did not change since the previous backup are hard links
+    private void backupConfigIncrementally(String configDirectory, File backupDir, File previousBackupDir) throws IOException {
+        File configBackupDir = new File(backupDir, CONFIG_BACKUP_DIR);
+        File previousConfigBackupDir = previousBackupDir == null ? null : new File(previousBackupDir, CONFIG_BACKUP_DIR);
+        BackupManifest previous = BackupManifest.readFrom(previousBackupDir == null ? null : new File(previousBackupDir, CONFIG_BACKUP_MANIFEST));
+        BackupManifest current = new BackupManifest();
+        File cruiseConfigFile = new File(systemEnvironment.getCruiseConfigFile());
+        File desCipherFile = systemEnvironment.getDESCipherFile();
+        File aesCipherFile = systemEnvironment.getAESCipherFile();
+        new IncrementalDirectoryWalker(configDirectory, configBackupDir, previousConfigBackupDir, previous, current, cruiseConfigFile, desCipherFile, aesCipherFile).walk();
+        current.writeTo(new File(backupDir, CONFIG_BACKUP_MANIFEST));
+
+        FileUtils.writeStringToFile(new File(configBackupDir, cruiseConfigFile.getName()), goConfigService.xml(), UTF_8);
+        if (desCipherFile.exists()) {
+            FileUtils.writeStringToFile(new File(configBackupDir, desCipherFile.getName()), encodeHexString(new DESCipherProvider(systemEnvironment).getKey()), UTF_8);
+        }
+        FileUtils.writeStringToFile(new File(configBackupDir, aesCipherFile.getName()), encodeHexString(new AESCipherProvider(systemEnvironment).getKey()), UTF_8);
+    }
+
+    private interface BackupStep {
+        void run() throws Exception;
+    }
 }
 
 
@@ -377,3 +520,63 @@ class DirectoryStructureWalker extends DirectoryWalker {
         walk(new File(this.configDirectory), null);
     }
 }
+
+class IncrementalDirectoryWalker extends DirectoryWalker {
+    private final File directory;
+    private final File backupDir;
+    private final File previousBackupDir;
+    private final BackupManifest previousManifest;
+    private final BackupManifest manifest;
+    private final ArrayList<String> excludeFiles;
+
+    public IncrementalDirectoryWalker(String directory, File backupDir, File previousBackupDir, BackupManifest previousManifest, BackupManifest manifest, File... excludeFiles) {
+        this.directory = new File(directory).getAbsoluteFile();
+        this.backupDir = backupDir;
+        this.previousBackupDir = previousBackupDir;
+        this.previousManifest = previousManifest;
+        this.manifest = manifest;
+        this.excludeFiles = new ArrayList<>();
+        for (File excludeFile : excludeFiles) {
+            this.excludeFiles.add(excludeFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    protected boolean handleDirectory(File directory, int depth, Collection results) throws IOException {
+        FileUtils.forceMkdir(directory.equals(this.directory) ? backupDir : new File(backupDir, fromRoot(directory)));
+        return true;
+    }
+
+    @Override
+    protected void handleFile(File file, int depth, Collection results) throws IOException {
+        if (excludeFiles.contains(file.getAbsolutePath())) {
+            return;
+        }
+        String path = fromRoot(file);
+        File target = new File(backupDir, path);
+        String checksum;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            checksum = DigestUtils.md5Hex(in);
+        }
+        File previousCopy = previousBackupDir == null ? null : new File(previousBackupDir, path);
+        if (previousCopy != null && previousCopy.isFile() && previousManifest.holds(path, checksum)) {
+            BackupService.linkOrCopy(previousCopy, target);
+            manifest.add(path, checksum);
+            return;
+        }
+        // the checksum of what was copied, as the file may have changed since it was summed up
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), digest)) {
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        manifest.add(path, encodeHexString(digest.digest()));
+    }
+
+    private String fromRoot(File file) {
+        return file.getAbsolutePath().substring(directory.getPath().length() + 1);
+    }
+
+    public void walk() throws IOException {
+        walk(directory, null);
+    }
+}
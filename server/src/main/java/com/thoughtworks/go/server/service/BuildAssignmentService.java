@@ -27,6 +27,7 @@ import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.*;
 import com.thoughtworks.go.server.domain.BuildComposer;
 import com.thoughtworks.go.server.materials.StaleMaterialsOnBuildCause;
+import com.thoughtworks.go.server.perf.SchedulingLatencyMonitor;
 import com.thoughtworks.go.server.service.builders.BuilderFactory;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.websocket.Agent;
@@ -43,6 +44,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileNameUrl;
 import static java.util.stream.Collectors.toList;
@@ -67,6 +70,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private final ScheduledPipelineLoader scheduledPipelineLoader;
 
     private List<JobPlan> jobPlans = new ArrayList<>();
+    private volatile JobPlanIndex jobPlanIndex;
+    private final ReadWriteLock jobPlanIndexLock = new ReentrantReadWriteLock();
     private final UpstreamPipelineResolver resolver;
     private final BuilderFactory builderFactory;
     private AgentRemoteHandler agentRemoteHandler;
@@ -74,6 +79,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private final ElasticAgentPluginService elasticAgentPluginService;
     private final SystemEnvironment systemEnvironment;
     private SecretParamResolver secretParamResolver;
+    private final SchedulingLatencyMonitor schedulingLatencyMonitor;
 
     @Autowired
     public BuildAssignmentService(GoConfigService goConfigService, JobInstanceService jobInstanceService,
@@ -82,7 +88,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
                                   ScheduledPipelineLoader scheduledPipelineLoader, PipelineService pipelineService,
                                   BuilderFactory builderFactory, AgentRemoteHandler agentRemoteHandler,
                                   MaintenanceModeService maintenanceModeService, ElasticAgentPluginService elasticAgentPluginService,
-                                  SystemEnvironment systemEnvironment, SecretParamResolver secretParamResolver) {
+                                  SystemEnvironment systemEnvironment, SecretParamResolver secretParamResolver,
+                                  SchedulingLatencyMonitor schedulingLatencyMonitor) {
         this.goConfigService = goConfigService;
         this.jobInstanceService = jobInstanceService;
         this.scheduleService = scheduleService;
@@ -97,6 +104,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
         this.elasticAgentPluginService = elasticAgentPluginService;
         this.systemEnvironment = systemEnvironment;
         this.secretParamResolver = secretParamResolver;
+        this.schedulingLatencyMonitor = schedulingLatencyMonitor;
     }
 
     public void initialize() {
@@ -111,16 +119,16 @@ public class BuildAssignmentService implements ConfigChangedListener {
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 LOGGER.info("[Configuration Changed] Removing deleted jobs for pipeline {}.", pipelineConfig.name());
 
-                synchronized (BuildAssignmentService.this) {
+                withJobPlansLock(() -> {
                     List<JobPlan> jobsToRemove;
                     if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
-                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans());
                     } else {
-                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans());
                     }
 
                     IterableUtils.forEach(jobsToRemove, o -> removeJob(o));
-                }
+                });
             }
         };
     }
@@ -164,29 +172,88 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
-        synchronized (this) {
-//          check to ensure agent is not disabled after entering the synchronized block
+        if (jobPlanIndex == null) {
+            synchronized (this) {
+                if (jobPlanIndex == null) {
+//                  check to ensure agent is not disabled after entering the synchronized block
+                    if (agent.isDisabled()) {
+                        return new DeniedAgentWork(agent.getUuid());
+                    }
+                    //check if agent already has assigned build, if so, reschedule it
+                    scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
+                    final JobPlan job = findMatchingJob(agent);
+                    return job == null ? NO_WORK : assignJob(agent, job);
+                }
+            }
+        }
+
+        return assignIndexedJob(agent);
+    }
+
+    /**
+     * With indexed matching, only finding a job runs concurrently for several agents: each job is claimed atomically
+     * from the {@link JobPlanIndex} under the read lock. Rescheduling abandoned builds and handing the claimed job over
+     * to the agent are serialized with each other, and with changes to the job plans, under the write lock.
+     */
+    private Work assignIndexedJob(final AgentInstance agent) {
+        jobPlanIndexLock.writeLock().lock();
+        try {
+//          check to ensure agent is not disabled after taking the lock
             if (agent.isDisabled()) {
                 return new DeniedAgentWork(agent.getUuid());
             }
             //check if agent already has assigned build, if so, reschedule it
             scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
-            final JobPlan job = findMatchingJob(agent);
-            if (job != null) {
-                Work buildWork = createWork(agent, job);
-                AgentBuildingInfo buildingInfo = new AgentBuildingInfo(job.getIdentifier().buildLocatorForDisplay(),
-                        job.getIdentifier().buildLocator());
-                agentService.building(agent.getUuid(), buildingInfo);
-                LOGGER.info("[Agent Assignment] Assigned job [{}] to agent [{}]", job.getIdentifier(), agent.agentConfig().getAgentIdentifier());
-
-                return buildWork;
-            }
+        } finally {
+            jobPlanIndexLock.writeLock().unlock();
+        }
+
+        final JobPlan job;
+        jobPlanIndexLock.readLock().lock();
+        try {
+            job = findMatchingJob(agent, jobPlanIndex);
+        } finally {
+            jobPlanIndexLock.readLock().unlock();
+        }
+
+        if (job == null) {
+            return NO_WORK;
+        }
+
+        jobPlanIndexLock.writeLock().lock();
+        try {
+            return assignJob(agent, job);
+        } finally {
+            jobPlanIndexLock.writeLock().unlock();
         }
+    }
+
+    private Work assignJob(AgentInstance agent, JobPlan job) {
+        Work buildWork = createWork(agent, job);
+        AgentBuildingInfo buildingInfo = new AgentBuildingInfo(job.getIdentifier().buildLocatorForDisplay(),
+                job.getIdentifier().buildLocator());
+        agentService.building(agent.getUuid(), buildingInfo);
+        LOGGER.info("[Agent Assignment] Assigned job [{}] to agent [{}]", job.getIdentifier(), agent.agentConfig().getAgentIdentifier());
+        schedulingLatencyMonitor.workAssigned(job.getPipelineName());
 
-        return NO_WORK;
+        return buildWork;
+    }
+
+    private synchronized void withJobPlansLock(Runnable action) {
+        jobPlanIndexLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            jobPlanIndexLock.writeLock().unlock();
+        }
     }
 
     JobPlan findMatchingJob(AgentInstance agent) {
+        JobPlanIndex index = this.jobPlanIndex;
+        if (index != null) {
+            return findMatchingJob(agent, index);
+        }
+
         List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
         JobPlan match = null;
         if (!agent.isElastic()) {
@@ -205,6 +272,15 @@ public class BuildAssignmentService implements ConfigChangedListener {
         return match;
     }
 
+    private JobPlan findMatchingJob(AgentInstance agent, JobPlanIndex index) {
+        Set<String> agentEnvironments = environmentConfigService.environmentsFor(agent.getUuid());
+        if (!agent.isElastic()) {
+            return index.claimFor(agent, agentEnvironments);
+        }
+        return index.claimForElasticAgent(agentEnvironments, (jobPlan, environment) ->
+                elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environment, jobPlan.getElasticProfile(), jobPlan.getIdentifier()));
+    }
+
     public void onTimer() {
         if (maintenanceModeService.isMaintenanceMode()) {
             LOGGER.debug("[Maintenance Mode] GoCD server is in 'maintenance' mode, skip checking build assignments");
@@ -216,17 +292,27 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     private void reloadJobPlans() {
-        synchronized (this) {
+        withJobPlansLock(() -> {
             if (jobPlans == null) {
                 jobPlans = jobInstanceService.orderedScheduledBuilds();
+                jobPlanIndex = createJobPlanIndex(jobPlans);
                 elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
             } else {
-                List<JobPlan> old = jobPlans;
+                List<JobPlan> old = jobPlans();
                 List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
                 jobPlans = newPlan;
+                jobPlanIndex = createJobPlanIndex(newPlan);
                 elasticAgentPluginService.createAgentsFor(old, newPlan);
             }
+        });
+    }
+
+    private JobPlanIndex createJobPlanIndex(List<JobPlan> plans) {
+        // once indexed matching is in use it stays on, so an assignment never sees the index disappear under it
+        if (jobPlanIndex == null && !systemEnvironment.isBuildAssignmentIndexedMatchingEnabled()) {
+            return null;
         }
+        return new JobPlanIndex(plans, environmentConfigService);
     }
 
     private void matchingJobForRegisteredAgents() {
@@ -278,15 +364,15 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         LOGGER.info("[Configuration Changed] Removing jobs for pipelines that no longer exist in configuration.");
-        synchronized (this) {
+        withJobPlansLock(() -> {
             List<JobPlan> jobsToRemove = new ArrayList<>();
-            for (JobPlan jobPlan : jobPlans) {
+            for (JobPlan jobPlan : jobPlans()) {
                 if (!newCruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
                     jobsToRemove.add(jobPlan);
                 }
             }
             forAllDo(jobsToRemove, o -> removeJob((JobPlan) o));
-        }
+        });
     }
 
     private void removeJobIfNotPresentInCruiseConfig(CruiseConfig newCruiseConfig, JobPlan jobPlan) {
@@ -297,7 +383,11 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void removeJob(JobPlan jobPlan) {
         try {
-            jobPlans.remove(jobPlan);
+            if (jobPlanIndex != null) {
+                jobPlanIndex.remove(jobPlan);
+            } else {
+                jobPlans.remove(jobPlan);
+            }
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             JobInstance instance = jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId());
             //#2846 - remove this hack
@@ -383,6 +473,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     List<JobPlan> jobPlans() {
-        return jobPlans;
+        JobPlanIndex index = this.jobPlanIndex;
+        return index == null ? jobPlans : index.unclaimedJobPlans();
     }
 }
@@ -17,18 +17,18 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
-import com.thoughtworks.go.domain.activity.ProjectStatus;
+import com.thoughtworks.go.config.security.users.Users;
 import com.thoughtworks.go.domain.cctray.CcTrayCache;
+import com.thoughtworks.go.domain.cctray.CcTraySnapshot;
 import com.thoughtworks.go.server.newsecurity.utils.SessionUtils;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /* Understands how to serve a request for the CcTray XML for the current user. */
 @Service
@@ -54,25 +54,20 @@ public class CcTrayService {
 
     public Appendable renderCCTrayXML(String siteUrlPrefix, String userName, Appendable appendable, Consumer<String> etagConsumer) {
         boolean isSecurityEnabled = goConfigService.isSecurityEnabled();
-        List<ProjectStatus> statuses = ccTrayCache.allEntriesInOrder();
+        CcTraySnapshot snapshot = ccTrayCache.snapshot();
 
-        String hashCodes = statuses.stream().map(ProjectStatus::hashCode).map(Object::toString).collect(Collectors.joining("/"));
-        String etag = DigestUtils.sha256Hex(siteUrlPrefix + "/" + hashCodes);
+        String etag = DigestUtils.sha256Hex(siteUrlPrefix + "/" + snapshot.etag());
         etagConsumer.accept(etag);
 
+        Map<Users, Boolean> canViewByViewers = new HashMap<>();
+
         try {
             appendable.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
             appendable.append("\n");
             appendable.append("<Projects>");
             appendable.append("\n");
-            for (ProjectStatus status : statuses) {
-                if (!isSecurityEnabled || status.canBeViewedBy(userName)) {
-                    String xmlRepresentation = status.xmlRepresentation().replaceAll(ProjectStatus.SITE_URL_PREFIX, siteUrlPrefix);
-                    if (!StringUtils.isBlank(xmlRepresentation)) {
-                        appendable.append("  ").append(xmlRepresentation).append("\n");
-                    }
-                }
-            }
+            snapshot.appendProjectsTo(appendable, siteUrlPrefix,
+                    viewers -> !isSecurityEnabled || canViewByViewers.computeIfAbsent(viewers, users -> users.contains(userName)));
 
             appendable.append("</Projects>");
         } catch (IOException e) {
@@ -16,7 +16,9 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.CompressedConsoleLog;
 import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.LocatableEntity;
@@ -25,15 +27,20 @@ import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
 import com.thoughtworks.go.server.view.artifacts.BuildIdArtifactLocator;
 import com.thoughtworks.go.server.view.artifacts.PathBasedArtifactsLocator;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
-import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
 
@@ -43,16 +50,34 @@ public class ConsoleService {
     public static final Logger LOGGER = LoggerFactory.getLogger(ConsoleService.class);
     private ArtifactDirectoryChooser chooser;
     public static final int DEFAULT_CONSOLE_LOG_LINE_BUFFER_SIZE = 1024;
+    private static final int NUMBER_OF_APPEND_LOCKS = 64;
     private ArtifactsDirHolder artifactsDirHolder;
+    private final SystemEnvironment systemEnvironment;
+    private final List<ConsoleLogAppendListener> appendListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "console-log-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // appends to a log, and the switch over to its compressed form, take the lock of the uncompressed log
+    private final Object[] appendLocks = new Object[NUMBER_OF_APPEND_LOCKS];
 
 
     public ConsoleService(ArtifactDirectoryChooser chooser) {
+        this(chooser, new SystemEnvironment());
+    }
+
+    ConsoleService(ArtifactDirectoryChooser chooser, SystemEnvironment systemEnvironment) {
         this.chooser = chooser;
+        this.systemEnvironment = systemEnvironment;
+        for (int i = 0; i < appendLocks.length; i++) {
+            appendLocks[i] = new Object();
+        }
     }
 
     @Autowired
-    public ConsoleService(ArtifactsDirHolder artifactsDirHolder, JobInstanceDao jobInstanceDao) {
-        this(new ArtifactDirectoryChooser());
+    public ConsoleService(ArtifactsDirHolder artifactsDirHolder, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+        this(new ArtifactDirectoryChooser(), systemEnvironment);
         this.artifactsDirHolder = artifactsDirHolder;
     }
 
@@ -62,8 +87,11 @@ public class ConsoleService {
     }
 
     public ConsoleConsumer getStreamer(long startingLine, JobIdentifier identifier) throws IllegalArtifactLocationException {
-        Path path = consoleLogFile(identifier).toPath();
-        return new ConsoleStreamer(path, startingLine);
+        File consoleLogFile = consoleLogFile(identifier);
+        if (shouldIndexLines() && !CompressedConsoleLog.isCompressed(consoleLogFile)) {
+            return new ConsoleStreamer(consoleLogFile.toPath(), startingLine, lineIndexOf(consoleLogFile));
+        }
+        return new ConsoleStreamer(consoleLogFile.toPath(), startingLine);
     }
 
     public File consoleLogArtifact(LocatableEntity jobIdentifier) throws IllegalArtifactLocationException {
@@ -80,7 +108,11 @@ public class ConsoleService {
 
     public File consoleLogFile(LocatableEntity jobIdentifier) throws IllegalArtifactLocationException {
         File artifact = consoleLogArtifact(jobIdentifier);
-        return artifact.exists() ? artifact : chooser.temporaryConsoleFile(jobIdentifier);
+        if (artifact.exists()) {
+            return artifact;
+        }
+        File compressedArtifact = CompressedConsoleLog.compressedFileFor(artifact);
+        return compressedArtifact.exists() ? compressedArtifact : chooser.temporaryConsoleFile(jobIdentifier);
     }
 
     public void appendToConsoleLog(JobIdentifier jobIdentifier, String text) throws IllegalArtifactLocationException, IOException {
@@ -92,16 +124,42 @@ public class ConsoleService {
         parentFile.mkdirs();
 
         LOGGER.trace("Updating console log [{}]", dest.getAbsolutePath());
-        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest, dest.exists()))) {
-            IOUtils.copy(in, out);
-        } catch (IOException e) {
-            LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
-            return false;
+        synchronized (appendLockFor(dest)) {
+            if (!CompressedConsoleLog.isCompressed(dest) && !dest.exists() && CompressedConsoleLog.compressedFileFor(dest).exists()) {
+                // compressed since the caller looked the log up
+                dest = CompressedConsoleLog.compressedFileFor(dest);
+            }
+            try {
+                if (CompressedConsoleLog.isCompressed(dest)) {
+                    new CompressedConsoleLog(dest).append(in, systemEnvironment.getConsoleLogCompressionBlockSize());
+                } else {
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest, dest.exists()))) {
+                        IOUtils.copy(in, out);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
+                return false;
+            }
+            LOGGER.trace("Console log [{}] saved.", dest.getAbsolutePath());
+            if (shouldIndexLines() && !CompressedConsoleLog.isCompressed(dest)) {
+                try {
+                    lineIndexOf(dest).update();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to index lines of console log at : [{}]", dest.getAbsolutePath(), e);
+                }
+            }
+        }
+        for (ConsoleLogAppendListener listener : appendListeners) {
+            listener.appended(dest);
         }
-        LOGGER.trace("Console log [{}] saved.", dest.getAbsolutePath());
         return true;
     }
 
+    public void registerAppendListener(ConsoleLogAppendListener listener) {
+        appendListeners.add(listener);
+    }
+
     public void moveConsoleArtifacts(LocatableEntity locatableEntity) {
         try {
             File from = chooser.temporaryConsoleFile(locatableEntity);
@@ -111,8 +169,65 @@ public class ConsoleService {
 
             File to = consoleLogArtifact(locatableEntity);
             FileUtils.moveFile(from, to);
+            lineIndexOf(from).moveTo(to);
+            if (systemEnvironment.isConsoleLogCompressionEnabled() && ConsoleLogIndex.canIndex(systemEnvironment.consoleLogCharsetAsCharset())) {
+                compressor.execute(() -> compress(to));
+            }
         } catch (IOException | IllegalArtifactLocationException e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Replaces the log of a completed job with its block compressed form, which readers switch to once the
+     * uncompressed log is gone
+     */
+    void compress(File consoleLog) {
+        int blockSize = systemEnvironment.getConsoleLogCompressionBlockSize();
+        try {
+            CompressedConsoleLog compressed = CompressedConsoleLog.compress(consoleLog, blockSize);
+            // take along anything which was appended while compressing, the last of it without letting appends in
+            takeAlongAppended(consoleLog, compressed, blockSize);
+            synchronized (appendLockFor(consoleLog)) {
+                takeAlongAppended(consoleLog, compressed, blockSize);
+                FileUtils.deleteQuietly(consoleLog);
+                FileUtils.deleteQuietly(ConsoleLogIndex.indexFileFor(consoleLog));
+            }
+            LOGGER.debug("Compressed console log [{}] into [{}]", consoleLog.getAbsolutePath(), compressed.getFile().length());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to compress console log at : [{}], leaving it uncompressed", consoleLog.getAbsolutePath(), e);
+            new CompressedConsoleLog(CompressedConsoleLog.compressedFileFor(consoleLog)).delete();
+        }
+    }
+
+    private void takeAlongAppended(File consoleLog, CompressedConsoleLog compressed, int blockSize) throws IOException {
+        long length;
+        while ((length = consoleLog.length()) > compressed.uncompressedLength()) {
+            try (InputStream appended = new FileInputStream(consoleLog)) {
+                long alreadyCompressed = compressed.uncompressedLength();
+                IOUtils.skipFully(appended, alreadyCompressed);
+                compressed.append(new BoundedInputStream(appended, length - alreadyCompressed), blockSize);
+            }
+        }
+    }
+
+    private Object appendLockFor(File consoleLog) {
+        String path = consoleLog.getAbsolutePath();
+        if (CompressedConsoleLog.isCompressed(consoleLog)) {
+            path = path.substring(0, path.length() - CompressedConsoleLog.EXTENSION.length());
+        }
+        return appendLocks[(path.hashCode() & Integer.MAX_VALUE) % appendLocks.length];
+    }
+
+    private boolean shouldIndexLines() {
+        return systemEnvironment.isConsoleLogLineIndexEnabled() && ConsoleLogIndex.canIndex(systemEnvironment.consoleLogCharsetAsCharset());
+    }
+
+    private ConsoleLogIndex lineIndexOf(File consoleLogFile) {
+        return new ConsoleLogIndex(consoleLogFile, systemEnvironment.getConsoleLogLineIndexInterval());
+    }
+
+    public interface ConsoleLogAppendListener {
+        void appended(File consoleLogFile);
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.ArtifactLogUtil;
+import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @understands storing artifact files once per distinct content. Every file of a job is a hard link to a blob named
+ * after the SHA-256 of its content, so the link count of a blob is its reference count, and a manifest per top level
+ * folder of a job records which blobs its files point to, so purging a stage only needs to look at those blobs.
+ * Blobs leaked by artifacts deleted outside the server are swept a bucket at a time, once the disk cleaner is done
+ * purging.
+ * <p>
+ * Blobs are keyed on a SHA-256 computed by the server while unzipping, rather than on the MD5 checksums the agent
+ * uploads: those only cover some uploads, and an MD5 collision would let one job's upload take the place of another
+ * job's file. Hashing as the bytes are written costs no extra read.
+ */
+@Component
+public class ContentAddressedArtifactStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentAddressedArtifactStore.class);
+    static final String STORE_FOLDER = "content-addressed-store";
+    private static final String BLOBS_FOLDER = "blobs";
+    private static final String MANIFESTS_FOLDER = "manifests";
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final String PIPELINES_FOLDER = "pipelines";
+    // blobs are bucketed by the first two hex digits of their hash
+    static final int BUCKETS = 256;
+    private static final int STAGE_ROOT_DEPTH = 4;
+    // pipelines/<pipeline>/<counter>/<stage>/<counter>/<job>/<folder>, relative to the artifacts dir
+    private static final int TOP_LEVEL_FOLDER_DEPTH = STAGE_ROOT_DEPTH + 3;
+
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final SystemEnvironment systemEnvironment;
+    private final boolean enabled;
+    private final AtomicInteger nextBucketToSweep = new AtomicInteger();
+
+    @Autowired
+    public ContentAddressedArtifactStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.systemEnvironment = systemEnvironment;
+        this.enabled = systemEnvironment.isArtifactsContentAddressedStorageEnabled() && FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    }
+
+    public void initialize() {
+        if (isEnabled() && systemEnvironment.shouldMigrateArtifactsToContentAddressedStorage()) {
+            Thread migration = new Thread(this::migrateAll, "content-addressed-artifact-store-migration");
+            migration.setDaemon(true);
+            migration.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of bytes unzipped into files whose content no other file shares, i.e. which are linked to
+     * nothing but their blob, so that purging them frees those bytes
+     */
+    public long unzip(ZipUtil zipUtil, ZipInputStream stream, File destDir) throws IOException {
+        if (!FileUtil.isSubdirectoryOf(artifactsDirHolder.getArtifactsDir(), destDir)) {
+            zipUtil.unzip(stream, destDir);
+            return 0;
+        }
+        Path relativeDestDir = relativeToArtifactsDir(destDir);
+        Map<Path, Set<String>> hashesByFolder = new HashMap<>();
+        AtomicLong unshared = new AtomicLong();
+        zipUtil.unzip(stream, destDir, (file, sha256) -> {
+            if (link(file.toPath(), sha256)) {
+                unshared.addAndGet(file.length());
+            }
+            Path relativeFile = relativeDestDir.resolve(destDir.toPath().relativize(file.toPath()));
+            hashesByFolder.computeIfAbsent(topLevelFolderOf(relativeFile), folder -> new HashSet<>()).add(sha256);
+        });
+        for (Map.Entry<Path, Set<String>> folderHashes : hashesByFolder.entrySet()) {
+            recordInManifest(folderHashes.getKey(), folderHashes.getValue());
+        }
+        return unshared.get();
+    }
+
+    /**
+     * Turns a file about to be written in place back into a file of its own, so that the blob and the other jobs
+     * sharing its content are left untouched
+     */
+    public void detach(File file) throws IOException {
+        Path path = file.toPath();
+        if (!Files.isRegularFile(path) || linkCount(path) < 2) {
+            return;
+        }
+        Path copy = temporarySibling(path);
+        Files.copy(path, copy, StandardCopyOption.COPY_ATTRIBUTES);
+        Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Called once the artifacts of a stage, except the folders retained on purge, are deleted. Only the manifests of
+     * the purged folders are dropped, the ones of the retained folders keep recording the blobs those folders still
+     * link to.
+     */
+    public void release(File stageRoot) throws IOException {
+        Path manifests = manifestsDir().resolve(relativeToArtifactsDir(stageRoot));
+        if (!Files.isDirectory(manifests)) {
+            return;
+        }
+        Set<String> hashes = new HashSet<>();
+        try (Stream<Path> paths = Files.walk(manifests)) {
+            for (Path manifest : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                hashes.addAll(Files.readAllLines(manifest, UTF_8));
+                if (isOfPurgedFolder(manifests.relativize(manifest))) {
+                    Files.delete(manifest);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to release the artifact manifests under [{}]", manifests, e);
+            return;
+        }
+        for (String hash : hashes) {
+            deleteIfUnreferenced(blobPath(hash));
+        }
+    }
+
+    /**
+     * Blobs released by purging a stage are deleted right away by {@link #release(File)}. This only catches blobs
+     * leaked by artifacts deleted outside the server, so each call looks at the next of the {@value #BUCKETS} buckets
+     * only, rather than at the whole store.
+     */
+    public void sweep() {
+        Path bucket = blobsDir().resolve(String.format("%02x", Math.floorMod(nextBucketToSweep.getAndIncrement(), BUCKETS)));
+        if (!Files.isDirectory(bucket)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(bucket)) {
+            paths.filter(Files::isRegularFile).forEach(this::deleteIfUnreferenced);
+        } catch (IOException e) {
+            LOGGER.error("Failed to sweep unreferenced blobs under [{}]", bucket, e);
+        }
+    }
+
+    public void migrate(File stageRoot) throws IOException {
+        File[] jobs = stageRoot.listFiles(File::isDirectory);
+        if (jobs == null) {
+            return;
+        }
+        for (File jobRoot : jobs) {
+            Path relativeJobRoot = relativeToArtifactsDir(jobRoot);
+            Map<Path, Set<String>> hashesByFolder = new HashMap<>();
+            try (Stream<Path> paths = Files.walk(jobRoot.toPath())) {
+                List<Path> files = paths.filter(path -> Files.isRegularFile(path) && !isRetainedOnPurge(jobRoot.toPath(), path)).collect(Collectors.toList());
+                for (Path file : files) {
+                    if (linkCount(file) > 1) {
+                        continue;
+                    }
+                    String sha256;
+                    try (InputStream content = Files.newInputStream(file)) {
+                        sha256 = DigestUtils.sha256Hex(content);
+                    }
+                    link(file, sha256);
+                    hashesByFolder.computeIfAbsent(relativeJobRoot.resolve(jobRoot.toPath().relativize(file).getName(0)), folder -> new HashSet<>()).add(sha256);
+                }
+            }
+            for (Map.Entry<Path, Set<String>> folderHashes : hashesByFolder.entrySet()) {
+                recordInManifest(folderHashes.getKey(), folderHashes.getValue());
+            }
+        }
+    }
+
+    private void migrateAll() {
+        Path pipelines = artifactsDirHolder.getArtifactsDir().toPath().resolve(PIPELINES_FOLDER);
+        if (!Files.isDirectory(pipelines)) {
+            return;
+        }
+        LOGGER.info("Moving the artifacts under [{}] to the content addressed store.", pipelines);
+        try (Stream<Path> paths = Files.walk(pipelines, STAGE_ROOT_DEPTH)) {
+            List<Path> stageRoots = paths.filter(path -> pipelines.relativize(path).getNameCount() == STAGE_ROOT_DEPTH && Files.isDirectory(path)).collect(Collectors.toList());
+            for (Path stageRoot : stageRoots) {
+                try {
+                    migrate(stageRoot.toFile());
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to move the artifacts under [{}] to the content addressed store.", stageRoot, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to move the artifacts under [{}] to the content addressed store.", pipelines, e);
+        }
+        LOGGER.info("Finished moving the artifacts under [{}] to the content addressed store.", pipelines);
+    }
+
+    // returns true if the file became the blob, false if it now shares an already stored blob
+    private boolean link(Path file, String sha256) throws IOException {
+        Path blob = blobPath(sha256);
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.createLink(blob, file);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // an identical file is already stored, fall through to share it
+        }
+        Path link = temporarySibling(file);
+        try {
+            Files.createLink(link, blob);
+        } catch (NoSuchFileException e) {
+            // the blob was swept after we saw it, this file becomes the blob instead
+            return link(file, sha256);
+        }
+        Files.move(link, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return false;
+    }
+
+    private synchronized void recordInManifest(Path relativeFolder, Set<String> hashes) throws IOException {
+        Path manifest = manifestsDir().resolve(relativeFolder + MANIFEST_EXTENSION);
+        Files.createDirectories(manifest.getParent());
+        Files.write(manifest, hashes, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void deleteIfUnreferenced(Path blob) {
+        try {
+            if (Files.exists(blob) && linkCount(blob) == 1) {
+                Files.delete(blob);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete the unreferenced blob [{}]", blob, e);
+        }
+    }
+
+    private boolean isRetainedOnPurge(Path jobRoot, Path file) {
+        return isRetainedOnPurge(jobRoot.relativize(file).getName(0).toString());
+    }
+
+    private Path topLevelFolderOf(Path relativeFile) {
+        return relativeFile.getNameCount() >= TOP_LEVEL_FOLDER_DEPTH ? relativeFile.subpath(0, TOP_LEVEL_FOLDER_DEPTH) : relativeFile.getParent();
+    }
+
+    // the manifests of a stage are at <job>/<folder>.manifest under the stage
+    private boolean isOfPurgedFolder(Path manifestOfStage) {
+        if (manifestOfStage.getNameCount() != 2) {
+            return false;
+        }
+        String manifest = manifestOfStage.getName(1).toString();
+        return !isRetainedOnPurge(manifest.substring(0, manifest.length() - MANIFEST_EXTENSION.length()));
+    }
+
+    private boolean isRetainedOnPurge(String topLevelFolder) {
+        return topLevelFolder.equals(ArtifactLogUtil.CRUISE_OUTPUT_FOLDER) || topLevelFolder.equals(ArtifactLogUtil.PLUGGABLE_ARTIFACT_METADATA_FOLDER);
+    }
+
+    private int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    private Path temporarySibling(Path path) {
+        return path.resolveSibling("." + path.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+    }
+
+    private Path relativeToArtifactsDir(File file) throws IOException {
+        return artifactsDirHolder.getArtifactsDir().getCanonicalFile().toPath().relativize(file.getCanonicalFile().toPath());
+    }
+
+    private Path blobPath(String sha256) {
+        return blobsDir().resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path blobsDir() {
+        return storeDir().resolve(BLOBS_FOLDER);
+    }
+
+    private Path manifestsDir() {
+        return storeDir().resolve(MANIFESTS_FOLDER);
+    }
+
+    private Path storeDir() {
+        return artifactsDirHolder.getArtifactsDir().toPath().resolve(STORE_FOLDER);
+    }
+}
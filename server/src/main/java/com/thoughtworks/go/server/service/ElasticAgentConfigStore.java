@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.Agents;
+import com.thoughtworks.go.server.domain.Agent;
+import com.thoughtworks.go.server.persistence.AgentDao;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Collections.emptySet;
+
+/**
+ * @understands elastic agents kept in the database instead of the config xml, so that they can come and go
+ * without rewriting the whole config
+ */
+@Component
+public class ElasticAgentConfigStore {
+    private final AgentDao agentDao;
+    private final SystemEnvironment systemEnvironment;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, AgentConfig> agents = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> environments = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public ElasticAgentConfigStore(AgentDao agentDao, SystemEnvironment systemEnvironment) {
+        this.agentDao = agentDao;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean isEnabled() {
+        return systemEnvironment.isElasticAgentsStoredInDatabase();
+    }
+
+    public boolean shouldStore(AgentConfig agentConfig) {
+        return isEnabled() && agentConfig.isElastic();
+    }
+
+    public void register(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean has(String uuid) {
+        return isEnabled() && load().containsKey(uuid);
+    }
+
+    public AgentConfig get(String uuid) {
+        return isEnabled() ? load().get(uuid) : null;
+    }
+
+    public Agents agents() {
+        return isEnabled() ? new Agents(new ArrayList<>(load().values())) : new Agents();
+    }
+
+    public Set<String> environmentsFor(String uuid) {
+        return has(uuid) ? environments.getOrDefault(uuid, emptySet()) : emptySet();
+    }
+
+    public void save(AgentConfig agentConfig, Collection<String> environmentNames) {
+        load();
+        agentDao.saveConfig(agentConfig, environmentNames);
+        agents.put(agentConfig.getUuid(), agentConfig);
+        environments.put(agentConfig.getUuid(), Collections.unmodifiableSet(new TreeSet<>(environmentNames)));
+        notifyListeners(agentConfig.getUuid(), agentConfig);
+    }
+
+    public void save(AgentConfig agentConfig) {
+        save(agentConfig, environmentsFor(agentConfig.getUuid()));
+    }
+
+    public void remove(String uuid) {
+        load();
+        agentDao.removeConfig(uuid);
+        agents.remove(uuid);
+        environments.remove(uuid);
+        notifyListeners(uuid, null);
+    }
+
+    private Map<String, AgentConfig> load() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    for (Agent agent : agentDao.agentsWithConfig()) {
+                        agents.put(agent.getUuid(), agent.toAgentConfig());
+                        environments.put(agent.getUuid(), Collections.unmodifiableSet(agent.getEnvironments()));
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        return agents;
+    }
+
+    private void notifyListeners(String uuid, AgentConfig agentConfig) {
+        for (ChangeListener listener : listeners) {
+            listener.onStoredAgentChange(uuid, agentConfig);
+        }
+    }
+
+    public interface ChangeListener {
+        /**
+         * @param agentConfig the agent as stored now, or null if it was removed
+         */
+        void onStoredAgentChange(String uuid, AgentConfig agentConfig);
+    }
+}
@@ -53,16 +53,18 @@ public class EnvironmentConfigService implements ConfigChangedListener {
     public final GoConfigService goConfigService;
     private final SecurityService securityService;
     private EntityHashingService entityHashingService;
+    private final ElasticAgentConfigStore elasticAgentConfigStore;
 
     private EnvironmentsConfig environments;
     private EnvironmentPipelineMatchers matchers;
     private static final Cloner cloner = new Cloner();
 
     @Autowired
-    public EnvironmentConfigService(GoConfigService goConfigService, SecurityService securityService, EntityHashingService entityHashingService) {
+    public EnvironmentConfigService(GoConfigService goConfigService, SecurityService securityService, EntityHashingService entityHashingService, ElasticAgentConfigStore elasticAgentConfigStore) {
         this.goConfigService = goConfigService;
         this.securityService = securityService;
         this.entityHashingService = entityHashingService;
+        this.elasticAgentConfigStore = elasticAgentConfigStore;
     }
 
     public void initialize() {
@@ -93,14 +95,24 @@ public class EnvironmentConfigService implements ConfigChangedListener {
 
     public List<JobPlan> filterJobsByAgent(List<JobPlan> jobPlans, String agentUuid) {
         ArrayList<JobPlan> plans = new ArrayList<>();
+        boolean storedAgent = elasticAgentConfigStore.has(agentUuid);
         for (JobPlan jobPlan : jobPlans) {
-            if (matchers.match(jobPlan.getPipelineName(), agentUuid)) {
+            if (storedAgent ? storedAgentMatches(jobPlan.getPipelineName(), agentUuid) : matchers.match(jobPlan.getPipelineName(), agentUuid)) {
                 plans.add(jobPlan);
             }
         }
         return plans;
     }
 
+    private boolean storedAgentMatches(String pipelineName, String agentUuid) {
+        String environment = envForPipeline(pipelineName);
+        Set<String> agentEnvironments = elasticAgentConfigStore.environmentsFor(agentUuid);
+        if (environment == null) {
+            return agentEnvironments.isEmpty();
+        }
+        return agentEnvironments.stream().anyMatch(environment::equalsIgnoreCase);
+    }
+
     public String envForPipeline(String pipelineName) {
         for (EnvironmentPipelineMatcher matcher : matchers) {
             if (matcher.hasPipeline(pipelineName)) {
@@ -126,6 +138,11 @@ public class EnvironmentConfigService implements ConfigChangedListener {
             for (EnvironmentAgentConfig environmentAgentConfig : forPipeline.getAgents()) {
                 configs.add(goConfigService.agentByUuid(environmentAgentConfig.getUuid()));
             }
+            for (AgentConfig storedAgent : elasticAgentConfigStore.agents()) {
+                if (storedAgentMatches(CaseInsensitiveString.str(pipelineName), storedAgent.getUuid())) {
+                    configs.add(storedAgent);
+                }
+            }
 
         } else {
             for (AgentConfig agentConfig : goConfigService.agents()) {
@@ -133,6 +150,11 @@ public class EnvironmentConfigService implements ConfigChangedListener {
                     configs.add(agentConfig);
                 }
             }
+            for (AgentConfig storedAgent : elasticAgentConfigStore.agents()) {
+                if (elasticAgentConfigStore.environmentsFor(storedAgent.getUuid()).isEmpty()) {
+                    configs.add(storedAgent);
+                }
+            }
         }
         return configs;
     }
@@ -152,10 +174,23 @@ public class EnvironmentConfigService implements ConfigChangedListener {
     }
 
     public Set<String> environmentsFor(String uuid) {
+        if (elasticAgentConfigStore.has(uuid)) {
+            return elasticAgentConfigStore.environmentsFor(uuid);
+        }
         return environments.environmentsForAgent(uuid);
     }
 
     public Set<EnvironmentConfig> environmentConfigsFor(String agentUuid) {
+        if (elasticAgentConfigStore.has(agentUuid)) {
+            Set<EnvironmentConfig> environmentConfigs = new HashSet<>();
+            for (String environmentName : elasticAgentConfigStore.environmentsFor(agentUuid)) {
+                EnvironmentConfig environmentConfig = environments.find(new CaseInsensitiveString(environmentName));
+                if (environmentConfig != null) {
+                    environmentConfigs.add(environmentConfig);
+                }
+            }
+            return environmentConfigs;
+        }
         return environments.environmentConfigsForAgent(agentUuid);
     }
 
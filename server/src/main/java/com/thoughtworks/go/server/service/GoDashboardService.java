@@ -24,10 +24,12 @@ import com.thoughtworks.go.config.security.users.Users;
 import com.thoughtworks.go.server.dashboard.*;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thoughtworks.go.config.security.util.SecurityConfigUtils.*;
 
@@ -37,16 +39,96 @@ public class GoDashboardService {
     private final GoDashboardCache cache;
     private final GoDashboardCurrentStateLoader dashboardCurrentStateLoader;
     private final GoConfigService goConfigService;
+    private final int maxViews;
+    private final Map<ViewKey, GoDashboardView> views;
+    private final AtomicLong viewsHandedOutAgain = new AtomicLong();
+    private final AtomicLong viewsBuilt = new AtomicLong();
+    private final AtomicLong groupEtagsReused = new AtomicLong();
+    private final AtomicLong groupEtagsDigested = new AtomicLong();
 
     @Autowired
-    public GoDashboardService(GoDashboardCache cache, GoDashboardCurrentStateLoader dashboardCurrentStateLoader, GoConfigService goConfigService) {
+    public GoDashboardService(GoDashboardCache cache, GoDashboardCurrentStateLoader dashboardCurrentStateLoader, GoConfigService goConfigService, SystemEnvironment systemEnvironment) {
         this.cache = cache;
         this.dashboardCurrentStateLoader = dashboardCurrentStateLoader;
         this.goConfigService = goConfigService;
+        this.maxViews = systemEnvironment.getDashboardMaxCachedViews();
+        this.views = maxViews <= 0 ? null : new LinkedHashMap<ViewKey, GoDashboardView>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ViewKey, GoDashboardView> eldest) {
+                return size() > maxViews;
+            }
+        };
     }
 
-    public List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username user) {
+    public boolean hasDashboardViews() {
+        return views != null;
+    }
+
+    /**
+     * The pipeline groups and environments a user sees through a filter, along with their etag. The view is built once
+     * and handed out again until the dashboard cache publishes a new set of pipelines or the config changes, so that
+     * a poll which ends up not-modified does not have to go through any of the pipelines. Any new set of pipelines
+     * makes every view stale, so how often a view is handed out again is reported in {@link #viewStatistics()}.
+     * Membership of plugin roles changes on login without touching either, so the user's plugin roles are part of
+     * the key the view is kept under.
+     */
+    public GoDashboardView dashboardViewFor(DashboardFilter filter, Username user) {
         GoDashboardPipelines allPipelines = cache.allEntries();
+        String configMd5 = goConfigService.currentCruiseConfig().getMd5();
+        if (views == null) {
+            return buildView(filter, user, allPipelines, configMd5, null);
+        }
+        ViewKey key = new ViewKey(user.getUsername(), PluginRoleUsersStore.instance().rolesFor(user.getUsername().toString()), filter);
+
+        GoDashboardView previous;
+        synchronized (views) {
+            previous = views.get(key);
+        }
+        if (previous != null && previous.isUpToDateWith(allPipelines, configMd5)) {
+            viewsHandedOutAgain.incrementAndGet();
+            return previous;
+        }
+
+        GoDashboardView view = buildView(filter, user, allPipelines, configMd5, previous);
+        viewsBuilt.incrementAndGet();
+        groupEtagsReused.addAndGet(view.reusedGroupEtags());
+        groupEtagsDigested.addAndGet(view.groupEtags() - view.reusedGroupEtags());
+        synchronized (views) {
+            views.put(key, view);
+        }
+        return view;
+    }
+
+    public Map<String, Object> viewStatistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Maximum views", Math.max(0, maxViews));
+        int cachedViews = 0;
+        if (views != null) {
+            synchronized (views) {
+                cachedViews = views.size();
+            }
+        }
+        json.put("Cached views", cachedViews);
+        long handedOutAgain = viewsHandedOutAgain.get();
+        long built = viewsBuilt.get();
+        json.put("Views handed out again", handedOutAgain);
+        json.put("Views built", built);
+        json.put("Hit rate (%)", handedOutAgain + built == 0 ? 0 : handedOutAgain * 100 / (handedOutAgain + built));
+        json.put("Group etags reused", groupEtagsReused.get());
+        json.put("Group etags digested", groupEtagsDigested.get());
+        return json;
+    }
+
+    private GoDashboardView buildView(DashboardFilter filter, Username user, GoDashboardPipelines allPipelines, String configMd5, GoDashboardView previous) {
+        return new GoDashboardView(user, allPipelineGroupsForDashboard(filter, user, allPipelines),
+                allEnvironmentsForDashboard(filter, user, allPipelines), allPipelines, configMd5, previous);
+    }
+
+    public List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username user) {
+        return allEnvironmentsForDashboard(filter, user, cache.allEntries());
+    }
+
+    private List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username user, GoDashboardPipelines allPipelines) {
         List<GoDashboardEnvironment> environments = new ArrayList<>();
 
         final Users admins = superAdmins();
@@ -63,7 +145,10 @@ public class GoDashboardService {
     }
 
     public List<GoDashboardPipelineGroup> allPipelineGroupsForDashboard(DashboardFilter filter, Username user) {
-        GoDashboardPipelines allPipelines = cache.allEntries();
+        return allPipelineGroupsForDashboard(filter, user, cache.allEntries());
+    }
+
+    private List<GoDashboardPipelineGroup> allPipelineGroupsForDashboard(DashboardFilter filter, Username user, GoDashboardPipelines allPipelines) {
         List<GoDashboardPipelineGroup> pipelineGroups = new ArrayList<>();
 
         goConfigService.groups().accept(group -> {
@@ -166,4 +251,32 @@ public class GoDashboardService {
         cache.remove(pipelineName);
         dashboardCurrentStateLoader.clearEntryFor(pipelineName);
     }
+
+    // the filter hash is taken up front, so a view is never handed out for a filter that has since been edited in place
+    private static class ViewKey {
+        private final CaseInsensitiveString username;
+        private final Set<PluginRoleConfig> pluginRoles;
+        private final DashboardFilter filter;
+        private final int filterHash;
+
+        ViewKey(CaseInsensitiveString username, Set<PluginRoleConfig> pluginRoles, DashboardFilter filter) {
+            this.username = username;
+            this.pluginRoles = pluginRoles;
+            this.filter = filter;
+            this.filterHash = filter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ViewKey that = (ViewKey) o;
+            return filterHash == that.filterHash && Objects.equals(username, that.username) && Objects.equals(pluginRoles, that.pluginRoles) && Objects.equals(filter, that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, pluginRoles, filterHash);
+        }
+    }
 }
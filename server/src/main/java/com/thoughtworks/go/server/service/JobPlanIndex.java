@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.ResourceConfig;
+import com.thoughtworks.go.domain.AgentInstance;
+import com.thoughtworks.go.domain.JobPlan;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+
+/**
+ * @understands scheduled job plans indexed by environment, required resources and pinned agent,
+ * so that idle agents can claim matching jobs concurrently without scanning the whole queue
+ */
+public class JobPlanIndex {
+    private static final CaseInsensitiveString NO_ENVIRONMENT = new CaseInsensitiveString("");
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Long, Entry> entriesByJobId = new HashMap<>();
+    // environment names are matched case insensitively, as agents are matched to environments elsewhere
+    private final Map<CaseInsensitiveString, Map<Set<ResourceConfig>, Bucket>> byEnvironmentAndResources = new HashMap<>();
+    private final Map<CaseInsensitiveString, Bucket> elasticByEnvironment = new HashMap<>();
+    private final Map<String, Bucket> byPinnedAgent = new HashMap<>();
+
+    public JobPlanIndex(List<JobPlan> jobPlans, EnvironmentConfigService environmentConfigService) {
+        Map<String, Optional<String>> environmentsByPipeline = new HashMap<>();
+        for (JobPlan jobPlan : jobPlans) {
+            String environment = environmentsByPipeline.computeIfAbsent(jobPlan.getPipelineName(), pipelineName -> Optional.ofNullable(environmentConfigService.envForPipeline(pipelineName))).orElse(null);
+            Entry entry = new Entry(entries.size(), jobPlan, environment);
+            entries.add(entry);
+            entriesByJobId.put(jobPlan.getJobId(), entry);
+
+            if (jobPlan.requiresElasticAgent()) {
+                elasticByEnvironment.computeIfAbsent(entry.environmentKey(), key -> new Bucket()).add(entry);
+            } else if (jobPlan.getAgentUuid() != null) {
+                byPinnedAgent.computeIfAbsent(jobPlan.getAgentUuid(), key -> new Bucket()).add(entry);
+            } else {
+                Set<ResourceConfig> resources = new HashSet<>(jobPlan.getResources().toResourceConfigs());
+                byEnvironmentAndResources.computeIfAbsent(entry.environmentKey(), key -> new HashMap<>())
+                        .computeIfAbsent(resources, key -> new Bucket()).add(entry);
+            }
+        }
+    }
+
+    public JobPlan claimFor(AgentInstance agent, Set<String> agentEnvironments) {
+        Collection<CaseInsensitiveString> environments = environmentKeys(agentEnvironments);
+        while (true) {
+            Entry candidate = null;
+            for (CaseInsensitiveString environment : environments) {
+                for (Map.Entry<Set<ResourceConfig>, Bucket> bucket : byEnvironmentAndResources.getOrDefault(environment, Collections.emptyMap()).entrySet()) {
+                    if (agent.agentConfig().hasAllResources(bucket.getKey())) {
+                        candidate = earliest(candidate, bucket.getValue().firstUnclaimed());
+                    }
+                }
+            }
+            Bucket pinned = byPinnedAgent.get(agent.getUuid());
+            if (pinned != null) {
+                candidate = earliest(candidate, pinned.firstUnclaimed(entry -> environments.contains(entry.environmentKey())));
+            }
+
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.claim()) {
+                return candidate.jobPlan;
+            }
+        }
+    }
+
+    public JobPlan claimForElasticAgent(Set<String> agentEnvironments, BiPredicate<JobPlan, String> shouldAssignWork) {
+        List<Entry> candidates = new ArrayList<>();
+        for (CaseInsensitiveString environment : environmentKeys(agentEnvironments)) {
+            candidates.addAll(elasticByEnvironment.getOrDefault(environment, new Bucket()).unclaimed());
+        }
+        candidates.sort(Comparator.comparingInt(entry -> entry.position));
+
+        for (Entry entry : candidates) {
+            if (shouldAssignWork.test(entry.jobPlan, entry.environment) && entry.claim()) {
+                return entry.jobPlan;
+            }
+        }
+        return null;
+    }
+
+    public boolean remove(JobPlan jobPlan) {
+        Entry entry = entriesByJobId.get(jobPlan.getJobId());
+        return entry != null && entry.claim();
+    }
+
+    public List<JobPlan> unclaimedJobPlans() {
+        List<JobPlan> unclaimed = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.isClaimed()) {
+                unclaimed.add(entry.jobPlan);
+            }
+        }
+        return unclaimed;
+    }
+
+    private Collection<CaseInsensitiveString> environmentKeys(Set<String> agentEnvironments) {
+        if (agentEnvironments == null || agentEnvironments.isEmpty()) {
+            return singleton(NO_ENVIRONMENT);
+        }
+        Set<CaseInsensitiveString> environments = new HashSet<>();
+        for (String environment : agentEnvironments) {
+            environments.add(new CaseInsensitiveString(environment));
+        }
+        return environments;
+    }
+
+    private Entry earliest(Entry current, Entry other) {
+        if (other == null) {
+            return current;
+        }
+        return current == null || other.position < current.position ? other : current;
+    }
+
+    private static class Entry {
+        private final int position;
+        private final JobPlan jobPlan;
+        private final String environment;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        Entry(int position, JobPlan jobPlan, String environment) {
+            this.position = position;
+            this.jobPlan = jobPlan;
+            this.environment = environment;
+        }
+
+        CaseInsensitiveString environmentKey() {
+            return environment == null ? NO_ENVIRONMENT : new CaseInsensitiveString(environment);
+        }
+
+        boolean isClaimed() {
+            return claimed.get();
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    // entries in queue order, with a cursor skipping past the claimed prefix
+    private static class Bucket {
+        private final List<Entry> entries = new ArrayList<>();
+        private final AtomicInteger head = new AtomicInteger();
+
+        void add(Entry entry) {
+            entries.add(entry);
+        }
+
+        Entry firstUnclaimed() {
+            int index = head.get();
+            while (index < entries.size() && entries.get(index).isClaimed()) {
+                index++;
+            }
+            head.accumulateAndGet(index, Math::max);
+            return index < entries.size() ? entries.get(index) : null;
+        }
+
+        Entry firstUnclaimed(Predicate<Entry> filter) {
+            for (int index = head.get(); index < entries.size(); index++) {
+                Entry entry = entries.get(index);
+                if (!entry.isClaimed() && filter.test(entry)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        List<Entry> unclaimed() {
+            if (entries.isEmpty()) {
+                return emptyList();
+            }
+            List<Entry> unclaimed = new ArrayList<>();
+            for (int index = head.get(); index < entries.size(); index++) {
+                if (!entries.get(index).isClaimed()) {
+                    unclaimed.add(entries.get(index));
+                }
+            }
+            return unclaimed;
+        }
+    }
+}
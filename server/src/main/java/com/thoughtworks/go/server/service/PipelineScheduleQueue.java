@@ -32,8 +32,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionCallback;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 @Component
 public class PipelineScheduleQueue {
@@ -44,6 +47,8 @@ public class PipelineScheduleQueue {
     private Map<CaseInsensitiveString, BuildCause> toBeScheduled = new ConcurrentHashMap<>();
     private Map<CaseInsensitiveString, BuildCause> mostRecentScheduled = new ConcurrentHashMap<>();
     private InstanceFactory instanceFactory;
+    private final List<Consumer<CaseInsensitiveString>> buildCauseListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<CaseInsensitiveString>> buildCauseDroppedListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public PipelineScheduleQueue(PipelineService pipelineService, TransactionTemplate transactionTemplate, InstanceFactory instanceFactory) {
@@ -72,15 +77,33 @@ public class PipelineScheduleQueue {
     public void schedule(CaseInsensitiveString pipelineName, BuildCause buildCause) {
         synchronized (mutexForPipelineName(pipelineName)) {
             BuildCause current = toBeScheduled.get(pipelineName);
-            if (current == null || buildCause.trumps(current)) {
-                toBeScheduled.put(pipelineName, buildCause);
+            if (current != null && !buildCause.trumps(current)) {
+                return;
             }
+            toBeScheduled.put(pipelineName, buildCause);
         }
+        notify(buildCauseListeners, pipelineName);
+    }
+
+    public void addBuildCauseListener(Consumer<CaseInsensitiveString> listener) {
+        buildCauseListeners.add(listener);
+    }
+
+    /**
+     * Listeners are told when a queued build cause is thrown away without a pipeline being scheduled for it,
+     * i.e. when scheduling it is cancelled, it turns out to be out of date or scheduling it failed.
+     */
+    public void addBuildCauseDroppedListener(Consumer<CaseInsensitiveString> listener) {
+        buildCauseDroppedListeners.add(listener);
     }
 
     public void cancelSchedule(CaseInsensitiveString pipelineName) {
+        BuildCause dropped;
         synchronized (mutexForPipelineName(pipelineName)) {
-            toBeScheduled.remove(pipelineName);
+            dropped = toBeScheduled.remove(pipelineName);
+        }
+        if (dropped != null) {
+            notify(buildCauseDroppedListeners, pipelineName);
         }
     }
 
@@ -98,10 +121,14 @@ public class PipelineScheduleQueue {
     }
 
     public void clearPipeline(CaseInsensitiveString pipelineName) {
+        BuildCause dropped;
         synchronized (mutexForPipelineName(pipelineName)) {
-            toBeScheduled.remove(pipelineName);
+            dropped = toBeScheduled.remove(pipelineName);
             mostRecentScheduled.remove(pipelineName);
         }
+        if (dropped != null) {
+            notify(buildCauseDroppedListeners, pipelineName);
+        }
     }
 
     //TODO: #5163 - this is a concurrency issue - talk to Rajesh or JJ
@@ -147,6 +174,16 @@ public class PipelineScheduleQueue {
         });
     }
 
+    private void notify(List<Consumer<CaseInsensitiveString>> listeners, CaseInsensitiveString pipelineName) {
+        for (Consumer<CaseInsensitiveString> listener : listeners) {
+            try {
+                listener.accept(pipelineName);
+            } catch (Exception e) {
+                LOGGER.error("Failed to notify listener about build cause for pipeline {}", pipelineName, e);
+            }
+        }
+    }
+
     private boolean shouldCancel(BuildCause buildCause, CaseInsensitiveString pipelineName) {
         return !buildCause.isForced() && buildCause.isSameAs(mostRecentScheduled(pipelineName));
     }
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.service;
 import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.domain.PiplineConfigVisitor;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.listener.ConfigChangedListener;
 import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.server.domain.Username;
@@ -37,10 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Consumer;
 
 @Service
@@ -55,6 +53,7 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
     private ScheduleCheckCompletedTopic scheduleCheckCompletedTopic;
     private SchedulingPerformanceLogger schedulingPerformanceLogger;
     private final Map<String, ScheduleCheckState> pipelines = new HashMap<>();
+    private final Map<String, Set<String>> pipelinesByMaterialFingerprint = new HashMap<>();
 
     protected PipelineScheduler() {
     }
@@ -89,8 +88,11 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 synchronized (pipelines) {
                     addPipelineIfNotPresent(pipelineConfig, pipelines);
+                    removeFromMaterialIndex(CaseInsensitiveString.str(pipelineConfig.name()));
                     if (!goConfigService.getAllPipelineConfigs().contains(pipelineConfig)) {
                         pipelines.remove(pipelineConfig.name().toString());
+                    } else {
+                        addToMaterialIndex(pipelineConfig);
                     }
                 }
             }
@@ -129,19 +131,45 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
 
     void checkPipelines() {
         synchronized (pipelines) {
-            for (Map.Entry<String, ScheduleCheckState> entry : pipelines.entrySet()) {
-                if (entry.getValue().equals(ScheduleCheckState.IDLE)) {
-                    long trackingId = schedulingPerformanceLogger.pipelineSentToScheduleCheckQueue(entry.getKey());
+            for (String pipelineName : pipelines.keySet()) {
+                checkPipeline(pipelineName);
+            }
+        }
+    }
 
-                    scheduleCheckQueue.post(new ScheduleCheckMessage(entry.getKey(), trackingId));
-                    pipelines.put(entry.getKey(), ScheduleCheckState.BUSY);
+    /**
+     * Sends the pipelines that use the given material for a schedule check right away, rather than on the next timer.
+     *
+     * @return names of the pipelines that use the material
+     */
+    public List<String> checkPipelinesUsing(String materialFingerprint) {
+        List<String> pipelineNames = new ArrayList<>();
+        if (!schedulingChecker.canSchedule(new ServerHealthServiceUpdatingOperationResult(serverHealthService))) {
+            return pipelineNames;
+        }
 
-                    LOGGER.trace("try to schedule pipeline {}, current pipeline state: {}", entry.getKey(), pipelines);
-                } else {
-                    LOGGER.trace("skipping scheduling pipeline {} because it's busy scheduling, current pipelines state: {}", entry.getKey(), pipelines);
+        synchronized (pipelines) {
+            for (String pipelineName : pipelinesByMaterialFingerprint.getOrDefault(materialFingerprint, Collections.emptySet())) {
+                if (pipelines.containsKey(pipelineName)) {
+                    checkPipeline(pipelineName);
+                    pipelineNames.add(pipelineName);
                 }
             }
         }
+        return pipelineNames;
+    }
+
+    private void checkPipeline(String pipelineName) {
+        if (ScheduleCheckState.IDLE.equals(pipelines.get(pipelineName))) {
+            long trackingId = schedulingPerformanceLogger.pipelineSentToScheduleCheckQueue(pipelineName);
+
+            scheduleCheckQueue.post(new ScheduleCheckMessage(pipelineName, trackingId));
+            pipelines.put(pipelineName, ScheduleCheckState.BUSY);
+
+            LOGGER.trace("try to schedule pipeline {}, current pipeline state: {}", pipelineName, pipelines);
+        } else {
+            LOGGER.trace("skipping scheduling pipeline {} because it's busy scheduling, current pipelines state: {}", pipelineName, pipelines);
+        }
     }
 
     public void manualProduceBuildCauseAndSave(String pipelineName, Username username, ScheduleOptions scheduleOptions, OperationResult result) {
@@ -227,6 +255,27 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
             for (String pipelineName : deletedPipeline) {
                 pipelines.remove(pipelineName);
             }
+
+            pipelinesByMaterialFingerprint.clear();
+            newCruiseConfig.accept((PiplineConfigVisitor) this::addToMaterialIndex);
+        }
+    }
+
+    private void addToMaterialIndex(PipelineConfig pipelineConfig) {
+        String pipelineName = CaseInsensitiveString.str(pipelineConfig.name());
+        for (MaterialConfig materialConfig : pipelineConfig.materialConfigs()) {
+            pipelinesByMaterialFingerprint.computeIfAbsent(materialConfig.getFingerprint(), fingerprint -> new LinkedHashSet<>()).add(pipelineName);
+        }
+    }
+
+    private void removeFromMaterialIndex(String pipelineName) {
+        Iterator<Set<String>> iterator = pipelinesByMaterialFingerprint.values().iterator();
+        while (iterator.hasNext()) {
+            Set<String> pipelineNames = iterator.next();
+            pipelineNames.remove(pipelineName);
+            if (pipelineNames.isEmpty()) {
+                iterator.remove();
+            }
         }
     }
 
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service.backup;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @understands every file of an incrementally backed up directory along with its checksum
+ */
+public class BackupManifest {
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, String> checksums = new TreeMap<>();
+
+    public static BackupManifest readFrom(File manifestFile) throws IOException {
+        BackupManifest manifest = new BackupManifest();
+        if (manifestFile == null || !manifestFile.exists()) {
+            return manifest;
+        }
+        for (String line : FileUtils.readLines(manifestFile, UTF_8)) {
+            String[] parts = line.split(SEPARATOR, 2);
+            if (parts.length == 2) {
+                manifest.add(parts[1], parts[0]);
+            }
+        }
+        return manifest;
+    }
+
+    public synchronized void add(String path, String checksum) {
+        checksums.put(path, checksum);
+    }
+
+    /**
+     * @return whether the backup this manifest belongs to already holds this exact file
+     */
+    public synchronized boolean holds(String path, String checksum) {
+        return checksum.equals(checksums.get(path));
+    }
+
+    public synchronized boolean isEmpty() {
+        return checksums.isEmpty();
+    }
+
+    public synchronized void writeTo(File manifestFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        checksums.forEach((path, checksum) -> lines.add(checksum + SEPARATOR + path));
+        FileUtils.writeLines(manifestFile, UTF_8.name(), lines, "\n");
+    }
+}
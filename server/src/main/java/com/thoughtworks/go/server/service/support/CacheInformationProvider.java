@@ -74,6 +74,7 @@ public class CacheInformationProvider implements ServerInfoProvider {
         json.put("Remove Time in milliseconds", getStatisticsFrom(statistics.cacheRemoveOperation()));
 
         json.put("Cache Size", statistics.getSize());
+        json.put("Cache Size (Heap bytes)", statistics.getLocalHeapSizeInBytes());
 
         LinkedHashMap<String, Long> cacheCount = new LinkedHashMap<>();
         cacheCount.put("Hits", statistics.cacheHitCount());
@@ -83,6 +84,7 @@ public class CacheInformationProvider implements ServerInfoProvider {
         cacheCount.put("Put", statistics.cachePutCount());
         cacheCount.put("Remove", statistics.cacheRemoveCount());
         json.put("Cache Counts", cacheCount);
+        json.put("Hit Ratio", statistics.cacheHitRatio());
 
         json.put("Cache Size (Disk)", statistics.getLocalDiskSize());
         json.put("Cache Count (Disk)", statistics.localDiskHitCount());
@@ -104,6 +106,7 @@ public class CacheInformationProvider implements ServerInfoProvider {
 
         json.put("Name", config.getName());
         json.put("Maximum Elements in Memory", config.getMaxEntriesLocalHeap());
+        json.put("Maximum Bytes in Memory", config.getMaxBytesLocalHeap());
         json.put("Maximum Elements on Disk", config.getMaxBytesLocalDisk());
         json.put("Memory Store Eviction Policy", config.getMemoryStoreEvictionPolicy().toString());
         json.put("Clean or Flush", config.isClearOnFlush());
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.server.dashboard.GoDashboardActivityListener;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.service.GoDashboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class DashboardInformationProvider implements ServerInfoProvider {
+    private final GoDashboardActivityListener dashboardActivityListener;
+    private final GoDashboardCache dashboardCache;
+    private final GoDashboardService dashboardService;
+
+    @Autowired
+    public DashboardInformationProvider(GoDashboardActivityListener dashboardActivityListener, GoDashboardCache dashboardCache, GoDashboardService dashboardService) {
+        this.dashboardActivityListener = dashboardActivityListener;
+        this.dashboardCache = dashboardCache;
+        this.dashboardService = dashboardService;
+    }
+
+    @Override
+    public double priority() {
+        return 19.0;
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Queued changes", dashboardActivityListener.pendingChanges());
+        json.put("Queue lag (ms)", dashboardActivityListener.lagInMillis());
+        json.put("Processed changes", dashboardActivityListener.processedChanges());
+        json.put("Cache", dashboardCache.statistics());
+        json.put("Views", dashboardService.viewStatistics());
+        return json;
+    }
+
+    @Override
+    public String name() {
+        return "Dashboard";
+    }
+}
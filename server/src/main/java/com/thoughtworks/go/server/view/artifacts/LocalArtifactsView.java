@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.server.view.artifacts;
 
+import com.thoughtworks.go.domain.CompressedConsoleLog;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleService;
@@ -47,6 +48,10 @@ public class LocalArtifactsView implements ArtifactsView {
         File file = isConsoleOutput(filePath) ? consoleService.consoleLogArtifact(translatedId)
                 : artifactsService.findArtifact(translatedId, filePath);
 
+        if (isConsoleOutput(filePath) && !file.exists() && CompressedConsoleLog.compressedFileFor(file).isFile()) {
+            return FileModelAndView.createGzippedFileView(CompressedConsoleLog.compressedFileFor(file), sha);
+        }
+
         if (file.exists() && file.isFile()) {
             return FileModelAndView.createFileView(file, sha);
         }
@@ -78,6 +78,17 @@ public class FileModelAndView {
         }
     }
 
+    /**
+     * For a file whose content is gzipped on disk, served as is to clients accepting gzip encoding
+     */
+    public static ModelAndView createGzippedFileView(File file, String sha) {
+        ModelAndView view = createFileView(file, sha);
+        if (view.getModel().containsKey("targetFile")) {
+            view.addObject(FileView.GZIPPED, true);
+        }
+        return view;
+    }
+
     public static ArtifactFolderViewFactory jsonViewfactory() {
         return new JsonArtifactViewFactory();
     }
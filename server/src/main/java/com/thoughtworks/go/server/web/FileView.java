@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.server.web;
 
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -31,15 +32,22 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 
 public class FileView implements View, ServletContextAware {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileView.class);
 
     private ServletContext servletContext;
+    private SystemEnvironment systemEnvironment = new SystemEnvironment();
     public static final String NEED_TO_ZIP = "need_to_zip";
+    public static final String GZIPPED = "gzipped";
+    private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
 
     private ServletContext getServletContext() {
         return this.servletContext;
@@ -53,17 +61,76 @@ public class FileView implements View, ServletContextAware {
         return "application/octet-stream";
     }
 
-    private void handleFile(File file, boolean needToZip, HttpServletResponse response) throws Exception {
+    private void handleFile(File file, boolean needToZip, HttpServletRequest request, HttpServletResponse response) throws Exception {
         String filename = file.getName();
         seContentType(needToZip, response, filename);
         setHeaders(response, filename);
+        if (!needToZip) {
+            response.setHeader("Accept-Ranges", "bytes");
+            // lets an agent resuming a download tell whether the file changed since it started
+            response.setHeader("ETag", String.format("\"%d-%d\"", file.length(), file.lastModified()));
+        }
+        if (!needToZip && request.getHeader("Range") != null) {
+            handleRange(file, request.getHeader("Range"), response);
+            return;
+        }
         setContentLength(needToZip, file, response);
         setOutput(needToZip, file, response);
     }
 
+    // the file is gzipped on disk: clients accepting gzip get it as is, others get it decompressed on the way
+    private void handleGzippedFile(File file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String filename = StringUtils.removeEnd(file.getName(), ".gz");
+        seContentType(false, response, filename);
+        setHeaders(response, filename);
+        response.setHeader("Vary", "Accept-Encoding");
+        ServletOutputStream out = response.getOutputStream();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.addHeader("Content-Length", Long.toString(file.length()));
+            try (InputStream input = new FileInputStream(file)) {
+                IOUtils.copy(input, out, 32 * 1024);
+            }
+        } else {
+            try (InputStream input = new GZIPInputStream(new FileInputStream(file), 32 * 1024)) {
+                IOUtils.copy(input, out, 32 * 1024);
+            }
+        }
+        out.flush();
+    }
+
+    // agents fetch large files as several byte ranges at once, and resume interrupted downloads, with a single range
+    private void handleRange(File file, String range, HttpServletResponse response) throws IOException {
+        long length = file.length();
+        Matcher matcher = SINGLE_BYTE_RANGE.matcher(range.trim());
+        if (!matcher.matches()) {
+            setContentLength(false, file, response);
+            setOutput(false, file, response);
+            return;
+        }
+        long first = Long.parseLong(matcher.group(1));
+        long last = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+        if (first >= length || first > last) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + length);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", String.format("bytes %d-%d/%d", first, last, length));
+        response.addHeader("Content-Length", Long.toString(last - first + 1));
+        ServletOutputStream out = response.getOutputStream();
+        try (FileInputStream input = new FileInputStream(file)) {
+            IOUtils.copyLarge(input, out, first, last - first + 1);
+        }
+        out.flush();
+    }
+
     private void setOutput(boolean needToZip, File file, HttpServletResponse response) throws IOException {
         ServletOutputStream out = response.getOutputStream();
-        if (needToZip) {
+        if (needToZip && systemEnvironment.isArtifactFolderZipStreamingEnabled()) {
+            new ZipUtil().zipWithoutRecompressing(file, out, Deflater.BEST_SPEED);
+        } else if (needToZip) {
             new ZipUtil().zip(file, out, Deflater.NO_COMPRESSION);
         } else {
             try (FileInputStream input = new FileInputStream(file)) {
@@ -104,14 +171,19 @@ public class FileView implements View, ServletContextAware {
     public void render(Map map, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws Exception {
         File file = (File) map.get("targetFile");
         boolean needToZip = map.containsKey(NEED_TO_ZIP);
-        handleFileWithLogging(httpServletResponse, file, needToZip);
+        boolean gzipped = map.containsKey(GZIPPED);
+        handleFileWithLogging(httpServletRequest, httpServletResponse, file, needToZip, gzipped);
     }
 
-    private void handleFileWithLogging(HttpServletResponse httpServletResponse, File file, boolean needToZip) throws Exception {
+    private void handleFileWithLogging(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file, boolean needToZip, boolean gzipped) throws Exception {
         LOGGER.info("[Artifact Download] About to download: {}. ShouldZip? = {}", file.getAbsolutePath(), needToZip);
         long before = System.currentTimeMillis();
 
-        handleFile(file, needToZip, httpServletResponse);
+        if (gzipped) {
+            handleGzippedFile(file, httpServletRequest, httpServletResponse);
+        } else {
+            handleFile(file, needToZip, httpServletRequest, httpServletResponse);
+        }
 
         long timeTaken = System.currentTimeMillis() - before;
         LOGGER.info("[Artifact Download] Finished downloading: {}. ShouldZip? = {}. The time taken is: {}ms", file.getAbsolutePath(), needToZip, timeTaken);
@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.server.web;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,6 +33,9 @@ public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
     }
 
     public ModelAndView createView(JobIdentifier identifier, ArtifactFolder artifactFolder) throws Exception {
+        if (zipArtifactCache.isStreamingEnabled()) {
+            return streamedOrCachedView(artifactFolder);
+        }
         if (zipArtifactCache.cacheCreated(artifactFolder)) {
             Map<String, Object> data = new HashMap<>();
             data.put("targetFile", zipArtifactCache.cachedFile(artifactFolder));
@@ -41,6 +45,18 @@ public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
         }
     }
 
+    private ModelAndView streamedOrCachedView(ArtifactFolder artifactFolder) {
+        Map<String, Object> data = new HashMap<>();
+        File cachedZip = zipArtifactCache.cachedFileIfHot(artifactFolder);
+        if (cachedZip != null) {
+            data.put("targetFile", cachedZip);
+        } else {
+            data.put("targetFile", artifactFolder.getRootFolder());
+            data.put(FileView.NEED_TO_ZIP, true);
+        }
+        return new ModelAndView("fileView", data);
+    }
+
     public static ArtifactFolderViewFactory zipViewFactory(ZipArtifactCache zipArtifactCache) {
         return new ZipArtifactFolderViewFactory(zipArtifactCache);
     }
@@ -107,6 +107,11 @@ public class AgentRemoteHandler {
                 File consoleLogFile = consoleService.consoleLogFile(findJobIdentifier(consoleTransmission));
                 consoleService.updateConsoleLog(consoleLogFile, consoleTransmission.getLineAsStream());
                 break;
+            case consoleOutFrame:
+                ConsoleFrameTransmission frame = MessageEncoding.decodeData(msg.getData(), ConsoleFrameTransmission.class);
+                File frameConsoleLogFile = consoleService.consoleLogFile(findJobIdentifier(frame));
+                consoleService.updateConsoleLog(frameConsoleLogFile, frame.getContentAsStream());
+                break;
             default:
                 throw new RuntimeException("Unknown action: " + msg.getAction());
         }
@@ -30,10 +30,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 @Component
@@ -44,7 +51,11 @@ public class ConsoleLogSender {
     private static final int LOG_FILE_DOES_NOT_EXIST = 4410;
     private static final int BUF_SIZE = 1024 * 1024; // 1MB
     private static final int FILL_INTERVAL = 500;
+    private static final int COMPLETION_CHECK_INTERVAL = 10 * FILL_INTERVAL;
     private final Charset charset;
+    private final boolean sharedTail;
+    private final Map<Long, ConsoleLogTailPublisher> tailPublishers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService tailExecutor;
 
     @Autowired
     private ConsoleService consoleService;
@@ -61,6 +72,17 @@ public class ConsoleLogSender {
         this.jobInstanceDao = jobInstanceDao;
         this.socketHealthService = socketHealthService;
         this.charset = systemEnvironment.consoleLogCharsetAsCharset();
+        this.sharedTail = systemEnvironment.isConsoleLogSharedTailEnabled();
+        if (sharedTail) {
+            AtomicInteger threadCount = new AtomicInteger();
+            // only reads and compresses the logs, sockets are written to without blocking
+            this.tailExecutor = Executors.newScheduledThreadPool(Math.max(1, systemEnvironment.getConsoleLogSharedTailThreads()), runnable -> {
+                Thread thread = new Thread(runnable, "console-log-tail-publisher-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            consoleService.registerAppendListener(this::consoleLogAppended);
+        }
     }
 
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
@@ -84,9 +106,14 @@ public class ConsoleLogSender {
             return;
         }
 
+        if (isRunningBuild && sharedTail && jobIdentifier.getBuildId() != null) {
+            tailWithOthers(webSocket, jobIdentifier, start);
+            return;
+        }
+
         try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
             do {
-                start += sendLogs(webSocket, streamer, jobIdentifier);
+                start += sendLogs(webSocket::send, streamer, jobIdentifier);
 
                 // allow buffers to fill to avoid sending 1 line at a time for running builds
                 if (isRunningBuild) {
@@ -97,12 +124,12 @@ public class ConsoleLogSender {
             LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
             // empty the tail end of the file because the build could have been marked completed, and exited the
             // loop before we've seen the last content update
-            if (isRunningBuild) sendLogs(webSocket, streamer, jobIdentifier);
+            if (isRunningBuild) sendLogs(webSocket::send, streamer, jobIdentifier);
 
             //send the remaining logs if any
             if (detectCompleted(jobIdentifier)) {
                 try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(start, jobIdentifier)) {
-                    start += sendLogs(webSocket, consoleFileStreamer, jobIdentifier);
+                    start += sendLogs(webSocket::send, consoleFileStreamer, jobIdentifier);
                     LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
                 }
             }
@@ -113,6 +140,64 @@ public class ConsoleLogSender {
         }
     }
 
+    /**
+     * Sends the socket what has been logged so far and then hands it over to the publisher tailing the log for
+     * everyone watching the job, which sends it new lines until the job completes
+     */
+    private void tailWithOthers(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
+        ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier);
+        long next = start;
+        boolean subscribed = false;
+        try {
+            next += sendLogs(webSocket::send, streamer, jobIdentifier);
+            File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
+            ConsoleLogTailPublisher publisher = tailPublishers.computeIfAbsent(jobIdentifier.getBuildId(), buildId -> startPublishing(jobIdentifier, consoleLogFile));
+            subscribed = publisher.subscribe(webSocket, streamer, next);
+        } finally {
+            if (!subscribed) {
+                streamer.close();
+            }
+        }
+        if (!subscribed) {
+            // the publisher stopped between being looked up and subscribed to, start over from where we are
+            process(webSocket, jobIdentifier, next);
+        }
+    }
+
+    private ConsoleLogTailPublisher startPublishing(JobIdentifier jobIdentifier, File consoleLogFile) {
+        ConsoleLogTailPublisher publisher = new ConsoleLogTailPublisher(jobIdentifier, consoleLogFile, this, consoleService);
+        publisher.setCompletionCheck(tailExecutor.scheduleWithFixedDelay(() -> {
+            // in case completion or an append went unnoticed, and to stop once nobody is watching
+            if (!publisher.hasSubscribers() || detectCompleted(jobIdentifier)) {
+                stopPublishing(jobIdentifier.getBuildId(), publisher);
+            } else {
+                publisher.publishScheduled();
+            }
+        }, COMPLETION_CHECK_INTERVAL, COMPLETION_CHECK_INTERVAL, TimeUnit.MILLISECONDS));
+        return publisher;
+    }
+
+    private void stopPublishing(Long buildId, ConsoleLogTailPublisher publisher) {
+        tailPublishers.remove(buildId, publisher);
+        publisher.complete();
+    }
+
+    void consoleLogAppended(File consoleLogFile) {
+        for (ConsoleLogTailPublisher publisher : tailPublishers.values()) {
+            // appends arriving within the fill interval are published together
+            if (publisher.isTailing(consoleLogFile) && publisher.markPublishScheduled()) {
+                tailExecutor.schedule(publisher::publishScheduled, FILL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public void jobCompleted(Long buildId) {
+        ConsoleLogTailPublisher publisher = buildId == null ? null : tailPublishers.get(buildId);
+        if (publisher != null) {
+            tailExecutor.execute(() -> stopPublishing(buildId, publisher));
+        }
+    }
+
     private boolean doesLogExists(JobIdentifier jobIdentifier) {
         return consoleService.doesLogExist(jobIdentifier);
     }
@@ -125,9 +210,9 @@ public class ConsoleLogSender {
         return jobInstanceDao.isJobCompleted(jobIdentifier);
     }
 
-    private long sendLogs(final SocketEndpoint webSocket, final ConsoleConsumer console, final JobIdentifier jobIdentifier) throws IOException {
+    long sendLogs(final LogChunkSink sink, final ConsoleConsumer console, final JobIdentifier jobIdentifier) throws IOException {
         final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUF_SIZE);
-        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, webSocket, BUF_SIZE);
+        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, sink, BUF_SIZE);
         long linesProcessed = console.stream(line -> {
             try {
                 byte[] bytes = line.getBytes(charset);
@@ -140,13 +225,13 @@ public class ConsoleLogSender {
             }
         });
 
-        flushBuffer(buffer, webSocket);
+        flushBuffer(buffer, sink);
         return linesProcessed;
     }
 
-    private void flushBuffer(ByteArrayOutputStream buffer, SocketEndpoint webSocket) throws IOException {
+    private void flushBuffer(ByteArrayOutputStream buffer, LogChunkSink sink) throws IOException {
         if (buffer.size() == 0) return;
-        webSocket.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(buffer.toByteArray())));
+        sink.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(buffer.toByteArray())));
         buffer.reset();
     }
 
@@ -166,16 +251,23 @@ public class ConsoleLogSender {
         return gzipBytes.toByteArray();
     }
 
+    /**
+     * @understands where the chunks of log read by {@link #sendLogs} go: a socket, or everyone tailing a log together
+     */
+    interface LogChunkSink {
+        void send(ByteBuffer chunk) throws IOException;
+    }
+
     // Flushes stream just before it becomes larger than `bufSize`
     private class AutoFlushingStream extends ProxyOutputStream {
         private final ByteArrayOutputStream buffer;
-        private final SocketEndpoint webSocket;
+        private final LogChunkSink sink;
         private final int bufSize;
 
-        public AutoFlushingStream(ByteArrayOutputStream buffer, SocketEndpoint webSocket, int bufSize) {
+        public AutoFlushingStream(ByteArrayOutputStream buffer, LogChunkSink sink, int bufSize) {
             super(buffer);
             this.buffer = buffer;
-            this.webSocket = webSocket;
+            this.sink = sink;
             this.bufSize = bufSize;
         }
 
@@ -191,7 +283,7 @@ public class ConsoleLogSender {
 
         private void maybeFlush(int n) throws IOException {
             if (buffer.size() + n >= bufSize) {
-                flushBuffer(buffer, webSocket);
+                flushBuffer(buffer, sink);
             }
         }
     }
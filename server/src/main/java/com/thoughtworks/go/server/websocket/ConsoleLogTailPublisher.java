@@ -0,0 +1,310 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.server.websocket.ConsoleLogSender.LogChunkSink;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @understands tailing the console log of a running job once on behalf of everyone watching it: new lines are read
+ * when the log has been appended to, compressed once and queued for every subscribed socket, which is sent its queue
+ * without blocking so that no socket is written to while the publisher is locked
+ */
+class ConsoleLogTailPublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogTailPublisher.class);
+    private static final int MAX_CATCH_UP_ROUNDS = 10;
+    // chunks of up to a megabyte each, a subscriber further behind than this is disconnected
+    static final int MAX_UNSENT_CHUNKS = 16;
+    // the console log page reconnects from the last line it has on this code
+    static final int RECONNECT_TO_RESUME = 4004;
+
+    private final JobIdentifier jobIdentifier;
+    private final File consoleLogFile;
+    private final ConsoleLogSender sender;
+    private final ConsoleService consoleService;
+    private final Subscribers subscribers = new Subscribers();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+    private ConsoleConsumer streamer;
+    private long published;
+    private boolean completed;
+    private ScheduledFuture<?> completionCheck;
+
+    ConsoleLogTailPublisher(JobIdentifier jobIdentifier, File consoleLogFile, ConsoleLogSender sender, ConsoleService consoleService) {
+        this.jobIdentifier = jobIdentifier;
+        this.consoleLogFile = consoleLogFile;
+        this.sender = sender;
+        this.consoleService = consoleService;
+    }
+
+    /**
+     * Takes over a socket which has been sent the log up to, but not including, line {@code next} using its own
+     * streamer. The first subscriber's streamer becomes the one every later line is read through; later subscribers
+     * are brought level with what has been published before they start receiving published lines.
+     *
+     * @return false if the job has completed and nothing more will be published
+     */
+    synchronized boolean subscribe(SocketEndpoint socket, ConsoleConsumer caughtUp, long next) throws Exception {
+        if (completed) {
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(socket);
+        if (streamer == null) {
+            streamer = caughtUp;
+            published = next;
+            subscribers.add(subscriber);
+            return true;
+        }
+
+        try (ConsoleConsumer ownStreamer = caughtUp) {
+            publish();
+            // both streamers read up to the end of the log, so they only disagree about lines appended in between
+            for (int round = 0; round < MAX_CATCH_UP_ROUNDS && next != published; round++) {
+                if (next < published) {
+                    next += sender.sendLogs(subscriber, ownStreamer, jobIdentifier);
+                } else {
+                    publish();
+                }
+            }
+        }
+        if (next != published) {
+            LOGGER.debug("Subscribed a socket for {} at line {} while lines up to {} have been published", jobIdentifier, next, published);
+        }
+        subscribers.add(subscriber);
+        return true;
+    }
+
+    synchronized void publish() throws IOException {
+        if (completed || streamer == null) {
+            return;
+        }
+        published += sender.sendLogs(subscribers, streamer, jobIdentifier);
+    }
+
+    void complete() {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            try {
+                publish();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to publish the last of the console log for {}", jobIdentifier, e);
+            }
+            completed = true;
+            if (completionCheck != null) {
+                completionCheck.cancel(false);
+            }
+            if (streamer != null) {
+                try {
+                    streamer.close();
+                } catch (Exception e) {
+                    LOGGER.debug("Failed to close console log streamer for {}", jobIdentifier, e);
+                }
+                publishRemainder();
+            }
+            LOGGER.debug("Published {} log lines for {} to all subscribers", published, jobIdentifier);
+        }
+        // nothing is published or subscribed once completed, each socket is closed after what is queued for it
+        subscribers.close();
+    }
+
+    // lines logged after the last read may only be found in the file the log has since been moved or compressed to
+    private void publishRemainder() {
+        if (!subscribers.isOpen()) {
+            return;
+        }
+        try (ConsoleConsumer remainder = consoleService.getStreamer(published, jobIdentifier)) {
+            published += sender.sendLogs(subscribers, remainder, jobIdentifier);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to publish the rest of the console log for {}", jobIdentifier, e);
+        }
+    }
+
+    synchronized boolean hasSubscribers() {
+        return subscribers.isOpen();
+    }
+
+    synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    synchronized void setCompletionCheck(ScheduledFuture<?> completionCheck) {
+        this.completionCheck = completionCheck;
+    }
+
+    /**
+     * @return true if the caller should publish; any further appends until then are covered by the same publish
+     */
+    boolean markPublishScheduled() {
+        return publishScheduled.compareAndSet(false, true);
+    }
+
+    void publishScheduled() {
+        publishScheduled.set(false);
+        try {
+            publish();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to publish console log for {}", jobIdentifier, e);
+        }
+    }
+
+    boolean isTailing(File consoleLogFile) {
+        return this.consoleLogFile.equals(consoleLogFile);
+    }
+
+    // all subscribers together, so that each chunk is compressed once and queued for all of them
+    private static class Subscribers implements LogChunkSink {
+        private final List<Subscriber> subscribers = new ArrayList<>();
+
+        synchronized void add(Subscriber subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        @Override
+        public synchronized void send(ByteBuffer chunk) {
+            subscribers.removeIf(subscriber -> !subscriber.isOpen());
+            for (Subscriber subscriber : subscribers) {
+                subscriber.send(chunk.duplicate());
+            }
+        }
+
+        synchronized boolean isOpen() {
+            subscribers.removeIf(subscriber -> !subscriber.isOpen());
+            return !subscribers.isEmpty();
+        }
+
+        void close() {
+            List<Subscriber> closing;
+            synchronized (this) {
+                closing = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            for (Subscriber subscriber : closing) {
+                subscriber.close();
+            }
+        }
+    }
+
+    /**
+     * A subscribed socket with the chunks queued for it, which are sent one at a time without blocking. A subscriber
+     * falling too far behind is disconnected rather than sent a log with lines missing, and reconnects from where it
+     * left off.
+     */
+    private static class Subscriber implements LogChunkSink, WriteCallback {
+        private final SocketEndpoint socket;
+        private final Queue<ByteBuffer> unsent = new ArrayDeque<>();
+        private boolean sending;
+        private boolean dropped;
+        private Integer closeCode;
+        private String closeReason;
+
+        Subscriber(SocketEndpoint socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void send(ByteBuffer chunk) {
+            ByteBuffer next;
+            synchronized (this) {
+                if (dropped || closeCode != null) {
+                    return;
+                }
+                if (unsent.size() >= MAX_UNSENT_CHUNKS) {
+                    LOGGER.debug("Disconnecting console log subscriber {} which fell {} chunks behind", socket.key(), unsent.size());
+                    unsent.clear();
+                    dropped = true;
+                    closeCode = RECONNECT_TO_RESUME;
+                    closeReason = "Fell behind the console log, reconnect to resume";
+                    // the chunk being sent finishes and then the socket is closed
+                    return;
+                }
+                unsent.add(chunk);
+                next = sending ? null : nextToSend();
+            }
+            if (next != null) {
+                socket.sendAsync(next, this);
+            }
+        }
+
+        @Override
+        public void writeSuccess() {
+            ByteBuffer next;
+            boolean closeNow;
+            synchronized (this) {
+                next = nextToSend();
+                closeNow = next == null && closeCode != null;
+            }
+            if (next != null) {
+                socket.sendAsync(next, this);
+            } else if (closeNow) {
+                socket.close(closeCode, closeReason);
+            }
+        }
+
+        @Override
+        public void writeFailed(Throwable error) {
+            LOGGER.debug("Dropping console log subscriber {} which could not be sent to", socket.key(), error);
+            synchronized (this) {
+                unsent.clear();
+                sending = false;
+                dropped = true;
+            }
+            socket.close();
+        }
+
+        synchronized boolean isOpen() {
+            return !dropped && socket.isOpen();
+        }
+
+        // closes the socket once what is queued for it has been sent
+        void close() {
+            synchronized (this) {
+                if (closeCode != null) {
+                    return;
+                }
+                closeCode = StatusCode.NORMAL;
+                if (sending) {
+                    return;
+                }
+            }
+            socket.close(StatusCode.NORMAL, null);
+        }
+
+        private ByteBuffer nextToSend() {
+            ByteBuffer next = unsent.poll();
+            sending = next != null;
+            return next;
+        }
+    }
+}
@@ -25,11 +25,14 @@ import org.springframework.stereotype.Component;
 public class JobInstanceStatusMonitor {
 
     @Autowired
-    public JobInstanceStatusMonitor(final AgentRemoteHandler agentRemoteHandler, JobInstanceService jobInstanceService) {
+    public JobInstanceStatusMonitor(final AgentRemoteHandler agentRemoteHandler, final ConsoleLogSender consoleLogSender, JobInstanceService jobInstanceService) {
         jobInstanceService.registerJobStateChangeListener(job -> {
             if (job.isRescheduled() || JobResult.Cancelled.equals(job.getResult())) {
                 agentRemoteHandler.sendCancelMessage(job.getAgentUuid());
             }
+            if (job.isRescheduled() || job.isCompleted()) {
+                consoleLogSender.jobCompleted(job.getId());
+            }
         });
     }
 }
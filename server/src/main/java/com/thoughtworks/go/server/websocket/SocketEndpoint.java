@@ -16,12 +16,19 @@
 
 package com.thoughtworks.go.server.websocket;
 
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public interface SocketEndpoint {
     void send(ByteBuffer data) throws IOException;
 
+    /**
+     * Sends without waiting for the data to be written; the callback is told once it has been, or has failed to be
+     */
+    void sendAsync(ByteBuffer data, WriteCallback callback);
+
     void ping() throws IOException;
 
     boolean isOpen();
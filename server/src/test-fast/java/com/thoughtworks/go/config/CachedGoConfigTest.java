@@ -90,6 +90,19 @@ public class CachedGoConfigTest {
         Assert.assertThat(cachedGoConfig.loadConfigHolder(), is(configHolder));
     }
 
+    @Test
+    public void shouldBuildLookupIndicesOnlyOnTheCurrentConfigWhenEnabled() {
+        CruiseConfig config = mock(CruiseConfig.class);
+        CruiseConfig configForEdit = mock(CruiseConfig.class);
+        when(dataSource.load()).thenReturn(new GoConfigHolder(config, configForEdit));
+        when(systemEnvironment.isConfigLookupIndicesEnabled()).thenReturn(true);
+
+        cachedGoConfig.forceReload();
+
+        verify(config).buildLookupIndices();
+        verify(configForEdit, never()).buildLookupIndices();
+    }
+
     @Test
     public void shouldNotifyConfigListenersWhenConfigChanges() throws Exception {
         when(dataSource.writeWithLock(any(UpdateConfigCommand.class), any(GoConfigHolder.class))).thenReturn(new GoFileConfigDataSource.GoConfigSaveResult(configHolder, ConfigSaveState.UPDATED));
@@ -24,6 +24,7 @@ import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -171,4 +172,19 @@ public class CcTrayCacheTest {
         assertThat(allProjects.get(1), is(status2_changed));
         assertThat(allProjects.get(2), is(status3));
     }
+
+    @Test
+    public void shouldChangeSnapshotEtagOnlyWhenAnEntryChanges() throws Exception {
+        ProjectStatus status1 = new ProjectStatus("item1", "Sleeping 1", "last-build-status 1", "last-build-label 1", new Date(), "web-url 1");
+        ProjectStatus status2 = new ProjectStatus("item2", "Sleeping 2", "last-build-status 2", "last-build-label 2", new Date(), "web-url 2");
+
+        cache.replaceAllEntriesInCacheWith(asList(status1, status2));
+        String etag = cache.snapshot().etag();
+
+        cache.put(new ProjectStatus("item2", "Sleeping 2", "last-build-status 2", "last-build-label 2", status2.getLastBuildTime(), "web-url 2"));
+        assertThat(cache.snapshot().etag(), is(etag));
+
+        cache.put(new ProjectStatus("item2", "Building", "last-build-status 2", "last-build-label 2", status2.getLastBuildTime(), "web-url 2"));
+        assertThat(cache.snapshot().etag(), is(not(etag)));
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain.cctray;
+
+import com.thoughtworks.go.config.security.users.AllowedUsers;
+import com.thoughtworks.go.config.security.users.Everyone;
+import com.thoughtworks.go.config.security.users.Users;
+import com.thoughtworks.go.domain.activity.ProjectStatus;
+import com.thoughtworks.go.util.DateUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.thoughtworks.go.util.DataStructureUtils.s;
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class CcTraySnapshotTest {
+    @Test
+    public void shouldAppendProjectsInOrderForEveryRunOfViewersWhichCanBeViewed() throws Exception {
+        Users team1 = new AllowedUsers(s("user1"), Collections.emptySet());
+        Users team2 = new AllowedUsers(s("user2"), Collections.emptySet());
+        CcTraySnapshot snapshot = new CcTraySnapshot(asList(
+                statusFor("proj1", team1), statusFor("proj2", new AllowedUsers(s("user1"), Collections.emptySet())),
+                statusFor("proj3", team2), new ProjectStatus.NullProjectStatus("proj4").updateViewers(team1),
+                statusFor("proj5", team1)));
+
+        List<Users> askedAbout = new ArrayList<>();
+        StringBuilder xml = new StringBuilder();
+        snapshot.appendProjectsTo(xml, "prefix", viewers -> askedAbout.add(viewers) && viewers.contains("user1"));
+
+        assertThat(xml.toString(), is(projectXml("proj1", "prefix") + projectXml("proj2", "prefix") + projectXml("proj5", "prefix")));
+        assertThat(askedAbout, contains(team1, team2, team1));
+    }
+
+    @Test
+    public void shouldChangeEtagWhenViewersOfAProjectChange() throws Exception {
+        String etag = new CcTraySnapshot(asList(statusFor("proj1", Everyone.INSTANCE))).etag();
+
+        assertThat(new CcTraySnapshot(asList(statusFor("proj1", Everyone.INSTANCE))).etag(), is(etag));
+        assertThat(new CcTraySnapshot(asList(statusFor("proj1", new AllowedUsers(s("user1"), Collections.emptySet())))).etag(), is(not(etag)));
+    }
+
+    private ProjectStatus statusFor(String projectName, Users viewers) throws Exception {
+        ProjectStatus status = new ProjectStatus(projectName, "activity1", "build-status-1", "build-label-1", DateUtils.parseRFC822("Sun, 23 May 2010 10:00:00 +0200"), "web-url");
+        return status.updateViewers(viewers);
+    }
+
+    private String projectXml(String projectName, String siteUrlPrefix) {
+        return "  <Project name=\"" + projectName + "\" activity=\"activity1\" lastBuildStatus=\"build-status-1\" lastBuildLabel=\"build-label-1\" lastBuildTime=\"2010-05-23T08:00:00Z\" webUrl=\"" + siteUrlPrefix + "/web-url\" />\n";
+    }
+}
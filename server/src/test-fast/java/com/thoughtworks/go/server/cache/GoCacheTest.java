@@ -32,7 +32,14 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.hamcrest.Matchers.containsString;
@@ -300,6 +307,66 @@ public class GoCacheTest {
     }
 
 
+    @Test
+    public void shouldWorkOutWhichClassOwnsAKey() {
+        assertThat(GoCache.ownerOf("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageOffsetMap.$pipeline.$stage"), is("StageSqlMapDao"));
+        assertThat(GoCache.ownerOf("com.thoughtworks.go.server.persistence.MaterialRepository_pipelinePMRs_42"), is("MaterialRepository"));
+        assertThat(GoCache.ownerOf("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao" + GoCache.SUB_KEY_DELIMITER + "child"), is("JobInstanceSqlMapDao"));
+        assertThat(GoCache.ownerOf("GO_ETAG_CACHE"), is("GO"));
+    }
+
+    @Test
+    public void shouldNotEvictEntriesOfOtherRegionsWhenARegionIsFull() {
+        Cache stages = new Cache(new CacheConfiguration(getClass().getName() + ".StageSqlMapDao", 2).memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
+        cacheManager.addCache(stages);
+        GoCache regionedCache = new GoCache(cacheManager.getCache(getClass().getName()), Collections.singletonMap("StageSqlMapDao", stages), mock(TransactionSynchronizationManager.class));
+
+        regionedCache.put("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipeline", "pipeline");
+        for (int i = 0; i < 10; i++) {
+            regionedCache.put("com.thoughtworks.go.server.dao.StageSqlMapDao.$stage.$" + i, "stage " + i);
+        }
+
+        assertThat(stages.getSize(), is(2));
+        assertThat(regionedCache.get("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipeline"), is("pipeline"));
+        assertThat(regionedCache.get("com.thoughtworks.go.server.dao.StageSqlMapDao.$stage.$9"), is("stage 9"));
+        assertThat(regionedCache.getKeys().size(), is(3));
+    }
+
+    @Test
+    public void shouldKeepSubKeysInTheRegionOfTheirParentKey() {
+        Cache stages = new Cache(new CacheConfiguration(getClass().getName() + ".StageSqlMapDao", 100));
+        cacheManager.addCache(stages);
+        GoCache regionedCache = new GoCache(cacheManager.getCache(getClass().getName()), Collections.singletonMap("StageSqlMapDao", stages), mock(TransactionSynchronizationManager.class));
+        String parentKey = "com.thoughtworks.go.server.dao.StageSqlMapDao.$stage";
+
+        regionedCache.put(parentKey, "child", "value");
+
+        assertThat(stages.getSize(), is(2));
+        assertThat(regionedCache.get(parentKey, "child"), is("value"));
+        regionedCache.remove(parentKey);
+        assertThat(stages.getSize(), is(0));
+    }
+
+    @Test
+    public void shouldTrackEverySubKeyAddedConcurrently() throws Exception {
+        String parentKey = "parent";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> puts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String subKey = "child" + i;
+            puts.add(executor.submit(() -> goCache.put(parentKey, subKey, "value")));
+        }
+        for (Future<?> put : puts) {
+            put.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        GoCache.KeyList list = (GoCache.KeyList) goCache.get(parentKey);
+        assertThat(list.size(), is(50));
+        goCache.remove(parentKey);
+        assertThat(goCache.getKeys().size(), is(0));
+    }
+
     private class NonSerializableClass {
     }
 
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.cache;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestFileUtil;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
@@ -46,6 +47,7 @@ public class ZipArtifactCacheTest {
     private File folder;
     private ArtifactFolder artifactFolder;
     private ArtifactsDirHolder artifactsDirHolder;
+    private SystemEnvironment systemEnvironment;
 
     @Before public void setUp() throws Exception {
         folder = TestFileUtil.createTempFolder("ZipArtifactCacheTest-" + System.currentTimeMillis());
@@ -56,12 +58,16 @@ public class ZipArtifactCacheTest {
 
         artifactsDirHolder = mock(ArtifactsDirHolder.class);
         when(artifactsDirHolder.getArtifactsDir()).thenReturn(folder);
-        zipArtifactCache = new ZipArtifactCache(this.artifactsDirHolder, new ZipUtil());
+        systemEnvironment = new SystemEnvironment();
+        zipArtifactCache = new ZipArtifactCache(this.artifactsDirHolder, new ZipUtil(), systemEnvironment);
         artifactFolder = new ArtifactFolder(JOB_IDENTIFIER, new File(artifact, "dir"), "dir");
     }
 
     @After public void tearDown() throws Exception {
         FileUtils.deleteQuietly(folder);
+        systemEnvironment.reset(SystemEnvironment.ARTIFACT_FOLDER_ZIP_STREAMING);
+        systemEnvironment.reset(SystemEnvironment.ARTIFACT_FOLDER_ZIP_CACHE_HOT_THRESHOLD);
+        systemEnvironment.reset(SystemEnvironment.ARTIFACT_FOLDER_ZIP_CACHE_MAX_SIZE);
     }
 
     @Test public void shouldKnowWhenCacheAlreadyCreated() throws Exception {
@@ -106,6 +112,53 @@ public class ZipArtifactCacheTest {
         assertThat(new File(cacheDir, "dir/file1"), exists());
     }
 
+    @Test public void shouldOnlyCacheFoldersWhichAreAskedForOftenEnough() throws Exception {
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_STREAMING, true);
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_CACHE_HOT_THRESHOLD, 2);
+
+        assertThat(zipArtifactCache.cachedFileIfHot(artifactFolder), is(nullValue()));
+        Thread.sleep(200);
+        assertThat(zipArtifactCache.cachedFile(artifactFolder), not(exists()));
+
+        assertThat(zipArtifactCache.cachedFileIfHot(artifactFolder), is(nullValue()));
+        File cachedZip = null;
+        for (int timesTried = 0; cachedZip == null && timesTried < 10; timesTried++) {
+            Thread.sleep(100);
+            cachedZip = zipArtifactCache.cachedFileIfHot(artifactFolder);
+        }
+        assertThat(cachedZip, is(zipArtifactCache.cachedFile(artifactFolder)));
+        assertThat(zipArtifactCache.asJson().get("Hits"), is(1L));
+    }
+
+    @Test public void shouldEvictLeastRecentlyUsedZipsOnceCacheOutgrowsItsMaxSize() throws Exception {
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_STREAMING, true);
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_CACHE_MAX_SIZE, 1L);
+        File artifact = new File(folder, JOB_FOLDERS);
+        TestFileUtil.createTestFolder(artifact, "other");
+        TestFileUtil.createTestFile(artifact, "other/file2");
+        ArtifactFolder otherFolder = new ArtifactFolder(JOB_IDENTIFIER, new File(artifact, "other"), "other");
+
+        zipArtifactCache.createCachedFile(artifactFolder);
+        zipArtifactCache.createCachedFile(otherFolder);
+
+        assertThat(zipArtifactCache.cachedFile(artifactFolder), not(exists()));
+        assertThat(zipArtifactCache.cachedFile(otherFolder), exists());
+    }
+
+    @Test public void shouldCountZipsCachedBeforeARestartTowardsTheMaxSize() throws Exception {
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_STREAMING, true);
+        File cachedBeforeRestart = new File(folder, "cache/artifacts/" + JOB_FOLDERS + "/old.zip");
+        FileUtils.writeByteArrayToFile(cachedBeforeRestart, new byte[100]);
+
+        assertThat(zipArtifactCache.asJson().get("Cached zips size (bytes)"), is(100L));
+
+        systemEnvironment.set(SystemEnvironment.ARTIFACT_FOLDER_ZIP_CACHE_MAX_SIZE, 1L);
+        zipArtifactCache.createCachedFile(artifactFolder);
+
+        assertThat(cachedBeforeRestart, not(exists()));
+        assertThat(zipArtifactCache.cachedFile(artifactFolder), exists());
+    }
+
     private void waitForCacheCreated() throws Exception {
         int timesTried = 10;
         while (timesTried > 0 && !zipArtifactCache.cacheCreated(artifactFolder)) {
@@ -142,6 +142,24 @@ public class AgentRegistrationControllerTest {
         verify(agentConfigService).updateAgent(any(UpdateConfigCommand.class), eq(uuid), any(HttpOperationResult.class), eq(new Username("some-agent-login-name")));
     }
 
+    @Test
+    public void shouldAutoRegisterElasticAgentOutsideConfigWhenAgentsAreStoredInDatabase() {
+        String uuid = "uuid";
+        final ServerConfig serverConfig = mockedServerConfig("token-generation-key", "someKey");
+        when(goConfigService.hasAgent(uuid)).thenReturn(false);
+        when(goConfigService.serverConfig()).thenReturn(serverConfig);
+        when(agentService.agentUsername(uuid, request.getRemoteAddr(), "host")).thenReturn(new Username("some-agent-login-name"));
+        when(agentConfigService.isStoredOutsideConfig(any(AgentConfig.class))).thenReturn(true);
+        when(agentConfigService.registerElasticAgent(any(AgentConfig.class), eq(""), eq("uat"), any(HttpOperationResult.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        controller.agentRequest("host", uuid, "location", "233232", "osx", "someKey", "", "uat", "", "elastic-agent-id", "elastic-plugin-id", false, token(uuid, serverConfig.getTokenGenerationKey()), request);
+
+        verify(agentConfigService).registerElasticAgent(any(AgentConfig.class), eq(""), eq("uat"), any(HttpOperationResult.class));
+        verify(agentConfigService, never()).updateAgent(any(UpdateConfigCommand.class), eq(uuid), any(HttpOperationResult.class), any(Username.class));
+        verify(agentService).requestRegistration(eq(new Username("some-agent-login-name")), any(AgentRuntimeInfo.class));
+    }
+
     @Test
     public void shouldNotAutoRegisterAgentIfKeysDoNotMatch() {
         String uuid = "uuid";
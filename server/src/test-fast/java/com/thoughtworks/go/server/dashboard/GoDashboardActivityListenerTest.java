@@ -52,6 +52,8 @@ public class GoDashboardActivityListenerTest {
     private PipelinePauseService pipelinePauseService;
     @Mock
     private PipelineLockService pipelineLockService;
+    @Mock
+    private GoDashboardCache dashboardCache;
 
     @Before
     public void setUp() throws Exception {
@@ -61,7 +63,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForConfigChangeHandlingOnInitialization() throws Exception {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, dashboardCache);
 
         listener.initialize();
 
@@ -77,7 +79,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(stageService).addStageStatusListener(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                handler, null, null, null, null);
+                handler, null, null, null, null, dashboardCache);
 
         listener.initialize();
         listener.startDaemon();
@@ -95,7 +97,7 @@ public class GoDashboardActivityListenerTest {
         CruiseConfig aConfig = GoConfigMother.defaultCruiseConfig();
         GoDashboardConfigChangeHandler handler = mock(GoDashboardConfigChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, dashboardCache);
 
         listener.initialize();
         listener.startDaemon();
@@ -115,7 +117,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, dashboardCache);
         listener.initialize();
         listener.startDaemon();
 
@@ -135,7 +137,7 @@ public class GoDashboardActivityListenerTest {
         when(goConfigService.currentCruiseConfig()).thenReturn(aConfig);
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, dashboardCache);
 
         listener.initialize();
         listener.startDaemon();
@@ -155,7 +157,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, handler);
+                null, null, null, null, handler, dashboardCache);
         listener.initialize();
         listener.startDaemon();
 
@@ -168,7 +170,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineStatusChangeHandlingOnInitialization() throws Exception {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, dashboardCache);
 
         listener.initialize();
 
@@ -179,7 +181,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelinePauseStatusChangeHandlerWhenPipelinePauseEventOccurs() throws Exception {
         GoDashboardPipelinePauseStatusChangeHandler handler = mock(GoDashboardPipelinePauseStatusChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, handler, null, null);
+                null, null, handler, null, null, dashboardCache);
 
         PipelinePauseChangeListener.Event pauseEvent = PipelinePauseChangeListener.Event.pause("pipeline1", Username.valueOf("user1"));
 
@@ -195,7 +197,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineLockStatusChangeHandlingOnInitialization() throws Exception {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, dashboardCache);
 
         listener.initialize();
 
@@ -206,7 +208,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelineLockStatusChangeHandlerWhenPipelineLockEventOccurs() throws Exception {
         GoDashboardPipelineLockStatusChangeHandler handler = mock(GoDashboardPipelineLockStatusChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, handler, null);
+                null, null, null, handler, null, dashboardCache);
 
         PipelineLockStatusChangeListener.Event lockEvent = PipelineLockStatusChangeListener.Event.lock("pipeline1");
 
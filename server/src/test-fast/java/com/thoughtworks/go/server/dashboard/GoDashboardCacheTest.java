@@ -17,6 +17,7 @@
 package com.thoughtworks.go.server.dashboard;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.util.TestingClock;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -87,6 +88,42 @@ public class GoDashboardCacheTest {
         assertThat(cache.allEntries().find(cis("pipeline5")), is(sameInstance(pipeline5)));
     }
 
+    @Test
+    public void shouldPublishCoalescedChangesOnlyWhenAskedTo() {
+        cache = new GoDashboardCache(mock(TimeStampBasedCounter.class), 1000, new TestingClock());
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+        GoDashboardPipeline pipeline2 = pipeline("pipeline2");
+
+        cache.put(pipeline1);
+        cache.put(pipeline2);
+
+        assertThat(cache.allEntries().find(cis("pipeline1")), is(nullValue()));
+        assertThat(cache.allEntries().find(cis("pipeline2")), is(nullValue()));
+
+        cache.publishPendingChanges();
+
+        assertThat(cache.allEntries().find(cis("pipeline1")), is(sameInstance(pipeline1)));
+        assertThat(cache.allEntries().find(cis("pipeline2")), is(sameInstance(pipeline2)));
+        assertThat(cache.statistics().get("Published snapshots"), is(1L));
+        assertThat(cache.statistics().get("Coalesced changes"), is(1L));
+    }
+
+    @Test
+    public void shouldPublishCoalescedChangesOnceTheOldestOfThemIsTooStale() {
+        TestingClock clock = new TestingClock();
+        cache = new GoDashboardCache(mock(TimeStampBasedCounter.class), 1000, clock);
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+        GoDashboardPipeline pipeline2 = pipeline("pipeline2");
+
+        cache.put(pipeline1);
+        clock.addMillis(1000);
+        cache.put(pipeline2);
+
+        assertThat(cache.allEntries().find(cis("pipeline1")), is(sameInstance(pipeline1)));
+        assertThat(cache.allEntries().find(cis("pipeline2")), is(sameInstance(pipeline2)));
+        assertThat(cache.statistics().get("Unpublished changes"), is(0L));
+    }
+
     private CaseInsensitiveString cis(String value) {
         return new CaseInsensitiveString(value);
     }
@@ -19,6 +19,8 @@ package com.thoughtworks.go.server.domain;
 import org.junit.jupiter.api.Test;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -55,4 +57,18 @@ public class ServerBackupTest {
         assertThat(backup.getMessage(), is("boom"));
         assertThat(backup.hasFailed(), is(true));
     }
+
+    @Test
+    void shouldRecordTimeTakenByEachStep() {
+        ServerBackup backup = new ServerBackup("path", new Date(), "admin", "");
+        assertThat(backup.getStepTimings().isEmpty(), is(true));
+
+        backup.recordStepTiming("Config", 120);
+        backup.recordStepTiming("Database", 4500);
+
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("Config", 120L);
+        expected.put("Database", 4500L);
+        assertThat(backup.getStepTimings(), is(expected));
+    }
 }
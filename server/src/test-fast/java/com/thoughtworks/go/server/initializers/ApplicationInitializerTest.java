@@ -32,6 +32,7 @@ import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
+import com.thoughtworks.go.server.scheduling.EventDrivenScheduler;
 import com.thoughtworks.go.server.service.*;
 import com.thoughtworks.go.server.service.datasharing.DataSharingSettingsService;
 import com.thoughtworks.go.server.service.datasharing.DataSharingUsageStatisticsReportingService;
@@ -91,6 +92,8 @@ public class ApplicationInitializerTest {
     @Mock
     private PipelineScheduler pipelineScheduler;
     @Mock
+    private EventDrivenScheduler eventDrivenScheduler;
+    @Mock
     private TimerScheduler timerScheduler;
     @Mock
     private BackupScheduler backupScheduler;
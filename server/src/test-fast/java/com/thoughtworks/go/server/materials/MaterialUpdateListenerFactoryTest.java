@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.materials;
 
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.MaintenanceModeService;
@@ -30,6 +31,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.internal.verification.Times;
 
+import java.util.Collections;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -57,6 +60,8 @@ public class MaterialUpdateListenerFactoryTest {
     @Mock private DependencyMaterialUpdateQueue dependencyMaterialQueue;
     @Mock private MaintenanceModeService maintenanceModeService;
     @Mock ConfigMaterialPostUpdateQueue configMaterialPostUpdateQueue;
+    @Mock private MaterialUpdatePools materialUpdatePools;
+    @Mock private GoMessageQueue<MaterialUpdateMessage> svnQueue;
 
     @Before
     public void setUp() throws Exception {
@@ -71,7 +76,7 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, materialUpdatePools);
         factory.init();
 
         verify(queue, new Times(NUMBER_OF_CONSUMERS)).addListener(any(GoMessageListener.class));
@@ -85,7 +90,7 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, materialUpdatePools);
         factory.init();
 
         verify(configQueue, new Times(NUMBER_OF_CONFIG_CONSUMERS)).addListener(any(GoMessageListener.class));
@@ -101,9 +106,24 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, materialUpdatePools);
         factory.init();
 
         verify(dependencyMaterialQueue, new Times(noOfDependencyMaterialCheckListeners)).addListener(any(GoMessageListener.class));
     }
+
+    @Test
+    public void shouldCreateCompetingConsumersForQueuesOfDedicatedMaterialTypePools() {
+        when(materialUpdatePools.queues()).thenReturn(Collections.singletonMap("SvnMaterial", svnQueue));
+        when(materialUpdatePools.numberOfWorkers("SvnMaterial")).thenReturn(2);
+
+        MaterialUpdateListenerFactory factory = new MaterialUpdateListenerFactory(topic, queue, configQueue,
+                materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
+                transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
+                packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, materialUpdatePools);
+        factory.init();
+
+        verify(svnQueue, new Times(2)).addListener(any(GoMessageListener.class));
+    }
 }
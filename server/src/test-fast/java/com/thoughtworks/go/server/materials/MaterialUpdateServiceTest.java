@@ -31,6 +31,8 @@ import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookImplementer;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialType;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialTypeResolver;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.MaintenanceModeService;
@@ -82,6 +84,8 @@ public class MaterialUpdateServiceTest {
     private DependencyMaterialUpdateQueue dependencyMaterialUpdateQueue;
     private MaintenanceModeService maintenanceModeService;
     private SecretParamResolver secretParamResolver;
+    private MDUPerformanceLogger mduPerformanceLogger;
+    private MessagingService messagingService;
 
     @BeforeEach
     void setUp() {
@@ -96,14 +100,15 @@ public class MaterialUpdateServiceTest {
         scmMaterialSource = mock(SCMMaterialSource.class);
         dependencyMaterialUpdateNotifier = mock(DependencyMaterialUpdateNotifier.class);
         materialConfigConverter = mock(MaterialConfigConverter.class);
-        MDUPerformanceLogger mduPerformanceLogger = mock(MDUPerformanceLogger.class);
+        mduPerformanceLogger = mock(MDUPerformanceLogger.class);
+        messagingService = mock(MessagingService.class);
         dependencyMaterialUpdateQueue = mock(DependencyMaterialUpdateQueue.class);
         maintenanceModeService = mock(MaintenanceModeService.class);
         secretParamResolver = mock(SecretParamResolver.class);
 
         service = new MaterialUpdateService(queue, configQueue, completed, watchList, goConfigService, systemEnvironment,
                 serverHealthService, postCommitHookMaterialType, mduPerformanceLogger, materialConfigConverter,
-                dependencyMaterialUpdateQueue, maintenanceModeService, secretParamResolver);
+                dependencyMaterialUpdateQueue, maintenanceModeService, secretParamResolver, new MaterialUpdatePools(messagingService, systemEnvironment));
 
         service.registerMaterialSources(scmMaterialSource);
         service.registerMaterialUpdateCompleteListener(scmMaterialSource);
@@ -126,6 +131,8 @@ public class MaterialUpdateServiceTest {
     @AfterEach
     void teardown() throws Exception {
         systemEnvironment.reset(SystemEnvironment.MATERIAL_UPDATE_INACTIVE_TIMEOUT);
+        systemEnvironment.reset(SystemEnvironment.MATERIAL_UPDATE_POOLS);
+        systemEnvironment.reset(SystemEnvironment.MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL);
     }
 
     @Test
@@ -147,6 +154,58 @@ public class MaterialUpdateServiceTest {
         Mockito.verifyZeroInteractions(queue);
     }
 
+    @Test
+    void shouldDeferMaterialsToNextCycleOncePoolHasMaxMaterialsInFlight_onTimer() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL, 1);
+        service = serviceWith(new MaterialUpdatePools(messagingService, systemEnvironment));
+        service.registerMaterialSources(scmMaterialSource);
+        Material first = MaterialsMother.gitMaterial("http://first.repo");
+        Material second = MaterialsMother.gitMaterial("http://second.repo");
+        when(scmMaterialSource.materialsForUpdate()).thenReturn(new LinkedHashSet<>(Arrays.asList(first, second)));
+
+        service.onTimer();
+
+        Mockito.verify(queue).post(matchMaterialUpdateMessage(first));
+        Mockito.verify(queue, never()).post(matchMaterialUpdateMessage(second));
+        Mockito.verify(mduPerformanceLogger).queueDepths(Collections.singletonMap(MaterialUpdatePools.DEFAULT_POOL, 1), Collections.singletonMap(MaterialUpdatePools.DEFAULT_POOL, 1));
+
+        service.onMessage(new MaterialUpdateSuccessfulMessage(first, 0));
+        service.onTimer();
+
+        Mockito.verify(queue).post(matchMaterialUpdateMessage(second));
+    }
+
+    @Test
+    void shouldNotCountMaterialsAlreadyInFlightAgainstThePool_onTimer() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL, 2);
+        service = serviceWith(new MaterialUpdatePools(messagingService, systemEnvironment));
+        service.registerMaterialSources(scmMaterialSource);
+        ScmMaterial manual = MaterialsMother.gitMaterial("http://manual.repo");
+        manual.setAutoUpdate(false);
+        Material other = MaterialsMother.gitMaterial("http://other.repo");
+        when(scmMaterialSource.materialsForUpdate()).thenReturn(new LinkedHashSet<>(Collections.singletonList(manual)), new LinkedHashSet<>(Arrays.asList(manual, other)));
+
+        service.onTimer();
+        service.onTimer();
+
+        Mockito.verify(queue, times(2)).post(matchMaterialUpdateMessage(manual));
+        Mockito.verify(queue).post(matchMaterialUpdateMessage(other));
+    }
+
+    @Test
+    void shouldNotDeferDependencyMaterialsWhenMaterialUpdatePoolsAreFull_onTimer() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_MAX_IN_FLIGHT_PER_POOL, 1);
+        service = serviceWith(new MaterialUpdatePools(messagingService, systemEnvironment));
+        service.registerMaterialSources(scmMaterialSource);
+        DependencyMaterial upstream = new DependencyMaterial(new CaseInsensitiveString("upstream"), new CaseInsensitiveString("stage"));
+        when(scmMaterialSource.materialsForUpdate()).thenReturn(new LinkedHashSet<>(Arrays.asList(dependencyMaterial, upstream)));
+
+        service.onTimer();
+
+        Mockito.verify(dependencyMaterialUpdateQueue).post(matchMaterialUpdateMessage(dependencyMaterial));
+        Mockito.verify(dependencyMaterialUpdateQueue).post(matchMaterialUpdateMessage(upstream));
+    }
+
     @Nested
     class updateMaterial {
 
@@ -158,6 +217,19 @@ public class MaterialUpdateServiceTest {
             Mockito.verify(configQueue, times(0)).post(any(MaterialUpdateMessage.class));
         }
 
+        @Test
+        void shouldPostUpdateMessageOnQueueOfDedicatedPoolForMaterialType() {
+            systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_POOLS, "SvnMaterial:2");
+            MessageSender svnSender = mock(MessageSender.class);
+            when(messagingService.createQueueSender("material-update-required-svnmaterial")).thenReturn(svnSender);
+            service = serviceWith(new MaterialUpdatePools(messagingService, systemEnvironment));
+
+            assertThat(service.updateMaterial(svnMaterial)).isTrue();
+
+            Mockito.verify(svnSender).sendMessage(matchMaterialUpdateMessage(svnMaterial));
+            Mockito.verify(queue, times(0)).post(any(MaterialUpdateMessage.class));
+        }
+
         @Test
         void shouldPostUpdateMessageOnConfigQueueForConfigMaterial() {
             when(watchList.hasConfigRepoWithFingerprint(svnMaterial.getFingerprint())).thenReturn(true);
@@ -451,8 +523,17 @@ public class MaterialUpdateServiceTest {
 
         service.onMessage(new MaterialUpdateCompletedMessage(material, 0));
 
-        verify(dependencyMaterialUpdateNotifier).onMaterialUpdate(material);
-        verify(scmMaterialSource).onMaterialUpdate(material);
+        verify(dependencyMaterialUpdateNotifier).onMaterialUpdate(material, false);
+        verify(scmMaterialSource).onMaterialUpdate(material, false);
+    }
+
+    @Test
+    void shouldTellMaterialUpdateCompleteListenersWhetherNewModificationsWereSaved() {
+        Material material = mock(Material.class);
+
+        service.onMessage(new MaterialUpdateSuccessfulMessage(material, 0, true));
+
+        verify(scmMaterialSource).onMaterialUpdate(material, true);
     }
 
     @Test
@@ -499,4 +580,10 @@ public class MaterialUpdateServiceTest {
         Map<Material, Date> inProgress = (Map<Material, Date>) ReflectionUtil.getField(service, "inProgress");
         assertThat(inProgress.containsKey(svnMaterial)).isFalse();
     }
+
+    private MaterialUpdateService serviceWith(MaterialUpdatePools materialUpdatePools) {
+        return new MaterialUpdateService(queue, configQueue, completed, watchList, goConfigService, systemEnvironment,
+                serverHealthService, postCommitHookMaterialType, mduPerformanceLogger, materialConfigConverter,
+                dependencyMaterialUpdateQueue, maintenanceModeService, secretParamResolver, materialUpdatePools);
+    }
 }
@@ -33,10 +33,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.Matchers.is;
@@ -67,6 +64,8 @@ public class SCMMaterialSourceTest {
     @After
     public void tearDown() throws Exception {
         systemEnvironment.reset(SystemEnvironment.MATERIAL_UPDATE_INACTIVE_TIMEOUT);
+        systemEnvironment.reset(SystemEnvironment.MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL);
+        resetTime();
     }
 
     @Test
@@ -192,6 +191,77 @@ public class SCMMaterialSourceTest {
         assertTrue(materials.contains(gitMaterial));
     }
 
+    @Test
+    public void shouldListLeastRecentlyUpdatedMaterialsFirst() {
+        Material hgMaterial = MaterialsMother.hgMaterial();
+        Set<MaterialConfig> schedulableMaterialConfigs = new HashSet<>(Arrays.asList(svnMaterial.config(), gitMaterial.config(), hgMaterial.config()));
+        when(goConfigService.getSchedulableSCMMaterials()).thenReturn(schedulableMaterialConfigs);
+        when(materialConfigConverter.toMaterials(schedulableMaterialConfigs)).thenReturn(new HashSet<>(Arrays.asList(svnMaterial, gitMaterial, hgMaterial)));
+
+        long now = DateTimeUtils.currentTimeMillis();
+        freezeTime(now - 120000);
+        source.onMaterialUpdate(svnMaterial);
+        freezeTime(now - 180000);
+        source.onMaterialUpdate(gitMaterial);
+        freezeTime(now);
+
+        assertThat(new ArrayList<>(source.materialsForUpdate()), is(Arrays.asList(hgMaterial, gitMaterial, svnMaterial)));
+    }
+
+    @Test
+    public void shouldBackOffPollingOfMaterialsWithoutNewRevisionsUpToTheMaximumInterval() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL, 200000L);
+        source = new SCMMaterialSource(goConfigService, systemEnvironment, materialConfigConverter, materialUpdateService);
+
+        source.onMaterialUpdate(svnMaterial, false);
+        assertThat(source.updateIntervalFor(svnMaterial), is(60000L));
+
+        source.onMaterialUpdate(svnMaterial, false);
+        assertThat(source.updateIntervalFor(svnMaterial), is(120000L));
+
+        source.onMaterialUpdate(svnMaterial, false);
+        assertThat(source.updateIntervalFor(svnMaterial), is(200000L));
+    }
+
+    @Test
+    public void shouldResetPollingIntervalWhenMaterialHasNewRevisions() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL, 600000L);
+        source = new SCMMaterialSource(goConfigService, systemEnvironment, materialConfigConverter, materialUpdateService);
+
+        source.onMaterialUpdate(svnMaterial, false);
+        source.onMaterialUpdate(svnMaterial, false);
+        assertThat(source.updateIntervalFor(svnMaterial), is(120000L));
+
+        source.onMaterialUpdate(svnMaterial, true);
+        assertThat(source.updateIntervalFor(svnMaterial), is(60000L));
+    }
+
+    @Test
+    public void shouldNotBackOffPollingWhenAdaptivePollingIsDisabled() {
+        source.onMaterialUpdate(svnMaterial, false);
+        source.onMaterialUpdate(svnMaterial, false);
+
+        assertThat(source.updateIntervalFor(svnMaterial), is(60000L));
+    }
+
+    @Test
+    public void shouldForgetPollingIntervalsOfMaterialsRemovedFromConfig() {
+        systemEnvironment.set(SystemEnvironment.MATERIAL_UPDATE_ADAPTIVE_MAX_INTERVAL, 600000L);
+        source = new SCMMaterialSource(goConfigService, systemEnvironment, materialConfigConverter, materialUpdateService);
+        Set<MaterialConfig> schedulableMaterialConfigs = new HashSet<>(Collections.singleton(gitMaterial.config()));
+        when(goConfigService.getSchedulableSCMMaterials()).thenReturn(schedulableMaterialConfigs);
+        when(materialConfigConverter.toMaterials(schedulableMaterialConfigs)).thenReturn(new HashSet<>(Collections.singleton(gitMaterial)));
+
+        source.onMaterialUpdate(svnMaterial, false);
+        source.onMaterialUpdate(svnMaterial, false);
+        source.onMaterialUpdate(gitMaterial, false);
+        source.onMaterialUpdate(gitMaterial, false);
+        source.onConfigChange(null);
+
+        assertThat(source.updateIntervalFor(svnMaterial), is(60000L));
+        assertThat(source.updateIntervalFor(gitMaterial), is(120000L));
+    }
+
     private void freezeTime(Long millis) {
         DateTimeUtils.setCurrentMillisFixed(millis);
     }
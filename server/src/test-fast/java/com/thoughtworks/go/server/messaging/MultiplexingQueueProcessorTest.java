@@ -25,6 +25,7 @@ import org.mockito.InOrder;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -124,6 +125,52 @@ public class MultiplexingQueueProcessorTest {
         inOrder.verify(action3).call();
     }
 
+    @Test
+    public void shouldCallIdleActionOnceAllQueuedActionsHaveBeenProcessed() throws Exception {
+        Runnable whenIdle = mock(Runnable.class);
+        Action action1 = mock(Action.class);
+        Action action2 = mock(Action.class);
+        Action action3 = mock(Action.class);
+        queueProcessor = new MultiplexingQueueProcessor("queue1", whenIdle);
+
+        queueProcessor.add(action1);
+        queueProcessor.add(action2);
+        queueProcessor.add(action3);
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        InOrder inOrder = inOrder(action3, whenIdle);
+        inOrder.verify(action3).call();
+        inOrder.verify(whenIdle).run();
+        verify(whenIdle, times(1)).run();
+        assertThat(queueProcessor.processedCount(), is(3L));
+    }
+
+    @Test
+    public void shouldReportHowLongTheOldestQueuedActionHasBeenWaiting() throws Exception {
+        queueProcessor.add(mock(Action.class));
+        queueProcessor.add(mock(Action.class));
+        waitForProcessingToHappen(50);
+
+        assertThat(queueProcessor.pendingCount(), is(2));
+        assertThat(queueProcessor.lagInMillis(), greaterThanOrEqualTo(50L));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(queueProcessor.pendingCount(), is(0));
+        assertThat(queueProcessor.lagInMillis(), is(0L));
+    }
+
+    @Test
+    public void shouldNotReportLagForActionsPutStraightOnToTheQueue() {
+        queueProcessor.queue.add(mock(Action.class));
+
+        assertThat(queueProcessor.pendingCount(), is(1));
+        assertThat(queueProcessor.lagInMillis(), is(0L));
+    }
+
     private Thread setupNewThreadToAddActionIn(final ThreadNameAccumulator threadNameAccumulator) {
         return new Thread() {
             @Override
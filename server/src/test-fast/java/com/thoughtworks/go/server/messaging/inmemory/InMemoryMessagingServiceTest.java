@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.messaging.GoMessageTopic;
+import com.thoughtworks.go.server.messaging.GoTextMessage;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryMessagingServiceTest {
+    private SystemEnvironment systemEnvironment;
+    private InMemoryMessagingService messaging;
+
+    @BeforeEach
+    void setUp() {
+        systemEnvironment = new SystemEnvironment();
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messaging.stop();
+        systemEnvironment.reset(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY);
+        systemEnvironment.reset(SystemEnvironment.IN_MEMORY_MESSAGING_SEND_TIMEOUT);
+        systemEnvironment.reset(SystemEnvironment.IN_MEMORY_MESSAGING_TOPIC_CAPACITY);
+    }
+
+    @Test
+    void shouldDeliverEveryTopicMessageToEverySubscriber() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        RecordingListener first = new RecordingListener(2);
+        RecordingListener second = new RecordingListener(2);
+        topic.addListener(first);
+        topic.addListener(second);
+
+        topic.post(new GoTextMessage("hello"));
+        topic.sendText("world");
+
+        assertThat(first.await()).containsExactly("hello", "world");
+        assertThat(second.await()).containsExactly("hello", "world");
+    }
+
+    @Test
+    void shouldGiveEachTopicSubscriberItsOwnCopyOfTheMessage() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        List<GoTextMessage> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        GoMessageListener<GoTextMessage> listener = message -> {
+            received.add(message);
+            latch.countDown();
+        };
+        topic.addListener(listener);
+        topic.addListener(listener);
+
+        topic.post(new GoTextMessage("hello"));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.get(0)).isNotSameAs(received.get(1));
+        assertThat(received.get(1).getText()).isEqualTo(received.get(0).getText());
+    }
+
+    @Test
+    void shouldWaitForRoomInAFullTopicSubscriberInsteadOfDroppingTheMessage() throws Exception {
+        systemEnvironment.set(SystemEnvironment.IN_MEMORY_MESSAGING_TOPIC_CAPACITY, 1);
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment);
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener(3) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                busy.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ignored) {
+                }
+                super.onMessage(message);
+            }
+        };
+        topic.addListener(slow);
+
+        topic.post(new GoTextMessage("being handled"));
+        assertThat(busy.await(10, TimeUnit.SECONDS)).isTrue();
+        topic.post(new GoTextMessage("waiting"));
+        Thread release = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            finish.countDown();
+        });
+        release.start();
+        topic.post(new GoTextMessage("completed"));
+
+        assertThat(slow.await()).containsExactly("being handled", "waiting", "completed");
+        assertThat(subscribers("Topic: topic").get(0).get("Sent")).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldFailToSendOnTopicWhenASubscriberStaysFull() throws Exception {
+        systemEnvironment.set(SystemEnvironment.IN_MEMORY_MESSAGING_TOPIC_CAPACITY, 1);
+        systemEnvironment.set(SystemEnvironment.IN_MEMORY_MESSAGING_SEND_TIMEOUT, 10L);
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment);
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        topic.addListener(message -> {
+            busy.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        RecordingListener other = new RecordingListener(3);
+        topic.addListener(other);
+
+        topic.post(new GoTextMessage("being handled"));
+        assertThat(busy.await(10, TimeUnit.SECONDS)).isTrue();
+        topic.post(new GoTextMessage("waiting"));
+
+        assertThatThrownBy(() -> topic.post(new GoTextMessage("does not fit")))
+                .hasMessageContaining("waiting for space on message queue topic");
+        assertThat(other.await()).containsExactly("being handled", "waiting", "does not fit");
+        finish.countDown();
+    }
+
+    @Test
+    void shouldCountEachTopicMessageOnceHoweverManySubscribersItHas() {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        topic.addListener(new RecordingListener(1));
+        topic.addListener(new RecordingListener(1));
+        topic.addListener(new RecordingListener(1));
+
+        topic.post(new GoTextMessage("hello"));
+
+        Map<String, Object> stats = stats("Topic: topic");
+        assertThat(stats.get("Consumers")).isEqualTo(3);
+        assertThat(stats.get("Sent")).isEqualTo(1L);
+        assertThat(subscribers("Topic: topic")).hasSize(3);
+    }
+
+    @Test
+    void shouldHandOverMessagesByReference() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        List<GoMessage> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.addListener(message -> {
+            received.add(message);
+            latch.countDown();
+        });
+        GoTextMessage message = new GoTextMessage("hello");
+
+        queue.post(message);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.get(0)).isSameAs(message);
+    }
+
+    @Test
+    void shouldLetCompetingConsumersPickUpMessagesWhileOneOfThemIsBusy() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CountDownLatch finish = new CountDownLatch(1);
+        queue.addListener(message -> {
+            try {
+                finish.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        RecordingListener fast = new RecordingListener(4);
+        queue.addListener(fast);
+
+        for (int i = 1; i <= 5; i++) {
+            queue.post(new GoTextMessage("message " + i));
+        }
+
+        assertThat(fast.await().size()).isGreaterThanOrEqualTo(4);
+        finish.countDown();
+    }
+
+    @Test
+    void shouldKeepDeliveringMessagesWhenListenerThrows() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        RecordingListener listener = new RecordingListener(3) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                throw new RuntimeException("boom");
+            }
+        };
+        queue.addListener(listener);
+
+        queue.post(new GoTextMessage("1"));
+        queue.post(new GoTextMessage("2"));
+        queue.post(new GoTextMessage("3"));
+
+        assertThat(listener.await()).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void shouldDropMessagesWhichExpiredBeforeBeingPickedUp() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("expired"), 1);
+        queue.post(new GoTextMessage("fresh"));
+        Thread.sleep(50);
+
+        RecordingListener listener = new RecordingListener(1);
+        queue.addListener(listener);
+
+        assertThat(listener.await()).containsExactly("fresh");
+        assertThat(stats("Queue: queue").get("Expired")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldFailToSendWhenQueueStaysFull() {
+        systemEnvironment.set(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY, 1);
+        systemEnvironment.set(SystemEnvironment.IN_MEMORY_MESSAGING_SEND_TIMEOUT, 10L);
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment);
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+
+        queue.post(new GoTextMessage("fits"));
+
+        assertThatThrownBy(() -> queue.post(new GoTextMessage("does not fit")))
+                .hasMessageContaining("waiting for space on message queue queue");
+    }
+
+    @Test
+    void shouldStopListenersOfRemovedQueue() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        InMemoryMessageListenerAdapter adapter = messaging.addQueueListener("queue", new RecordingListener(1));
+
+        queue.stop();
+
+        adapter.thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(adapter.thread.isAlive()).isFalse();
+        assertThat(messaging.asJson()).doesNotContainKey("Queue: queue");
+    }
+
+    @Test
+    void shouldReportDepthAndThroughputOfEachQueue() {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+
+        queue.post(new GoTextMessage("1"));
+        queue.post(new GoTextMessage("2"));
+
+        Map<String, Object> stats = stats("Queue: queue");
+        assertThat(stats.get("Depth")).isEqualTo(2);
+        assertThat(stats.get("Consumers")).isEqualTo(0);
+        assertThat(stats.get("Sent")).isEqualTo(2L);
+        assertThat(stats.get("Received")).isEqualTo(0L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stats(String channel) {
+        return (Map<String, Object>) messaging.asJson().get(channel);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> subscribers(String topic) {
+        return (List<Map<String, Object>>) stats(topic).get("Subscribers");
+    }
+
+    private static class RecordingListener implements GoMessageListener<GoTextMessage> {
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch latch;
+
+        RecordingListener(int expectedMessages) {
+            this.latch = new CountDownLatch(expectedMessages);
+        }
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            received.add(message.getText());
+            latch.countDown();
+        }
+
+        List<String> await() throws InterruptedException {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            return received;
+        }
+    }
+}
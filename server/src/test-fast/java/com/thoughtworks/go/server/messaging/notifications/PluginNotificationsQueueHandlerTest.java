@@ -19,9 +19,9 @@ package com.thoughtworks.go.server.messaging.notifications;
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
+import com.thoughtworks.go.server.messaging.MessageListenerAdapter;
 import com.thoughtworks.go.server.messaging.MessagingService;
 import com.thoughtworks.go.server.messaging.PluginAwareMessageQueue;
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.util.ReflectionUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
@@ -72,11 +72,11 @@ public class PluginNotificationsQueueHandlerTest {
         handler.pluginLoaded(new GoPluginDescriptor(pluginId3, "1.0", null, null, null, false));
         assertThat(handler.getQueues().size(), is(2));
         PluginAwareMessageQueue queueForPlugin1 = handler.getQueues().get(pluginId1);
-        HashMap<String, ArrayList<JMSMessageListenerAdapter>> listenersForPlugin1 = (HashMap<String, ArrayList<JMSMessageListenerAdapter>>) ReflectionUtil.getField(queueForPlugin1, "listeners");
+        HashMap<String, ArrayList<MessageListenerAdapter>> listenersForPlugin1 = (HashMap<String, ArrayList<MessageListenerAdapter>>) ReflectionUtil.getField(queueForPlugin1, "listeners");
         assertThat(listenersForPlugin1.get(pluginId1).size(), is(10) );
         assertFalse(handler.getQueues().containsKey(pluginId2));
         PluginAwareMessageQueue queueForPlugin3 = handler.getQueues().get(pluginId3);
-        HashMap<String, ArrayList<JMSMessageListenerAdapter>> listenersForPlugin3 = (HashMap<String, ArrayList<JMSMessageListenerAdapter>>) ReflectionUtil.getField(queueForPlugin3, "listeners");
+        HashMap<String, ArrayList<MessageListenerAdapter>> listenersForPlugin3 = (HashMap<String, ArrayList<MessageListenerAdapter>>) ReflectionUtil.getField(queueForPlugin3, "listeners");
         assertThat(listenersForPlugin3.get(pluginId3).size(), is(2) );
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.perf;
+
+import com.thoughtworks.go.util.TimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SchedulingLatencyMonitorTest {
+    private TimeProvider timeProvider;
+    private SchedulingLatencyMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = mock(TimeProvider.class);
+        monitor = new SchedulingLatencyMonitor(timeProvider);
+    }
+
+    @Test
+    void shouldRecordTimeFromModificationsSavedUntilWorkAssigned() {
+        when(timeProvider.currentTimeMillis()).thenReturn(1000L, 1200L, 1700L);
+
+        monitor.modificationsSaved("up42");
+        monitor.buildCauseQueued("UP42");
+        monitor.workAssigned("up42");
+
+        assertThat(histogram("Modification saved to work assigned"))
+                .containsEntry("Count", 1L)
+                .containsEntry("Max (ms)", 700L);
+        assertThat(histogram("Build cause queued to work assigned"))
+                .containsEntry("Count", 1L)
+                .containsEntry("Max (ms)", 500L);
+    }
+
+    @Test
+    void shouldOnlyRecordFirstAssignmentOfAScheduledPipeline() {
+        when(timeProvider.currentTimeMillis()).thenReturn(1000L, 1200L, 1700L, 1800L);
+
+        monitor.modificationsSaved("up42");
+        monitor.buildCauseQueued("up42");
+        monitor.workAssigned("up42");
+        monitor.workAssigned("up42");
+
+        assertThat(histogram("Modification saved to work assigned")).containsEntry("Count", 1L);
+    }
+
+    @Test
+    void shouldForgetModificationsWhichDidNotResultInABuildCause() {
+        when(timeProvider.currentTimeMillis()).thenReturn(1000L, 5000L, 5100L);
+
+        monitor.modificationsSaved("up42");
+        monitor.scheduleCheckCompleted("up42");
+        monitor.buildCauseQueued("up42");
+        monitor.workAssigned("up42");
+
+        assertThat(histogram("Modification saved to work assigned")).containsEntry("Count", 0L);
+        assertThat(histogram("Build cause queued to work assigned")).containsEntry("Count", 1L);
+    }
+
+    @Test
+    void shouldForgetBuildCausesWhichWereDroppedWithoutBeingScheduled() {
+        when(timeProvider.currentTimeMillis()).thenReturn(1000L, 1200L, 1700L);
+
+        monitor.modificationsSaved("up42");
+        monitor.buildCauseQueued("up42");
+        monitor.buildCauseDropped("UP42");
+        monitor.workAssigned("up42");
+
+        assertThat(monitor.asJson()).containsEntry("Pipelines awaiting assignment", 0);
+        assertThat(histogram("Build cause queued to work assigned")).containsEntry("Count", 0L);
+    }
+
+    @Test
+    void shouldBucketRecordedLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(50);
+        histogram.record(100);
+        histogram.record(101);
+        histogram.record(1000000);
+
+        Map<String, Object> json = histogram.asJson();
+        assertThat(json).containsEntry("Count", 4L).containsEntry("Max (ms)", 1000000L);
+        @SuppressWarnings("unchecked")
+        Map<String, Long> buckets = (Map<String, Long>) json.get("Buckets (ms)");
+        assertThat(buckets)
+                .containsEntry("<= 100", 2L)
+                .containsEntry("<= 250", 1L)
+                .containsEntry("> 300000", 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> histogram(String name) {
+        return (Map<String, Object>) monitor.asJson().get(name);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.scheduling;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedTopic;
+import com.thoughtworks.go.server.materials.MaterialUpdateFailedMessage;
+import com.thoughtworks.go.server.materials.MaterialUpdateSuccessfulMessage;
+import com.thoughtworks.go.server.perf.SchedulingLatencyMonitor;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.server.service.PipelineScheduleQueue;
+import com.thoughtworks.go.server.service.PipelineScheduler;
+import com.thoughtworks.go.server.service.ScheduleService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventDrivenSchedulerTest {
+    private PipelineScheduler pipelineScheduler;
+    private PipelineScheduleQueue pipelineScheduleQueue;
+    private ScheduleService scheduleService;
+    private BuildAssignmentService buildAssignmentService;
+    private MaterialUpdateCompletedTopic materialUpdateCompletedTopic;
+    private SchedulingLatencyMonitor schedulingLatencyMonitor;
+    private SystemEnvironment systemEnvironment;
+    private EventDrivenScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        pipelineScheduler = mock(PipelineScheduler.class);
+        pipelineScheduleQueue = mock(PipelineScheduleQueue.class);
+        scheduleService = mock(ScheduleService.class);
+        buildAssignmentService = mock(BuildAssignmentService.class);
+        materialUpdateCompletedTopic = mock(MaterialUpdateCompletedTopic.class);
+        schedulingLatencyMonitor = mock(SchedulingLatencyMonitor.class);
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.getEventDrivenSchedulingQueueSize()).thenReturn(10);
+        scheduler = new EventDrivenScheduler(pipelineScheduler, pipelineScheduleQueue, scheduleService, buildAssignmentService,
+                materialUpdateCompletedTopic, mock(ScheduleCheckCompletedTopic.class), schedulingLatencyMonitor, systemEnvironment);
+    }
+
+    @Test
+    void shouldNotListenForAnythingWhenDisabled() {
+        when(systemEnvironment.isEventDrivenSchedulingEnabled()).thenReturn(false);
+
+        scheduler.initialize();
+
+        verifyZeroInteractions(materialUpdateCompletedTopic, pipelineScheduleQueue);
+    }
+
+    @Test
+    void shouldCheckPipelinesUsingMaterialAsSoonAsItsUpdateCompletes() {
+        GitMaterial material = new GitMaterial("http://example.com/repo.git");
+        when(pipelineScheduler.checkPipelinesUsing(material.getFingerprint())).thenReturn(asList("up42", "down42"));
+
+        scheduler.onMessage(new MaterialUpdateSuccessfulMessage(material, 1, true));
+
+        verify(schedulingLatencyMonitor).modificationsSaved("up42");
+        verify(schedulingLatencyMonitor).modificationsSaved("down42");
+    }
+
+    @Test
+    void shouldIgnoreMaterialUpdatesThatSavedNoNewModifications() {
+        scheduler.onMessage(new MaterialUpdateSuccessfulMessage(new GitMaterial("http://example.com/repo.git"), 1, false));
+
+        verifyZeroInteractions(pipelineScheduler, schedulingLatencyMonitor);
+    }
+
+    @Test
+    void shouldIgnoreFailedMaterialUpdates() {
+        scheduler.onMessage(new MaterialUpdateFailedMessage(new GitMaterial("http://example.com/repo.git"), 1, new RuntimeException("boom")));
+
+        verifyZeroInteractions(pipelineScheduler);
+    }
+
+    @Test
+    void shouldScheduleAndAssignWorkAsSoonAsABuildCauseIsQueued() throws Exception {
+        when(systemEnvironment.isEventDrivenSchedulingEnabled()).thenReturn(true);
+        when(systemEnvironment.isServerActive()).thenReturn(true);
+        scheduler.initialize();
+        Consumer<CaseInsensitiveString> buildCauseListener = buildCauseListener();
+
+        buildCauseListener.accept(new CaseInsensitiveString("up42"));
+        buildCauseListener.accept(new CaseInsensitiveString("down42"));
+
+        verify(schedulingLatencyMonitor).buildCauseQueued("up42");
+        verify(scheduleService, timeout(5000).atLeastOnce()).autoSchedulePipelinesFromRequestBuffer();
+        verify(buildAssignmentService, timeout(5000).atLeastOnce()).onTimer();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldForgetBuildCausesWhichAreDroppedWithoutBeingScheduled() {
+        when(systemEnvironment.isEventDrivenSchedulingEnabled()).thenReturn(true);
+        scheduler.initialize();
+        ArgumentCaptor<Consumer> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(pipelineScheduleQueue).addBuildCauseDroppedListener(listener.capture());
+
+        listener.getValue().accept(new CaseInsensitiveString("up42"));
+
+        verify(schedulingLatencyMonitor).buildCauseDropped("up42");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<CaseInsensitiveString> buildCauseListener() {
+        ArgumentCaptor<Consumer> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(pipelineScheduleQueue).addBuildCauseListener(listener.capture());
+        return listener.getValue();
+    }
+}
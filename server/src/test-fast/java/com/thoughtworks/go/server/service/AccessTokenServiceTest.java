@@ -16,13 +16,17 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.google.common.base.Ticker;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.domain.AccessToken;
 import com.thoughtworks.go.server.dao.AccessTokenDao;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
+import com.thoughtworks.go.server.exceptions.RevokedAccessTokenException;
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestingClock;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,7 +36,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thoughtworks.go.helper.AccessTokenMother.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -202,4 +209,80 @@ class AccessTokenServiceTest {
         }
     }
 
+    @Nested
+    class VerifiedTokenCache {
+        private final FakeTicker ticker = new FakeTicker();
+        private AccessToken.AccessTokenWithDisplayValue token;
+
+        @BeforeEach
+        void setUp() {
+            SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+            when(systemEnvironment.getAccessTokenCacheSize()).thenReturn(10);
+            when(systemEnvironment.getAccessTokenCacheTtlInSeconds()).thenReturn(60);
+            accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, systemEnvironment, ticker);
+
+            token = randomAccessTokenForUser(username);
+            token.setId(42);
+            when(accessTokenDao.findAccessTokenBySaltId(token.getSaltId())).thenReturn(token);
+        }
+
+        @Test
+        void shouldNotLookUpOrVerifyATokenAgainUntilItExpiresFromTheCache() {
+            assertThat(accessTokenService.findByAccessToken(token.getDisplayValue())).isEqualTo(token);
+            assertThat(accessTokenService.findByAccessToken(token.getDisplayValue())).isEqualTo(token);
+            verify(accessTokenDao, times(1)).findAccessTokenBySaltId(token.getSaltId());
+
+            ticker.advance(61, TimeUnit.SECONDS);
+
+            assertThat(accessTokenService.findByAccessToken(token.getDisplayValue())).isEqualTo(token);
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(token.getSaltId());
+            assertThat(accessTokenService.verifiedTokenCacheStatistics())
+                    .containsEntry("Hits", 1L)
+                    .containsEntry("Misses", 2L)
+                    .containsEntry("Verifications", 2L);
+        }
+
+        @Test
+        void shouldNotCacheTokensWhichFailVerification() {
+            String wrongToken = token.getSaltId() + RandomStringUtils.randomAlphanumeric(32);
+
+            assertThatCode(() -> accessTokenService.findByAccessToken(wrongToken)).isInstanceOf(InvalidAccessTokenException.class);
+            assertThatCode(() -> accessTokenService.findByAccessToken(wrongToken)).isInstanceOf(InvalidAccessTokenException.class);
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(token.getSaltId());
+        }
+
+        @Test
+        void shouldInvalidateCachedTokenWhenItIsRevoked() {
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+            when(securityService.isUserAdmin(new Username(username))).thenReturn(true);
+            when(accessTokenDao.loadForAdminUser(42)).thenReturn(token);
+
+            accessTokenService.revokeAccessToken(42, username, "compromised");
+
+            assertThatCode(() -> accessTokenService.findByAccessToken(token.getDisplayValue())).isInstanceOf(RevokedAccessTokenException.class);
+        }
+
+        @Test
+        void shouldInvalidateCachedTokensOfUsers() {
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+
+            accessTokenService.invalidateCachedTokensOf(Collections.singletonList(username.toUpperCase()));
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(token.getSaltId());
+        }
+    }
+
+    class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(long time, TimeUnit timeUnit) {
+            nanos.addAndGet(timeUnit.toNanos(time));
+        }
+
+        public long read() {
+            return nanos.getAndAdd(0);
+        }
+    }
 }
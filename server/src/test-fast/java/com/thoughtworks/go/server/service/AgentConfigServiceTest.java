@@ -17,7 +17,10 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.BasicEnvironmentConfig;
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.EnvironmentsConfig;
 import com.thoughtworks.go.config.GoConfigDao;
 import com.thoughtworks.go.config.UpdateConfigCommand;
 import com.thoughtworks.go.config.update.AgentsUpdateCommand;
@@ -25,13 +28,20 @@ import com.thoughtworks.go.domain.AgentInstance;
 import com.thoughtworks.go.domain.AgentRuntimeStatus;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.server.dao.DatabaseAccessHelper;
+import com.thoughtworks.go.server.domain.Agent;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.persistence.AgentDao;
+import com.thoughtworks.go.server.service.result.HttpOperationResult;
 import com.thoughtworks.go.util.ReflectionUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -40,11 +50,20 @@ public class AgentConfigServiceTest {
 
     private GoConfigService goConfigService;
     private AgentConfigService agentConfigService;
+    private AgentDao agentDao;
+    private SystemEnvironment systemEnvironment;
 
     @Before
     public void setUp() throws Exception {
         goConfigService = mock(GoConfigService.class);
-        agentConfigService = new AgentConfigService(goConfigService);
+        agentDao = mock(AgentDao.class);
+        systemEnvironment = new SystemEnvironment();
+        agentConfigService = new AgentConfigService(goConfigService, new ElasticAgentConfigStore(agentDao, systemEnvironment));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        systemEnvironment.reset(SystemEnvironment.ELASTIC_AGENTS_STORED_IN_DATABASE);
     }
 
     @Test
@@ -97,4 +116,57 @@ public class AgentConfigServiceTest {
         agentConfigService.enableAgents(Username.ANONYMOUS, instance);
         shouldPerformCommand(new GoConfigDao.CompositeConfigCommand((UpdateConfigCommand) new AgentConfigService.UpdateAgentApprovalStatus(agentId, false)));
     }
+
+    @Test
+    public void shouldStoreNewElasticAgentOutsideConfigWhenEnabled() {
+        systemEnvironment.set(SystemEnvironment.ELASTIC_AGENTS_STORED_IN_DATABASE, true);
+        EnvironmentsConfig environments = new EnvironmentsConfig();
+        environments.add(new BasicEnvironmentConfig(new CaseInsensitiveString("Production")));
+        when(goConfigService.getEnvironments()).thenReturn(environments);
+        AgentConfig elasticAgent = elasticAgent("elastic-uuid");
+
+        HttpOperationResult result = new HttpOperationResult();
+        agentConfigService.registerElasticAgent(elasticAgent, "", "production,unknown", result);
+
+        assertThat(result.isSuccess(), is(true));
+        verify(agentDao).saveConfig(elasticAgent, Collections.singleton("Production"));
+        verify(goConfigService, never()).updateConfig(any(UpdateConfigCommand.class), any(Username.class));
+        assertThat(agentConfigService.hasAgent("elastic-uuid"), is(true));
+        assertThat(agentConfigService.agents().getAgentByUuid("elastic-uuid"), is(elasticAgent));
+    }
+
+    @Test
+    public void shouldUpdateAndDeleteStoredElasticAgentsWithoutSavingConfig() {
+        systemEnvironment.set(SystemEnvironment.ELASTIC_AGENTS_STORED_IN_DATABASE, true);
+        Agent stored = new Agent("elastic-uuid", "cookie", "elastic-host", "10.1.1.1");
+        stored.storeConfig(elasticAgent("elastic-uuid"), Collections.emptySet());
+        when(agentDao.agentsWithConfig()).thenReturn(Arrays.asList(stored));
+        AgentInstance instance = AgentInstance.createFromConfig(stored.toAgentConfig(), systemEnvironment, null);
+
+        agentConfigService.disableAgents(Username.ANONYMOUS, instance);
+        assertThat(agentConfigService.agents().getAgentByUuid("elastic-uuid").isDisabled(), is(true));
+
+        agentConfigService.deleteAgents(Username.ANONYMOUS, instance);
+        assertThat(agentConfigService.hasAgent("elastic-uuid"), is(false));
+
+        verify(agentDao).removeConfig("elastic-uuid");
+        verify(goConfigService, never()).updateConfig(any(UpdateConfigCommand.class), any(Username.class));
+    }
+
+    @Test
+    public void shouldKeepElasticAgentsInConfigWhenStoringThemInDatabaseIsDisabled() {
+        AgentConfig elasticAgent = elasticAgent("elastic-uuid");
+
+        agentConfigService.addAgent(elasticAgent, Username.ANONYMOUS);
+
+        verify(goConfigService).updateConfig(any(AgentsUpdateCommand.class), eq(Username.ANONYMOUS));
+        verifyZeroInteractions(agentDao);
+    }
+
+    private AgentConfig elasticAgent(String uuid) {
+        AgentConfig agentConfig = new AgentConfig(uuid, "elastic-host", "10.1.1.1");
+        agentConfig.setElasticAgentId("elastic-agent-id");
+        agentConfig.setElasticPluginId("docker");
+        return agentConfig;
+    }
 }
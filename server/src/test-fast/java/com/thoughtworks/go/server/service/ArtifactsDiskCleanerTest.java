@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.OptionalLong;
 import java.util.concurrent.Semaphore;
 
 import com.thoughtworks.go.config.ServerConfig;
@@ -41,8 +42,10 @@ import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -145,6 +148,7 @@ public class ArtifactsDiskCleanerTest {
         verify(artifactService).purgeArtifactsForStage(stageOne);
         verify(artifactService).purgeArtifactsForStage(stageTwo);
         verify(configDbStateRepository).flushConfigState();
+        verify(artifactService).releaseUnreferencedArtifacts();
         verifyNoMoreInteractions(artifactService);
     }
 
@@ -191,10 +195,77 @@ public class ArtifactsDiskCleanerTest {
 
         verify(stageService, times(4)).oldestStagesWithDeletableArtifacts();
         verify(configDbStateRepository, times(4)).flushConfigState();
+        verify(artifactService).releaseUnreferencedArtifacts();
         verifyNoMoreInteractions(artifactService);
         verifyNoMoreInteractions(stageService);
     }
 
+    @Test
+    public void shouldPurgeInParallelOnlyTheOldestStagesExpectedToFreeEnoughSpace() {
+        when(sysEnv.isArtifactsParallelPurgeEnabled()).thenReturn(true);
+        when(sysEnv.getArtifactsPurgeThreads()).thenReturn(2);
+        ArtifactsPurgeProgress purgeProgress = new ArtifactsPurgeProgress();
+        artifactsDiskCleaner = new ArtifactsDiskCleaner(sysEnv, goConfigService, diskSpaceChecker, artifactService, stageService, configDbStateRepository, purgeProgress);
+        serverConfig.setPurgeLimits(5.0, 9.0);
+        Stage stageOne = stage(1, "pipeline");
+        Stage stageTwo = stage(2, "with-pipeline");
+        Stage stageThree = stage(3, "foo-pipeline");
+
+        when(stageService.oldestStagesWithDeletableArtifacts()).thenReturn(Arrays.asList(stageOne, stageTwo, stageThree));
+        when(diskSpaceChecker.getUsableSpace(goConfigService.artifactsDir())).thenReturn(4 * GoConstants.GIGA_BYTE);
+        when(artifactService.purgeableSizeOf(stageOne)).thenReturn(OptionalLong.of(3 * GoConstants.GIGA_BYTE));
+        when(artifactService.purgeableSizeOf(stageTwo)).thenReturn(OptionalLong.of(3 * GoConstants.GIGA_BYTE));
+        when(artifactService.purgeableSizeOf(stageThree)).thenReturn(OptionalLong.of(3 * GoConstants.GIGA_BYTE));
+
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                when(diskSpaceChecker.getUsableSpace(goConfigService.artifactsDir())).thenReturn(10 * GoConstants.GIGA_BYTE);
+                return null;
+            }
+        }).when(artifactService).purgeArtifactsForStage(stageTwo);
+
+        artifactsDiskCleaner.deleteOldArtifacts();
+
+        verify(artifactService).purgeArtifactsForStage(stageOne);
+        verify(artifactService).purgeArtifactsForStage(stageTwo);
+        verify(artifactService, never()).purgeArtifactsForStage(stageThree);
+        assertThat(purgeProgress.isRunning(), is(false));
+        assertThat(purgeProgress.getStagesPurged(), is(2));
+        assertThat(purgeProgress.getBytesFreed(), is(6 * GoConstants.GIGA_BYTE));
+    }
+
+    @Test
+    public void shouldSelectStagesToPurgeByTheSizesRecordedForThem() {
+        Stage stageOne = stage(1, "pipeline");
+        Stage stageTwo = stage(2, "with-pipeline");
+        when(artifactService.purgeableSizeOf(stageOne)).thenReturn(OptionalLong.of(10L));
+        when(artifactService.purgeableSizeOf(stageTwo)).thenReturn(OptionalLong.of(20L));
+
+        assertThat(artifactsDiskCleaner.selectStagesToFree(5, Arrays.asList(stageOne, stageTwo), 2), contains(stageOne));
+        assertThat(artifactsDiskCleaner.selectStagesToFree(15, Arrays.asList(stageOne, stageTwo), 2), contains(stageOne, stageTwo));
+        assertThat(artifactsDiskCleaner.selectStagesToFree(0, Arrays.asList(stageOne, stageTwo), 2).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSelectOnlyAsManyStagesOfUnknownSizeAsThereArePurgers() {
+        Stage stageOne = stage(1, "pipeline");
+        Stage stageTwo = stage(2, "with-pipeline");
+        Stage stageThree = stage(3, "foo-pipeline");
+        Stage stageFour = stage(4, "bar-pipeline");
+        when(artifactService.purgeableSizeOf(stageOne)).thenReturn(OptionalLong.empty());
+        when(artifactService.purgeableSizeOf(stageTwo)).thenReturn(OptionalLong.of(10L));
+        when(artifactService.purgeableSizeOf(stageThree)).thenReturn(OptionalLong.empty());
+        when(artifactService.purgeableSizeOf(stageFour)).thenReturn(OptionalLong.of(10L));
+
+        assertThat(artifactsDiskCleaner.selectStagesToFree(100, Arrays.asList(stageOne, stageTwo, stageThree, stageFour), 2), contains(stageOne, stageTwo, stageThree));
+    }
+
+    private Stage stage(long id, String pipelineName) {
+        Stage stage = StageMother.passedStageInstance("stage-" + id, "job", pipelineName);
+        stage.setId(id);
+        return stage;
+    }
+
     @Test
     public void shouldUseA_NonServerHealthAware_result() {
         serverHealthService = mock(ServerHealthService.class);
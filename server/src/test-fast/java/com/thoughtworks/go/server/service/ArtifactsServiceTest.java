@@ -42,11 +42,13 @@ import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.server.service.ArtifactsService.LOG_XML_NAME;
@@ -65,6 +67,7 @@ public class ArtifactsServiceTest {
     private File fakeRoot;
     private JobResolverService resolverService;
     private StageDao stageService;
+    private ContentAddressedArtifactStore contentAddressedArtifactStore;
 
     @Rule
     public final TemporaryFolder temporaryFolder = new TemporaryFolder();
@@ -77,6 +80,7 @@ public class ArtifactsServiceTest {
         zipUtil = mock(ZipUtil.class);
         resolverService = mock(JobResolverService.class);
         stageService = mock(StageDao.class);
+        contentAddressedArtifactStore = mock(ContentAddressedArtifactStore.class);
 
         fakeRoot = temporaryFolder.newFolder("ArtifactsServiceTest");
     }
@@ -97,7 +101,7 @@ public class ArtifactsServiceTest {
         final File destFile = new File(logsDir, buildInstanceId + File.separator + LOG_XML_NAME);
 
         assumeArtifactsRoot(logsDir);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.saveFile(destFile.getParentFile(), stream, true, 1);
 
         Mockito.verify(zipUtil).unzip(any(ZipInputStream.class), eq(destFile.getParentFile()));
@@ -111,7 +115,7 @@ public class ArtifactsServiceTest {
         String buildInstanceId = "1";
         final File destFile = new File(logsDir, buildInstanceId + File.separator + LOG_XML_NAME);
         assumeArtifactsRoot(logsDir);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService, contentAddressedArtifactStore);
         boolean saved = artifactsService.saveFile(destFile, stream, true, 1);
         assertThat(saved).isFalse();
     }
@@ -123,7 +127,7 @@ public class ArtifactsServiceTest {
         String buildInstanceId = "1";
         final File destFile = new File(logsDir, buildInstanceId + File.separator + LOG_XML_NAME);
         assumeArtifactsRoot(logsDir);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.saveFile(destFile, stream, false, 1);
 
         Mockito.verify(systemService).streamToFile(eq(stream), eq(destFile));
@@ -138,7 +142,7 @@ public class ArtifactsServiceTest {
                 buildInstanceId + File.separator + "generated" + File.separator + LOG_XML_NAME);
         assumeArtifactsRoot(logsDir);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.saveFile(destFile, stream, false, 1);
 
         Mockito.verify(systemService).streamToFile(eq(stream), eq(destFile));
@@ -157,7 +161,7 @@ public class ArtifactsServiceTest {
         doThrow(ioException).when(zipUtil).unzip(Mockito.any(ZipInputStream.class), Mockito.any(File.class));
 
         try (LogFixture logFixture = logFixtureFor(ArtifactsService.class, Level.DEBUG)) {
-            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
             artifactsService.saveFile(destFile, stream, true, 1);
             String result;
             synchronized (logFixture) {
@@ -179,7 +183,7 @@ public class ArtifactsServiceTest {
         Mockito.doThrow(ioException).when(zipUtil).unzip(any(ZipInputStream.class), any(File.class));
 
         try (LogFixture logFixture = logFixtureFor(ArtifactsService.class, Level.DEBUG)) {
-            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
             artifactsService.saveFile(destFile, stream, true, PUBLISH_MAX_RETRIES);
             String result;
             synchronized (logFixture) {
@@ -193,7 +197,7 @@ public class ArtifactsServiceTest {
     void shouldConvertArtifactPathToFileSystemLocation() throws Exception {
         File artifactsRoot = temporaryFolder.newFolder();
         assumeArtifactsRoot(artifactsRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         File location = artifactsService.getArtifactLocation("foo/bar/baz");
         assertThat(location).isEqualTo(new File(artifactsRoot + "/foo/bar/baz"));
     }
@@ -203,7 +207,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = temporaryFolder.newFolder();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         JobIdentifier identifier = JobIdentifierMother.jobIdentifier("p", 1, "s", "2", "j");
         when(resolverService.actualJobIdentifier(identifier)).thenReturn(identifier);
 
@@ -216,7 +220,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = temporaryFolder.newFolder();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         JobIdentifier identifier = JobIdentifierMother.jobIdentifier("p", 1, "s", "2", "j");
         when(resolverService.actualJobIdentifier(identifier)).thenReturn(identifier);
 
@@ -229,7 +233,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = temporaryFolder.newFolder();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         File artifact = artifactsService.findArtifact(
                 new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", null), "pkg.zip");
@@ -240,7 +244,7 @@ public class ArtifactsServiceTest {
     @DisabledOnOs(OS.WINDOWS)
     void shouldProvideArtifactRootForAJobOnLinux() throws Exception {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", null);
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 2, "2.2", "functional", "3", "mac-safari"));
@@ -252,7 +256,7 @@ public class ArtifactsServiceTest {
     @EnabledOnOs(OS.WINDOWS)
     void shouldProvideArtifactRootForAJobOnWindows() throws Exception {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", null);
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", null));
@@ -263,7 +267,7 @@ public class ArtifactsServiceTest {
     @Test
     void shouldProvideArtifactUrlForAJob() throws Exception {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox");
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 2, "2.2", "functional", "3", "windows-ie"));
         String artifactUrl = artifactsService.findArtifactUrl(oldId);
@@ -275,7 +279,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = temporaryFolder.newFolder();
         assumeArtifactsRoot(artifactsRoot);
         willCleanUp(artifactsRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         File artifact = artifactsService.findArtifact(new JobIdentifier("cruise", -2, "1.1", "dev", "2", "linux-firefox", null), "pkg.zip");
         assertThat(artifact).isEqualTo(new File(artifactsRoot, "pipelines/cruise/1.1/dev/2/linux-firefox/pkg.zip"));
@@ -303,7 +307,7 @@ public class ArtifactsServiceTest {
         FileUtils.writeStringToFile(checksumFile, "foo:25463254625346", UTF_8);
 
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", new Date());
         artifactsService.purgeArtifactsForStage(stage);
@@ -338,7 +342,7 @@ public class ArtifactsServiceTest {
         File metadataJson = new File(pluggableArtifactMetadataDir, "cd.go.artifact.docker.json");
         FileUtils.writeStringToFile(metadataJson, "{\"image\": \"alpine:foo\", \"digest\": \"sha\"}", UTF_8);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", new Date());
         artifactsService.purgeArtifactsForStage(stage);
@@ -359,7 +363,7 @@ public class ArtifactsServiceTest {
         assumeArtifactsRoot(artifactsRoot);
         willCleanUp(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job1", new Date());
         File job1Dir = createJobArtifactFolder(artifactsRoot + "/pipelines/pipeline/10/stage/20/job1");
@@ -382,6 +386,34 @@ public class ArtifactsServiceTest {
         assertThat(job1CacheDirFromADifferentStageRun.exists()).isTrue();
     }
 
+    @Test
+    void shouldRecordSizeOfArtifactsThatPurgingAStageWouldFreeAsTheyAreUploaded() throws IOException {
+        File artifactsRoot = temporaryFolder.newFolder();
+        assumeArtifactsRoot(artifactsRoot);
+        willCleanUp(artifactsRoot);
+        File jobDir = new File(artifactsRoot, "pipelines/pipeline/10/stage/20/job");
+        File folderToUpload = temporaryFolder.newFolder("bar");
+        FileUtils.writeStringToFile(new File(folderToUpload, "baz"), "quux", UTF_8);
+        File zip = new ZipUtil().zip(folderToUpload, temporaryFolder.newFile("bar.zip"), Deflater.DEFAULT_COMPRESSION);
+
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), new SystemService(null, null), contentAddressedArtifactStore);
+        artifactsService.initialize();
+        Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", new Date());
+        assertThat(artifactsService.purgeableSizeOf(stage)).isEmpty();
+
+        artifactsService.saveFile(new File(jobDir, "foo"), new ByteArrayInputStream("hello world".getBytes(UTF_8)), false, 1);
+        try (FileInputStream stream = new FileInputStream(zip)) {
+            artifactsService.saveFile(jobDir, stream, true, 1);
+        }
+        artifactsService.saveOrAppendFile(new File(jobDir, "cruise-output/console.log"), new ByteArrayInputStream("Build Logs".getBytes(UTF_8)));
+
+        assertThat(artifactsService.purgeableSizeOf(stage)).hasValue("hello world".length() + "quux".length());
+
+        artifactsService.purgeArtifactsForStage(stage);
+
+        assertThat(artifactsService.purgeableSizeOf(stage)).isEmpty();
+    }
+
     private File createJobArtifactFolder(final String path) throws IOException {
         File jobDir = new File(path);
         jobDir.mkdirs();
@@ -392,7 +424,7 @@ public class ArtifactsServiceTest {
 
     @Test
     void shouldLogAndIgnoreExceptionsWhenDeletingStageArtifacts() throws IllegalArtifactLocationException {
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, systemService, contentAddressedArtifactStore);
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", new Date());
 
         ArtifactDirectoryChooser chooser = mock(ArtifactDirectoryChooser.class);
@@ -25,6 +25,7 @@ import com.thoughtworks.go.domain.materials.Modification;
 import com.thoughtworks.go.helper.*;
 import com.thoughtworks.go.remote.work.BuildWork;
 import com.thoughtworks.go.server.domain.ElasticAgentMetadata;
+import com.thoughtworks.go.server.perf.SchedulingLatencyMonitor;
 import com.thoughtworks.go.server.service.builders.BuilderFactory;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.websocket.AgentRemoteHandler;
@@ -59,6 +60,8 @@ class BuildAssignmentServiceTest {
     @Mock
     private SystemEnvironment systemEnvironment;
     @Mock
+    private SchedulingLatencyMonitor schedulingLatencyMonitor;
+    @Mock
     private AgentRemoteHandler agentRemoteHandler;
     @Mock
     private BuilderFactory builderFactory;
@@ -88,7 +91,7 @@ class BuildAssignmentServiceTest {
     @BeforeEach
     void setUp() throws Exception {
         initMocks(this);
-        buildAssignmentService = new BuildAssignmentService(goConfigService, jobInstanceService, scheduleService, agentService, environmentConfigService, transactionTemplate, scheduledPipelineLoader, pipelineService, builderFactory, agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, null);
+        buildAssignmentService = new BuildAssignmentService(goConfigService, jobInstanceService, scheduleService, agentService, environmentConfigService, transactionTemplate, scheduledPipelineLoader, pipelineService, builderFactory, agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, null, schedulingLatencyMonitor);
         elasticProfileId1 = "elastic.profile.id.1";
         elasticProfileId2 = "elastic.profile.id.2";
         elasticAgent = AgentMother.elasticAgent();
@@ -167,6 +170,24 @@ class BuildAssignmentServiceTest {
         verify(elasticAgentPluginService, never()).shouldAssignWork(any(ElasticAgentMetadata.class), any(String.class), any(ElasticProfile.class), any(JobIdentifier.class));
     }
 
+    @Test
+    void shouldMatchJobsFromJobPlanIndexWhenIndexedMatchingIsEnabled() {
+        when(systemEnvironment.isBuildAssignmentIndexedMatchingEnabled()).thenReturn(true);
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
+        pipeline.first().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
+        pipeline.first().getJobs().add(JobConfigMother.elasticJob(elasticProfileId1));
+        JobPlan elasticJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().last(), schedulingContext);
+        JobPlan regularJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().first(), schedulingContext);
+        jobPlans.add(elasticJobPlan);
+        jobPlans.add(regularJobPlan);
+        buildAssignmentService.onTimer();
+
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isEqualTo(regularJobPlan);
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isNull();
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(elasticJobPlan);
+        verify(environmentConfigService, never()).filterJobsByAgent(any(), any(String.class));
+    }
+
     @Test
     void shouldNotMatchJobsDuringMaintenanceMode() {
         when(maintenanceModeService.isMaintenanceMode()).thenReturn(true);
@@ -277,7 +298,7 @@ class BuildAssignmentServiceTest {
         BuildWork work = (BuildWork) new BuildAssignmentService(goConfigService, jobInstanceService, scheduleService,
                 agentService, environmentConfigService, transactionTemplate,
                 scheduledPipelineLoader, pipelineService, builderFactory,
-                agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, secretParamResolver)
+                agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, secretParamResolver, schedulingLatencyMonitor)
                 .assignWorkToAgent(agentInstance);
 
         verify(secretParamResolver).resolve(work.getAssignment().initialEnvironmentVariableContext().getSecretParams());
@@ -309,7 +330,7 @@ class BuildAssignmentServiceTest {
         new BuildAssignmentService(goConfigService, jobInstanceService, scheduleService,
                 agentService, environmentConfigService, transactionTemplate,
                 scheduledPipelineLoader, pipelineService, builderFactory,
-                agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, secretParamResolver)
+                agentRemoteHandler, maintenanceModeService, elasticAgentPluginService, systemEnvironment, secretParamResolver, schedulingLatencyMonitor)
                 .assignWorkToAgent(agentInstance);
 
         verify(secretParamResolver).resolve(svnMaterial.getSecretParams());
@@ -20,6 +20,7 @@ import com.thoughtworks.go.config.security.users.AllowedUsers;
 import com.thoughtworks.go.config.security.users.Users;
 import com.thoughtworks.go.domain.activity.ProjectStatus;
 import com.thoughtworks.go.domain.cctray.CcTrayCache;
+import com.thoughtworks.go.domain.cctray.CcTraySnapshot;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.util.DateUtils;
 import org.junit.Before;
@@ -34,6 +35,9 @@ import static com.thoughtworks.go.server.newsecurity.SessionUtilsHelper.loginAs;
 import static com.thoughtworks.go.util.DataStructureUtils.s;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -57,7 +61,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldGenerateCcTrayXMLForAnyUserWhenSecurityIsDisabled() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(false);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user1")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), statusFor("proj2", "user1"))));
         loginAs("other_user");
 
         String xml = ccTrayService.renderCCTrayXML("some-prefix", Username.ANONYMOUS.getUsername().toString(), new StringBuilder(), etag -> {
@@ -69,7 +73,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldGenerateCcTrayXMLForCurrentUserWhenSecurityIsEnabled() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("USER1");
         String xml = ccTrayService.renderCCTrayXML("some-prefix", "USER1", new StringBuilder(), etag -> {
@@ -85,7 +89,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldGenerateEmptyCcTrayXMLWhenCurrentUserIsNotAuthorizedToViewAnyProjects() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("some-user-without-permissions");
         String xml = ccTrayService.renderCCTrayXML("some-prefix", "some-user-without-permissions", new StringBuilder(), etag -> {
@@ -96,7 +100,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldAllowSiteURLPrefixToBeChangedPerCall() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("user1");
         String xml = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
@@ -112,7 +116,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldNotAppendNewLinesForNullProjectStatusesInList() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
 
         loginAs("user1");
         String xml = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
@@ -127,7 +131,7 @@ public class CcTrayServiceTest {
     @Test
     public void shouldChangeEtagIfSitePrefixChanges() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
 
         AtomicReference<String> originalEtag = new AtomicReference<>();
         String originalXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
@@ -146,9 +150,9 @@ public class CcTrayServiceTest {
     @Test
     public void shouldChangeEtagIfProjectStatusChanges() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder())
-                .thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))))
-                .thenReturn(asList(statusFor("proj2", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot())
+                .thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))))
+                .thenReturn(new CcTraySnapshot(asList(statusFor("proj2", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
 
         AtomicReference<String> originalEtag = new AtomicReference<>();
         String originalXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
@@ -165,6 +169,34 @@ public class CcTrayServiceTest {
         assertThat(originalXML).isNotEqualTo(newXML);
     }
 
+    @Test
+    public void shouldOnlyCheckWhetherUserCanViewProjectsOnceForEachSetOfViewers() throws Exception {
+        when(goConfigService.isSecurityEnabled()).thenReturn(true);
+        Users viewers = spy(viewers("user1"));
+        ProjectStatus proj1 = statusFor("proj1");
+        ProjectStatus proj2 = statusFor("proj2");
+        proj1.updateViewers(viewers);
+        proj2.updateViewers(viewers);
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(proj1, proj2)));
+
+        String xml = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
+        }).toString();
+
+        assertCcTrayXmlFor(xml, "prefix1", "proj1", "proj2");
+        verify(viewers, times(1)).contains("user1");
+    }
+
+    @Test
+    public void shouldNotTreatSiteURLPrefixAsARegularExpressionReplacement() throws Exception {
+        when(goConfigService.isSecurityEnabled()).thenReturn(false);
+        when(ccTrayCache.snapshot()).thenReturn(new CcTraySnapshot(asList(statusFor("proj1", "user1"))));
+
+        String xml = ccTrayService.renderCCTrayXML("http://go/$1", "user1", new StringBuilder(), etag -> {
+        }).toString();
+
+        assertCcTrayXmlFor(xml, "http://go/$1", "proj1");
+    }
+
     private ProjectStatus statusFor(String projectName, String... allowedUsers) throws Exception {
         ProjectStatus status = new ProjectStatus(projectName, "activity1", "build-status-1", "build-label-1", DateUtils.parseRFC822("Sun, 23 May 2010 10:00:00 +0200"), "web-url");
         status.updateViewers(viewers(allowedUsers));
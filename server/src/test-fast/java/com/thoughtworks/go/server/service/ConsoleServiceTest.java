@@ -16,18 +16,26 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.CompressedConsoleLog;
+import com.thoughtworks.go.domain.ConsoleLogIndex;
+import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.helper.JobIdentifierMother;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -37,6 +45,7 @@ public class ConsoleServiceTest {
 
     private ArtifactDirectoryChooser chooser;
     private ConsoleService service;
+    private SystemEnvironment systemEnvironment;
     @Rule
     public final TemporaryFolder testFolder = new TemporaryFolder();
 
@@ -44,10 +53,14 @@ public class ConsoleServiceTest {
     public void setUp() throws Exception {
         chooser = mock(ArtifactDirectoryChooser.class);
         service = new ConsoleService(chooser);
+        systemEnvironment = new SystemEnvironment();
     }
 
     @After
     public void tearDown() throws Exception {
+        systemEnvironment.reset(SystemEnvironment.CONSOLE_LOG_LINE_INDEX);
+        systemEnvironment.reset(SystemEnvironment.CONSOLE_LOG_LINE_INDEX_INTERVAL);
+        systemEnvironment.reset(SystemEnvironment.CONSOLE_LOG_COMPRESSION_BLOCK_SIZE);
         testFolder.delete();
     }
 
@@ -139,4 +152,77 @@ public class ConsoleServiceTest {
         assertThat(finalConsoleLog.exists(), is(true));
     }
 
+    @Test
+    public void shouldIndexLinesOfConsoleLogAsItIsUpdatedAndStreamFromTheIndexedOffset() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOG_LINE_INDEX, true);
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOG_LINE_INDEX_INTERVAL, 2);
+        service = new ConsoleService(chooser, systemEnvironment);
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = new File(testFolder.getRoot(), "console.log");
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(consoleLog);
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(new File(testFolder.getRoot(), "final_console.log"));
+
+        service.updateConsoleLog(consoleLog, new ByteArrayInputStream("first\nsecond\n".getBytes()));
+        service.updateConsoleLog(consoleLog, new ByteArrayInputStream("third\nfourth\n".getBytes()));
+
+        assertThat(new ConsoleLogIndex(consoleLog, 2).positionOf(3).getOffset(), is(13L));
+        List<String> lines = new ArrayList<>();
+        service.getStreamer(3, jobIdentifier).stream(lines::add);
+        assertThat(lines, contains("fourth"));
+    }
+
+    @Test
+    public void shouldMoveLineIndexAlongWithConsoleArtifacts() throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File temporaryConsoleLog = testFolder.newFile("temporary_console.log");
+        File finalConsoleLog = new File(testFolder.getRoot(), "final_console.log");
+        File temporaryIndex = ConsoleLogIndex.indexFileFor(temporaryConsoleLog);
+        temporaryIndex.createNewFile();
+
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(temporaryConsoleLog);
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(finalConsoleLog);
+
+        service.moveConsoleArtifacts(jobIdentifier);
+
+        assertThat(temporaryIndex.exists(), is(false));
+        assertThat(ConsoleLogIndex.indexFileFor(finalConsoleLog).exists(), is(true));
+    }
+
+    @Test
+    public void shouldReplaceCompletedConsoleLogWithCompressedLogWhichCanStillBeStreamedAndAppendedTo() throws Exception {
+        systemEnvironment.set(SystemEnvironment.CONSOLE_LOG_COMPRESSION_BLOCK_SIZE, 16);
+        service = new ConsoleService(chooser, systemEnvironment);
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File finalConsoleLog = new File(testFolder.newFolder("cruise-output"), "console.log");
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(new File(testFolder.getRoot(), "temporary_console.log"));
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(finalConsoleLog);
+        service.updateConsoleLog(finalConsoleLog, new ByteArrayInputStream("first\nsecond\nthird\nfourth\n".getBytes()));
+
+        service.compress(finalConsoleLog);
+
+        File compressedConsoleLog = CompressedConsoleLog.compressedFileFor(finalConsoleLog);
+        assertThat(finalConsoleLog.exists(), is(false));
+        assertThat(service.consoleLogFile(jobIdentifier), is(compressedConsoleLog));
+        assertThat(service.doesLogExist(jobIdentifier), is(true));
+
+        assertThat(service.updateConsoleLog(compressedConsoleLog, new ByteArrayInputStream("fifth\n".getBytes())), is(true));
+
+        List<String> lines = new ArrayList<>();
+        service.getStreamer(2, jobIdentifier).stream(lines::add);
+        assertThat(lines, contains("third", "fourth", "fifth"));
+    }
+
+    @Test
+    public void shouldAppendToTheCompressedLogWhenTheLogIsCompressedAfterBeingLookedUp() throws Exception {
+        File finalConsoleLog = new File(testFolder.newFolder("cruise-output"), "console.log");
+        service.updateConsoleLog(finalConsoleLog, new ByteArrayInputStream("first\n".getBytes()));
+        service.compress(finalConsoleLog);
+
+        assertThat(service.updateConsoleLog(finalConsoleLog, new ByteArrayInputStream("second\n".getBytes())), is(true));
+
+        assertThat(finalConsoleLog.exists(), is(false));
+        List<String> lines = new ArrayList<>();
+        new ConsoleStreamer(CompressedConsoleLog.compressedFileFor(finalConsoleLog).toPath(), 0).stream(lines::add);
+        assertThat(lines, contains("first", "second"));
+    }
 }
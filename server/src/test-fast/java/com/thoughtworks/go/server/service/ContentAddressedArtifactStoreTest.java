@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.Stage;
+import com.thoughtworks.go.helper.StageMother;
+import com.thoughtworks.go.server.dao.StageDao;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EnableRuleMigrationSupport
+@DisabledOnOs(OS.WINDOWS)
+class ContentAddressedArtifactStoreTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SystemEnvironment systemEnvironment;
+    private File artifactsRoot;
+    private ContentAddressedArtifactStore store;
+    private ArtifactsService artifactsService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        artifactsRoot = temporaryFolder.newFolder("artifacts");
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsRoot);
+        systemEnvironment = new SystemEnvironment();
+        systemEnvironment.set(SystemEnvironment.ARTIFACTS_CONTENT_ADDRESSED_STORAGE, true);
+        store = new ContentAddressedArtifactStore(artifactsDirHolder, systemEnvironment);
+        artifactsService = new ArtifactsService(mock(JobResolverService.class), mock(StageDao.class), artifactsDirHolder, new ZipUtil(), mock(SystemService.class), store);
+        artifactsService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        systemEnvironment.reset(SystemEnvironment.ARTIFACTS_CONTENT_ADDRESSED_STORAGE);
+        temporaryFolder.delete();
+    }
+
+    @Test
+    void shouldStoreIdenticalArtifactsOfDifferentJobsOnlyOnce() throws IOException {
+        File zip = zipOf("app.jar", "the same bytes");
+
+        upload(zip, "pipelines/pipeline/1/stage/1/job");
+        upload(zip, "pipelines/pipeline/2/stage/1/job");
+
+        File first = new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/dist/app.jar");
+        File second = new File(artifactsRoot, "pipelines/pipeline/2/stage/1/job/dist/app.jar");
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("the same bytes");
+        assertThat(Files.isSameFile(first.toPath(), second.toPath())).isTrue();
+        assertThat(blobs()).hasSize(1);
+        assertThat(linkCount(first)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldDeleteBlobOnlyWhenTheLastStageReferringToItIsPurged() throws IOException {
+        File zip = zipOf("app.jar", "the same bytes");
+        upload(zip, "pipelines/pipeline/1/stage/1/job");
+        upload(zip, "pipelines/pipeline/2/stage/1/job");
+
+        artifactsService.purgeArtifactsForStage(stage(1));
+
+        assertThat(new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/dist").exists()).isFalse();
+        assertThat(blobs()).hasSize(1);
+
+        artifactsService.purgeArtifactsForStage(stage(2));
+
+        assertThat(blobs()).isEmpty();
+    }
+
+    @Test
+    void shouldNotChangeOtherJobsArtifactsWhenOverwritingASharedFile() throws IOException {
+        upload(zipOf("app.jar", "the same bytes"), "pipelines/pipeline/1/stage/1/job");
+        upload(zipOf("app.jar", "the same bytes"), "pipelines/pipeline/2/stage/1/job");
+
+        upload(zipOf("app.jar", "different bytes"), "pipelines/pipeline/2/stage/1/job");
+
+        assertThat(FileUtils.readFileToString(new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/dist/app.jar"), UTF_8)).isEqualTo("the same bytes");
+        assertThat(FileUtils.readFileToString(new File(artifactsRoot, "pipelines/pipeline/2/stage/1/job/dist/app.jar"), UTF_8)).isEqualTo("different bytes");
+        assertThat(blobs()).hasSize(2);
+    }
+
+    @Test
+    void shouldMigrateExistingStagesLeavingConsoleLogsAlone() throws IOException {
+        File first = new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/app.jar");
+        File second = new File(artifactsRoot, "pipelines/pipeline/2/stage/1/job/app.jar");
+        File consoleLog = new File(artifactsRoot, "pipelines/pipeline/2/stage/1/job/cruise-output/console.log");
+        FileUtils.writeStringToFile(first, "the same bytes", UTF_8);
+        FileUtils.writeStringToFile(second, "the same bytes", UTF_8);
+        FileUtils.writeStringToFile(consoleLog, "the same bytes", UTF_8);
+
+        store.migrate(new File(artifactsRoot, "pipelines/pipeline/1/stage/1"));
+        store.migrate(new File(artifactsRoot, "pipelines/pipeline/2/stage/1"));
+
+        assertThat(Files.isSameFile(first.toPath(), second.toPath())).isTrue();
+        assertThat(linkCount(consoleLog)).isEqualTo(1);
+        assertThat(blobs()).hasSize(1);
+
+        artifactsService.purgeArtifactsForStage(stage(1));
+        artifactsService.purgeArtifactsForStage(stage(2));
+
+        assertThat(blobs()).isEmpty();
+        assertThat(consoleLog.exists()).isTrue();
+    }
+
+    @Test
+    void shouldKeepTheManifestsOfFoldersRetainedOnPurge() throws IOException {
+        upload(zipOf("console.log", "the same bytes"), "pipelines/pipeline/1/stage/1/job/cruise-output");
+        upload(zipOf("app.jar", "the same bytes"), "pipelines/pipeline/1/stage/1/job");
+
+        artifactsService.purgeArtifactsForStage(stage(1));
+
+        assertThat(new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/cruise-output/dist/console.log").exists()).isTrue();
+        assertThat(blobs()).hasSize(1);
+
+        FileUtils.deleteDirectory(new File(artifactsRoot, "pipelines/pipeline/1/stage/1/job/cruise-output"));
+        store.release(new File(artifactsRoot, "pipelines/pipeline/1/stage/1"));
+
+        assertThat(blobs()).isEmpty();
+    }
+
+    @Test
+    void shouldSweepBlobsNoLongerReferredToByAnyJob() throws IOException {
+        upload(zipOf("app.jar", "the same bytes"), "pipelines/pipeline/1/stage/1/job");
+        FileUtils.deleteDirectory(new File(artifactsRoot, "pipelines"));
+
+        for (int i = 0; i < ContentAddressedArtifactStore.BUCKETS; i++) {
+            store.sweep();
+        }
+
+        assertThat(blobs()).isEmpty();
+    }
+
+    @Test
+    void shouldSweepOnlyOneBucketOfBlobsAtATime() throws IOException {
+        upload(zipOf("app.jar", "the same bytes"), "pipelines/pipeline/1/stage/1/job");
+        FileUtils.deleteDirectory(new File(artifactsRoot, "pipelines"));
+        int bucket = Integer.parseInt(DigestUtils.sha256Hex("the same bytes").substring(0, 2), 16);
+
+        for (int i = 0; i < bucket; i++) {
+            store.sweep();
+        }
+        assertThat(blobs()).hasSize(1);
+
+        store.sweep();
+        assertThat(blobs()).isEmpty();
+    }
+
+    private void upload(File zip, String destination) throws IOException {
+        try (FileInputStream stream = new FileInputStream(zip)) {
+            assertThat(artifactsService.saveFile(new File(artifactsRoot, destination), stream, true, 1)).isTrue();
+        }
+    }
+
+    private File zipOf(String fileName, String content) throws IOException {
+        File source = new File(temporaryFolder.newFolder(), "dist");
+        FileUtils.writeStringToFile(new File(source, fileName), content, UTF_8);
+        return new ZipUtil().zip(source, temporaryFolder.newFile(), Deflater.NO_COMPRESSION);
+    }
+
+    private Collection<File> blobs() {
+        File blobs = new File(artifactsRoot, ContentAddressedArtifactStore.STORE_FOLDER + "/blobs");
+        return blobs.exists() ? FileUtils.listFiles(blobs, null, true) : Collections.emptyList();
+    }
+
+    private int linkCount(File file) throws IOException {
+        return (Integer) Files.getAttribute(file.toPath(), "unix:nlink");
+    }
+
+    private Stage stage(int pipelineCounter) {
+        return StageMother.createPassedStage("pipeline", pipelineCounter, "stage", 1, "job", new Date());
+    }
+}
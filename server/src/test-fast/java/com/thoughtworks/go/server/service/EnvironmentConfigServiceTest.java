@@ -24,9 +24,13 @@ import com.thoughtworks.go.config.remote.RepoConfigOrigin;
 import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.helper.EnvironmentConfigMother;
 import com.thoughtworks.go.presentation.environment.EnvironmentPipelineModel;
+import com.thoughtworks.go.server.domain.Agent;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.persistence.AgentDao;
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -45,13 +49,22 @@ public class EnvironmentConfigServiceTest {
     private GoConfigService mockGoConfigService;
     private EnvironmentConfigService environmentConfigService;
     private SecurityService securityService;
+    private AgentDao agentDao;
+    private SystemEnvironment systemEnvironment;
 
     @Before
     public void setUp() throws Exception {
         mockGoConfigService = mock(GoConfigService.class);
         securityService = mock(SecurityService.class);
+        agentDao = mock(AgentDao.class);
+        systemEnvironment = new SystemEnvironment();
         EntityHashingService entityHashingService = mock(EntityHashingService.class);
-        environmentConfigService = new EnvironmentConfigService(mockGoConfigService, securityService, entityHashingService);
+        environmentConfigService = new EnvironmentConfigService(mockGoConfigService, securityService, entityHashingService, new ElasticAgentConfigStore(agentDao, systemEnvironment));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        systemEnvironment.reset(SystemEnvironment.ELASTIC_AGENTS_STORED_IN_DATABASE);
     }
 
     @Test
@@ -167,6 +180,24 @@ public class EnvironmentConfigServiceTest {
         assertThat(filtered.size(), is(0));
     }
 
+    @Test
+    public void shouldFilterUsingEnvironmentsOfAgentsStoredOutsideConfig() throws Exception {
+        systemEnvironment.set(SystemEnvironment.ELASTIC_AGENTS_STORED_IN_DATABASE, true);
+        AgentConfig elasticAgentConfig = new AgentConfig("elastic-uuid", "elastic-host", "10.1.1.1");
+        elasticAgentConfig.setElasticAgentId("elastic-agent-id");
+        elasticAgentConfig.setElasticPluginId("docker");
+        Agent elasticAgent = new Agent("elastic-uuid", "cookie", "elastic-host", "10.1.1.1");
+        elasticAgent.storeConfig(elasticAgentConfig, asList("UAT"));
+        when(agentDao.agentsWithConfig()).thenReturn(asList(elasticAgent));
+        environmentConfigService.sync(environments("uat", "prod"));
+
+        List<JobPlan> filtered = environmentConfigService.filterJobsByAgent(jobs("no-env", "uat", "prod"), "elastic-uuid");
+
+        assertThat(filtered.size(), is(1));
+        assertThat(filtered.get(0).getPipelineName(), is("uat-pipeline"));
+        assertThat(environmentConfigService.environmentsFor("elastic-uuid"), is(Collections.singleton("UAT")));
+    }
+
     @Test
     public void shouldFindPipelinesNamesForAGivenEnvironmentName() throws Exception {
         environmentConfigService.sync(environments("uat", "prod"));
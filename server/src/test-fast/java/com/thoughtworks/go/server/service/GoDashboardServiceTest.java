@@ -29,6 +29,8 @@ import com.thoughtworks.go.server.domain.user.DashboardFilter;
 import com.thoughtworks.go.server.domain.user.Filters;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -38,8 +40,10 @@ import java.util.List;
 
 import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -66,12 +70,17 @@ public class GoDashboardServiceTest {
         config = GoConfigMother.defaultCruiseConfig();
         Toggles.initializeWith(featureToggleService);
         when(cache.allEntries()).thenReturn(this.pipelines);
-        service = new GoDashboardService(cache, dashboardCurrentStateLoader, goConfigService);
+        service = new GoDashboardService(cache, dashboardCurrentStateLoader, goConfigService, mock(SystemEnvironment.class));
 
         GoConfigMother.addUserAsSuperAdmin(config, "superduper");
         configMother.addRoleAsSuperAdmin(config, "supers");
     }
 
+    @After
+    public void tearDown() throws Exception {
+        PluginRoleUsersStore.instance().clearAll();
+    }
+
     @Test
     public void shouldUpdateCacheForPipelineGivenItsName() {
         PipelineConfig pipelineConfig = configMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1", "job1");
@@ -321,6 +330,101 @@ public class GoDashboardServiceTest {
         verifyZeroInteractions(dashboardCurrentStateLoader);
     }
 
+    @Test
+    public void dashboardViewFor_shouldHandOutTheSameViewUntilTheDashboardCacheChanges() {
+        configMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1A", "job1A1");
+        addPipelinesToCache(pipeline("pipeline1", "group1"));
+        GoDashboardService service = serviceWithDashboardViews();
+
+        GoDashboardView view = service.dashboardViewFor(Filters.WILDCARD_FILTER, new Username("user1"));
+
+        assertThat(service.dashboardViewFor(Filters.WILDCARD_FILTER, new Username("user1")), is(sameInstance(view)));
+        assertThat(service.dashboardViewFor(Filters.WILDCARD_FILTER, new Username("user2")), is(not(sameInstance(view))));
+        assertThat(view.pipelineGroups().get(0).pipelines(), contains("pipeline1"));
+
+        GoDashboardPipelines changedPipelines = mock(GoDashboardPipelines.class);
+        when(changedPipelines.find(new CaseInsensitiveString("pipeline1"))).thenReturn(pipeline("pipeline1", "group1"));
+        when(cache.allEntries()).thenReturn(changedPipelines);
+
+        assertThat(service.dashboardViewFor(Filters.WILDCARD_FILTER, new Username("user1")), is(not(sameInstance(view))));
+        assertThat(service.viewStatistics().get("Views handed out again"), is(1L));
+        assertThat(service.viewStatistics().get("Views built"), is(3L));
+        assertThat(service.viewStatistics().get("Hit rate (%)"), is(25L));
+    }
+
+    @Test
+    public void dashboardViewFor_shouldBuildAFreshViewWhenThePluginRolesOfTheUserChange() {
+        PluginRoleConfig viewersRole = new PluginRoleConfig("viewers", "ldap");
+        AllowedUsers viewers = new AllowedUsers(Collections.emptySet(), singleton(viewersRole));
+        configMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1A", "job1A1");
+        addPipelinesToCache(pipeline("pipeline1", "group1", new Permissions(viewers, NoOne.INSTANCE, NoOne.INSTANCE, NoOne.INSTANCE)));
+        GoDashboardService service = serviceWithDashboardViews();
+        Username user = new Username("user1");
+        PluginRoleUsersStore.instance().assignRole("user1", viewersRole);
+
+        GoDashboardView view = service.dashboardViewFor(Filters.WILDCARD_FILTER, user);
+        assertThat(view.pipelineGroups().get(0).pipelines(), contains("pipeline1"));
+
+        PluginRoleUsersStore.instance().revokeAllRolesFor("user1");
+        GoDashboardView viewAfterRevoke = service.dashboardViewFor(Filters.WILDCARD_FILTER, user);
+
+        assertThat(viewAfterRevoke, is(not(sameInstance(view))));
+        assertThat(viewAfterRevoke.pipelineGroups().size(), is(0));
+        assertThat(service.viewStatistics().get("Views built"), is(2L));
+    }
+
+    @Test
+    public void dashboardViewFor_shouldBuildAFreshViewEveryTimeWhenViewsAreNotKept() {
+        configMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1A", "job1A1");
+        addPipelinesToCache(pipeline("pipeline1", "group1"));
+        when(goConfigService.currentCruiseConfig()).thenReturn(config);
+        when(goConfigService.groups()).thenReturn(config.getGroups());
+        when(goConfigService.getEnvironments()).thenReturn(config.getEnvironments());
+        when(goConfigService.security()).thenReturn(config.server().security());
+        Username user = new Username("user1");
+
+        GoDashboardView view = service.dashboardViewFor(Filters.WILDCARD_FILTER, user);
+
+        assertThat(service.hasDashboardViews(), is(false));
+        assertThat(view.pipelineGroups().get(0).pipelines(), contains("pipeline1"));
+        assertThat(service.dashboardViewFor(Filters.WILDCARD_FILTER, user), is(not(sameInstance(view))));
+        assertThat(service.viewStatistics().get("Cached views"), is(0));
+    }
+
+    @Test
+    public void dashboardViewFor_shouldHaveTheSameEtagAsAFreshlyBuiltViewWhenOnlySomeGroupsChange() {
+        configMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1A", "job1A1");
+        configMother.addPipelineWithGroup(config, "group2", "pipeline2", "stage1A", "job1A1");
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1", "group1");
+        addPipelinesToCache(pipeline1, pipeline("pipeline2", "group2"));
+        GoDashboardService service = serviceWithDashboardViews();
+        Username user = new Username("user1");
+
+        GoDashboardView viewBeforeChange = service.dashboardViewFor(Filters.WILDCARD_FILTER, user);
+
+        GoDashboardPipelines changedPipelines = mock(GoDashboardPipelines.class);
+        when(changedPipelines.find(new CaseInsensitiveString("pipeline1"))).thenReturn(pipeline1);
+        when(changedPipelines.find(new CaseInsensitiveString("pipeline2"))).thenReturn(pipeline("pipeline2", "group2"));
+        when(cache.allEntries()).thenReturn(changedPipelines);
+
+        GoDashboardView view = service.dashboardViewFor(Filters.WILDCARD_FILTER, user);
+        GoDashboardView freshlyBuilt = new GoDashboardView(user, view.pipelineGroups(), view.environments(), changedPipelines, config.getMd5(), null);
+
+        assertThat(view, is(not(sameInstance(viewBeforeChange))));
+        assertThat(view.etag(), is(freshlyBuilt.etag()));
+        assertThat(view.reusedGroupEtags(), is(1));
+    }
+
+    private GoDashboardService serviceWithDashboardViews() {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.getDashboardMaxCachedViews()).thenReturn(10);
+        when(goConfigService.currentCruiseConfig()).thenReturn(config);
+        when(goConfigService.groups()).thenReturn(config.getGroups());
+        when(goConfigService.getEnvironments()).thenReturn(config.getEnvironments());
+        when(goConfigService.security()).thenReturn(config.server().security());
+        return new GoDashboardService(cache, dashboardCurrentStateLoader, goConfigService, systemEnvironment);
+    }
+
     private List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username username) {
         when(goConfigService.getEnvironments()).thenReturn(config.getEnvironments());
         when(goConfigService.security()).thenReturn(config.server().security());
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.ResourceConfigs;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptySet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@Disabled
+class JobPlanIndexPerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(JobPlanIndexPerformanceTest.class.getName());
+
+    @Test
+    void shouldMatchManyAgentsAgainstManyJobs() {
+        int numberOfJobs = 5000;
+        int numberOfAgents = 1500;
+        List<JobPlan> jobPlans = new ArrayList<>();
+        for (int i = 0; i < numberOfJobs; i++) {
+            jobPlans.add(jobPlan("pipeline-" + (i % 500), i, "resource-" + (i % 20)));
+        }
+        List<AgentInstance> agents = new ArrayList<>();
+        for (int i = 0; i < numberOfAgents; i++) {
+            agents.add(agent("agent-" + i, "resource-" + (i % 25)));
+        }
+
+        long start = System.nanoTime();
+        JobPlanIndex index = new JobPlanIndex(jobPlans, mock(EnvironmentConfigService.class));
+        int matched = 0;
+        for (AgentInstance agent : agents) {
+            if (index.claimFor(agent, emptySet()) != null) {
+                matched++;
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        LOGGER.info("Matched {} of {} agents against {} jobs in {}ms", matched, numberOfAgents, numberOfJobs, elapsedMillis);
+        assertThat(matched).isEqualTo(1200);
+    }
+
+    private DefaultJobPlan jobPlan(String pipelineName, long id, String resources) {
+        JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job-" + id, id);
+        return new DefaultJobPlan(new Resources(resources), new ArrayList<>(), new ArrayList<>(), id, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+    }
+
+    private AgentInstance agent(String uuid, String resources) {
+        AgentConfig agentConfig = new AgentConfig(uuid, uuid, "127.0.0.1", new ResourceConfigs(resources));
+        return AgentInstance.createFromConfig(agentConfig, new SystemEnvironment(), null);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.ResourceConfigs;
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobPlanIndexTest {
+    private EnvironmentConfigService environmentConfigService;
+
+    @BeforeEach
+    void setUp() {
+        environmentConfigService = mock(EnvironmentConfigService.class);
+    }
+
+    @Test
+    void shouldClaimEarliestJobWhoseResourcesTheAgentHas() {
+        DefaultJobPlan needsWindows = jobPlan("pipeline", 1, "windows");
+        DefaultJobPlan needsLinux = jobPlan("pipeline", 2, "linux");
+        DefaultJobPlan needsNothing = jobPlan("pipeline", 3, "");
+        JobPlanIndex index = new JobPlanIndex(Arrays.asList(needsWindows, needsLinux, needsNothing), environmentConfigService);
+
+        AgentInstance linuxAgent = agent("linux-agent", "linux");
+
+        assertThat(index.claimFor(linuxAgent, emptySet())).isEqualTo(needsLinux);
+        assertThat(index.claimFor(linuxAgent, emptySet())).isEqualTo(needsNothing);
+        assertThat(index.claimFor(linuxAgent, emptySet())).isNull();
+        assertThat(index.unclaimedJobPlans()).containsExactly(needsWindows);
+    }
+
+    @Test
+    void shouldOnlyClaimJobsFromEnvironmentsTheAgentBelongsTo() {
+        DefaultJobPlan inProduction = jobPlan("deploy", 1, "");
+        DefaultJobPlan withoutEnvironment = jobPlan("build", 2, "");
+        when(environmentConfigService.envForPipeline("deploy")).thenReturn("production");
+        JobPlanIndex index = new JobPlanIndex(Arrays.asList(inProduction, withoutEnvironment), environmentConfigService);
+
+        assertThat(index.claimFor(agent("production-agent", ""), singleton("uat"))).isNull();
+        assertThat(index.claimFor(agent("production-agent", ""), singleton("production"))).isEqualTo(inProduction);
+        assertThat(index.claimFor(agent("production-agent", ""), singleton("production"))).isNull();
+        assertThat(index.claimFor(agent("any-agent", ""), emptySet())).isEqualTo(withoutEnvironment);
+    }
+
+    @Test
+    void shouldMatchEnvironmentsIrrespectiveOfCase() {
+        DefaultJobPlan inUat = jobPlan("deploy", 1, "");
+        DefaultJobPlan elasticInUat = jobPlan("deploy", 2, "");
+        elasticInUat.setElasticProfile(new ElasticProfile("docker", "cd.go.docker"));
+        when(environmentConfigService.envForPipeline("deploy")).thenReturn("uat");
+        JobPlanIndex index = new JobPlanIndex(Arrays.asList(inUat, elasticInUat), environmentConfigService);
+
+        assertThat(index.claimFor(agent("uat-agent", ""), singleton("UAT"))).isEqualTo(inUat);
+        assertThat(index.claimForElasticAgent(singleton("Uat"), (jobPlan, environment) -> true)).isEqualTo(elasticInUat);
+    }
+
+    @Test
+    void shouldClaimJobPinnedToAgentIrrespectiveOfResources() {
+        DefaultJobPlan pinned = jobPlan("pipeline", 1, "windows");
+        pinned.setAgentUuid("pinned-agent");
+        JobPlanIndex index = new JobPlanIndex(Collections.singletonList(pinned), environmentConfigService);
+
+        assertThat(index.claimFor(agent("other-agent", "windows"), emptySet())).isNull();
+        assertThat(index.claimFor(agent("pinned-agent", ""), emptySet())).isEqualTo(pinned);
+    }
+
+    @Test
+    void shouldNotClaimRemovedJobs() {
+        DefaultJobPlan jobPlan = jobPlan("pipeline", 1, "");
+        JobPlanIndex index = new JobPlanIndex(Collections.singletonList(jobPlan), environmentConfigService);
+
+        assertThat(index.remove(jobPlan)).isTrue();
+
+        assertThat(index.claimFor(agent("agent", ""), emptySet())).isNull();
+        assertThat(index.unclaimedJobPlans()).isEmpty();
+    }
+
+    @Test
+    void shouldAssignEveryJobExactlyOnceWhenAgentsClaimConcurrently() throws Exception {
+        int numberOfJobs = 2000;
+        int numberOfAgents = 50;
+        List<JobPlan> jobPlans = new ArrayList<>();
+        for (int i = 0; i < numberOfJobs; i++) {
+            jobPlans.add(jobPlan("pipeline-" + (i % 100), i, i % 2 == 0 ? "linux" : ""));
+        }
+        JobPlanIndex index = new JobPlanIndex(jobPlans, environmentConfigService);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<JobPlan> claimed = ConcurrentHashMap.newKeySet();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < numberOfAgents; i++) {
+            AgentInstance agent = agent("agent-" + i, "linux");
+            results.add(executor.submit(() -> {
+                int count = 0;
+                JobPlan jobPlan;
+                while ((jobPlan = index.claimFor(agent, emptySet())) != null) {
+                    assertThat(claimed.add(jobPlan)).isTrue();
+                    count++;
+                }
+                return count;
+            }));
+        }
+
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(total).isEqualTo(numberOfJobs);
+        assertThat(index.unclaimedJobPlans()).isEmpty();
+    }
+
+    private DefaultJobPlan jobPlan(String pipelineName, long id, String resources) {
+        JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job-" + id, id);
+        return new DefaultJobPlan(new Resources(resources), new ArrayList<>(), new ArrayList<>(), id, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+    }
+
+    private AgentInstance agent(String uuid, String resources) {
+        AgentConfig agentConfig = new AgentConfig(uuid, uuid, "127.0.0.1", new ResourceConfigs(resources));
+        return AgentInstance.createFromConfig(agentConfig, new SystemEnvironment(), null);
+    }
+}
@@ -28,6 +28,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -61,6 +66,34 @@ public class PipelineScheduleQueueTest {
         assertThat(pipelineScheduleQueue.toBeScheduled().size(), is(1));
     }
 
+    @Test
+    public void shouldNotifyBuildCauseListenersOnlyWhenTheBuildCauseIsStored() {
+        List<CaseInsensitiveString> notified = new ArrayList<>();
+        pipelineScheduleQueue.addBuildCauseListener(notified::add);
+        CaseInsensitiveString pipelineName = new CaseInsensitiveString("pipeline");
+
+        pipelineScheduleQueue.schedule(pipelineName, BuildCause.createManualForced());
+        pipelineScheduleQueue.schedule(pipelineName, BuildCause.createWithModifications(new MaterialRevisions(), "u1"));
+
+        assertThat(notified, is(Collections.singletonList(pipelineName)));
+    }
+
+    @Test
+    public void shouldNotifyBuildCauseDroppedListenersWhenAQueuedBuildCauseIsCancelledOrCleared() {
+        List<CaseInsensitiveString> dropped = new ArrayList<>();
+        pipelineScheduleQueue.addBuildCauseDroppedListener(dropped::add);
+        CaseInsensitiveString pipelineName = new CaseInsensitiveString("pipeline");
+
+        pipelineScheduleQueue.cancelSchedule(pipelineName);
+        pipelineScheduleQueue.schedule(pipelineName, BuildCause.createManualForced());
+        pipelineScheduleQueue.cancelSchedule(pipelineName);
+        pipelineScheduleQueue.schedule(pipelineName, BuildCause.createManualForced());
+        pipelineScheduleQueue.clearPipeline(pipelineName);
+        pipelineScheduleQueue.clearPipeline(pipelineName);
+
+        assertThat(dropped, is(Arrays.asList(pipelineName, pipelineName)));
+    }
+
     @Test
     public void shouldConsiderPipelineNameToBeCaseInsensitiveWhileCancelingAScheduledBuild() {
         CaseInsensitiveString pipelineName = new CaseInsensitiveString("PipelinE");
@@ -17,8 +17,11 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.BasicPipelineConfigs;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.config.remote.ConfigReposConfig;
 import com.thoughtworks.go.config.remote.PartialConfig;
@@ -26,6 +29,7 @@ import com.thoughtworks.go.config.remote.RepoConfigOrigin;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.helper.MaterialConfigsMother;
 import com.thoughtworks.go.helper.PartialConfigMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
 import com.thoughtworks.go.helper.ScheduleCheckMessageMatcher;
 import com.thoughtworks.go.listener.ConfigChangedListener;
 import com.thoughtworks.go.listener.EntityConfigChangedListener;
@@ -55,13 +59,14 @@ public class PipelineSchedulerTest {
     private PipelineScheduler scheduler;
     private GoConfigService configService;
     private BuildCauseProducerService buildCauseProducerService;
+    private SchedulingCheckerService schedulingCheckerService;
 
     @Before
     public void setUp() {
         queue = mock(ScheduleCheckQueue.class);
         configService = mock(GoConfigService.class);
         ServerHealthService serverHealthService = mock(ServerHealthService.class);
-        SchedulingCheckerService schedulingCheckerService = mock(SchedulingCheckerService.class);
+        schedulingCheckerService = mock(SchedulingCheckerService.class);
         buildCauseProducerService = mock(BuildCauseProducerService.class);
         ScheduleCheckCompletedTopic topic = mock(ScheduleCheckCompletedTopic.class);
         SchedulingPerformanceLogger schedulingPerformanceLogger = mock(SchedulingPerformanceLogger.class);
@@ -104,6 +109,47 @@ public class PipelineSchedulerTest {
         verify(queue, times(2)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
     }
 
+    @Test
+    public void shouldCheckOnlyPipelinesUsingTheUpdatedMaterial() {
+        GitMaterialConfig git = MaterialConfigsMother.gitMaterialConfig("http://example.com/repo.git");
+        PipelineConfig usesGit = PipelineConfigMother.pipelineConfig("uses-git", new MaterialConfigs(git));
+        PipelineConfig usesSvn = PipelineConfigMother.pipelineConfig("uses-svn", new MaterialConfigs(MaterialConfigsMother.svnMaterialConfig()));
+        scheduler.onConfigChange(new BasicCruiseConfig(new BasicPipelineConfigs(usesGit, usesSvn)));
+        when(schedulingCheckerService.canSchedule(any(OperationResult.class))).thenReturn(true);
+
+        assertThat(scheduler.checkPipelinesUsing(git.getFingerprint()), is(asList("uses-git")));
+
+        verify(queue).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("uses-git"));
+        verifyNoMoreInteractions(queue);
+    }
+
+    @Test
+    public void shouldStopCheckingPipelineOnceItNoLongerUsesTheUpdatedMaterial() {
+        GitMaterialConfig git = MaterialConfigsMother.gitMaterialConfig("http://example.com/repo.git");
+        PipelineConfig usesGit = PipelineConfigMother.pipelineConfig("uses-git", new MaterialConfigs(git));
+        scheduler.onConfigChange(new BasicCruiseConfig(new BasicPipelineConfigs(usesGit)));
+        PipelineConfig usesSvn = PipelineConfigMother.pipelineConfig("uses-git", new MaterialConfigs(MaterialConfigsMother.svnMaterialConfig()));
+        when(configService.getAllPipelineConfigs()).thenReturn(asList(usesSvn));
+        when(schedulingCheckerService.canSchedule(any(OperationResult.class))).thenReturn(true);
+
+        scheduler.pipelineConfigChangedListener().onEntityConfigChange(usesSvn);
+
+        assertThat(scheduler.checkPipelinesUsing(git.getFingerprint()).isEmpty(), is(true));
+        verifyZeroInteractions(queue);
+    }
+
+    @Test
+    public void shouldNotCheckPipelinesUsingTheUpdatedMaterialWhenSchedulingIsNotAllowed() {
+        GitMaterialConfig git = MaterialConfigsMother.gitMaterialConfig("http://example.com/repo.git");
+        PipelineConfig usesGit = PipelineConfigMother.pipelineConfig("uses-git", new MaterialConfigs(git));
+        scheduler.onConfigChange(new BasicCruiseConfig(new BasicPipelineConfigs(usesGit)));
+        when(schedulingCheckerService.canSchedule(any(OperationResult.class))).thenReturn(false);
+
+        assertThat(scheduler.checkPipelinesUsing(git.getFingerprint()).isEmpty(), is(true));
+
+        verifyZeroInteractions(queue);
+    }
+
     @Test
     public void shouldAddErrorIfPipelineisNotFound() throws Exception {
         when(configService.hasPipelineNamed(new CaseInsensitiveString("invalid"))).thenReturn(false);
@@ -39,6 +39,7 @@ import org.junit.Test;
 import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +53,7 @@ public class UserServiceTest {
     private UserDao userDao;
     private GoConfigService goConfigService;
     private SecurityService securityService;
+    private AccessTokenService accessTokenService;
     private UserService userService;
     private TestTransactionTemplate transactionTemplate;
     private TestTransactionSynchronizationManager transactionSynchronizationManager;
@@ -60,13 +62,14 @@ public class UserServiceTest {
         userDao = mock(UserDao.class);
         goConfigService = mock(GoConfigService.class);
         securityService = mock(SecurityService.class);
+        accessTokenService = mock(AccessTokenService.class);
         transactionSynchronizationManager = new TestTransactionSynchronizationManager();
         transactionTemplate = new TestTransactionTemplate(transactionSynchronizationManager);
     }
 
     @Before
     public void setUp() {
-        userService = new UserService(userDao, securityService, goConfigService, transactionTemplate);
+        userService = new UserService(userDao, securityService, goConfigService, transactionTemplate, accessTokenService);
     }
 
     @Test
@@ -450,6 +453,7 @@ public class UserServiceTest {
         userService.deleteUser(username, "currentUser", result);
         assertThat(result.isSuccessful(), is(true));
         assertThat(result.hasMessage(), is(true));
+        verify(accessTokenService).invalidateCachedTokensOf(Collections.singletonList(username));
     }
 
     @Test
@@ -585,6 +589,7 @@ public class UserServiceTest {
         userService.bulkEnableDisableUsers(usernames, false, result);
 
         verify(userDao).disableUsers(usernames);
+        verify(accessTokenService).invalidateCachedTokensOf(usernames);
         assertThat(result.isSuccessful(), is(true));
         assertThat(result.message(), is("Users 'john, joan' were disabled successfully."));
     }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service.backup;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@EnableRuleMigrationSupport
+class BackupManifestTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+    }
+
+    @Test
+    void shouldKnowWhetherItHoldsAFileWithTheSameChecksum() {
+        BackupManifest manifest = new BackupManifest();
+        manifest.add("cipher.aes", "md5-1");
+
+        assertThat(manifest.holds("cipher.aes", "md5-1"), is(true));
+        assertThat(manifest.holds("cipher.aes", "md5-2"), is(false));
+        assertThat(manifest.holds("unknown", "md5-1"), is(false));
+    }
+
+    @Test
+    void shouldReadBackWhatWasWritten() throws IOException {
+        File manifestFile = new File(temporaryFolder.getRoot(), "config-dir.manifest");
+        BackupManifest manifest = new BackupManifest();
+        manifest.add("db/h2db/file with spaces", "md5-1");
+        manifest.add("logback.xml", "md5-2");
+
+        manifest.writeTo(manifestFile);
+        BackupManifest readBack = BackupManifest.readFrom(manifestFile);
+
+        assertThat(readBack.holds("db/h2db/file with spaces", "md5-1"), is(true));
+        assertThat(readBack.holds("logback.xml", "md5-2"), is(true));
+    }
+
+    @Test
+    void shouldBeEmptyWhenThereIsNoManifestToReadFrom() throws IOException {
+        assertThat(BackupManifest.readFrom(null).isEmpty(), is(true));
+        assertThat(BackupManifest.readFrom(new File(temporaryFolder.getRoot(), "does-not-exist")).isEmpty(), is(true));
+    }
+}
@@ -31,13 +31,19 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.GoConstants.RESPONSE_CHARSET;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -94,6 +100,33 @@ public class FileViewTest {
         assertEquals(5, getContentLength(mockResponse));
     }
 
+    @Test
+    public void shouldSendGzippedFileAsIsToClientsAcceptingGzip() throws Exception {
+        File gzipped = gzippedConsoleLog("hello\n");
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", gzipped);
+        model.put(FileView.GZIPPED, true);
+        mockRequest.addHeader("Accept-Encoding", "gzip, deflate");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals("gzip", mockResponse.getHeader("Content-Encoding"));
+        assertEquals(gzipped.length(), getContentLength(mockResponse));
+        assertArrayEquals(FileUtils.readFileToByteArray(gzipped), mockResponse.getContentAsByteArray());
+    }
+
+    @Test
+    public void shouldDecompressGzippedFileForClientsNotAcceptingGzip() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", gzippedConsoleLog("hello\n"));
+        model.put(FileView.GZIPPED, true);
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertNull(mockResponse.getHeader("Content-Encoding"));
+        assertEquals("hello\n", mockResponse.getContentAsString());
+    }
+
     @Test
     public void testShouldZipFileIfZipIsRequired() throws Exception {
         Map<String, Object> model = new HashMap<>();
@@ -122,6 +155,45 @@ public class FileViewTest {
         assertEquals(mockResponse.getContentAsString(), "hello");
     }
 
+    @Test
+    public void shouldServeRequestedByteRangeOfFile() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=1-3");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, mockResponse.getStatus());
+        assertEquals("bytes 1-3/5", mockResponse.getHeader("Content-Range"));
+        assertEquals("bytes", mockResponse.getHeader("Accept-Ranges"));
+        assertEquals(String.format("\"5-%d\"", file.lastModified()), mockResponse.getHeader("ETag"));
+        assertEquals("ell", mockResponse.getContentAsString());
+    }
+
+    @Test
+    public void shouldServeRestOfFileForOpenEndedByteRange() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=2-");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals("bytes 2-4/5", mockResponse.getHeader("Content-Range"));
+        assertEquals("llo", mockResponse.getContentAsString());
+    }
+
+    @Test
+    public void shouldRejectByteRangeBeyondEndOfFile() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=5-10");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, mockResponse.getStatus());
+        assertEquals("bytes */5", mockResponse.getHeader("Content-Range"));
+    }
+
     @Test
     public void testDefaultContentTypeShouldBeTextPlain() throws Exception {
         assertEquals("application/octet-stream", view.getContentType());
@@ -143,4 +215,12 @@ public class FileViewTest {
     private long getContentLength(MockHttpServletResponse mockResponse) {
         return Long.parseLong(mockResponse.getHeader("Content-Length"));
     }
+
+    private File gzippedConsoleLog(String content) throws IOException {
+        File gzipped = new File(temporaryFolder.newFolder(), "console.log.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipped))) {
+            out.write(content.getBytes(UTF_8));
+        }
+        return gzipped;
+    }
 }
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.web;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -63,8 +64,37 @@ public class ZipArtifactFolderViewFactoryTest {
         assertThat(targetFile, is(cacheZipFile));
     }
 
+    @Test public void shouldStreamFolderAsZipWhenItIsNotCached() throws Exception {
+        folderViewFactory = new ZipArtifactFolderViewFactory(streaming(null));
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder, "dir"));
+        assertThat(modelAndView.getViewName(), is("fileView"));
+        assertThat(modelAndView.getModel().get("targetFile"), is(folder));
+        assertThat(modelAndView.getModel().containsKey(FileView.NEED_TO_ZIP), is(true));
+    }
+
+    @Test public void shouldServeCachedZipOfAHotFolderWhenStreaming() throws Exception {
+        folderViewFactory = new ZipArtifactFolderViewFactory(streaming(cacheZipFile));
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder, "dir"));
+        assertThat(modelAndView.getModel().get("targetFile"), is(cacheZipFile));
+        assertThat(modelAndView.getModel().containsKey(FileView.NEED_TO_ZIP), is(false));
+    }
+
+    private ZipArtifactCache streaming(File cachedZip) {
+        return new ZipArtifactCache(null, null, new SystemEnvironment()) {
+            public boolean isStreamingEnabled() {
+                return true;
+            }
+
+            public File cachedFileIfHot(ArtifactFolder artifactFolder) {
+                return cachedZip;
+            }
+        };
+    }
+
     private ZipArtifactCache cacheAlreadyCreated() {
-        return new ZipArtifactCache(null, null) {
+        return new ZipArtifactCache(null, null, new SystemEnvironment()) {
             public boolean cacheCreated(ArtifactFolder artifactFolder) {
                 return true;
             }
@@ -76,7 +106,7 @@ public class ZipArtifactFolderViewFactoryTest {
     }
 
     private ZipArtifactCache cacheNotCreated() {
-        return new ZipArtifactCache(null, null) {
+        return new ZipArtifactCache(null, null, new SystemEnvironment()) {
             public boolean cacheCreated(ArtifactFolder artifactFolder) {
                 return false;
             }
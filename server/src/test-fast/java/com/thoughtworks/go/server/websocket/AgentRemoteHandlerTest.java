@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.websocket;
 
 import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.helper.AgentInstanceMother;
+import com.thoughtworks.go.helper.JobInstanceMother;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.AgentInstruction;
 import com.thoughtworks.go.remote.BuildRepositoryRemote;
@@ -177,6 +178,24 @@ public class AgentRemoteHandlerTest {
         assertThat(IOUtils.toString(arg.getValue()), containsString(consoleLine + "\n"));
     }
 
+    @Test
+    public void consoleOutFrameShouldAppendWholeFrame() throws Exception {
+        JobInstanceService jobInstanceService = mock(JobInstanceService.class);
+        handler = new AgentRemoteHandler(remote, agentService, jobInstanceService, consoleService);
+        JobInstance jobInstance = JobInstanceMother.building("job");
+        File consoleFile = new File("/some/dir");
+        when(jobInstanceService.buildById(42L)).thenReturn(jobInstance);
+        when(consoleService.consoleLogFile(jobInstance.getIdentifier())).thenReturn(consoleFile);
+        when(consoleService.updateConsoleLog(eq(consoleFile), any(InputStream.class))).thenReturn(true);
+
+        ConsoleFrameTransmission frame = new ConsoleFrameTransmission("42", 2, "first line\nsecond line\n");
+        handler.process(agent, new Message(Action.consoleOutFrame, MessageEncoding.encodeData(frame)));
+
+        ArgumentCaptor<InputStream> arg = ArgumentCaptor.forClass(InputStream.class);
+        verify(consoleService).updateConsoleLog(eq(consoleFile), arg.capture());
+        assertEquals("first line\nsecond line\n", IOUtils.toString(arg.getValue()));
+    }
+
     @Test
     public void reportCompleted() throws Exception {
         AgentRuntimeInfo info = new AgentRuntimeInfo(new AgentIdentifier("HostName", "ipAddress", "uuid"), AgentRuntimeStatus.Idle, null, null, false);
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleStreamer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ConsoleLogTailPublisherTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ConsoleLogSender sender;
+    private ConsoleService consoleService;
+    private JobIdentifier jobIdentifier;
+    private File console;
+    private ConsoleLogTailPublisher publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.consoleLogCharsetAsCharset()).thenReturn(UTF_8);
+        consoleService = mock(ConsoleService.class);
+        sender = new ConsoleLogSender(consoleService, mock(JobInstanceDao.class), mock(SocketHealthService.class), systemEnvironment);
+        jobIdentifier = mock(JobIdentifier.class);
+        console = temporaryFolder.newFile("console.log");
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+        publisher = new ConsoleLogTailPublisher(jobIdentifier, console, sender, consoleService);
+    }
+
+    @Test
+    public void shouldSendEachNewChunkOfTheLogToEverySubscriber() throws Exception {
+        append("first\nsecond\n");
+        SocketEndpoint early = socket();
+        subscribe(early, 0L);
+
+        append("third\n");
+        publisher.publish();
+        verify(early).sendAsync(eq(chunk("third\n")), any(WriteCallback.class));
+
+        SocketEndpoint late = socket();
+        append("fourth\n");
+        subscribe(late, 1L);
+        verify(late).send(chunk("second\nthird\nfourth\n"));
+        verify(early).sendAsync(eq(chunk("fourth\n")), any(WriteCallback.class));
+
+        append("fifth\n");
+        publisher.publish();
+
+        ArgumentCaptor<ByteBuffer> sentToEarly = ArgumentCaptor.forClass(ByteBuffer.class);
+        ArgumentCaptor<ByteBuffer> sentToLate = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(early, times(3)).sendAsync(sentToEarly.capture(), any(WriteCallback.class));
+        verify(late, times(1)).sendAsync(sentToLate.capture(), any(WriteCallback.class));
+        assertThat(sentToEarly.getValue(), is(chunk("fifth\n")));
+        assertThat(sentToLate.getValue(), is(chunk("fifth\n")));
+        assertThat(sentToLate.getValue().array() == sentToEarly.getValue().array(), is(true));
+    }
+
+    @Test
+    public void shouldStopSendingToSubscribersWhichHaveGoneAway() throws Exception {
+        SocketEndpoint leaving = socket();
+        SocketEndpoint staying = socket();
+        subscribe(leaving, 0L);
+        subscribe(staying, 0L);
+
+        when(leaving.isOpen()).thenReturn(false);
+        append("line\n");
+        publisher.publish();
+
+        verify(leaving, never()).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        verify(staying).sendAsync(eq(chunk("line\n")), any(WriteCallback.class));
+        assertThat(publisher.hasSubscribers(), is(true));
+    }
+
+    @Test
+    public void shouldDisconnectASubscriberFallingTooFarBehindWithoutHoldingUpTheOthers() throws Exception {
+        List<WriteCallback> pendingWrites = new ArrayList<>();
+        SocketEndpoint slow = mock(SocketEndpoint.class);
+        when(slow.isOpen()).thenReturn(true);
+        doAnswer(invocation -> pendingWrites.add(invocation.getArgument(1))).when(slow).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        SocketEndpoint fast = socket();
+        subscribe(slow, 0L);
+        subscribe(fast, 0L);
+
+        for (int i = 0; i <= ConsoleLogTailPublisher.MAX_UNSENT_CHUNKS + 1; i++) {
+            append("line " + i + "\n");
+            publisher.publish();
+        }
+
+        verify(slow, times(1)).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        verify(fast, times(ConsoleLogTailPublisher.MAX_UNSENT_CHUNKS + 2)).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        verify(slow, never()).close(anyInt(), any());
+
+        pendingWrites.get(0).writeSuccess();
+
+        verify(slow).close(eq(ConsoleLogTailPublisher.RECONNECT_TO_RESUME), any());
+        verify(slow, times(1)).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        assertThat(publisher.hasSubscribers(), is(true));
+    }
+
+    @Test
+    public void shouldPublishWhatIsLeftAndCloseSubscribersOnCompletion() throws Exception {
+        SocketEndpoint socket = socket();
+        subscribe(socket, 0L);
+        append("last line\n");
+
+        publisher.complete();
+
+        verify(socket).sendAsync(eq(chunk("last line\n")), any(WriteCallback.class));
+        verify(socket).close(anyInt(), any());
+        assertThat(publisher.isCompleted(), is(true));
+        assertThat(publisher.subscribe(socket(), new ConsoleStreamer(console.toPath(), 0L), 0L), is(false));
+    }
+
+    @Test
+    public void shouldSendLinesLoggedJustBeforeTheLogWasMovedOnCompletion() throws Exception {
+        SocketEndpoint socket = socket();
+        append("first\n");
+        subscribe(socket, 0L);
+        File moved = temporaryFolder.newFile("moved-console.log");
+        Files.write(moved.toPath(), "first\nlogged before the move\n".getBytes(UTF_8));
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).thenAnswer(invocation -> new ConsoleStreamer(moved.toPath(), invocation.getArgument(0)));
+
+        publisher.complete();
+
+        verify(socket).sendAsync(eq(chunk("logged before the move\n")), any(WriteCallback.class));
+        verify(socket).close(anyInt(), any());
+    }
+
+    private void subscribe(SocketEndpoint socket, long start) throws Exception {
+        ConsoleStreamer streamer = new ConsoleStreamer(console.toPath(), start);
+        long next = start + sender.sendLogs(socket::send, streamer, jobIdentifier);
+        assertThat(publisher.subscribe(socket, streamer, next), is(true));
+    }
+
+    private SocketEndpoint socket() {
+        SocketEndpoint socket = mock(SocketEndpoint.class);
+        when(socket.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<WriteCallback>getArgument(1).writeSuccess();
+            return null;
+        }).when(socket).sendAsync(any(ByteBuffer.class), any(WriteCallback.class));
+        return socket;
+    }
+
+    private ByteBuffer chunk(String lines) {
+        return ByteBuffer.wrap(sender.maybeGzipIfLargeEnough(lines.getBytes(UTF_8)));
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(console.toPath(), text.getBytes(UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inmemory.InMemoryMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares messages per second and bytes allocated per message when posting to a queue with a single consumer,
+ * through the embedded ActiveMQ broker and through in-memory queues.
+ */
+@Ignore
+public class MessagingServicePerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(MessagingServicePerformanceTest.class.getName());
+    private static final int WARM_UP_MESSAGES = 2000;
+    private static final int NUMBER_OF_MESSAGES = 20000;
+
+    @Test
+    public void inMemoryQueuesShouldDeliverMoreMessagesPerSecondThanActiveMq() throws Exception {
+        Result activeMq = measure(new ActiveMqMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), new ServerHealthService()));
+        Result inMemory = measure(new InMemoryMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment()));
+
+        LOGGER.info("ActiveMQ: {} messages/sec, {} bytes allocated/message", Math.round(activeMq.messagesPerSecond), activeMq.bytesPerMessage);
+        LOGGER.info("In-memory: {} messages/sec, {} bytes allocated/message", Math.round(inMemory.messagesPerSecond), inMemory.bytesPerMessage);
+        assertThat(inMemory.messagesPerSecond, greaterThan(activeMq.messagesPerSecond));
+    }
+
+    private Result measure(MessagingService messaging) throws Exception {
+        try {
+            GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "performance-test");
+            CountingListener listener = new CountingListener(WARM_UP_MESSAGES + NUMBER_OF_MESSAGES);
+            queue.addListener(listener);
+
+            for (int i = 0; i < WARM_UP_MESSAGES; i++) {
+                queue.post(new GoTextMessage("warm up " + i));
+            }
+            listener.awaitAtLeast(WARM_UP_MESSAGES);
+
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+                queue.post(new GoTextMessage("message " + i));
+            }
+            assertTrue("Timed out waiting for messages", listener.latch.await(5, TimeUnit.MINUTES));
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            return new Result(NUMBER_OF_MESSAGES / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)), allocated / NUMBER_OF_MESSAGES);
+        } finally {
+            messaging.stop();
+        }
+    }
+
+    // allocation across all live threads, so that broker and consumer threads are counted along with the producer
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(allocated, 0);
+        }
+        return total;
+    }
+
+    private static class Result {
+        private final double messagesPerSecond;
+        private final long bytesPerMessage;
+
+        Result(double messagesPerSecond, long bytesPerMessage) {
+            this.messagesPerSecond = messagesPerSecond;
+            this.bytesPerMessage = bytesPerMessage;
+        }
+    }
+
+    private static class CountingListener implements GoMessageListener<GoTextMessage> {
+        private final int expected;
+        private final CountDownLatch latch;
+
+        CountingListener(int expected) {
+            this.expected = expected;
+            this.latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            latch.countDown();
+        }
+
+        void awaitAtLeast(int received) throws InterruptedException {
+            while (expected - latch.getCount() < received) {
+                Thread.sleep(10);
+            }
+        }
+    }
+}
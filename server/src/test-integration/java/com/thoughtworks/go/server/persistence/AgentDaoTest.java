@@ -17,7 +17,12 @@
 package com.thoughtworks.go.server.persistence;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
 
+import com.thoughtworks.go.config.AgentConfig;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.dao.DatabaseAccessHelper;
@@ -148,6 +153,41 @@ public class AgentDaoTest {
         agentDao.setHibernateTemplate(originalTemplate);
     }
 
+    @Test
+    public void shouldStoreAgentConfigAlongsideCookieMapping() throws Exception {
+        AgentConfig agentConfig = new AgentConfig("uuid", "host", "127.0.0.1");
+        agentConfig.setElasticAgentId("elastic-agent-id");
+        agentConfig.setElasticPluginId("docker");
+        agentConfig.disable();
+
+        agentDao.saveConfig(agentConfig, Arrays.asList("uat", "prod"));
+        agentDao.associateCookie(new AgentIdentifier("host", "127.0.0.1", "uuid"), "cookie");
+
+        List<Agent> agents = agentDao.agentsWithConfig();
+        assertThat(agents.size(), is(1));
+        assertThat(agents.get(0).getCookie(), is("cookie"));
+        assertThat(agents.get(0).toAgentConfig(), is(agentConfig));
+        assertThat(agents.get(0).toAgentConfig().isDisabled(), is(true));
+        assertThat(agents.get(0).getEnvironments(), is(new TreeSet<>(Arrays.asList("prod", "uat"))));
+
+        agentDao.removeConfig("uuid");
+
+        assertThat(agentDao.agentsWithConfig(), is(Collections.emptyList()));
+        assertThat(agentDao.cookieFor(new AgentIdentifier("host", "127.0.0.1", "uuid")), is("cookie"));
+    }
+
+    @Test
+    public void shouldDeleteTheRowWhenRemovingTheConfigOfAnAgentWhichNeverGotACookie() {
+        AgentConfig agentConfig = new AgentConfig("uuid", "host", "127.0.0.1");
+        agentConfig.setElasticAgentId("elastic-agent-id");
+        agentConfig.setElasticPluginId("plugin-id");
+        agentDao.saveConfig(agentConfig, Collections.emptySet());
+
+        agentDao.removeConfig("uuid");
+
+        assertThat(getAgentByUuid(new AgentIdentifier("host", "127.0.0.1", "uuid")), is(nullValue()));
+    }
+
     private Agent getAgentByUuid(AgentIdentifier agentIdentifier) {
         return (Agent) hibernateTemplate.execute(new HibernateCallback() {
             public Object doInHibernate(Session session) throws HibernateException, SQLException {
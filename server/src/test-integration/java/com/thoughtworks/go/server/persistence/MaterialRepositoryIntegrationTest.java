@@ -1294,6 +1294,40 @@ public class MaterialRepositoryIntegrationTest {
         assertThat(repo.getTotalModificationsFor(materialInstance), is(new Long(count+1)));
     }
 
+    @Test
+    public void shouldInsertLargeNumbersOfModificationsWithTheirFilesInBatches() {
+        GitMaterial material = new GitMaterial(UUID.randomUUID().toString(), "branch");
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(material);
+        final ArrayList<Modification> modifications = getModificationsWithFiles(500, 3);
+        transactionTemplate.execute(new TransactionCallback() {
+            public Object doInTransaction(TransactionStatus status) {
+                repo.saveModifications(materialInstance, modifications);
+                return null;
+            }
+        });
+
+        assertThat(repo.getTotalModificationsFor(materialInstance), is(500L));
+        for (Modification modification : modifications) {
+            assertThat(modification.hasId(), is(true));
+        }
+        Modification saved = repo.findModificationWithRevision(material, "r42");
+        assertThat(saved.getId(), is(modifications.get(42).getId()));
+        assertThat(saved.getComment(), is("comment"));
+        assertThat(saved.getModifiedFiles().size(), is(3));
+        assertThat(saved.getModifiedFiles().get(0).getFileName(), is("r42/file-0.txt"));
+        assertThat(saved.getModifiedFiles().get(0).getAction(), is(ModifiedAction.added));
+    }
+
+    private ArrayList<Modification> getModificationsWithFiles(int count, int filesPerModification) {
+        ArrayList<Modification> modifications = getModifications(count);
+        for (Modification modification : modifications) {
+            for (int i = 0; i < filesPerModification; i++) {
+                modification.createModifiedFile(modification.getRevision() + "/file-" + i + ".txt", null, i % 2 == 0 ? ModifiedAction.added : ModifiedAction.modified);
+            }
+        }
+        return modifications;
+    }
+
     private ArrayList<Modification> getModifications(int count) {
         final ArrayList<Modification> modifications = new ArrayList<>();
         for (int i = 0; i < count; i++) {
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.domain.MaterialInstance;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedAction;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.dao.DatabaseAccessHelper;
+import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+@Ignore
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {
+        "classpath:WEB-INF/applicationContext-global.xml",
+        "classpath:WEB-INF/applicationContext-dataLocalAccess.xml",
+        "classpath:testPropertyConfigurer.xml",
+        "classpath:WEB-INF/spring-all-servlet.xml",
+})
+public class MaterialRepositoryPerformanceTest {
+    private static Logger LOGGER = LoggerFactory.getLogger(MaterialRepositoryPerformanceTest.class.getName());
+
+    @Autowired private MaterialRepository repo;
+    @Autowired private GoCache goCache;
+    @Autowired private DatabaseAccessHelper dbHelper;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        dbHelper.onSetUp();
+        goCache.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        goCache.clear();
+        dbHelper.onTearDown();
+    }
+
+    @Test
+    public void shouldSaveModificationsFasterInBatchesThanOneAtATime() {
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        try {
+            systemEnvironment.set(SystemEnvironment.MODIFICATIONS_BULK_INSERT_THRESHOLD, Integer.MAX_VALUE);
+            double oneAtATime = rowsPerSecondSaving(2000, 10);
+            systemEnvironment.set(SystemEnvironment.MODIFICATIONS_BULK_INSERT_THRESHOLD, 1);
+            double batched = rowsPerSecondSaving(2000, 10);
+
+            LOGGER.info("Saving modifications with their files: one at a time {} rows/sec, in batches {} rows/sec", Math.round(oneAtATime), Math.round(batched));
+            assertThat(batched, greaterThan(oneAtATime));
+        } finally {
+            systemEnvironment.reset(SystemEnvironment.MODIFICATIONS_BULK_INSERT_THRESHOLD);
+        }
+    }
+
+    private double rowsPerSecondSaving(int numberOfModifications, int filesPerModification) {
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(new GitMaterial(UUID.randomUUID().toString(), "branch"));
+        final ArrayList<Modification> modifications = new ArrayList<>();
+        for (int i = 0; i < numberOfModifications; i++) {
+            Modification modification = new Modification("user", "comment", "email", new Date(), "r" + i);
+            for (int j = 0; j < filesPerModification; j++) {
+                modification.createModifiedFile(modification.getRevision() + "/file-" + j + ".txt", null, j % 2 == 0 ? ModifiedAction.added : ModifiedAction.modified);
+            }
+            modifications.add(modification);
+        }
+
+        long start = System.nanoTime();
+        transactionTemplate.execute(new TransactionCallback() {
+            public Object doInTransaction(TransactionStatus status) {
+                repo.saveModifications(materialInstance, modifications);
+                return null;
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return numberOfModifications * (1 + filesPerModification) / seconds;
+    }
+}
@@ -32,6 +32,7 @@ import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.messaging.SendEmailMessage;
 import com.thoughtworks.go.server.messaging.ServerBackupQueue;
 import com.thoughtworks.go.server.persistence.ServerBackupRepository;
+import com.thoughtworks.go.server.service.backup.BackupManifest;
 import com.thoughtworks.go.server.service.backup.BackupUpdateListener;
 import com.thoughtworks.go.service.ConfigRepository;
 import com.thoughtworks.go.util.*;
@@ -57,6 +58,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import javax.sql.DataSource;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Semaphore;
@@ -65,6 +67,7 @@ import java.util.zip.ZipInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.codec.binary.Hex.encodeHexString;
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -199,6 +202,45 @@ public class BackupServiceIntegrationTest {
         assertThat(FileUtils.readFileToString(version, UTF_8), is(CurrentGoCDVersion.getInstance().formatted()));
     }
 
+    @Test
+    public void shouldOnlyCopyConfigFilesChangedSinceThePreviousBackupWhileKeepingEachBackupWholeWhenBackupsAreIncremental() throws Exception {
+        systemEnvironment.set(SystemEnvironment.BACKUP_INCREMENTAL, true);
+        systemEnvironment.set(SystemEnvironment.BACKUP_PARALLEL_STEPS, true);
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        when(timeProvider.currentDateTime()).thenReturn(new DateTime(2019, 4, 1, 0, 0), new DateTime(2019, 4, 2, 0, 0));
+        BackupService backupService = new BackupService(artifactsDirHolder, goConfigService, timeProvider, backupInfoRepository, systemEnvironment, configRepository, databaseStrategy, null);
+        try {
+            createConfigFile("unchanged", "same");
+            createConfigFile("changed", "before");
+            ServerBackup first = backupService.startBackup(admin);
+            createConfigFile("changed", "after");
+            ServerBackup second = backupService.startBackup(admin);
+
+            assertThat(first.isSuccessful(), is(true));
+            assertThat(second.isSuccessful(), is(true));
+            File firstConfigDir = new File(first.getPath(), "config-dir");
+            File secondConfigDir = new File(second.getPath(), "config-dir");
+            assertThat(Files.isSameFile(new File(firstConfigDir, "unchanged").toPath(), new File(secondConfigDir, "unchanged").toPath()), is(true));
+            assertThat(Files.isSameFile(new File(firstConfigDir, "changed").toPath(), new File(secondConfigDir, "changed").toPath()), is(false));
+
+            BackupManifest manifest = BackupManifest.readFrom(new File(second.getPath(), "config-dir.manifest"));
+            assertThat(manifest.holds("unchanged", md5Hex("same")), is(true));
+            assertThat(manifest.holds("changed", md5Hex("after")), is(true));
+
+            FileUtils.deleteDirectory(new File(first.getPath()));
+            assertThat(FileUtils.readFileToString(new File(secondConfigDir, "unchanged"), UTF_8), is("same"));
+            assertThat(FileUtils.readFileToString(new File(secondConfigDir, "changed"), UTF_8), is("after"));
+            assertThat(FileUtils.readFileToString(new File(secondConfigDir, "cruise-config.xml"), UTF_8), is(goConfigService.xml()));
+            assertThat(new File(second.getPath(), "config-repo.bundle").exists(), is(true));
+            assertThat(FileUtils.readFileToString(new File(second.getPath(), "config-repo.head"), UTF_8), is(configRepository.getCurrentRevCommit().getName()));
+            assertThat(second.getStepTimings().keySet(), containsInAnyOrder("Version", "Config", "Config repo", "Database"));
+        } finally {
+            systemEnvironment.reset(SystemEnvironment.BACKUP_INCREMENTAL);
+            systemEnvironment.reset(SystemEnvironment.BACKUP_PARALLEL_STEPS);
+            deleteConfigFileIfExists("unchanged", "changed");
+        }
+    }
+
     @Test
     public void shouldSendEmailToAdminAfterTakingBackup() {
         GoConfigService configService = mock(GoConfigService.class);